@@ -0,0 +1,54 @@
+package com.nimvb.app.discord.configuration;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of checking one login password through the {@link DelegatingPasswordEncoder} built by
+ * {@link EncodingConfiguration}, for a bcrypt hash of the configured {@code strength} and for a legacy pbkdf2 hash which
+ * is matched through the default encoder until it is re-hashed
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "password";
+
+    @Param({"4", "10"})
+    public int strength;
+
+    private PasswordEncoder encoder;
+    private String          hash;
+    private String          legacyHash;
+
+    @Setup
+    public void setup() {
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength)));
+        delegating.setDefaultPasswordEncoderForMatches(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        encoder = delegating;
+        hash = encoder.encode(PASSWORD);
+        legacyHash = "{pbkdf2}" + new Pbkdf2PasswordEncoder().encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, hash);
+    }
+
+    @Benchmark
+    public boolean matchesLegacyHash() {
+        return encoder.matches(PASSWORD, legacyHash);
+    }
+}
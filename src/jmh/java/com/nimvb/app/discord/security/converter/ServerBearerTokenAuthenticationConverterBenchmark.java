@@ -0,0 +1,58 @@
+package com.nimvb.app.discord.security.converter;
+
+import com.nimvb.app.discord.security.util.Jwe;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.Authentication;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per request cost of extracting the bearer token from the {@code Authorization} header, which runs the header through
+ * the token pattern, for a well formed token and for one the pattern rejects
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ServerBearerTokenAuthenticationConverterBenchmark {
+
+    private ServerBearerTokenAuthenticationConverter converter;
+    private MockServerWebExchange                    valid;
+    private MockServerWebExchange                    malformed;
+
+    @Setup
+    public void setup() throws Exception {
+        String token = Jwe.create()
+                .withSubject("username")
+                .withIssuer("users")
+                .withExpiredAt(Date.from(Instant.now().plus(1, ChronoUnit.HOURS)))
+                .withClaim("roles", List.of("user"))
+                .encrypt(Jwe.Algorithm.AES128HS256("default", "secret"));
+        converter = new ServerBearerTokenAuthenticationConverter();
+        valid = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/users")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .build());
+        malformed = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/users")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token.replace('.', '!'))
+                .build());
+    }
+
+    @Benchmark
+    public Authentication convertValidToken() {
+        return converter.convert(valid).block();
+    }
+
+    @Benchmark
+    public Authentication convertMalformedToken() {
+        return converter.convert(malformed).block();
+    }
+}
@@ -0,0 +1,108 @@
+package com.nimvb.app.discord.security.manager;
+
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
+import com.nimvb.app.discord.security.provider.ReactiveAuthenticationProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.RememberMeAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per request overhead of picking a provider through the precomputed dispatch table compared to resolving the
+ * supporting providers with a {@link Flux} on every call. The providers do no work so only the dispatch is measured;
+ * {@code rejected} adds the cost of failing with an {@link AuthenticationFailedException} and counting it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AuthenticationManagerDispatchBenchmark {
+
+    private Set<ReactiveAuthenticationProvider> providers;
+    private ReactiveAuthenticationManager       manager;
+    private Authentication                      authentication;
+    private ReactiveAuthenticationManager       rejecting;
+
+    @Setup
+    public void setup() {
+        providers = new LinkedHashSet<>(List.of(
+                new NoopProvider(RememberMeAuthenticationToken.class),
+                new NoopProvider(TestingAuthenticationToken.class),
+                new NoopProvider(UsernamePasswordAuthenticationToken.class)));
+        manager = new CustomReactiveAuthenticationManager(providers);
+        authentication = new UsernamePasswordAuthenticationToken("username", "password");
+        rejecting = CustomReactiveAuthenticationManager.builder()
+                .add(new RejectingProvider())
+                .meterRegistry(new SimpleMeterRegistry())
+                .build();
+    }
+
+    @Benchmark
+    public Authentication dispatchTable() {
+        return manager.authenticate(authentication).block();
+    }
+
+    @Benchmark
+    public Authentication fluxResolution() {
+        return Flux.fromIterable(providers)
+                .flatMap(provider -> provider.supports(authentication.getClass())
+                        .filter(aBoolean -> aBoolean)
+                        .map(aBoolean -> provider))
+                .flatMap(provider -> provider.authenticate(authentication))
+                .next()
+                .block();
+    }
+
+    @Benchmark
+    public Throwable rejected() {
+        return rejecting.authenticate(authentication)
+                .then(Mono.<Throwable>empty())
+                .onErrorResume(Mono::just)
+                .block();
+    }
+
+    private static final class NoopProvider implements ReactiveAuthenticationProvider {
+
+        private final Class<? extends Authentication> supported;
+
+        private NoopProvider(Class<? extends Authentication> supported) {
+            this.supported = supported;
+        }
+
+        @Override
+        public Mono<Authentication> authenticate(Authentication authentication) {
+            return Mono.just(authentication);
+        }
+
+        @Override
+        public boolean isSupported(Class<?> authentication) {
+            return authentication != null && supported.isAssignableFrom(authentication);
+        }
+    }
+
+    private static final class RejectingProvider implements ReactiveAuthenticationProvider {
+
+        @Override
+        public Mono<Authentication> authenticate(Authentication authentication) {
+            return Mono.error(() -> new AuthenticationFailedException(AuthenticationFailedException.Reason.INVALID_CREDENTIALS,
+                    "invalid username or password"));
+        }
+
+        @Override
+        public boolean isSupported(Class<?> authentication) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.nimvb.app.discord.security.matcher;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.web.server.util.matcher.*;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per request cost of the matchers the security chains run on a request to a private resource: the public chain's
+ * matcher, then the bearer token and login filters' ones, either through the compiled {@link SecurityRoutes} or the
+ * {@link PathPatternParserServerWebExchangeMatcher}s they replace. The attributes of the exchange are cleared on
+ * every call so the route is resolved each time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SecurityRoutesBenchmark {
+
+    @Param({"/api/v1/logout", "/api/v1/users/availability"})
+    public String path;
+
+    private MockServerWebExchange    exchange;
+    private ServerWebExchangeMatcher publicResources;
+    private ServerWebExchangeMatcher bearerTokenRequired;
+    private ServerWebExchangeMatcher login;
+    private ServerWebExchangeMatcher compiledPublicResources;
+    private ServerWebExchangeMatcher compiledBearerTokenRequired;
+    private ServerWebExchangeMatcher compiledLogin;
+
+    @Setup
+    public void setup() {
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path).build());
+        publicResources = new OrServerWebExchangeMatcher(
+                new PathPatternParserServerWebExchangeMatcher("/api/v1/users/**", HttpMethod.POST),
+                new PathPatternParserServerWebExchangeMatcher("/api/v1/users/**", HttpMethod.OPTIONS),
+                new PathPatternParserServerWebExchangeMatcher("/api/v1/users/availability", HttpMethod.GET),
+                new PathPatternParserServerWebExchangeMatcher("/v3/api-docs/**"),
+                new PathPatternParserServerWebExchangeMatcher("/swagger-ui/**"),
+                new PathPatternParserServerWebExchangeMatcher("/swagger-ui.html"),
+                new PathPatternParserServerWebExchangeMatcher("/webjars/swagger-ui/**"));
+        bearerTokenRequired = new NegatedServerWebExchangeMatcher(new PathPatternParserServerWebExchangeMatcher("/api/v1/authenticate**", HttpMethod.POST));
+        login = new AndServerWebExchangeMatcher(ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, "/api/v1/authenticate"),
+                ServerWebExchangeMatchers.matchers(exchange ->
+                        Mono.fromCallable(() -> MediaType.APPLICATION_FORM_URLENCODED.isCompatibleWith(exchange.getRequest().getHeaders().getContentType()))
+                                .flatMap(isContentTypeMatched -> isContentTypeMatched ?
+                                        ServerWebExchangeMatcher.MatchResult.match() :
+                                        ServerWebExchangeMatcher.MatchResult.notMatch())));
+        compiledPublicResources = SecurityRoutes.publicResources();
+        compiledBearerTokenRequired = SecurityRoutes.bearerTokenRequired();
+        compiledLogin = SecurityRoutes.login();
+    }
+
+    @Benchmark
+    public boolean pathPatterns() {
+        exchange.getAttributes().clear();
+        return publicResources.matches(exchange).block().isMatch()
+                || (bearerTokenRequired.matches(exchange).block().isMatch() & login.matches(exchange).block().isMatch());
+    }
+
+    @Benchmark
+    public boolean compiledRoutes() {
+        exchange.getAttributes().clear();
+        return compiledPublicResources.matches(exchange).block().isMatch()
+                || (compiledBearerTokenRequired.matches(exchange).block().isMatch() & compiledLogin.matches(exchange).block().isMatch());
+    }
+}
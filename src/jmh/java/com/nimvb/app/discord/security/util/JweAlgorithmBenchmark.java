@@ -0,0 +1,55 @@
+package com.nimvb.app.discord.security.util;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating one bearer token when the key is derived per request compared to
+ * sharing a single {@link Jwe.Algorithm}, and of deriving the key alone
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JweAlgorithmBenchmark {
+
+    private static final String SECRET = "secret";
+
+    private String                token;
+    private Jwe.DecryptionManager decryptionManager;
+
+    @Setup
+    public void setup() throws Exception {
+        Jwe.Algorithm algorithm = Jwe.Algorithm.AES128HS256(SECRET);
+        token = Jwe.create()
+                .withSubject("username")
+                .withIssuer("users")
+                .withExpiredAt(Date.from(Instant.now().plus(1, ChronoUnit.HOURS)))
+                .withClaim("roles", List.of("user"))
+                .encrypt(algorithm);
+        decryptionManager = Jwe.require(algorithm).build();
+    }
+
+    @Benchmark
+    public JWTClaimsSet decryptDerivingKeyPerRequest() throws Exception {
+        return Jwe.require(Jwe.Algorithm.AES128HS256(SECRET)).build().decrypt(token);
+    }
+
+    @Benchmark
+    public JWTClaimsSet decryptWithSharedAlgorithm() throws Exception {
+        return decryptionManager.decrypt(token);
+    }
+
+    @Benchmark
+    public Jwe.Algorithm deriveKey() throws Exception {
+        return Jwe.Algorithm.AES128HS256(SECRET);
+    }
+}
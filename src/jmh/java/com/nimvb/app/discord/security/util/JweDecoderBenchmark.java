@@ -0,0 +1,49 @@
+package com.nimvb.app.discord.security.util;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading the claims of one access token through nimbus compared to the specialised decoder.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JweDecoderBenchmark {
+
+    private String                token;
+    private Jwe.DecryptionManager decryptionManager;
+
+    @Setup
+    public void setup() throws Exception {
+        Jwe.Algorithm algorithm = Jwe.Algorithm.AES128HS256("default", "secret");
+        Instant       now       = Instant.now();
+        token = Jwe.create()
+                .withSubject("username")
+                .withIssuer("users")
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                .withClaim("roles", List.of("user"))
+                .encrypt(algorithm);
+        decryptionManager = Jwe.require(algorithm).build();
+    }
+
+    @Benchmark
+    public JWTClaimsSet decrypt() throws Exception {
+        return decryptionManager.decrypt(token);
+    }
+
+    @Benchmark
+    public Jwe.Claims decode() throws Exception {
+        return decryptionManager.decode(token);
+    }
+}
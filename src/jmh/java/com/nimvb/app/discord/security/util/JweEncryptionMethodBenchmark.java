@@ -0,0 +1,60 @@
+package com.nimvb.app.discord.security.util;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypt and decrypt throughput of an access token sized payload for each supported content encryption
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JweEncryptionMethodBenchmark {
+
+    @Param({"A128CBC-HS256", "A128GCM", "A256GCM"})
+    public String method;
+
+    private Jwe.Algorithm         algorithm;
+    private Jwe.DecryptionManager decryptionManager;
+    private Jwe.Builder           builder;
+    private String                token;
+
+    @Setup
+    public void setup() throws Exception {
+        algorithm = Jwe.Algorithm.of("default", "secret", EncryptionMethod.parse(method));
+        Instant now = Instant.now();
+        builder = Jwe.create()
+                .withSubject("username")
+                .withIssuer("users")
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                .withClaim("roles", List.of("user"));
+        token = builder.encrypt(algorithm);
+        decryptionManager = Jwe.require(algorithm).build();
+    }
+
+    @Benchmark
+    public String encrypt() throws Exception {
+        return builder.encrypt(algorithm);
+    }
+
+    @Benchmark
+    public JWTClaimsSet decrypt() throws Exception {
+        return decryptionManager.decrypt(token);
+    }
+
+    @Benchmark
+    public Jwe.Claims decode() throws Exception {
+        return decryptionManager.decode(token);
+    }
+}
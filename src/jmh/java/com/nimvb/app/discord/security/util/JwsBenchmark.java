@@ -0,0 +1,65 @@
+package com.nimvb.app.discord.security.util;
+
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating one access token when it is only signed compared to when it is encrypted
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JwsBenchmark {
+
+    private String                  encrypted;
+    private String                  hs256;
+    private String                  ed25519;
+    private Jwe.DecryptionManager   decryptionManager;
+    private Jws.VerificationManager hs256VerificationManager;
+    private Jws.VerificationManager ed25519VerificationManager;
+
+    @Setup
+    public void setup() throws Exception {
+        Instant now = Instant.now();
+        Jwe.Builder builder = Jwe.create()
+                .withSubject("username")
+                .withIssuer("users")
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                .withClaim("roles", List.of("user"));
+        Jwe.Algorithm encryption = Jwe.Algorithm.AES128HS256("default", "secret");
+        Jws.Algorithm hmac       = Jws.Algorithm.HS256("default", "secret");
+        Jws.Algorithm edDsa      = Jws.Algorithm.Ed25519(new OctetKeyPairGenerator(Curve.Ed25519).keyID("default").generate());
+        encrypted = builder.encrypt(encryption);
+        hs256 = builder.sign(hmac);
+        ed25519 = builder.sign(edDsa);
+        decryptionManager = Jwe.require(encryption).build();
+        hs256VerificationManager = Jws.require(Jws.KeyRing.of(hmac)).build();
+        ed25519VerificationManager = Jws.require(Jws.KeyRing.of(edDsa)).build();
+    }
+
+    @Benchmark
+    public Jwe.Claims decrypt() throws Exception {
+        return decryptionManager.decode(encrypted);
+    }
+
+    @Benchmark
+    public Jwe.Claims verifyHS256() throws Exception {
+        return hs256VerificationManager.decode(hs256);
+    }
+
+    @Benchmark
+    public Jwe.Claims verifyEd25519() throws Exception {
+        return ed25519VerificationManager.decode(ed25519);
+    }
+}
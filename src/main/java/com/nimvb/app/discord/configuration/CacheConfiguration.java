@@ -0,0 +1,63 @@
+package com.nimvb.app.discord.configuration;
+
+import com.nimvb.app.discord.security.cache.UserDetailsCache;
+import com.nimvb.app.discord.service.UserChangeStreamTailer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+public class CacheConfiguration {
+
+    /**
+     * Keeps {@code spring.security.user-details.cache.maximum-size} users for {@code expire-after-write} at most;
+     * the hit ratio and the load latency are published as the {@code cache.*} metrics of the {@code users.details} cache
+     */
+    @Bean
+    UserDetailsCache userDetailsCache(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        final UserDetailsCache cache = new UserDetailsCache(
+                binder.bind("spring.security.user-details.cache.maximum-size", Long.class).orElse(10_000L),
+                binder.bind("spring.security.user-details.cache.expire-after-write", Duration.class).orElse(Duration.ofMinutes(1)));
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache.getNativeCache(), "users.details"));
+        return cache;
+    }
+
+    /**
+     * Drops the users changed on the other nodes from the {@link UserDetailsCache}; up to
+     * {@code users.change-stream.buffer-size} changes are buffered, the position is saved every
+     * {@code checkpoint-interval}, and while the stream can not be followed it is tried again every
+     * {@code retry-interval} (zero disables the tailing) and the users are cached for {@code fallback-ttl} only. The
+     * users kept in memory change only on this node, so there is no stream to follow then
+     */
+    @Bean
+    @Profile("!" + InMemoryUserRepositoryConfiguration.PROFILE)
+    UserChangeStreamTailer userChangeStreamTailer(ReactiveMongoTemplate template,
+                                                  ApplicationEventPublisher eventPublisher,
+                                                  UserDetailsCache userDetailsCache,
+                                                  Clock clock,
+                                                  ObjectProvider<MeterRegistry> meterRegistry,
+                                                  Environment environment) {
+        Binder binder = Binder.get(environment);
+        return new UserChangeStreamTailer(template,
+                eventPublisher,
+                userDetailsCache,
+                clock,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new),
+                binder.bind("users.change-stream.buffer-size", Integer.class).orElse(256),
+                binder.bind("users.change-stream.retry-interval", Duration.class).orElse(Duration.ofSeconds(30)),
+                binder.bind("users.change-stream.checkpoint-interval", Duration.class).orElse(Duration.ofSeconds(10)),
+                binder.bind("users.change-stream.fallback-ttl", Duration.class).orElse(Duration.ofSeconds(5)));
+    }
+}
@@ -0,0 +1,51 @@
+package com.nimvb.app.discord.configuration;
+
+import com.nimvb.app.discord.security.service.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class ConcurrencyLimitConfiguration {
+
+    /**
+     * In front of the logins and the registrations
+     */
+    public static final String AUTHENTICATION = "authenticationConcurrencyLimiter";
+
+    /**
+     * In front of the requests authenticated with a bearer token
+     */
+    public static final String BEARER = "bearerConcurrencyLimiter";
+
+    @Bean(AUTHENTICATION)
+    AdaptiveConcurrencyLimiter authenticationConcurrencyLimiter(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        return bindLimiter(environment, "authentication", 20, meterRegistry);
+    }
+
+    @Bean(BEARER)
+    AdaptiveConcurrencyLimiter bearerConcurrencyLimiter(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        return bindLimiter(environment, "bearer", 100, meterRegistry);
+    }
+
+    /**
+     * The limit of a chain starts at {@code spring.security.concurrency-limit.<chain>.initial-limit} and moves between
+     * {@code min-limit} and {@code max-limit}, shrinking once the latency exceeds {@code tolerance} times its average;
+     * {@code smoothing} is the weight of every new estimate
+     */
+    private static AdaptiveConcurrencyLimiter bindLimiter(Environment environment, String chain, int initialLimit, ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        String prefix = "spring.security.concurrency-limit." + chain + ".";
+        return new AdaptiveConcurrencyLimiter(chain,
+                binder.bind(prefix + "initial-limit", Integer.class).orElse(initialLimit),
+                binder.bind(prefix + "min-limit", Integer.class).orElse(4),
+                binder.bind(prefix + "max-limit", Integer.class).orElse(initialLimit * 10),
+                binder.bind(prefix + "tolerance", Double.class).orElse(1.5),
+                binder.bind(prefix + "smoothing", Double.class).orElse(0.2),
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+}
@@ -1,22 +1,78 @@
 package com.nimvb.app.discord.configuration;
 
+import com.nimvb.app.discord.security.service.BCryptCalibration;
+import com.nimvb.app.discord.security.service.FileSecretProvider;
+import com.nimvb.app.discord.security.service.PasswordHashingExecutor;
 import com.nimvb.app.discord.security.service.PropertySourceSecretProvider;
 import com.nimvb.app.discord.security.service.SecretProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
 
 @Configuration
 public class EncodingConfiguration {
 
+    /**
+     * New hashes are bcrypt with {@code spring.security.password-hashing.bcrypt-strength}, or with the strength
+     * calibrated to {@code spring.security.password-hashing.target-latency} on this machine; without either the
+     * default strength is kept. Hashes of any other strength or algorithm keep matching and are reported by
+     * {@link PasswordEncoder#upgradeEncoding(String)}, so they are re-hashed on the next successful login.
+     */
     @Bean
-    PasswordEncoder passwordEncoder(){
-        return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+    PasswordEncoder passwordEncoder(Environment environment){
+        Binder binder = Binder.get(environment);
+        Integer strength = binder.bind("spring.security.password-hashing.bcrypt-strength", Integer.class)
+                .orElseGet(() -> binder.bind("spring.security.password-hashing.target-latency", Duration.class)
+                        .map(BCryptCalibration::strength)
+                        .orElse(null));
+        if (strength == null) {
+            return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        }
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength)));
+        encoder.setDefaultPasswordEncoderForMatches(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        return encoder;
+    }
+
+    /**
+     * Hashing is CPU bound, so {@code spring.security.password-hashing.threads} defaults to the number of cores;
+     * beyond {@code queue-capacity} waiting hashes, logins and registrations are answered with 503 and a
+     * {@code Retry-After} of {@code retry-after}
+     */
+    @Bean(destroyMethod = "shutdown")
+    PasswordHashingExecutor passwordHashingExecutor(PasswordEncoder passwordEncoder,
+                                                    Environment environment,
+                                                    ObjectProvider<MeterRegistry> meterRegistry){
+        Binder binder = Binder.get(environment);
+        int threads = binder.bind("spring.security.password-hashing.threads", Integer.class)
+                .orElse(Runtime.getRuntime().availableProcessors());
+        int queueCapacity = binder.bind("spring.security.password-hashing.queue-capacity", Integer.class)
+                .orElse(threads * 16);
+        Duration retryAfter = binder.bind("spring.security.password-hashing.retry-after", Duration.class)
+                .orElse(Duration.ofSeconds(1));
+        return new PasswordHashingExecutor(passwordEncoder, threads, queueCapacity, retryAfter,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
     }
 
     @Bean
-    SecretProvider secretProvider(){
+    SecretProvider secretProvider(Environment environment){
+        String secretsFile = environment.getProperty("spring.security.jwe.secrets-file");
+        if (StringUtils.hasText(secretsFile)) {
+            return new FileSecretProvider(Path.of(secretsFile));
+        }
         return new PropertySourceSecretProvider();
     }
 }
@@ -0,0 +1,53 @@
+package com.nimvb.app.discord.configuration;
+
+import com.nimvb.app.discord.repository.InMemoryUserRepository;
+import com.nimvb.app.discord.service.UserAvailabilityService;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Keeps the users in memory instead of the {@code users} collection when the {@code in-memory-users} profile is
+ * active. The availability filter is built from the users kept in memory, and the bulk import and the change stream
+ * of the {@code users} collection are left out; the refresh token families and the revoked tokens still use MongoDB.
+ */
+@Configuration
+@Profile(InMemoryUserRepositoryConfiguration.PROFILE)
+public class InMemoryUserRepositoryConfiguration {
+
+    public static final String PROFILE = "in-memory-users";
+
+    /**
+     * Sized for {@code users.in-memory.initial-capacity} users, snapshotted to {@code users.in-memory.snapshot-file}
+     * on shutdown and loaded from it on startup when it is set
+     */
+    @Bean
+    @Primary
+    InMemoryUserRepository inMemoryUserRepository(Environment environment) {
+        Binder binder = Binder.get(environment);
+        return new InMemoryUserRepository(
+                binder.bind("users.in-memory.initial-capacity", Integer.class).orElse(1_024),
+                binder.bind("users.in-memory.snapshot-file", Path.class).orElse(null));
+    }
+
+    /**
+     * Sized and checked the same way as the one built from the {@code users} collection, see
+     * {@link UserAvailabilityConfiguration}
+     */
+    @Bean
+    UserAvailabilityService inMemoryUserAvailabilityService(InMemoryUserRepository repository, Clock clock, Environment environment) {
+        Binder binder = Binder.get(environment);
+        return new UserAvailabilityService(repository,
+                clock,
+                binder.bind("users.availability.expected-users", Long.class).orElse(1_000_000L),
+                binder.bind("users.availability.false-positive-rate", Double.class).orElse(0.01),
+                binder.bind("users.availability.sync-interval", Duration.class).orElse(Duration.ofSeconds(5)));
+    }
+}
@@ -0,0 +1,44 @@
+package com.nimvb.app.discord.configuration;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.ReloadingKeyRingProvider;
+import com.nimvb.app.discord.security.service.SecretProvider;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Configuration
+public class JweConfiguration {
+
+    private static final Duration DEFAULT_RELOAD_INTERVAL = Duration.ofMinutes(1);
+
+    private static final String DEFAULT_ENCRYPTION_METHOD = EncryptionMethod.A128CBC_HS256.getName();
+
+    /**
+     * The key derivation behind {@link com.nimvb.app.discord.security.util.Jwe.Algorithm} is deliberately slow, so keys
+     * are derived once and shared by everything that issues or validates tokens; they are only derived again
+     * when a secret is rotated. {@code spring.security.jwe.encryption-method} picks the content encryption of the new
+     * tokens ({@code A128CBC-HS256}, {@code A128GCM} or {@code A256GCM}). Only tokens of that method are accepted,
+     * unless the previous one is listed in {@code spring.security.jwe.accepted-encryption-methods} while migrating
+     */
+    @Bean
+    KeyRingProvider keyRingProvider(SecretProvider secretProvider, Environment environment) {
+        Duration reloadInterval = Binder.get(environment)
+                .bind("spring.security.jwe.reload-interval", Duration.class)
+                .orElse(DEFAULT_RELOAD_INTERVAL);
+        EncryptionMethod encryptionMethod = EncryptionMethod.parse(environment.getProperty(
+                "spring.security.jwe.encryption-method", DEFAULT_ENCRYPTION_METHOD));
+        List<EncryptionMethod> acceptedEncryptionMethods = Binder.get(environment)
+                .bind("spring.security.jwe.accepted-encryption-methods", String[].class)
+                .map(names -> Arrays.stream(names).map(EncryptionMethod::parse).collect(Collectors.toList()))
+                .orElse(List.of());
+        return new ReloadingKeyRingProvider(secretProvider, reloadInterval, encryptionMethod, acceptedEncryptionMethods);
+    }
+}
@@ -0,0 +1,73 @@
+package com.nimvb.app.discord.configuration;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.ReloadingKeyRingProvider;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.service.TokenFormats;
+import com.nimvb.app.discord.security.util.Jws;
+import com.nimvb.app.discord.security.util.TokenFormat;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class JwsConfiguration {
+
+    @Bean
+    TokenFormats tokenFormats(Environment environment) {
+        return new TokenFormats(
+                environment.getProperty("spring.security.tokens.access-token-format", TokenFormat.class, TokenFormat.JWE),
+                environment.getProperty("spring.security.tokens.refresh-token-format", TokenFormat.class, TokenFormat.JWE));
+    }
+
+    /**
+     * {@code spring.security.jws.algorithm} picks the signing keys: {@code HS256} (default) derives them from the same
+     * secrets as the encryption keys and follows their rotation, {@code Ed25519} reads the JWK set in
+     * {@code spring.security.jws.ed25519-keys} and signs with the key whose id is {@code spring.security.jws.key-id}
+     */
+    @Bean
+    SigningKeyRingProvider signingKeyRingProvider(KeyRingProvider keyRingProvider, Environment environment) throws ParseException, JOSEException {
+        final String algorithm = environment.getProperty("spring.security.jws.algorithm", JWSAlgorithm.HS256.getName());
+        if (JWSAlgorithm.HS256.getName().equals(algorithm)) {
+            if (!(keyRingProvider instanceof ReloadingKeyRingProvider)) {
+                throw new IllegalStateException("HS256 signing keys are only derived by " + ReloadingKeyRingProvider.class.getSimpleName());
+            }
+            return ((ReloadingKeyRingProvider) keyRingProvider)::signingKeyRing;
+        }
+        if (!"Ed25519".equals(algorithm)) {
+            throw new IllegalStateException("unsupported signing algorithm " + algorithm);
+        }
+        final JWKSet              keys         = JWKSet.parse(environment.getRequiredProperty("spring.security.jws.ed25519-keys"));
+        final String              activeKeyId  = environment.getRequiredProperty("spring.security.jws.key-id");
+        final List<Jws.Algorithm> verification = new ArrayList<>();
+        Jws.Algorithm             active       = null;
+        for (JWK key : keys.getKeys()) {
+            if (!(key instanceof OctetKeyPair)) {
+                throw new IllegalStateException("key " + key.getKeyID() + " is not an Ed25519 key");
+            }
+            Jws.Algorithm signingAlgorithm = Jws.Algorithm.Ed25519((OctetKeyPair) key);
+            if (activeKeyId.equals(key.getKeyID())) {
+                if (!key.isPrivate()) {
+                    throw new IllegalStateException("the active key " + activeKeyId + " has no private part");
+                }
+                active = signingAlgorithm;
+            } else {
+                verification.add(signingAlgorithm);
+            }
+        }
+        if (active == null) {
+            throw new IllegalStateException("no key with id " + activeKeyId);
+        }
+        final Jws.KeyRing keyRing = Jws.KeyRing.of(active, verification);
+        return () -> keyRing;
+    }
+}
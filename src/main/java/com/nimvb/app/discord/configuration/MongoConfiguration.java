@@ -1,12 +1,30 @@
 package com.nimvb.app.discord.configuration;
 
 
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import com.nimvb.app.discord.repository.MongoReadRouting;
+import com.nimvb.app.discord.repository.ReadRoute;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.mapping.event.ValidatingMongoEventListener;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
 import javax.validation.Validator;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Configuration
 public class MongoConfiguration {
@@ -14,4 +32,83 @@ public class MongoConfiguration {
     ValidatingMongoEventListener validatingMongoEventListener(LocalValidatorFactoryBean validator){
         return new ValidatingMongoEventListener(validator);
     }
+
+    /**
+     * Applies the {@link MongoDriverProperties pool, timeouts and compressors} to the driver; the command and pool
+     * listeners which publish {@code mongodb.driver.commands} (tagged by {@code command} and {@code collection}) and
+     * {@code mongodb.driver.pool.*} are registered by the metrics auto-configuration of the actuator
+     */
+    @Bean
+    MongoClientSettingsBuilderCustomizer mongoDriverSettingsCustomizer(Environment environment) {
+        MongoDriverProperties properties = Binder.get(environment)
+                .bind(MongoDriverProperties.PREFIX, MongoDriverProperties.class)
+                .orElseGet(MongoDriverProperties::new);
+        List<MongoCompressor> compressors = properties.getCompressors()
+                .stream()
+                .map(MongoConfiguration::compressor)
+                .collect(Collectors.toList());
+        MongoDriverProperties.Pool pool = properties.getPool();
+        return builder -> {
+            builder.applyToConnectionPoolSettings(settings -> {
+                if (pool.getMinSize() != null) {
+                    settings.minSize(pool.getMinSize());
+                }
+                if (pool.getMaxSize() != null) {
+                    settings.maxSize(pool.getMaxSize());
+                }
+                if (pool.getMaxWait() != null) {
+                    settings.maxWaitTime(pool.getMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+                }
+                if (pool.getMaxIdleTime() != null) {
+                    settings.maxConnectionIdleTime(pool.getMaxIdleTime().toMillis(), TimeUnit.MILLISECONDS);
+                }
+            });
+            builder.applyToSocketSettings(settings -> {
+                if (properties.getConnectTimeout() != null) {
+                    settings.connectTimeout((int) properties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                }
+                if (properties.getSocketTimeout() != null) {
+                    settings.readTimeout((int) properties.getSocketTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                }
+            });
+            if (!compressors.isEmpty()) {
+                builder.compressorList(compressors);
+            }
+        };
+    }
+
+    private static MongoCompressor compressor(String name) {
+        switch (name.toLowerCase()) {
+            case "zlib":
+                return MongoCompressor.createZlibCompressor();
+            case "snappy":
+                return MongoCompressor.createSnappyCompressor();
+            case "zstd":
+                return MongoCompressor.createZstdCompressor();
+            default:
+                throw new IllegalArgumentException("unknown compressor " + name);
+        }
+    }
+
+    /**
+     * Every {@link ReadRoute} reads from {@code spring.data.mongodb.read-routing.<route>.read-preference}, the primary
+     * by default, allowing the secondaries to lag behind by {@code max-staleness} at most (90 seconds at least when it
+     * is set)
+     */
+    @Bean
+    MongoReadRouting mongoReadRouting(ReactiveMongoTemplate template,
+                                      Environment environment,
+                                      ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        Map<ReadRoute, ReadPreference> readPreferences = new EnumMap<>(ReadRoute.class);
+        for (ReadRoute route : ReadRoute.values()) {
+            String prefix = "spring.data.mongodb.read-routing." + route.key() + ".";
+            String name = binder.bind(prefix + "read-preference", String.class).orElse("primary");
+            Duration maxStaleness = binder.bind(prefix + "max-staleness", Duration.class).orElse(null);
+            readPreferences.put(route, maxStaleness == null ?
+                    ReadPreference.valueOf(name) :
+                    ReadPreference.valueOf(name, Collections.emptyList(), maxStaleness.toSeconds(), TimeUnit.SECONDS));
+        }
+        return new MongoReadRouting(template, readPreferences, meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
 }
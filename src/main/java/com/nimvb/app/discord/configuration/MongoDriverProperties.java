@@ -0,0 +1,43 @@
+package com.nimvb.app.discord.configuration;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The settings of the reactive driver under {@code spring.data.mongodb.driver}, a setting which is left out keeps the
+ * default of the driver
+ */
+@Data
+public class MongoDriverProperties {
+
+    public static final String PREFIX = "spring.data.mongodb.driver";
+
+    private final Pool pool = new Pool();
+
+    private Duration connectTimeout;
+
+    private Duration socketTimeout;
+
+    /**
+     * Offered to the server in this order; {@code snappy} and {@code zstd} need their libraries on the classpath
+     */
+    private List<String> compressors = new ArrayList<>();
+
+    @Data
+    public static class Pool {
+
+        private Integer minSize;
+
+        private Integer maxSize;
+
+        /**
+         * How long an operation waits for a connection before it fails
+         */
+        private Duration maxWait;
+
+        private Duration maxIdleTime;
+    }
+}
@@ -0,0 +1,40 @@
+package com.nimvb.app.discord.configuration;
+
+import com.nimvb.app.discord.security.matcher.RouteTable;
+import com.nimvb.app.discord.security.service.RateLimiter;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+
+@Configuration
+public class RateLimitConfiguration {
+
+    /**
+     * Limits every route of the {@link RateLimitProperties#getBuckets() buckets}, which default to 10 registrations
+     * and 20 authentications a minute per client; both security chains count their requests against it
+     */
+    @Bean
+    RateLimiter rateLimiter(Environment environment, Clock clock) {
+        RateLimitProperties properties = Binder.get(environment)
+                .bind(RateLimitProperties.PREFIX, RateLimitProperties.class)
+                .orElseGet(RateLimitProperties::new);
+        if (properties.getBuckets().isEmpty()) {
+            properties.getBuckets().put("registration",
+                    new RateLimitProperties.Bucket(HttpMethod.POST, "/api/v1/users/**", 10, Duration.ofMinutes(1)));
+            properties.getBuckets().put("authentication",
+                    new RateLimitProperties.Bucket(HttpMethod.POST, "/api/v1/authenticate*", 20, Duration.ofMinutes(1)));
+        }
+        RouteTable.Builder<RateLimiter.Limit> limits = RouteTable.builder();
+        for (Map.Entry<String, RateLimitProperties.Bucket> entry : properties.getBuckets().entrySet()) {
+            RateLimitProperties.Bucket bucket = entry.getValue();
+            limits.add(bucket.getMethod(), bucket.getPath(), new RateLimiter.Limit(entry.getKey(), bucket.getCapacity(), bucket.getPeriod()));
+        }
+        return new RateLimiter(limits.build(), properties.getMaxKeys(), clock);
+    }
+}
@@ -0,0 +1,59 @@
+package com.nimvb.app.discord.configuration;
+
+import lombok.Data;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The rate limits under {@code spring.security.rate-limit}, one bucket per name; the routes which are in no bucket
+ * are not limited
+ */
+@Data
+public class RateLimitProperties {
+
+    public static final String PREFIX = "spring.security.rate-limit";
+
+    /**
+     * How many buckets of clients are kept at most
+     */
+    private int maxKeys = 100_000;
+
+    /**
+     * When none is configured, the registrations and the authentications are limited
+     */
+    private Map<String, Bucket> buckets = new LinkedHashMap<>();
+
+    @Data
+    public static class Bucket {
+
+        /**
+         * {@code null} for any method
+         */
+        private HttpMethod method;
+
+        /**
+         * Pattern of the paths of the bucket, see {@link com.nimvb.app.discord.security.matcher.RouteTable}
+         */
+        private String path;
+
+        /**
+         * How many requests a client may make at once, and per {@code period}
+         */
+        private int capacity;
+
+        private Duration period = Duration.ofMinutes(1);
+
+        public Bucket() {
+        }
+
+        public Bucket(HttpMethod method, String path, int capacity, Duration period) {
+            this.method = method;
+            this.path = path;
+            this.capacity = capacity;
+            this.period = period;
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package com.nimvb.app.discord.configuration;
 
+import com.nimvb.app.discord.repository.RefreshTokenFamilyRepository;
+import com.nimvb.app.discord.repository.RevokedTokenRepository;
+import com.nimvb.app.discord.security.cache.DecryptedTokenCache;
 import com.nimvb.app.discord.security.manager.CustomReactiveAuthenticationManager;
 import com.nimvb.app.discord.security.provider.ReactiveBearerTokenAuthenticationProvider;
+import com.nimvb.app.discord.security.provider.ReactiveRefreshTokenAuthenticationProvider;
 import com.nimvb.app.discord.security.provider.ReactiveUsernamePasswordAuthenticationProvider;
-import com.nimvb.app.discord.security.service.SecretProvider;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.PasswordHashingExecutor;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.service.TokenRevocationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
-import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Clock;
+import java.time.Duration;
 
 @Configuration
 @RequiredArgsConstructor
@@ -17,14 +33,61 @@ public class SecurityComponentsConfiguration {
 
 
     private final ReactiveUserDetailsService reactiveUserDetailsService;
-    private final PasswordEncoder passwordEncoder;
-    private final SecretProvider secretProvider;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final KeyRingProvider keyRingProvider;
+    private final SigningKeyRingProvider signingKeyRingProvider;
 
     @Bean
-    ReactiveAuthenticationManager reactiveAuthenticationManager(){
-        final CustomReactiveAuthenticationManager.Builder builder = CustomReactiveAuthenticationManager.builder();
-        builder.add(new ReactiveUsernamePasswordAuthenticationProvider(reactiveUserDetailsService,passwordEncoder));
-        builder.add(new ReactiveBearerTokenAuthenticationProvider(secretProvider));
+    ReactiveAuthenticationManager reactiveAuthenticationManager(DecryptedTokenCache decryptedTokenCache,
+                                                                RefreshTokenFamilyRepository refreshTokenFamilyRepository,
+                                                                TokenRevocationService tokenRevocationService,
+                                                                Clock clock,
+                                                                ObjectProvider<MeterRegistry> meterRegistry){
+        final CustomReactiveAuthenticationManager.Builder builder = CustomReactiveAuthenticationManager.builder()
+                .meterRegistry(meterRegistry.getIfAvailable());
+        final ReactiveUsernamePasswordAuthenticationProvider usernamePasswordProvider =
+                new ReactiveUsernamePasswordAuthenticationProvider(reactiveUserDetailsService,passwordHashingExecutor);
+        if (reactiveUserDetailsService instanceof ReactiveUserDetailsPasswordService) {
+            usernamePasswordProvider.setUserDetailsPasswordService((ReactiveUserDetailsPasswordService) reactiveUserDetailsService);
+        }
+        builder.add(usernamePasswordProvider);
+        final ReactiveBearerTokenAuthenticationProvider bearerTokenProvider =
+                new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
+        bearerTokenProvider.setTokenRevocationService(tokenRevocationService);
+        builder.add(bearerTokenProvider);
+        builder.add(new ReactiveRefreshTokenAuthenticationProvider(keyRingProvider,
+                signingKeyRingProvider,
+                refreshTokenFamilyRepository,
+                reactiveUserDetailsService,
+                clock));
         return builder.build();
     }
+
+    @Bean
+    DecryptedTokenCache decryptedTokenCache(@Value("${spring.security.jwe.cache.maximum-size:10000}") Long maximumSize,
+                                            ObjectProvider<MeterRegistry> meterRegistry) {
+        final DecryptedTokenCache cache = new DecryptedTokenCache(maximumSize, Clock.systemUTC());
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache.getNativeCache(), "bearer.tokens"));
+        return cache;
+    }
+
+    /**
+     * The Bloom filter in front of the revoked tokens is sized for {@code spring.security.revocation.expected-tokens}
+     * unexpired revocations at {@code false-positive-rate}; tokens revoked on other nodes are picked up every
+     * {@code sync-interval} and the filter is built again every {@code rebuild-interval}
+     */
+    @Bean
+    TokenRevocationService tokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                                  DecryptedTokenCache decryptedTokenCache,
+                                                  Clock clock,
+                                                  Environment environment) {
+        Binder binder = Binder.get(environment);
+        return new TokenRevocationService(revokedTokenRepository,
+                decryptedTokenCache,
+                clock,
+                binder.bind("spring.security.revocation.expected-tokens", Long.class).orElse(100_000L),
+                binder.bind("spring.security.revocation.false-positive-rate", Double.class).orElse(0.01),
+                binder.bind("spring.security.revocation.sync-interval", Duration.class).orElse(Duration.ofSeconds(5)),
+                binder.bind("spring.security.revocation.rebuild-interval", Duration.class).orElse(Duration.ofHours(1)));
+    }
 }
@@ -1,15 +1,28 @@
 package com.nimvb.app.discord.configuration;
 
 import com.nimvb.app.discord.security.converter.ServerBearerTokenAuthenticationConverter;
+import com.nimvb.app.discord.security.converter.ServerGrantTypeAuthenticationConverter;
+import com.nimvb.app.discord.security.converter.ServerLoginThrottleAuthenticationConverter;
 import com.nimvb.app.discord.security.converter.ServerUsernamePasswordAuthenticationConverter;
 import com.nimvb.app.discord.security.entrypoint.UsernamePasswordTokenServerAuthenticationEntryPoint;
+import com.nimvb.app.discord.security.filter.ConcurrencyLimitWebFilter;
+import com.nimvb.app.discord.security.filter.RateLimitWebFilter;
 import com.nimvb.app.discord.security.handler.AuthenticationSuccessHandler;
+import com.nimvb.app.discord.security.handler.LoginThrottleAuthenticationFailureHandler;
+import com.nimvb.app.discord.security.handler.LoginThrottleAuthenticationSuccessHandler;
+import com.nimvb.app.discord.security.matcher.SecurityRoutes;
+import com.nimvb.app.discord.security.service.AdaptiveConcurrencyLimiter;
+import com.nimvb.app.discord.security.service.LoginThrottle;
+import com.nimvb.app.discord.security.service.RateLimiter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
@@ -17,10 +30,10 @@ import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
 import org.springframework.security.web.server.authentication.ServerAuthenticationEntryPointFailureHandler;
-import org.springframework.security.web.server.util.matcher.*;
 import org.springframework.web.server.WebFilter;
-import reactor.core.publisher.Mono;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Objects;
 
 @EnableWebFluxSecurity
@@ -33,8 +46,22 @@ public class SecurityOfPrivateResourcesConfiguration {
 
 
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity security) {
-
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity security,
+                                                         LoginThrottle loginThrottle,
+                                                         ObjectProvider<RateLimiter> rateLimiter,
+                                                         @Qualifier(ConcurrencyLimitConfiguration.AUTHENTICATION) ObjectProvider<AdaptiveConcurrencyLimiter> authenticationConcurrencyLimiter,
+                                                         @Qualifier(ConcurrencyLimitConfiguration.BEARER) ObjectProvider<AdaptiveConcurrencyLimiter> bearerConcurrencyLimiter) {
+        final AdaptiveConcurrencyLimiter authenticationLimiter = authenticationConcurrencyLimiter.getIfAvailable();
+        final AdaptiveConcurrencyLimiter bearerLimiter = bearerConcurrencyLimiter.getIfAvailable();
+        if (authenticationLimiter != null && bearerLimiter != null) {
+            // the import streams for as long as its upload lasts, its latency would shrink the limit of the bearer chain
+            security.addFilterBefore(new ConcurrencyLimitWebFilter(exchange -> SecurityRoutes.isAuthentication(exchange) ? authenticationLimiter :
+                            SecurityRoutes.isImport(exchange) ? null : bearerLimiter),
+                    SecurityWebFiltersOrder.AUTHENTICATION);
+        }
+        // added ahead of the login filter of the same order, so it knows the user of a bearer token and still
+        // rejects a login before its password is hashed
+        rateLimiter.ifAvailable(limiter -> security.addFilterAfter(new RateLimitWebFilter(limiter), SecurityWebFiltersOrder.AUTHENTICATION));
 
         return security
                 .csrf().disable()
@@ -43,33 +70,55 @@ public class SecurityOfPrivateResourcesConfiguration {
                 .httpBasic().disable()
                 .authorizeExchange()
                 .pathMatchers(HttpMethod.OPTIONS).permitAll()
+                .pathMatchers("/api/v1/admin/**").hasAuthority("ADMIN")
 //                .pathMatchers(HttpMethod.POST,"/api/v1/authenticate").permitAll()
                 .anyExchange().authenticated()
                 .and()
                 .addFilterAt(constructBearerTokenValidationFilter(), SecurityWebFiltersOrder.AUTHENTICATION)
-                .addFilterAfter(constructLoginFilter(), SecurityWebFiltersOrder.AUTHENTICATION)
+                .addFilterAfter(constructLoginFilter(loginThrottle), SecurityWebFiltersOrder.AUTHENTICATION)
                 .build();
     }
 
+    /**
+     * Failed logins are limited per username by {@code spring.security.login-throttle.username.*} and per client
+     * address by {@code spring.security.login-throttle.address.*}, each with {@code max-failures} within
+     * {@code window}, an {@code initial-backoff} doubling up to {@code max-backoff} and at most {@code max-keys} tracked
+     */
+    @Bean
+    LoginThrottle loginThrottle(Environment environment) {
+        return new LoginThrottle(
+                bindLoginThrottlePolicy(environment, "username", 5, Duration.ofMinutes(5)),
+                bindLoginThrottlePolicy(environment, "address", 100, Duration.ofMinutes(1)),
+                Clock.systemUTC());
+    }
+
+    private static LoginThrottle.Policy bindLoginThrottlePolicy(Environment environment, String key, int maxFailures, Duration window) {
+        Binder binder = Binder.get(environment);
+        String prefix = "spring.security.login-throttle." + key + ".";
+        return new LoginThrottle.Policy(
+                binder.bind(prefix + "max-failures", Integer.class).orElse(maxFailures),
+                binder.bind(prefix + "window", Duration.class).orElse(window),
+                binder.bind(prefix + "initial-backoff", Duration.class).orElse(Duration.ofSeconds(30)),
+                binder.bind(prefix + "max-backoff", Duration.class).orElse(Duration.ofMinutes(15)),
+                binder.bind(prefix + "max-keys", Integer.class).orElse(100_000));
+    }
+
     private WebFilter constructBearerTokenValidationFilter() {
         AuthenticationWebFilter bearerFilter = new AuthenticationWebFilter(reactiveAuthenticationManager);
-        bearerFilter.setRequiresAuthenticationMatcher(new NegatedServerWebExchangeMatcher(new PathPatternParserServerWebExchangeMatcher("/api/v1/authenticate**",HttpMethod.POST)));
+        bearerFilter.setRequiresAuthenticationMatcher(SecurityRoutes.bearerTokenRequired());
         bearerFilter.setServerAuthenticationConverter(new ServerBearerTokenAuthenticationConverter());
         bearerFilter.setAuthenticationSuccessHandler(new AuthenticationSuccessHandler());
         return bearerFilter;
     }
 
-    private WebFilter constructLoginFilter() {
+    private WebFilter constructLoginFilter(LoginThrottle loginThrottle) {
         AuthenticationWebFilter loginFilter = new AuthenticationWebFilter(reactiveAuthenticationManager);
-        loginFilter.setServerAuthenticationConverter(new ServerUsernamePasswordAuthenticationConverter());
-        loginFilter.setAuthenticationFailureHandler(new ServerAuthenticationEntryPointFailureHandler(new UsernamePasswordTokenServerAuthenticationEntryPoint()));
-        loginFilter.setRequiresAuthenticationMatcher(
-                new AndServerWebExchangeMatcher(ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, "/api/v1/authenticate"),
-                        ServerWebExchangeMatchers.matchers(exchange ->
-                                Mono.fromCallable(() -> MediaType.APPLICATION_FORM_URLENCODED.isCompatibleWith(exchange.getRequest().getHeaders().getContentType())
-                                        ).flatMap(isContentTypeMatched -> isContentTypeMatched ?
-                                                ServerWebExchangeMatcher.MatchResult.match() :
-                                                ServerWebExchangeMatcher.MatchResult.notMatch()))));
+        loginFilter.setServerAuthenticationConverter(new ServerLoginThrottleAuthenticationConverter(
+                new ServerGrantTypeAuthenticationConverter(new ServerUsernamePasswordAuthenticationConverter()), loginThrottle));
+        loginFilter.setAuthenticationFailureHandler(new LoginThrottleAuthenticationFailureHandler(
+                new ServerAuthenticationEntryPointFailureHandler(new UsernamePasswordTokenServerAuthenticationEntryPoint()), loginThrottle));
+        loginFilter.setAuthenticationSuccessHandler(new LoginThrottleAuthenticationSuccessHandler(loginThrottle));
+        loginFilter.setRequiresAuthenticationMatcher(SecurityRoutes.login());
         return loginFilter;
     }
 }
@@ -1,16 +1,21 @@
 package com.nimvb.app.discord.configuration;
 
+import com.nimvb.app.discord.security.filter.ConcurrencyLimitWebFilter;
+import com.nimvb.app.discord.security.filter.RateLimitWebFilter;
+import com.nimvb.app.discord.security.matcher.SecurityRoutes;
+import com.nimvb.app.discord.security.service.AdaptiveConcurrencyLimiter;
+import com.nimvb.app.discord.security.service.RateLimiter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
-import org.springframework.security.web.server.util.matcher.NegatedServerWebExchangeMatcher;
-import org.springframework.security.web.server.util.matcher.OrServerWebExchangeMatcher;
-import org.springframework.security.web.server.util.matcher.PathPatternParserServerWebExchangeMatcher;
 
 @EnableWebFluxSecurity
 @Configuration
@@ -18,25 +23,26 @@ public class SecurityOfPublicResourcesConfiguration {
 
     @Bean
     @Order(Ordered.HIGHEST_PRECEDENCE)
-    public SecurityWebFilterChain chain(ServerHttpSecurity security){
+    public SecurityWebFilterChain chain(ServerHttpSecurity security,
+                                        ObjectProvider<RateLimiter> rateLimiter,
+                                        @Qualifier(ConcurrencyLimitConfiguration.AUTHENTICATION) ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter){
+        // the rate limit goes first, so the requests it rejects do not take a slot of the concurrency limit
+        rateLimiter.ifAvailable(limiter -> security.addFilterAt(new RateLimitWebFilter(limiter), SecurityWebFiltersOrder.FIRST));
+        // only the registrations hash a password, the documentation and the availability would skew the latency
+        concurrencyLimiter.ifAvailable(limiter -> security.addFilterAt(new ConcurrencyLimitWebFilter(exchange ->
+                SecurityRoutes.isRegistration(exchange) ? limiter : null), SecurityWebFiltersOrder.FIRST));
         return security
                 .csrf().disable()
                 .httpBasic().disable()
                 .formLogin().disable()
                 .logout().disable()
                 .anonymous().disable()
-                .securityMatcher(new OrServerWebExchangeMatcher(
-                        new PathPatternParserServerWebExchangeMatcher("/api/v1/users/**",HttpMethod.POST),
-                        new PathPatternParserServerWebExchangeMatcher("/api/v1/users/**",HttpMethod.OPTIONS),
-                        new PathPatternParserServerWebExchangeMatcher("/v3/api-docs/**"),
-                        new PathPatternParserServerWebExchangeMatcher("/swagger-ui/**"),
-                        new PathPatternParserServerWebExchangeMatcher("/swagger-ui.html"),
-                        new PathPatternParserServerWebExchangeMatcher("/webjars/swagger-ui/**")
-                ))
+                .securityMatcher(SecurityRoutes.publicResources())
                 .authorizeExchange()
                 .pathMatchers(HttpMethod.OPTIONS).permitAll()
                 .pathMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html", "/webjars/swagger-ui/**").permitAll()
                 .pathMatchers(HttpMethod.POST, "/api/v1/users/**").permitAll()
+                .pathMatchers(HttpMethod.GET, "/api/v1/users/availability").permitAll()
                 .anyExchange().authenticated()
                 .and()
                 .build();
@@ -0,0 +1,36 @@
+package com.nimvb.app.discord.configuration;
+
+import com.nimvb.app.discord.repository.UserRepository;
+import com.nimvb.app.discord.service.UserAvailabilityService;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+public class UserAvailabilityConfiguration {
+
+    /**
+     * The Bloom filter of the taken usernames and emails is sized for {@code users.availability.expected-users} with
+     * {@code false-positive-rate}, it takes the users created on the other nodes every {@code sync-interval}
+     */
+    @Bean
+    @Profile("!" + InMemoryUserRepositoryConfiguration.PROFILE)
+    UserAvailabilityService userAvailabilityService(ReactiveMongoTemplate template,
+                                                    UserRepository userRepository,
+                                                    Clock clock,
+                                                    Environment environment) {
+        Binder binder = Binder.get(environment);
+        return new UserAvailabilityService(template,
+                userRepository,
+                clock,
+                binder.bind("users.availability.expected-users", Long.class).orElse(1_000_000L),
+                binder.bind("users.availability.false-positive-rate", Double.class).orElse(0.01),
+                binder.bind("users.availability.sync-interval", Duration.class).orElse(Duration.ofSeconds(5)));
+    }
+}
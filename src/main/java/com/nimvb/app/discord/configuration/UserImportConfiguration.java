@@ -0,0 +1,36 @@
+package com.nimvb.app.discord.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimvb.app.discord.security.service.PasswordHashingExecutor;
+import com.nimvb.app.discord.service.UserImportService;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+@Configuration
+public class UserImportConfiguration {
+
+    /**
+     * Inserts {@code users.import.batch-size} users per bulk insert and hashes {@code users.import.hashing-concurrency}
+     * passwords at the same time, half of the cores by default so the logins keep the other half
+     */
+    @Bean
+    @Profile("!" + InMemoryUserRepositoryConfiguration.PROFILE)
+    UserImportService userImportService(ReactiveMongoTemplate template,
+                                        PasswordHashingExecutor passwordHashingExecutor,
+                                        LocalValidatorFactoryBean validator,
+                                        ObjectMapper mapper,
+                                        ApplicationEventPublisher eventPublisher,
+                                        Environment environment) {
+        Binder binder = Binder.get(environment);
+        return new UserImportService(template, passwordHashingExecutor, validator, mapper, eventPublisher,
+                binder.bind("users.import.batch-size", Integer.class).orElse(1_000),
+                binder.bind("users.import.hashing-concurrency", Integer.class)
+                        .orElse(Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+    }
+}
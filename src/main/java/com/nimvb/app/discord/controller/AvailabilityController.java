@@ -0,0 +1,41 @@
+package com.nimvb.app.discord.controller;
+
+import com.nimvb.app.discord.model.Availability;
+import com.nimvb.app.discord.service.UserAvailabilityService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Tells a signup form whether a username or an email is still free, meant to be asked on every keystroke
+ */
+@RestController
+@RequestMapping("/api/v1/users/availability")
+@RequiredArgsConstructor
+public class AvailabilityController {
+
+    private final UserAvailabilityService userAvailabilityService;
+
+    @GetMapping
+    public Mono<Availability> availability(@RequestParam(required = false) String username,
+                                           @RequestParam(required = false) String email) {
+        if (username == null && email == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "username or email is required"));
+        }
+        Mono<Optional<Boolean>> usernameAvailability = username == null ?
+                Mono.just(Optional.empty()) :
+                userAvailabilityService.isUsernameAvailable(username).map(Optional::of);
+        Mono<Optional<Boolean>> emailAvailability = email == null ?
+                Mono.just(Optional.empty()) :
+                userAvailabilityService.isEmailAvailable(email).map(Optional::of);
+        return Mono.zip(usernameAvailability, emailAvailability)
+                .map(availability -> new Availability(availability.getT1().orElse(null), availability.getT2().orElse(null)));
+    }
+}
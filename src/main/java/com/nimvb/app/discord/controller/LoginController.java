@@ -2,6 +2,7 @@ package com.nimvb.app.discord.controller;
 
 import com.nimvb.app.discord.model.AccessToken;
 import com.nimvb.app.discord.openapi.LoginParametersSchema;
+import com.nimvb.app.discord.security.resource.RefreshTokenAuthenticationToken;
 import com.nimvb.app.discord.service.AccessTokenConverter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,7 +13,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -25,13 +25,17 @@ import reactor.core.publisher.Mono;
 public class LoginController {
 
     private final AccessTokenConverter<UsernamePasswordAuthenticationToken> converter;
+    private final AccessTokenConverter<RefreshTokenAuthenticationToken> refreshTokenConverter;
 
     @Operation(
             requestBody = @RequestBody(content = {@Content(mediaType = MediaType.APPLICATION_FORM_URLENCODED_VALUE, schema = @Schema(implementation = LoginParametersSchema.class))})
     )
     @PostMapping(consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseStatus(HttpStatus.OK)
-    public Mono<AccessToken> authenticate(/*@RequestParam Map<String,String> parameters,*/ @AuthenticationPrincipal Authentication authentication) {
+    public Mono<AccessToken> authenticate(/*@RequestParam Map<String,String> parameters,*/ Authentication authentication) {
+        if (authentication instanceof RefreshTokenAuthenticationToken) {
+            return refreshTokenConverter.convert((RefreshTokenAuthenticationToken) authentication);
+        }
         return converter.convert(((UsernamePasswordAuthenticationToken) authentication));
     }
 }
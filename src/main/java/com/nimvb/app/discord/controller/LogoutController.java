@@ -0,0 +1,42 @@
+package com.nimvb.app.discord.controller;
+
+import com.nimvb.app.discord.repository.RefreshTokenFamilyRepository;
+import com.nimvb.app.discord.security.resource.BearerTokenAuthenticationToken;
+import com.nimvb.app.discord.security.service.TokenRevocationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Revokes the presented access token together with the refresh token family it was issued with
+ */
+@RestController
+@RequestMapping("/api/v1/logout")
+@RequiredArgsConstructor
+public class LogoutController {
+
+    private final TokenRevocationService       tokenRevocationService;
+    private final RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> logout(Authentication authentication) {
+        if (!(authentication instanceof BearerTokenAuthenticationToken)
+                || ((BearerTokenAuthenticationToken) authentication).getTokenId() == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "the token can not be revoked"));
+        }
+        BearerTokenAuthenticationToken token = (BearerTokenAuthenticationToken) authentication;
+        Mono<Void> revokeFamily = token.getFamily() == null ?
+                Mono.empty() :
+                refreshTokenFamilyRepository.revoke(token.getFamily());
+        return tokenRevocationService
+                .revoke(token.getToken(), token.getTokenId(), token.getUsername(), token.getExpiresAt())
+                .then(revokeFamily);
+    }
+}
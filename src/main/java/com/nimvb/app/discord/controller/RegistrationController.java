@@ -2,8 +2,11 @@ package com.nimvb.app.discord.controller;
 
 
 import com.nimvb.app.discord.request.UserRegistrationRequest;
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
+import com.nimvb.app.discord.security.util.RetryAfter;
 import com.nimvb.app.discord.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -28,6 +31,14 @@ public class RegistrationController {
         return userService.create(request);
     }
 
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<Void> passwordHashingUnavailable(PasswordHashingUnavailableException exception){
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RetryAfter.seconds(exception.getRetryAfter()))
+                .build();
+    }
+
 //    @GetMapping("/")
 //    public Mono<String> message(@AuthenticationPrincipal Authentication authentication){
 //
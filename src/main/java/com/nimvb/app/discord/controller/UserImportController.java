@@ -0,0 +1,40 @@
+package com.nimvb.app.discord.controller;
+
+import com.nimvb.app.discord.configuration.InMemoryUserRepositoryConfiguration;
+import com.nimvb.app.discord.model.UserImportResult;
+import com.nimvb.app.discord.service.UserImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.util.Collections;
+
+/**
+ * Imports users in bulk from newline delimited JSON and streams back the result of every line as it is known, the
+ * import writes to the {@code users} collection so it is left out when the users are kept in memory
+ */
+@RestController
+@Profile("!" + InMemoryUserRepositoryConfiguration.PROFILE)
+@RequestMapping("/api/v1/admin/users")
+@RequiredArgsConstructor
+public class UserImportController {
+
+    private static final StringDecoder LINES = StringDecoder.allMimeTypes();
+
+    private final UserImportService userImportService;
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserImportResult> importUsers(@RequestBody Flux<DataBuffer> body) {
+        // the lines are split here rather than decoded as JSON, so a malformed line fails alone
+        return userImportService.importUsers(
+                LINES.decode(body, ResolvableType.forClass(String.class), MediaType.APPLICATION_NDJSON, Collections.emptyMap()));
+    }
+}
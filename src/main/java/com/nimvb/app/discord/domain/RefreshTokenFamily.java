@@ -0,0 +1,30 @@
+package com.nimvb.app.discord.domain;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+
+/**
+ * Lineage of the refresh tokens issued by a single login, only the latest {@code tokenId} of a family is redeemable.
+ * Presenting an older one means the family has leaked, so the whole family gets revoked. {@code expiresAt} is fixed by
+ * the login and kept by every rotation, it is the expiration of all the refresh tokens of the family.
+ */
+@AllArgsConstructor
+@Data
+@Document(collection = "refresh_token_families")
+public class RefreshTokenFamily {
+
+    @Id
+    private final String  id;
+    private final String  username;
+    private String        tokenId;
+    private boolean       revoked;
+    @Indexed(expireAfterSeconds = 0)
+    private Instant       expiresAt;
+}
@@ -0,0 +1,29 @@
+package com.nimvb.app.discord.domain;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+
+/**
+ * A token which was revoked before its expiration, identified by its {@code jti}. The document is removed once the
+ * token expires, since an expired token is rejected anyway.
+ */
+@AllArgsConstructor
+@Data
+@Document(collection = "revoked_tokens")
+public class RevokedToken {
+
+    @Id
+    private final String  id;
+    private final String  username;
+    @Indexed
+    private final Instant revokedAt;
+    @Indexed(expireAfterSeconds = 0)
+    private final Instant expiresAt;
+}
@@ -1,9 +1,9 @@
 package com.nimvb.app.discord.domain;
 
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -13,15 +13,21 @@ import javax.validation.Validator;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.util.Collection;
 import java.util.Set;
 
 
-@AllArgsConstructor
 @Data
 @Document(collection = "users")
+@CompoundIndex(name = User.CREDENTIALS_INDEX, def = "{'username': 1, 'password': 1, 'roles': 1, 'disabled': 1, 'locked': 1}")
 @EqualsAndHashCode
 public class User {
 
+    /**
+     * Holds every field of {@link UserCredentials}, so looking the credentials of a user up is a covered query
+     */
+    public static final String CREDENTIALS_INDEX = "credentials";
+
     @Indexed(unique = true,background = true)
     @NotNull(message = "username is required")
     @NotBlank(message = "invalid username")
@@ -34,6 +40,19 @@ public class User {
     @NotBlank(message = "invalid email")
     @Email
     private final String email;
+    /**
+     * Space delimited, a single value rather than an array keeps the credentials index from becoming multikey,
+     * which could not cover a query
+     */
+    private String roles;
+    private boolean disabled;
+    private boolean locked;
+
+    public User(String username, String password, String email) {
+        this.username = username;
+        this.password = password;
+        this.email = email;
+    }
     
     
     public static Builder builder(){
@@ -50,6 +69,9 @@ public class User {
         private String username;
         private String password;
         private String email;
+        private String roles;
+        private boolean disabled;
+        private boolean locked;
 
         public Builder(Validator validator) {
 
@@ -73,6 +95,21 @@ public class User {
             return this;
         }
 
+        public Builder withRoles(Collection<String> roles){
+            this.roles = roles == null || roles.isEmpty() ? null : String.join(" ", roles);
+            return this;
+        }
+
+        public Builder withDisabled(boolean disabled){
+            this.disabled = disabled;
+            return this;
+        }
+
+        public Builder withLocked(boolean locked){
+            this.locked = locked;
+            return this;
+        }
+
         /**
          * Build a new user object based on the passed parameters
          * @return a new user object
@@ -81,6 +118,9 @@ public class User {
          */
         public User build() throws ConstraintViolationException{
             User user = new User(username, password, email);
+            user.setRoles(roles);
+            user.setDisabled(disabled);
+            user.setLocked(locked);
             if(validator != null){
                 Set<ConstraintViolation<User>> violations = validator.validate(user);
                 if(!violations.isEmpty()){
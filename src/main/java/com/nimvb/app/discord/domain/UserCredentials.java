@@ -0,0 +1,36 @@
+package com.nimvb.app.discord.domain;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * What authenticates a {@link User}, read on its own so a login does not transfer and decode the rest of the user
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class UserCredentials {
+
+    private String  username;
+    private String  password;
+    private String  roles;
+    private boolean disabled;
+    private boolean locked;
+
+    /**
+     * @return the roles of the user, empty when it has none
+     */
+    public List<String> roleList() {
+        if (roles == null || roles.isBlank()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(roles.trim().split("\\s+"));
+    }
+}
@@ -0,0 +1,35 @@
+package com.nimvb.app.discord.event;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published once what a user is authenticated with, such as its password hash or its account status, has changed,
+ * so whatever holds a copy of it can drop the copy
+ */
+@Getter
+public class UserChangedEvent extends ApplicationEvent {
+
+    /**
+     * {@code null} when it is not known which users changed, so every copy has to be dropped
+     */
+    private final String username;
+
+    public UserChangedEvent(@NonNull Object source, @NonNull String username) {
+        super(source);
+        this.username = username;
+    }
+
+    private UserChangedEvent(Object source) {
+        super(source);
+        this.username = null;
+    }
+
+    /**
+     * @return an event which tells that any user may have changed, such as when changes were missed
+     */
+    public static UserChangedEvent everyUser(@NonNull Object source) {
+        return new UserChangedEvent(source);
+    }
+}
@@ -0,0 +1,21 @@
+package com.nimvb.app.discord.event;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published once a new user is stored, so whatever tracks the taken usernames and emails learns about it at once
+ */
+@Getter
+public class UserCreatedEvent extends ApplicationEvent {
+
+    private final String username;
+    private final String email;
+
+    public UserCreatedEvent(@NonNull Object source, @NonNull String username, @NonNull String email) {
+        super(source);
+        this.username = username;
+        this.email = email;
+    }
+}
@@ -0,0 +1,16 @@
+package com.nimvb.app.discord.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Whether the requested username and email are free to register, a value which was not asked for is left out
+ */
+@RequiredArgsConstructor
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Availability {
+    private final Boolean username;
+    private final Boolean email;
+}
@@ -0,0 +1,30 @@
+package com.nimvb.app.discord.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The outcome of importing one line of a bulk user import
+ */
+@RequiredArgsConstructor
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResult {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID,
+        FAILED
+    }
+
+    private final long   line;
+    private final String username;
+    private final Status status;
+    private final String message;
+
+    public static UserImportResult created(long line, String username) {
+        return new UserImportResult(line, username, Status.CREATED, null);
+    }
+}
@@ -9,8 +9,12 @@ import lombok.RequiredArgsConstructor;
 public class LoginParametersSchema {
 
 
-    @Schema(name = "username",required = true)
+    @Schema(name = "username")
     private final String username;
-    @Schema(name = "password",required = true)
+    @Schema(name = "password")
     private final String password;
+    @Schema(name = "grant_type", allowableValues = {"password", "refresh_token"}, defaultValue = "password")
+    private final String grantType;
+    @Schema(name = "refresh_token", description = "required by the refresh_token grant")
+    private final String refreshToken;
 }
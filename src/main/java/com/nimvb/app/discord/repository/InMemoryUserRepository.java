@@ -0,0 +1,574 @@
+package com.nimvb.app.discord.repository;
+
+import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.domain.UserCredentials;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * {@link UserRepository} which keeps the users in memory, for load tests of the authentication and for deployments
+ * too small for a database.
+ * <p>
+ * The fields of the users are kept in parallel arrays indexed by a slot, and the usernames and the emails by two open
+ * addressing (linear probing) hash tables of slots, so a lookup probes two arrays without allocating. Lookups are
+ * optimistic reads which are retried under the read lock only when a write overlapped them. A removed user leaves
+ * its slot to the last user, so the arrays stay dense.
+ * <p>
+ * When a snapshot file is set, the users are loaded from it on construction and written to it on {@link #destroy()}.
+ * Users have no identifier of their own, so the operations by id and by example are not supported.
+ */
+@Slf4j
+public class InMemoryUserRepository implements UserRepository, DisposableBean {
+
+    private static final int  SNAPSHOT_MAGIC   = 0x55534552;
+    private static final int  SNAPSHOT_VERSION = 1;
+    private static final byte DISABLED         = 1;
+    private static final byte LOCKED           = 1 << 1;
+
+    private final StampedLock lock = new StampedLock();
+    private final Path        snapshot;
+
+    private String[] usernames;
+    private String[] passwords;
+    private String[] emails;
+    private String[] roles;
+    private byte[]   flags;
+    private int[]    usernameIndex;
+    private int[]    emailIndex;
+    private int      size;
+
+    /**
+     * @param initialCapacity the number of users which are kept before the arrays grow
+     * @param snapshot the file the users are loaded from and written to, {@code null} keeps them in memory only
+     */
+    public InMemoryUserRepository(int initialCapacity, Path snapshot) throws IllegalArgumentException, UncheckedIOException {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity must be positive");
+        }
+        this.snapshot = snapshot;
+        allocate(initialCapacity);
+        if (snapshot != null && Files.exists(snapshot)) {
+            load(snapshot);
+        }
+    }
+
+    @Override
+    public Mono<User> findByUsername(String username) {
+        return Mono.fromSupplier(() -> username == null ? null : read(username, false, this::user));
+    }
+
+    @Override
+    public Mono<User> findByEmail(String email) {
+        return Mono.fromSupplier(() -> email == null ? null : read(email, true, this::user));
+    }
+
+    @Override
+    public Mono<UserCredentials> findCredentials(String username) {
+        return Mono.fromSupplier(() -> username == null ? null : read(username, false, this::credentials));
+    }
+
+    @Override
+    public Mono<UserCredentials> findLatestCredentials(String username) {
+        return findCredentials(username);
+    }
+
+    @Override
+    public Mono<Boolean> updatePassword(String username, String encodedPassword) {
+        return Mono.fromSupplier(() -> {
+            final long stamp = lock.writeLock();
+            try {
+                final int slot = lookup(usernameIndex, usernames, username);
+                if (slot < 0) {
+                    return false;
+                }
+                passwords[slot] = encodedPassword;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        });
+    }
+
+    @Override
+    public <S extends User> Mono<S> save(@NonNull S entity) {
+        return Mono.fromCallable(() -> {
+            add(entity);
+            return entity;
+        });
+    }
+
+    @Override
+    public <S extends User> Flux<S> saveAll(@NonNull Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends User> Flux<S> saveAll(@NonNull Publisher<S> entityStream) {
+        return Flux.from(entityStream).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends User> Mono<S> insert(@NonNull S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends User> Flux<S> insert(@NonNull Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public <S extends User> Flux<S> insert(@NonNull Publisher<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public Flux<User> findAll() {
+        return Flux.defer(() -> {
+            final long stamp = lock.readLock();
+            try {
+                final List<User> users = new ArrayList<>(size);
+                for (int slot = 0; slot < size; slot++) {
+                    users.add(user(slot));
+                }
+                return Flux.fromIterable(users);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        });
+    }
+
+    @Override
+    public Flux<User> findAll(@NonNull Sort sort) {
+        return sort.isUnsorted() ? findAll() : Flux.error(unsupported("sorting"));
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> {
+            final long stamp = lock.readLock();
+            try {
+                return (long) size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> delete(@NonNull User entity) {
+        return Mono.fromRunnable(() -> remove(entity.getUsername()));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(@NonNull Iterable<? extends User> entities) {
+        return Flux.fromIterable(entities).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(@NonNull Publisher<? extends User> entityStream) {
+        return Flux.from(entityStream).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(() -> {
+            final long stamp = lock.writeLock();
+            try {
+                allocate(usernames.length);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        });
+    }
+
+    @Override
+    public Mono<User> findById(ObjectId id) {
+        return Mono.error(unsupported("finding by id"));
+    }
+
+    @Override
+    public Mono<User> findById(Publisher<ObjectId> id) {
+        return Mono.error(unsupported("finding by id"));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(ObjectId id) {
+        return Mono.error(unsupported("finding by id"));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<ObjectId> id) {
+        return Mono.error(unsupported("finding by id"));
+    }
+
+    @Override
+    public Flux<User> findAllById(Iterable<ObjectId> ids) {
+        return Flux.error(unsupported("finding by id"));
+    }
+
+    @Override
+    public Flux<User> findAllById(Publisher<ObjectId> idStream) {
+        return Flux.error(unsupported("finding by id"));
+    }
+
+    @Override
+    public Mono<Void> deleteById(ObjectId id) {
+        return Mono.error(unsupported("deleting by id"));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<ObjectId> id) {
+        return Mono.error(unsupported("deleting by id"));
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends ObjectId> ids) {
+        return Mono.error(unsupported("deleting by id"));
+    }
+
+    @Override
+    public <S extends User> Mono<S> findOne(Example<S> example) {
+        return Mono.error(unsupported("querying by example"));
+    }
+
+    @Override
+    public <S extends User> Flux<S> findAll(Example<S> example) {
+        return Flux.error(unsupported("querying by example"));
+    }
+
+    @Override
+    public <S extends User> Flux<S> findAll(Example<S> example, Sort sort) {
+        return Flux.error(unsupported("querying by example"));
+    }
+
+    @Override
+    public <S extends User> Mono<Long> count(Example<S> example) {
+        return Mono.error(unsupported("querying by example"));
+    }
+
+    @Override
+    public <S extends User> Mono<Boolean> exists(Example<S> example) {
+        return Mono.error(unsupported("querying by example"));
+    }
+
+    @Override
+    public <S extends User, R, P extends Publisher<R>> P findBy(Example<S> example, Function<FluentQuery.ReactiveFluentQuery<S>, P> queryFunction) {
+        throw unsupported("querying by example");
+    }
+
+    /**
+     * Writes the users to the snapshot file, when it is set
+     */
+    @Override
+    public void destroy() throws IOException {
+        if (snapshot != null) {
+            write(snapshot);
+        }
+    }
+
+    /**
+     * Writes every user to {@code file}, which is replaced at once so a crash while writing keeps the previous one
+     */
+    public void write(@NonNull Path file) throws IOException {
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        final long stamp     = lock.readLock();
+        final int  count     = size;
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeInt(SNAPSHOT_VERSION);
+            output.writeInt(count);
+            for (int slot = 0; slot < count; slot++) {
+                output.writeUTF(usernames[slot]);
+                writeNullable(output, passwords[slot]);
+                output.writeUTF(emails[slot]);
+                writeNullable(output, roles[slot]);
+                output.writeByte(flags[slot]);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("{} users are written to {}", count, file);
+    }
+
+    private void load(Path file) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != SNAPSHOT_MAGIC || input.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("unknown snapshot format");
+            }
+            final int count = input.readInt();
+            for (int index = 0; index < count; index++) {
+                final User user = new User(input.readUTF(), readNullable(input), input.readUTF());
+                user.setRoles(readNullable(input));
+                final byte flag = input.readByte();
+                user.setDisabled((flag & DISABLED) != 0);
+                user.setLocked((flag & LOCKED) != 0);
+                add(user);
+            }
+            log.info("{} users are loaded from {}", count, file);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("loading the users from " + file + " failed", exception);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private void add(User user) {
+        if (user.getUsername() == null || user.getEmail() == null) {
+            throw new IllegalArgumentException("username and email are required");
+        }
+        final long stamp = lock.writeLock();
+        try {
+            if (lookup(usernameIndex, usernames, user.getUsername()) >= 0
+                    || lookup(emailIndex, emails, user.getEmail()) >= 0) {
+                throw new DuplicateKeyException("username or email of " + user.getUsername() + " is already exists");
+            }
+            if (size == usernames.length) {
+                grow();
+            }
+            final int slot = size;
+            usernames[slot] = user.getUsername();
+            passwords[slot] = user.getPassword();
+            emails[slot] = user.getEmail();
+            roles[slot] = user.getRoles();
+            flags[slot] = (byte) ((user.isDisabled() ? DISABLED : 0) | (user.isLocked() ? LOCKED : 0));
+            index(usernameIndex, user.getUsername(), slot);
+            index(emailIndex, user.getEmail(), slot);
+            size++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Moves the last user into the slot of the removed one
+     */
+    private void remove(String username) {
+        if (username == null) {
+            return;
+        }
+        final long stamp = lock.writeLock();
+        try {
+            final int slot = lookup(usernameIndex, usernames, username);
+            if (slot < 0) {
+                return;
+            }
+            unindex(usernameIndex, usernames, usernames[slot]);
+            unindex(emailIndex, emails, emails[slot]);
+            final int last = size - 1;
+            if (slot != last) {
+                usernames[slot] = usernames[last];
+                passwords[slot] = passwords[last];
+                emails[slot] = emails[last];
+                roles[slot] = roles[last];
+                flags[slot] = flags[last];
+                reindex(usernameIndex, usernames, usernames[slot], slot);
+                reindex(emailIndex, emails, emails[slot], slot);
+            }
+            usernames[last] = null;
+            passwords[last] = null;
+            emails[last] = null;
+            roles[last] = null;
+            flags[last] = 0;
+            size = last;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Reads the user of {@code key} optimistically, and once more under the read lock when a write overlapped the
+     * read; an overlapped read may see the arrays half updated, whatever it throws is discarded with its result
+     */
+    private <T> T read(String key, boolean byEmail, SlotReader<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                final int slot = byEmail ? lookup(emailIndex, emails, key) : lookup(usernameIndex, usernames, key);
+                final T value = slot < 0 ? null : reader.read(slot);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            } catch (RuntimeException exception) {
+                if (lock.validate(stamp)) {
+                    throw exception;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            final int slot = byEmail ? lookup(emailIndex, emails, key) : lookup(usernameIndex, usernames, key);
+            return slot < 0 ? null : reader.read(slot);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private User user(int slot) {
+        final User user = profile(slot);
+        user.setPassword(passwords[slot]);
+        return user;
+    }
+
+    private User profile(int slot) {
+        final User user = new User(usernames[slot], null, emails[slot]);
+        user.setRoles(roles[slot]);
+        user.setDisabled((flags[slot] & DISABLED) != 0);
+        user.setLocked((flags[slot] & LOCKED) != 0);
+        return user;
+    }
+
+    private UserCredentials credentials(int slot) {
+        return new UserCredentials(usernames[slot], passwords[slot], roles[slot],
+                (flags[slot] & DISABLED) != 0, (flags[slot] & LOCKED) != 0);
+    }
+
+    private void allocate(int capacity) {
+        usernames = new String[capacity];
+        passwords = new String[capacity];
+        emails = new String[capacity];
+        roles = new String[capacity];
+        flags = new byte[capacity];
+        usernameIndex = new int[tableSize(capacity)];
+        emailIndex = new int[tableSize(capacity)];
+        size = 0;
+    }
+
+    private void grow() {
+        final int capacity = usernames.length * 2;
+        usernames = Arrays.copyOf(usernames, capacity);
+        passwords = Arrays.copyOf(passwords, capacity);
+        emails = Arrays.copyOf(emails, capacity);
+        roles = Arrays.copyOf(roles, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        final int[] rebuiltUsernameIndex = new int[tableSize(capacity)];
+        final int[] rebuiltEmailIndex    = new int[tableSize(capacity)];
+        for (int slot = 0; slot < size; slot++) {
+            index(rebuiltUsernameIndex, usernames[slot], slot);
+            index(rebuiltEmailIndex, emails[slot], slot);
+        }
+        usernameIndex = rebuiltUsernameIndex;
+        emailIndex = rebuiltEmailIndex;
+    }
+
+    /**
+     * Twice the capacity rounded up to a power of two, so the tables are at most half full
+     */
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+    }
+
+    private static int home(String key, int mask) {
+        final int hash = key.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * The entries of the tables are slots plus one, zero marks an empty entry; the probes are bounded by the table
+     * size and the slots by the arrays, so a lookup over a half updated table ends
+     */
+    private static int lookup(int[] table, String[] keys, String key) {
+        final int mask = table.length - 1;
+        int position = home(key, mask);
+        for (int probe = 0; probe < table.length; probe++) {
+            final int entry = table[position];
+            if (entry == 0) {
+                return -1;
+            }
+            final int slot = entry - 1;
+            if (slot < keys.length && key.equals(keys[slot])) {
+                return slot;
+            }
+            position = (position + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int position(int[] table, String[] keys, String key) {
+        final int mask = table.length - 1;
+        int position = home(key, mask);
+        while (table[position] != 0 && !key.equals(keys[table[position] - 1])) {
+            position = (position + 1) & mask;
+        }
+        return position;
+    }
+
+    private static void index(int[] table, String key, int slot) {
+        final int mask = table.length - 1;
+        int position = home(key, mask);
+        while (table[position] != 0) {
+            position = (position + 1) & mask;
+        }
+        table[position] = slot + 1;
+    }
+
+    private static void reindex(int[] table, String[] keys, String key, int slot) {
+        table[position(table, keys, key)] = slot + 1;
+    }
+
+    /**
+     * Removes the entry of {@code key} and shifts the entries of its probe sequence back, so no tombstone is left
+     */
+    private static void unindex(int[] table, String[] keys, String key) {
+        final int mask = table.length - 1;
+        int hole = position(table, keys, key);
+        table[hole] = 0;
+        int position = (hole + 1) & mask;
+        while (table[position] != 0) {
+            final int home = home(keys[table[position] - 1], mask);
+            // the entry may fill the hole unless its home lies cyclically in (hole, position]
+            final boolean movable = hole <= position ?
+                    home <= hole || home > position :
+                    home <= hole && home > position;
+            if (movable) {
+                table[hole] = table[position];
+                table[position] = 0;
+                hole = position;
+            }
+            position = (position + 1) & mask;
+        }
+    }
+
+    private static UnsupportedOperationException unsupported(String operation) {
+        return new UnsupportedOperationException(operation + " is not supported by the in-memory users");
+    }
+
+    @FunctionalInterface
+    private interface SlotReader<T> {
+        T read(int slot);
+    }
+}
@@ -0,0 +1,89 @@
+package com.nimvb.app.discord.repository;
+
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.NonNull;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends every {@link ReadRoute} to the members of the replica set its {@link ReadPreference} allows, through a
+ * template of its own which shares the connections of the primary template. Writes, and the reads which have to see
+ * them, keep using the primary template.
+ * <p>
+ * Metrics: {@code mongodb.reads} (time of a routed read, tagged by {@code route} and {@code read.preference}).
+ */
+public class MongoReadRouting {
+
+    private final ReactiveMongoTemplate                 primary;
+    private final Map<ReadRoute, ReadPreference>        readPreferences = new EnumMap<>(ReadRoute.class);
+    private final Map<ReadRoute, ReactiveMongoTemplate> templates       = new EnumMap<>(ReadRoute.class);
+    private final Map<ReadRoute, Timer>                 timers          = new EnumMap<>(ReadRoute.class);
+
+    /**
+     * @param primary the template of the application, used as is by the routes which read from the primary
+     * @param readPreferences the read preference of every route, a route which is left out reads from the primary
+     * @param meterRegistry the registry of the metrics
+     */
+    public MongoReadRouting(@NonNull ReactiveMongoTemplate primary,
+                            @NonNull Map<ReadRoute, ReadPreference> readPreferences,
+                            @NonNull MeterRegistry meterRegistry) {
+        this.primary = primary;
+        for (ReadRoute route : ReadRoute.values()) {
+            final ReadPreference readPreference = readPreferences.getOrDefault(route, ReadPreference.primary());
+            final ReactiveMongoTemplate template;
+            if (ReadPreference.primary().equals(readPreference)) {
+                template = primary;
+            } else {
+                template = new ReactiveMongoTemplate(primary.getMongoDatabaseFactory(), primary.getConverter());
+                template.setReadPreference(readPreference);
+            }
+            this.readPreferences.put(route, readPreference);
+            templates.put(route, template);
+            timers.put(route, Timer.builder("mongodb.reads")
+                    .tag("route", route.key())
+                    .tag("read.preference", readPreference.getName())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Every route reads from the primary, for the contexts which do not configure the routing
+     * @param primary the template of the application
+     * @return the routing
+     */
+    public static MongoReadRouting primary(@NonNull ReactiveMongoTemplate primary) {
+        return new MongoReadRouting(primary, Collections.emptyMap(), new SimpleMeterRegistry());
+    }
+
+    public ReactiveMongoOperations operations(@NonNull ReadRoute route) {
+        return templates.get(route);
+    }
+
+    public ReactiveMongoOperations primary() {
+        return primary;
+    }
+
+    public ReadPreference readPreference(@NonNull ReadRoute route) {
+        return readPreferences.get(route);
+    }
+
+    /**
+     * @return the read, timed as a read of {@code route} from the subscription to its termination
+     */
+    public <T> Mono<T> timed(@NonNull ReadRoute route, @NonNull Mono<T> read) {
+        final Timer timer = timers.get(route);
+        return Mono.defer(() -> {
+            final long startedAt = System.nanoTime();
+            return read.doFinally(signal -> timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS));
+        });
+    }
+}
@@ -0,0 +1,18 @@
+package com.nimvb.app.discord.repository;
+
+/**
+ * The reads which may be served by another member than the primary, each one is routed on its own
+ */
+public enum ReadRoute {
+    /**
+     * Looking the credentials of a user up on login
+     */
+    CREDENTIALS;
+
+    /**
+     * @return the name of the route in the properties and in the metrics
+     */
+    public String key() {
+        return name().toLowerCase();
+    }
+}
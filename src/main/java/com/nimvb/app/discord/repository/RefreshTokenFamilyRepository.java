@@ -0,0 +1,7 @@
+package com.nimvb.app.discord.repository;
+
+import com.nimvb.app.discord.domain.RefreshTokenFamily;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface RefreshTokenFamilyRepository extends ReactiveMongoRepository<RefreshTokenFamily, String>, RefreshTokenFamilyRepositoryCustom {
+}
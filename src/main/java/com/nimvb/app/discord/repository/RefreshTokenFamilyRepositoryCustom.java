@@ -0,0 +1,25 @@
+package com.nimvb.app.discord.repository;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface RefreshTokenFamilyRepositoryCustom {
+
+    /**
+     * Atomically replaces the current token of a family with the next one, the expiration of the family is kept
+     * @param familyId the family of the presented token
+     * @param tokenId the presented token
+     * @param nextTokenId the token which is issued instead
+     * @param now the time of the rotation, a family which has expired by then is not rotated
+     * @return Mono provides {@code true} when the presented token was the current one, otherwise {@code false}
+     * after the family has been revoked since an already rotated token was reused or the family has expired
+     */
+    Mono<Boolean> rotate(String familyId, String tokenId, String nextTokenId, Instant now);
+
+    /**
+     * Revokes a family, none of its tokens are redeemable anymore
+     * @param familyId the family to revoke
+     */
+    Mono<Void> revoke(String familyId);
+}
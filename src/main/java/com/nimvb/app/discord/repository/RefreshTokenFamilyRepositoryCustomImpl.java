@@ -0,0 +1,43 @@
+package com.nimvb.app.discord.repository;
+
+import com.nimvb.app.discord.domain.RefreshTokenFamily;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+@RequiredArgsConstructor
+public class RefreshTokenFamilyRepositoryCustomImpl implements RefreshTokenFamilyRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<Boolean> rotate(String familyId, String tokenId, String nextTokenId, Instant now) {
+        Query current = Query.query(Criteria.where("_id").is(familyId)
+                .and("tokenId").is(tokenId)
+                .and("revoked").is(false)
+                .and("expiresAt").gt(now));
+        Update next = Update.update("tokenId", nextTokenId);
+        return template
+                .updateFirst(current, next, RefreshTokenFamily.class)
+                .flatMap(result -> {
+                    if (result.getModifiedCount() > 0) {
+                        return Mono.just(true);
+                    }
+                    return revoke(familyId).thenReturn(false);
+                });
+    }
+
+    @Override
+    public Mono<Void> revoke(String familyId) {
+        return template
+                .updateFirst(Query.query(Criteria.where("_id").is(familyId)),
+                        Update.update("revoked", true),
+                        RefreshTokenFamily.class)
+                .then();
+    }
+}
@@ -0,0 +1,12 @@
+package com.nimvb.app.discord.repository;
+
+import com.nimvb.app.discord.domain.RevokedToken;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+
+public interface RevokedTokenRepository extends ReactiveMongoRepository<RevokedToken, String> {
+
+    Flux<RevokedToken> findByRevokedAtGreaterThanEqual(Instant revokedAt);
+}
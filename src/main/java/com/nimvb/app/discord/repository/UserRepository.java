@@ -5,7 +5,7 @@ import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Mono;
 
-public interface UserRepository extends ReactiveMongoRepository<User, ObjectId> {
+public interface UserRepository extends ReactiveMongoRepository<User, ObjectId>, UserRepositoryCustom {
 
     Mono<User> findByUsername(String username);
 
@@ -0,0 +1,31 @@
+package com.nimvb.app.discord.repository;
+
+import com.nimvb.app.discord.domain.UserCredentials;
+import reactor.core.publisher.Mono;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Replaces the password hash in place, {@link com.nimvb.app.discord.domain.User} has no mapped id so saving
+     * a loaded user would insert it again
+     * @param username the target username
+     * @param encodedPassword the new hash
+     * @return Mono provides {@code true} when the user exists, otherwise {@code false}
+     */
+    Mono<Boolean> updatePassword(String username, String encodedPassword);
+
+    /**
+     * Find only what authenticates the user, answered from the
+     * {@link com.nimvb.app.discord.domain.User#CREDENTIALS_INDEX credentials index} without reading the user itself
+     * @param username the target username
+     * @return Mono provides the credentials or is empty when the user is not found
+     */
+    Mono<UserCredentials> findCredentials(String username);
+
+    /**
+     * Like {@link #findCredentials(String)}, but always read from the primary, so every acknowledged write is seen
+     * @param username the target username
+     * @return Mono provides the credentials or is empty when the user is not found
+     */
+    Mono<UserCredentials> findLatestCredentials(String username);
+}
@@ -0,0 +1,64 @@
+package com.nimvb.app.discord.repository;
+
+import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.domain.UserCredentials;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private final ReactiveMongoTemplate template;
+    private final MongoReadRouting      readRouting;
+
+    /**
+     * @param readRouting the routing of the reads, every read goes to the primary without it
+     */
+    public UserRepositoryCustomImpl(ReactiveMongoTemplate template, ObjectProvider<MongoReadRouting> readRouting) {
+        this.template = template;
+        this.readRouting = readRouting.getIfAvailable(() -> MongoReadRouting.primary(template));
+    }
+
+    @Override
+    public Mono<Boolean> updatePassword(String username, String encodedPassword) {
+        return template
+                .updateFirst(Query.query(Criteria.where("username").is(username)),
+                        Update.update("password", encodedPassword),
+                        User.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+
+    /**
+     * A user who was registered a moment ago may not have reached the member the credentials are read from, so a
+     * user which is not found there is looked up once more on the primary
+     */
+    @Override
+    public Mono<UserCredentials> findCredentials(String username) {
+        final Mono<UserCredentials> credentials = readRouting.timed(ReadRoute.CREDENTIALS, readRouting
+                .operations(ReadRoute.CREDENTIALS)
+                .findOne(credentialsQuery(username), UserCredentials.class, template.getCollectionName(User.class)));
+        if (readRouting.operations(ReadRoute.CREDENTIALS) == readRouting.primary()) {
+            return credentials;
+        }
+        return credentials.switchIfEmpty(Mono.defer(() -> findLatestCredentials(username)));
+    }
+
+    @Override
+    public Mono<UserCredentials> findLatestCredentials(String username) {
+        return readRouting.primary().findOne(credentialsQuery(username), UserCredentials.class, template.getCollectionName(User.class));
+    }
+
+    /**
+     * Projects only the fields of the credentials index and leaves {@code _id} out, so the query is covered
+     */
+    static Query credentialsQuery(String username) {
+        Query query = Query.query(Criteria.where("username").is(username));
+        query.fields()
+                .include("username", "password", "roles", "disabled", "locked")
+                .exclude("_id");
+        return query;
+    }
+}
@@ -0,0 +1,141 @@
+package com.nimvb.app.discord.security.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimvb.app.discord.security.util.Jwe;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Size-bounded cache of what the bearer tokens resolve to, so a token which is reused by its client is decrypted only once.
+ * Entries are keyed by the SHA-256 digest of the token, expire together with their token and are only answered for
+ * the key ring they were decrypted with, so a token of a rotated key is decrypted again, however the rotation
+ * interleaves with the requests.
+ */
+public class DecryptedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Cache<ByteBuffer, Cached> cache;
+    private final Clock                    clock;
+
+    public DecryptedTokenCache(long maximumSize, @NonNull Clock clock) {
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ExpiresWithToken())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Find what the {@code token} resolved to when it was decrypted with a key of {@code keyRing}
+     * @param token the bearer token
+     * @param keyRing the current key ring, an entry decrypted with another one is dropped
+     * @return the entry, {@code null} when the token is not cached, is expired or was decrypted with another key ring
+     */
+    public Entry get(@NonNull String token, @NonNull Jwe.KeyRing keyRing) {
+        final ByteBuffer digest = digest(token);
+        final Cached     cached = cache.getIfPresent(digest);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.keyRing != keyRing) {
+            // only the entry which was read, one put meanwhile for the current key ring is kept
+            cache.asMap().remove(digest, cached);
+            return null;
+        }
+        if (!cached.entry.getExpiresAt().isAfter(clock.instant())) {
+            return null;
+        }
+        return cached.entry;
+    }
+
+    /**
+     * Cache what the {@code token} resolved to
+     * @param token the bearer token
+     * @param keyRing the key ring the token was decrypted with
+     * @param entry what the token resolved to
+     */
+    public void put(@NonNull String token, @NonNull Jwe.KeyRing keyRing, @NonNull Entry entry) {
+        cache.put(digest(token), new Cached(keyRing, entry));
+    }
+
+    public void invalidate(@NonNull String token) {
+        cache.invalidate(digest(token));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return the underlying cache, for binding its statistics to the metrics
+     */
+    public Cache<ByteBuffer, ?> getNativeCache() {
+        return cache;
+    }
+
+    private static ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(DIGEST.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @RequiredArgsConstructor
+    @Getter
+    public static class Entry {
+        @NonNull private final String                 subject;
+        @NonNull private final List<GrantedAuthority> authorities;
+        @NonNull private final Instant                expiresAt;
+        private final String                          tokenId;
+        private final String                          family;
+
+        public Entry(String subject, List<GrantedAuthority> authorities, Instant expiresAt) {
+            this(subject, authorities, expiresAt, null, null);
+        }
+    }
+
+    /**
+     * An entry together with the key ring it was decrypted with
+     */
+    @RequiredArgsConstructor
+    private static final class Cached {
+        private final Jwe.KeyRing keyRing;
+        private final Entry       entry;
+    }
+
+    private class ExpiresWithToken implements Expiry<ByteBuffer, Cached> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Cached value, long currentTime) {
+            return Math.max(0, Duration.between(clock.instant(), value.entry.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Cached value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Cached value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.nimvb.app.discord.security.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.NonNull;
+import org.springframework.security.core.userdetails.UserDetails;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Size and time bounded cache of the credentials of the users, so logins of the same user do not look it up every
+ * time. Concurrent loads of one user share a single lookup, and users which are not found or fail to load are not
+ * cached. An entry is kept for {@code expireAfterWrite} at most, which bounds how long a change made on another node
+ * goes unnoticed; changes made on this node {@link #invalidate(String) invalidate} the entry at once. The first load of
+ * an invalidated user reads the latest writes, so a lagging replica can not put the replaced credentials back for a
+ * whole {@code expireAfterWrite}.
+ */
+public class UserDetailsCache {
+
+    private final AsyncCache<String, UserDetails> cache;
+    private final Cache<String, Boolean>          invalidated;
+
+    private volatile long invalidatedAllUntil = System.nanoTime();
+
+    public UserDetailsCache(long maximumSize, @NonNull Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        this.invalidated = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    /**
+     * Find the credentials of {@code username}, loading them with {@code loader} when they are not cached
+     * @param username the username
+     * @param loader looks the user up, an empty result is not cached
+     * @return Mono provides the credentials or is empty when the user is not found
+     */
+    public Mono<UserDetails> get(@NonNull String username, @NonNull Function<String, Mono<UserDetails>> loader) {
+        return get(username, loader, loader);
+    }
+
+    /**
+     * Find the credentials of {@code username}, loading them with {@code loader} when they are not cached, or with
+     * {@code latestLoader} when they are not cached because they were invalidated
+     * @param username the username
+     * @param loader looks the user up, an empty result is not cached
+     * @param latestLoader looks the user up so that every write made before the invalidation is seen, an empty result
+     *                     is not cached
+     * @return Mono provides the credentials or is empty when the user is not found
+     */
+    public Mono<UserDetails> get(@NonNull String username,
+                                 @NonNull Function<String, Mono<UserDetails>> loader,
+                                 @NonNull Function<String, Mono<UserDetails>> latestLoader) {
+        // a dependent future, so a cancelled login does not cancel the load shared with the others
+        return Mono.fromFuture(() -> cache.get(username, (key, executor) -> (isInvalidated(key) ? latestLoader : loader).apply(key).toFuture())
+                .thenApply(Function.identity()));
+    }
+
+    public void invalidate(@NonNull String username) {
+        invalidated.put(username, Boolean.TRUE);
+        cache.synchronous().invalidate(username);
+    }
+
+    /**
+     * Drops every entry, the loads read the latest writes for {@code expireAfterWrite} since which users changed is
+     * not known
+     */
+    public void invalidateAll() {
+        invalidatedAllUntil = System.nanoTime() + getExpireAfterWrite().toNanos();
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Changes how long an entry is kept, for shortening it while the changes made on the other nodes can not be
+     * followed
+     * @param expireAfterWrite the new period, applied to the cached entries as well
+     */
+    public void setExpireAfterWrite(@NonNull Duration expireAfterWrite) {
+        cache.synchronous().policy().expireAfterWrite().ifPresent(expiration -> expiration.setExpiresAfter(expireAfterWrite));
+        invalidated.policy().expireAfterWrite().ifPresent(expiration -> expiration.setExpiresAfter(expireAfterWrite));
+    }
+
+    private boolean isInvalidated(String username) {
+        return invalidated.asMap().remove(username) != null || System.nanoTime() - invalidatedAllUntil < 0;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return cache.synchronous().policy().expireAfterWrite().map(expiration -> expiration.getExpiresAfter()).orElseThrow();
+    }
+
+    /**
+     * @return the synchronous view of the underlying cache, for binding its statistics to the metrics
+     */
+    public Cache<String, UserDetails> getNativeCache() {
+        return cache.synchronous();
+    }
+}
@@ -0,0 +1,44 @@
+package com.nimvb.app.discord.security.converter;
+
+import com.nimvb.app.discord.security.resource.RefreshTokenAuthenticationToken;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authentication.ServerAuthenticationConverter;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Chooses the authentication of the login form by its {@code grant_type}, a {@code refresh_token} grant is
+ * converted to a {@link RefreshTokenAuthenticationToken} and any other form to the delegate
+ */
+@RequiredArgsConstructor
+public class ServerGrantTypeAuthenticationConverter implements ServerAuthenticationConverter {
+
+    public final static String GRANT_TYPE_KEY         = "grant_type";
+    public final static String REFRESH_TOKEN_KEY      = "refresh_token";
+    public final static String REFRESH_TOKEN_GRANT    = "refresh_token";
+
+    @NonNull private final ServerAuthenticationConverter delegate;
+
+    @Override
+    public Mono<Authentication> convert(ServerWebExchange exchange) {
+        if(exchange == null){
+            return Mono.empty();
+        }
+        return exchange
+                .getFormData()
+                .onErrorResume(throwable -> Mono.empty())
+                .flatMap(form -> {
+                    if (!REFRESH_TOKEN_GRANT.equals(form.getFirst(GRANT_TYPE_KEY))) {
+                        return delegate.convert(exchange);
+                    }
+                    String refreshToken = form.getFirst(REFRESH_TOKEN_KEY);
+                    refreshToken = refreshToken != null ? refreshToken.trim() : "";
+                    if (refreshToken.isEmpty()) {
+                        return Mono.empty();
+                    }
+                    return Mono.just(new RefreshTokenAuthenticationToken(refreshToken));
+                });
+    }
+}
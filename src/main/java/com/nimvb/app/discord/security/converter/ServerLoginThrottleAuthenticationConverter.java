@@ -0,0 +1,59 @@
+package com.nimvb.app.discord.security.converter;
+
+import com.nimvb.app.discord.security.exception.LoginThrottledException;
+import com.nimvb.app.discord.security.service.LoginThrottle;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authentication.ServerAuthenticationConverter;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+/**
+ * Rejects a login with {@link LoginThrottledException} when its username or client address is throttled by the
+ * {@link LoginThrottle}, so the rejected attempt never reaches the authentication manager; the username of the
+ * login is kept in the {@link #USERNAME_ATTRIBUTE} attribute of the exchange for recording the outcome
+ */
+@RequiredArgsConstructor
+public class ServerLoginThrottleAuthenticationConverter implements ServerAuthenticationConverter {
+
+    public final static String USERNAME_ATTRIBUTE = ServerLoginThrottleAuthenticationConverter.class.getName() + ".USERNAME";
+
+    @NonNull private final ServerAuthenticationConverter delegate;
+    @NonNull private final LoginThrottle                 throttle;
+
+    @Override
+    public Mono<Authentication> convert(ServerWebExchange exchange) {
+        if(exchange == null){
+            return Mono.empty();
+        }
+        return delegate.convert(exchange)
+                .flatMap(authentication -> {
+                    String username = null;
+                    if (authentication instanceof UsernamePasswordAuthenticationToken && authentication.getName() != null) {
+                        username = authentication.getName();
+                        exchange.getAttributes().put(USERNAME_ATTRIBUTE, username);
+                    }
+                    Duration retryAfter = throttle.retryAfter(username, clientAddress(exchange));
+                    if (!retryAfter.isZero()) {
+                        return Mono.error(new LoginThrottledException("too many failed logins", retryAfter));
+                    }
+                    return Mono.just(authentication);
+                });
+    }
+
+    /**
+     * @return the address the request was received from, {@code null} when it is unknown
+     */
+    public static String clientAddress(ServerWebExchange exchange) {
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return null;
+        }
+        return remoteAddress.getAddress().getHostAddress();
+    }
+}
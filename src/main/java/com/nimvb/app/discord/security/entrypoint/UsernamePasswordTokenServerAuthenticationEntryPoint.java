@@ -1,5 +1,10 @@
 package com.nimvb.app.discord.security.entrypoint;
 
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
+import com.nimvb.app.discord.security.exception.LoginThrottledException;
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
+import com.nimvb.app.discord.security.util.RetryAfter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.AuthenticationException;
@@ -9,10 +14,14 @@ import reactor.core.publisher.Mono;
 
 /**
  * Entrypoint or the state which the exchange should be configured for when there is an exception
- * during authenticating the provided {@link org.springframework.security.authentication.UsernamePasswordAuthenticationToken}
+ * during authenticating the provided {@link org.springframework.security.authentication.UsernamePasswordAuthenticationToken},
+ * a saturated password hashing is answered with 503 and a throttled login with 429, both with {@code Retry-After} instead of 401,
+ * and a rejected bearer token carries {@code WWW-Authenticate: Bearer error="invalid_token"}
  */
 public class UsernamePasswordTokenServerAuthenticationEntryPoint implements ServerAuthenticationEntryPoint {
 
+    private static final String INVALID_TOKEN = "Bearer error=\"invalid_token\"";
+
     @Override
     public Mono<Void> commence(ServerWebExchange exchange, AuthenticationException ex) {
         if(exchange == null){
@@ -20,7 +29,20 @@ public class UsernamePasswordTokenServerAuthenticationEntryPoint implements Serv
         }
         return Mono.fromCallable(() -> Mono.just(exchange.getResponse())).flatMap(serverHttpResponseMono -> serverHttpResponseMono)
                 .flatMap(serverHttpResponse -> {
-                    serverHttpResponse.setStatusCode(HttpStatus.UNAUTHORIZED);
+                    if (ex instanceof PasswordHashingUnavailableException) {
+                        serverHttpResponse.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                        serverHttpResponse.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                                RetryAfter.seconds(((PasswordHashingUnavailableException) ex).getRetryAfter()));
+                    } else if (ex instanceof LoginThrottledException) {
+                        serverHttpResponse.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                        serverHttpResponse.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                                RetryAfter.seconds(((LoginThrottledException) ex).getRetryAfter()));
+                    } else {
+                        serverHttpResponse.setStatusCode(HttpStatus.UNAUTHORIZED);
+                        if (ex instanceof AuthenticationFailedException && ((AuthenticationFailedException) ex).getReason().isTokenReason()) {
+                            serverHttpResponse.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, INVALID_TOKEN);
+                        }
+                    }
                     serverHttpResponse.getHeaders().setContentType(MediaType.APPLICATION_JSON);
                     return serverHttpResponse.setComplete();
                 });
@@ -1,9 +0,0 @@
-package com.nimvb.app.discord.security.exception;
-
-import org.springframework.security.core.AuthenticationException;
-
-public class AccountDisabledException extends AuthenticationException {
-    public AccountDisabledException(String msg) {
-        super(msg);
-    }
-}
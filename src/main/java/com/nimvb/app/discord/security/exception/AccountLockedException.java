@@ -1,9 +0,0 @@
-package com.nimvb.app.discord.security.exception;
-
-import org.springframework.security.core.AuthenticationException;
-
-public class AccountLockedException extends AuthenticationException {
-    public AccountLockedException(String msg) {
-        super(msg);
-    }
-}
@@ -0,0 +1,50 @@
+package com.nimvb.app.discord.security.exception;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.springframework.security.authentication.BadCredentialsException;
+
+/**
+ * A rejected authentication together with the {@link Reason} it was rejected for. It is raised for every rejected
+ * request, so it does not fill in a stack trace; the reason tells where it came from.
+ */
+public class AuthenticationFailedException extends BadCredentialsException {
+
+    public enum Reason {
+        INVALID_CREDENTIALS,
+        ACCOUNT_LOCKED,
+        ACCOUNT_DISABLED,
+        /**
+         * The bearer token could not be read, decrypted or verified, or is not a bearer token
+         */
+        INVALID_TOKEN,
+        EXPIRED_TOKEN,
+        REVOKED_TOKEN,
+        INVALID_REFRESH_TOKEN,
+        /**
+         * The refresh token has already been redeemed, its whole family is revoked
+         */
+        REUSED_REFRESH_TOKEN;
+
+        /**
+         * @return whether the reason is about a token, which the client may be told about
+         */
+        public boolean isTokenReason() {
+            return this == INVALID_TOKEN || this == EXPIRED_TOKEN || this == REVOKED_TOKEN
+                    || this == INVALID_REFRESH_TOKEN || this == REUSED_REFRESH_TOKEN;
+        }
+    }
+
+    @Getter
+    private final Reason reason;
+
+    public AuthenticationFailedException(@NonNull Reason reason, String msg) {
+        super(msg);
+        this.reason = reason;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
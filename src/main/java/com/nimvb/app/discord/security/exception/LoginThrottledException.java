@@ -0,0 +1,27 @@
+package com.nimvb.app.discord.security.exception;
+
+import lombok.Getter;
+import org.springframework.security.core.AuthenticationException;
+
+import java.time.Duration;
+
+/**
+ * Too many logins failed for the username or the client address, the attempt was rejected before its credentials
+ * were checked and should not be retried before {@link #getRetryAfter()}. It is raised for every throttled attempt, so
+ * it does not fill in a stack trace.
+ */
+public class LoginThrottledException extends AuthenticationException {
+
+    @Getter
+    private final Duration retryAfter;
+
+    public LoginThrottledException(String msg, Duration retryAfter) {
+        super(msg);
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,20 @@
+package com.nimvb.app.discord.security.exception;
+
+import lombok.Getter;
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+import java.time.Duration;
+
+/**
+ * The password hashing executor has no room left for another hash, the request should be retried after {@link #getRetryAfter()}
+ */
+public class PasswordHashingUnavailableException extends AuthenticationServiceException {
+
+    @Getter
+    private final Duration retryAfter;
+
+    public PasswordHashingUnavailableException(String msg, Duration retryAfter) {
+        super(msg);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,57 @@
+package com.nimvb.app.discord.security.filter;
+
+import com.nimvb.app.discord.security.service.AdaptiveConcurrencyLimiter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.function.Function;
+
+/**
+ * Lets a request through only while the {@link AdaptiveConcurrencyLimiter} of its chain has room for it, and answers
+ * it with 503 and {@code Retry-After} otherwise; the latency of the requests let through drives the limit, and one
+ * answered with 503 further down, such as by a saturated password hashing, shrinks it. A request whose chain has no
+ * limiter is let through as is.
+ */
+@RequiredArgsConstructor
+public class ConcurrencyLimitWebFilter implements WebFilter {
+
+    @NonNull private final Function<ServerWebExchange, AdaptiveConcurrencyLimiter> limiters;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // the slot is taken on subscription, so a request which is never subscribed does not hold one
+        return Mono.defer(() -> {
+            final AdaptiveConcurrencyLimiter limiter = limiters.apply(exchange);
+            if (limiter == null) {
+                return chain.filter(exchange);
+            }
+            if (!limiter.tryAcquire()) {
+                final ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                return response.setComplete();
+            }
+            final long start = System.nanoTime();
+            return chain.filter(exchange)
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL) {
+                            limiter.onIgnore();
+                        } else if (exchange.getResponse().getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
+                            limiter.onDropped();
+                        } else {
+                            limiter.onSuccess(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+}
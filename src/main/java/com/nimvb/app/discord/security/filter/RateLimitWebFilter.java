@@ -0,0 +1,71 @@
+package com.nimvb.app.discord.security.filter;
+
+import com.nimvb.app.discord.security.converter.ServerLoginThrottleAuthenticationConverter;
+import com.nimvb.app.discord.security.resource.BearerTokenAuthenticationToken;
+import com.nimvb.app.discord.security.service.RateLimiter;
+import com.nimvb.app.discord.security.util.RetryAfter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Counts every request of a limited route against the bucket of its user, taken from the authenticated
+ * {@link BearerTokenAuthenticationToken}, or of its client address when it carries none. The state of the bucket is
+ * returned in the {@code X-RateLimit-*} headers; a request which finds it empty is answered with 429 and
+ * {@code Retry-After} without reaching the rest of the chain.
+ */
+@RequiredArgsConstructor
+public class RateLimitWebFilter implements WebFilter {
+
+    public static final String LIMIT       = "X-RateLimit-Limit";
+    public static final String REMAINING   = "X-RateLimit-Remaining";
+    public static final String RESET       = "X-RateLimit-Reset";
+    public static final String RESET_AFTER = "X-RateLimit-Reset-After";
+    public static final String BUCKET      = "X-RateLimit-Bucket";
+
+    @NonNull private final RateLimiter rateLimiter;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        final RateLimiter.Limit limit = rateLimiter.limitOf(exchange);
+        if (limit == null) {
+            return chain.filter(exchange);
+        }
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(authentication -> authentication instanceof BearerTokenAuthenticationToken && authentication.isAuthenticated())
+                .mapNotNull(authentication -> ((BearerTokenAuthenticationToken) authentication).getUsername())
+                .map(username -> "user:" + username)
+                .switchIfEmpty(Mono.fromSupplier(() -> "address:" + ServerLoginThrottleAuthenticationConverter.clientAddress(exchange)))
+                .flatMap(client -> {
+                    final RateLimiter.Decision decision = rateLimiter.acquire(limit, client);
+                    final ServerHttpResponse response = exchange.getResponse();
+                    final HttpHeaders headers = response.getHeaders();
+                    headers.set(LIMIT, String.valueOf(limit.getCapacity()));
+                    headers.set(REMAINING, String.valueOf(decision.getRemaining()));
+                    headers.set(RESET, seconds(decision.getResetAt().toEpochMilli()));
+                    headers.set(RESET_AFTER, seconds(decision.getResetAfter().toMillis()));
+                    headers.set(BUCKET, limit.getBucket());
+                    if (decision.isAllowed()) {
+                        return chain.filter(exchange);
+                    }
+                    response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    headers.set(HttpHeaders.RETRY_AFTER, RetryAfter.seconds(decision.getRetryAfter()));
+                    headers.setContentType(MediaType.APPLICATION_JSON);
+                    return response.setComplete();
+                });
+    }
+
+    private static String seconds(long millis) {
+        return String.format("%d.%03d", millis / 1000, millis % 1000);
+    }
+}
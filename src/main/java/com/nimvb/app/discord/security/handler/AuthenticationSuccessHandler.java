@@ -1,6 +1,6 @@
 package com.nimvb.app.discord.security.handler;
 
-import org.springframework.security.authentication.BadCredentialsException;
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.web.server.WebFilterExchange;
@@ -15,7 +15,7 @@ public class AuthenticationSuccessHandler extends WebFilterChainServerAuthentica
     public Mono<Void> onAuthenticationSuccess(WebFilterExchange webFilterExchange, Authentication authentication) {
 
         if(authentication == null){
-            return Mono.error(new BadCredentialsException("invalid token"));
+            return Mono.error(() -> new AuthenticationFailedException(AuthenticationFailedException.Reason.INVALID_TOKEN, "invalid token"));
         }
         return super.onAuthenticationSuccess(webFilterExchange, authentication)
                 .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
@@ -0,0 +1,34 @@
+package com.nimvb.app.discord.security.handler;
+
+import com.nimvb.app.discord.security.converter.ServerLoginThrottleAuthenticationConverter;
+import com.nimvb.app.discord.security.exception.LoginThrottledException;
+import com.nimvb.app.discord.security.service.LoginThrottle;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.server.WebFilterExchange;
+import org.springframework.security.web.server.authentication.ServerAuthenticationFailureHandler;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records a rejected login to the {@link LoginThrottle} before handing it to the delegate; logins which were already
+ * throttled or failed for a server side reason are not counted
+ */
+@RequiredArgsConstructor
+public class LoginThrottleAuthenticationFailureHandler implements ServerAuthenticationFailureHandler {
+
+    @NonNull private final ServerAuthenticationFailureHandler delegate;
+    @NonNull private final LoginThrottle                      throttle;
+
+    @Override
+    public Mono<Void> onAuthenticationFailure(WebFilterExchange webFilterExchange, AuthenticationException exception) {
+        if (!(exception instanceof LoginThrottledException) && !(exception instanceof AuthenticationServiceException)) {
+            ServerWebExchange exchange = webFilterExchange.getExchange();
+            throttle.recordFailure(exchange.getAttribute(ServerLoginThrottleAuthenticationConverter.USERNAME_ATTRIBUTE),
+                    ServerLoginThrottleAuthenticationConverter.clientAddress(exchange));
+        }
+        return delegate.onAuthenticationFailure(webFilterExchange, exception);
+    }
+}
@@ -0,0 +1,28 @@
+package com.nimvb.app.discord.security.handler;
+
+import com.nimvb.app.discord.security.converter.ServerLoginThrottleAuthenticationConverter;
+import com.nimvb.app.discord.security.service.LoginThrottle;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.WebFilterExchange;
+import org.springframework.security.web.server.authentication.ServerAuthenticationSuccessHandler;
+import org.springframework.security.web.server.authentication.WebFilterChainServerAuthenticationSuccessHandler;
+import reactor.core.publisher.Mono;
+
+/**
+ * Clears the failed logins of the username once it logged in, then continues the filter chain
+ */
+@RequiredArgsConstructor
+public class LoginThrottleAuthenticationSuccessHandler implements ServerAuthenticationSuccessHandler {
+
+    private final ServerAuthenticationSuccessHandler delegate = new WebFilterChainServerAuthenticationSuccessHandler();
+
+    @NonNull private final LoginThrottle throttle;
+
+    @Override
+    public Mono<Void> onAuthenticationSuccess(WebFilterExchange webFilterExchange, Authentication authentication) {
+        throttle.recordSuccess(webFilterExchange.getExchange().getAttribute(ServerLoginThrottleAuthenticationConverter.USERNAME_ATTRIBUTE));
+        return delegate.onAuthenticationSuccess(webFilterExchange, authentication);
+    }
+}
@@ -1,65 +1,107 @@
 package com.nimvb.app.discord.security.manager;
 
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
 import com.nimvb.app.discord.security.provider.ReactiveAuthenticationProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AbstractUserDetailsReactiveAuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
-import org.springframework.security.core.userdetails.UserDetails;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 
-@RequiredArgsConstructor
+/**
+ * Dispatches a token to the first provider, in the order they were added, which supports its type. The provider of
+ * a type is resolved once with {@link ReactiveAuthenticationProvider#isSupported(Class)} and kept, so authenticating
+ * costs a single lookup and the provider is called directly on the subscribing thread unless it
+ * {@link ReactiveAuthenticationProvider#isBlocking() blocks}.
+ * <p>
+ * A rejected token fails with an {@link AuthenticationFailedException} which keeps the reason the provider gave, or
+ * {@link AuthenticationFailedException.Reason#INVALID_CREDENTIALS} for any other error; when the builder is given a
+ * {@link MeterRegistry} the rejections are counted as {@code security.authentication.failures} tagged by {@code reason}.
+ */
 public class CustomReactiveAuthenticationManager implements ReactiveAuthenticationManager {
 
 
-    @NonNull private final Set<ReactiveAuthenticationProvider> providers;
+    private final List<ReactiveAuthenticationProvider> providers;
 
+    private final Map<AuthenticationFailedException.Reason, Counter> failures;
+
+    private final ClassValue<ReactiveAuthenticationProvider> dispatchTable = new ClassValue<>() {
+        @Override
+        protected ReactiveAuthenticationProvider computeValue(Class<?> type) {
+            for (ReactiveAuthenticationProvider provider : providers) {
+                if (provider.isSupported(type)) {
+                    return provider;
+                }
+            }
+            return null;
+        }
+    };
+
+
+    public CustomReactiveAuthenticationManager(@NonNull Collection<ReactiveAuthenticationProvider> providers) {
+        this(providers, null);
+    }
+
+    private CustomReactiveAuthenticationManager(Collection<ReactiveAuthenticationProvider> providers, MeterRegistry meterRegistry) {
+        this.providers = List.copyOf(providers);
+        this.failures = new EnumMap<>(AuthenticationFailedException.Reason.class);
+        if (meterRegistry != null) {
+            for (AuthenticationFailedException.Reason reason : AuthenticationFailedException.Reason.values()) {
+                failures.put(reason, Counter.builder("security.authentication.failures")
+                        .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+        }
+    }
 
     private CustomReactiveAuthenticationManager(Builder builder){
-        providers = builder.providers;
+        this(builder.providers, builder.meterRegistry);
     }
 
     @Override
     public Mono<Authentication> authenticate(Authentication authentication) {
         if(authentication == null){
-            return Mono.error(new BadCredentialsException("invalid credential"));
+            return Mono.error(() -> failure(null));
+        }
+        final ReactiveAuthenticationProvider provider = dispatchTable.get(authentication.getClass());
+        if (provider == null) {
+            return Mono.empty();
         }
-        return retrieveProviders(authentication)
-                .publishOn(Schedulers.boundedElastic())
-                .flatMap(provider -> provider.authenticate(authentication))
-                .next()
-                .onErrorResume(throwable -> Mono.defer(() -> Mono.error(new BadCredentialsException("invalid credentials"))))
-                .switchIfEmpty(Mono.empty());
+        Mono<Authentication> authenticated = Mono.defer(() -> provider.authenticate(authentication));
+        if (provider.isBlocking()) {
+            authenticated = authenticated.subscribeOn(Schedulers.boundedElastic());
+        }
+        return authenticated
+                .onErrorMap(throwable -> !(throwable instanceof PasswordHashingUnavailableException), this::failure);
 
     }
 
-    public static Builder builder(){
-        return new Builder();
+    private AuthenticationFailedException failure(Throwable throwable) {
+        final AuthenticationFailedException failure = throwable instanceof AuthenticationFailedException ?
+                (AuthenticationFailedException) throwable :
+                new AuthenticationFailedException(AuthenticationFailedException.Reason.INVALID_CREDENTIALS, "invalid credentials");
+        final Counter counter = failures.get(failure.getReason());
+        if (counter != null) {
+            counter.increment();
+        }
+        return failure;
     }
 
-
-
-
-    private Flux<ReactiveAuthenticationProvider> retrieveProviders(Authentication authentication){
-        return Flux.fromIterable(providers)
-                .flatMap(provider -> provider.supports(authentication.getClass())
-                        .filter(aBoolean -> aBoolean)
-                        .map(aBoolean -> provider));
+    public static Builder builder(){
+        return new Builder();
     }
 
     public static final class Builder {
 
-        private final Set<ReactiveAuthenticationProvider> providers = new HashSet<>();
+        private final Set<ReactiveAuthenticationProvider> providers = new LinkedHashSet<>();
+
+        private MeterRegistry meterRegistry;
 
 
         public Builder add(@NonNull ReactiveAuthenticationProvider provider){
@@ -67,6 +109,14 @@ public class CustomReactiveAuthenticationManager implements ReactiveAuthenticati
             return this;
         }
 
+        /**
+         * Counts the rejections by their reason in {@code meterRegistry}
+         */
+        public Builder meterRegistry(MeterRegistry meterRegistry){
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
         public Builder clear(){
             providers.clear();
             return this;
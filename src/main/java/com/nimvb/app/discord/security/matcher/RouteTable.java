@@ -0,0 +1,239 @@
+package com.nimvb.app.discord.security.matcher;
+
+import lombok.NonNull;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Resolves the method and the path of a request to the route they belong to in a single walk of a trie of the path
+ * segments, without allocating anything for the usual paths. It stands in for chains of
+ * {@link org.springframework.security.web.server.util.matcher.PathPatternParserServerWebExchangeMatcher}s which each
+ * parse the path and allocate a {@link Mono} per pattern on every request.
+ * <p>
+ * A pattern is made of literal segments, a segment ending with {@code *} which matches the segments starting with
+ * what precedes it, and a last {@code **} segment which matches any remaining segments, none included. A trailing
+ * {@code /} of the path is ignored, and paths with encoded or matrix characters are matched on their decoded segments,
+ * as {@link org.springframework.web.util.pattern.PathPattern} does. Literal segments win over prefixes, which win over
+ * {@code **}; among the patterns of one path the first one added for the method wins.
+ * <p>
+ * The route of an exchange is resolved once and kept in its attributes, so every matcher of the table reads it for
+ * free afterwards.
+ * @param <T> the type of the routes
+ */
+public final class RouteTable<T> {
+
+    private static final Mono<ServerWebExchangeMatcher.MatchResult> MATCH     = ServerWebExchangeMatcher.MatchResult.match();
+    private static final Mono<ServerWebExchangeMatcher.MatchResult> NOT_MATCH = ServerWebExchangeMatcher.MatchResult.notMatch();
+    private static final Object                                    NO_ROUTE  = new Object();
+    private static final AtomicInteger                             TABLES    = new AtomicInteger();
+
+    private final Node<T> root;
+    private final String  attribute;
+
+    private RouteTable(Node<T> root) {
+        this.root = root;
+        this.attribute = RouteTable.class.getName() + "." + TABLES.incrementAndGet();
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return the cached result of a match, for matchers which need no variables
+     */
+    public static Mono<ServerWebExchangeMatcher.MatchResult> result(boolean matched) {
+        return matched ? MATCH : NOT_MATCH;
+    }
+
+    /**
+     * @param method the method of the request, {@code null} only matches the patterns added for any method
+     * @param path the path of the request within the application, not encoded
+     * @return the route, or {@code null} when no pattern matches
+     */
+    public T resolve(HttpMethod method, @NonNull String path) {
+        return match(root, path, path.startsWith("/") ? 1 : 0, method);
+    }
+
+    /**
+     * @return the route of the exchange, or {@code null} when no pattern matches
+     */
+    @SuppressWarnings("unchecked")
+    public T resolve(@NonNull ServerWebExchange exchange) {
+        final Object cached = exchange.getAttribute(attribute);
+        if (cached != null) {
+            return cached == NO_ROUTE ? null : (T) cached;
+        }
+        final PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        final T route = resolve(exchange.getRequest().getMethod(), decoded(path));
+        exchange.getAttributes().put(attribute, route == null ? NO_ROUTE : route);
+        return route;
+    }
+
+    /**
+     * @param predicate tests the route of the exchange, which is {@code null} when no pattern matches
+     * @return a matcher of the exchanges whose route passes {@code predicate}
+     */
+    public ServerWebExchangeMatcher matcher(@NonNull Predicate<? super T> predicate) {
+        return exchange -> result(predicate.test(resolve(exchange)));
+    }
+
+    private static String decoded(PathContainer path) {
+        final String value = path.value();
+        if (value.indexOf('%') < 0 && value.indexOf(';') < 0) {
+            return value;
+        }
+        final StringBuilder builder = new StringBuilder(value.length());
+        for (PathContainer.Element element : path.elements()) {
+            if (element instanceof PathContainer.PathSegment) {
+                builder.append('/').append(((PathContainer.PathSegment) element).valueToMatch());
+            }
+        }
+        return builder.toString();
+    }
+
+    private T match(Node<T> node, String path, int from, HttpMethod method) {
+        if (from >= path.length()) {
+            final T route = node.exact.resolve(method);
+            return route != null ? route : node.rest.resolve(method);
+        }
+        int end = path.indexOf('/', from);
+        if (end < 0) {
+            end = path.length();
+        }
+        final int length = end - from;
+        final int next = end < path.length() ? end + 1 : end;
+        for (int i = 0; i < node.literals.size(); i++) {
+            final String literal = node.literals.get(i);
+            if (literal.length() == length && path.regionMatches(from, literal, 0, length)) {
+                final T route = match(node.literalChildren.get(i), path, next, method);
+                if (route != null) {
+                    return route;
+                }
+            }
+        }
+        for (int i = 0; i < node.prefixes.size(); i++) {
+            final String prefix = node.prefixes.get(i);
+            if (prefix.length() <= length && path.regionMatches(from, prefix, 0, prefix.length())) {
+                final T route = match(node.prefixChildren.get(i), path, next, method);
+                if (route != null) {
+                    return route;
+                }
+            }
+        }
+        return node.rest.resolve(method);
+    }
+
+    public static final class Builder<T> {
+
+        private final Node<T> root = new Node<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds {@code pattern} for any method
+         */
+        public Builder<T> add(@NonNull String pattern, @NonNull T route) {
+            return add(null, pattern, route);
+        }
+
+        /**
+         * @throws IllegalArgumentException when {@code **} is not the last segment of {@code pattern}
+         */
+        public Builder<T> add(HttpMethod method, @NonNull String pattern, @NonNull T route) throws IllegalArgumentException {
+            final String[] segments = (pattern.startsWith("/") ? pattern.substring(1) : pattern).split("/", -1);
+            Node<T> node = root;
+            for (int i = 0; i < segments.length; i++) {
+                final String segment = segments[i];
+                if (segment.equals("**")) {
+                    if (i != segments.length - 1) {
+                        throw new IllegalArgumentException("** must be the last segment of " + pattern);
+                    }
+                    node.rest.add(method, route);
+                    return this;
+                }
+                if (segment.isEmpty() && i == segments.length - 1) {
+                    break;
+                }
+                node = segment.endsWith("*") ?
+                        node.child(node.prefixes, node.prefixChildren, segment.replaceFirst("\\*+$", "")) :
+                        node.child(node.literals, node.literalChildren, segment);
+            }
+            node.exact.add(method, route);
+            return this;
+        }
+
+        public RouteTable<T> build() {
+            return new RouteTable<>(root.copy());
+        }
+    }
+
+    private static final class Node<T> {
+
+        private final List<String>  literals        = new ArrayList<>();
+        private final List<Node<T>> literalChildren = new ArrayList<>();
+        private final List<String>  prefixes        = new ArrayList<>();
+        private final List<Node<T>> prefixChildren  = new ArrayList<>();
+        private final Endpoint<T>   exact           = new Endpoint<>();
+        private final Endpoint<T>   rest            = new Endpoint<>();
+
+        private Node<T> child(List<String> keys, List<Node<T>> children, String key) {
+            final int index = keys.indexOf(key);
+            if (index >= 0) {
+                return children.get(index);
+            }
+            final Node<T> child = new Node<>();
+            keys.add(key);
+            children.add(child);
+            return child;
+        }
+
+        /**
+         * @return a deep copy, so a table is not changed by the builder it was built with
+         */
+        private Node<T> copy() {
+            final Node<T> copy = new Node<>();
+            copy.literals.addAll(literals);
+            literalChildren.forEach(child -> copy.literalChildren.add(child.copy()));
+            copy.prefixes.addAll(prefixes);
+            prefixChildren.forEach(child -> copy.prefixChildren.add(child.copy()));
+            copy.exact.methods.addAll(exact.methods);
+            copy.exact.routes.addAll(exact.routes);
+            copy.rest.methods.addAll(rest.methods);
+            copy.rest.routes.addAll(rest.routes);
+            return copy;
+        }
+    }
+
+    private static final class Endpoint<T> {
+
+        /**
+         * {@code null} for any method
+         */
+        private final List<HttpMethod> methods = new ArrayList<>();
+        private final List<T>          routes  = new ArrayList<>();
+
+        private void add(HttpMethod method, T route) {
+            methods.add(method);
+            routes.add(route);
+        }
+
+        private T resolve(HttpMethod method) {
+            for (int i = 0; i < methods.size(); i++) {
+                if (methods.get(i) == null || methods.get(i) == method) {
+                    return routes.get(i);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.nimvb.app.discord.security.matcher;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * The routes the security filter chains tell apart, resolved once per request by a single {@link RouteTable}
+ */
+public final class SecurityRoutes {
+
+    public enum Route {
+        /**
+         * Served by the public chain without a token
+         */
+        PUBLIC,
+        /**
+         * The registration of a user, served by the public chain without a token
+         */
+        REGISTRATION,
+        /**
+         * The streaming import of users, which lasts as long as its upload
+         */
+        IMPORT,
+        /**
+         * The login with the credentials of a user
+         */
+        LOGIN,
+        /**
+         * The other {@code POST /api/v1/authenticate*} requests, which carry no bearer token either
+         */
+        AUTHENTICATION
+    }
+
+    private static final RouteTable<Route> ROUTES = RouteTable.<Route>builder()
+            .add(HttpMethod.POST, "/api/v1/users/**", Route.REGISTRATION)
+            .add(HttpMethod.OPTIONS, "/api/v1/users/**", Route.PUBLIC)
+            .add(HttpMethod.GET, "/api/v1/users/availability", Route.PUBLIC)
+            .add("/v3/api-docs/**", Route.PUBLIC)
+            .add("/swagger-ui/**", Route.PUBLIC)
+            .add("/swagger-ui.html", Route.PUBLIC)
+            .add("/webjars/swagger-ui/**", Route.PUBLIC)
+            .add(HttpMethod.POST, "/api/v1/admin/users/import", Route.IMPORT)
+            .add(HttpMethod.POST, "/api/v1/authenticate", Route.LOGIN)
+            .add(HttpMethod.POST, "/api/v1/authenticate*", Route.AUTHENTICATION)
+            .build();
+
+    private SecurityRoutes() {
+    }
+
+    public static RouteTable<Route> routes() {
+        return ROUTES;
+    }
+
+    /**
+     * @return matches the requests of the public chain
+     */
+    public static ServerWebExchangeMatcher publicResources() {
+        return ROUTES.matcher(route -> route == Route.PUBLIC || route == Route.REGISTRATION);
+    }
+
+    /**
+     * @return matches the requests which have to carry a bearer token, every one but the authentication requests
+     */
+    public static ServerWebExchangeMatcher bearerTokenRequired() {
+        return exchange -> RouteTable.result(!isAuthentication(exchange));
+    }
+
+    /**
+     * @return whether the exchange is a login or another authentication request
+     */
+    public static boolean isAuthentication(ServerWebExchange exchange) {
+        final Route route = ROUTES.resolve(exchange);
+        return route == Route.LOGIN || route == Route.AUTHENTICATION;
+    }
+
+    /**
+     * @return whether the exchange registers a user
+     */
+    public static boolean isRegistration(ServerWebExchange exchange) {
+        return ROUTES.resolve(exchange) == Route.REGISTRATION;
+    }
+
+    /**
+     * @return whether the exchange is the streaming import of users
+     */
+    public static boolean isImport(ServerWebExchange exchange) {
+        return ROUTES.resolve(exchange) == Route.IMPORT;
+    }
+
+    /**
+     * @return matches the logins whose credentials are posted as a form
+     */
+    public static ServerWebExchangeMatcher login() {
+        return exchange -> RouteTable.result(ROUTES.resolve(exchange) == Route.LOGIN &&
+                MediaType.APPLICATION_FORM_URLENCODED.isCompatibleWith(exchange.getRequest().getHeaders().getContentType()));
+    }
+}
@@ -21,6 +21,25 @@ public interface ReactiveAuthenticationProvider {
      * @param authentication type of token
      * @return Mono that it's next value will be true if the provider supports the type, otherwise false
      */
-    Mono<Boolean> supports(Class<?> authentication);
+    default Mono<Boolean> supports(Class<?> authentication) {
+        return Mono.fromSupplier(() -> isSupported(authentication));
+    }
+
+    /**
+     * Synchronous form of {@link #supports(Class)}, the answer for a type must not change since it is
+     * resolved once per type and kept
+     * @param authentication type of token, may be {@code null}
+     * @return true if the provider supports the type, otherwise false
+     */
+    boolean isSupported(Class<?> authentication);
+
+    /**
+     * Whether {@link #authenticate(Authentication)} blocks the subscribing thread, a blocking provider is subscribed
+     * on {@link reactor.core.scheduler.Schedulers#boundedElastic()} instead of the event loop
+     * @return true if the provider blocks, false by default
+     */
+    default boolean isBlocking() {
+        return false;
+    }
 
 }
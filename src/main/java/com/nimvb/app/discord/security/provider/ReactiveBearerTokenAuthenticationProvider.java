@@ -1,71 +1,109 @@
 package com.nimvb.app.discord.security.provider;
 
+import com.nimvb.app.discord.security.cache.DecryptedTokenCache;
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
 import com.nimvb.app.discord.security.resource.BearerTokenAuthenticationToken;
-import com.nimvb.app.discord.security.service.SecretProvider;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.service.TokenRevocationService;
 import com.nimvb.app.discord.security.util.Jwe;
+import com.nimvb.app.discord.security.util.TokenFormat;
+import com.nimvb.app.discord.security.util.TokenType;
+import com.nimbusds.jose.JOSEException;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.CredentialsExpiredException;
+import lombok.Setter;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import reactor.core.publisher.Mono;
 
+import java.text.ParseException;
 import java.time.Instant;
-import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class ReactiveBearerTokenAuthenticationProvider implements ReactiveAuthenticationProvider {
 
 
-    @NonNull private final SecretProvider secretProvider;
+    @NonNull private final KeyRingProvider        keyRingProvider;
+    @NonNull private final SigningKeyRingProvider signingKeyRingProvider;
+    @NonNull private final DecryptedTokenCache    decryptedTokenCache;
+
+    /**
+     * Rejects the revoked tokens when it is set
+     */
+    @Setter
+    private TokenRevocationService tokenRevocationService;
 
     @Override
     public Mono<Authentication> authenticate(Authentication authentication) {
         return
                 Mono.fromSupplier(() -> Mono.just(authentication).cast(BearerTokenAuthenticationToken.class))
                         .flatMap(bearerTokenAuthenticationTokenMono -> bearerTokenAuthenticationTokenMono)
-                        .flatMap(token -> Mono.fromCallable(() -> Jwe
-                                .require(Jwe.Algorithm.AES128HS256(secretProvider.secret()))
-                                .build()
-                                .decrypt(token.getToken())))
-                        .flatMap(claimsSet -> {
-                            boolean expired = Instant.now().isAfter(claimsSet.getExpirationTime().toInstant());
+                        .flatMap(token -> Mono.fromCallable(() -> resolve(token.getToken())))
+                        .flatMap(entry -> tokenRevocationService == null ?
+                                Mono.just(entry) :
+                                tokenRevocationService.isRevoked(entry.getTokenId())
+                                        .flatMap(revoked -> revoked ?
+                                                ReactiveBearerTokenAuthenticationProvider.<DecryptedTokenCache.Entry>failure(AuthenticationFailedException.Reason.REVOKED_TOKEN) :
+                                                Mono.just(entry)))
+                        .flatMap(entry -> {
+                            boolean expired = Instant.now().isAfter(entry.getExpiresAt());
                             if (expired) {
-                                return Mono.error(new CredentialsExpiredException("invalid token"));
+                                return failure(AuthenticationFailedException.Reason.EXPIRED_TOKEN);
                             }
                             return Mono
                                     .deferContextual(contextView -> {
                                         BearerTokenAuthenticationToken token = contextView.get("token");
                                         Mono<Authentication> authenticationToken = Mono.fromCallable(() -> {
                                             return new BearerTokenAuthenticationToken(token.getToken(),
-                                                    claimsSet.getSubject(),
-                                                    Optional.ofNullable(claimsSet.getStringListClaim("roles"))
-                                                            .orElseGet(Collections::emptyList)
-                                                            .stream()
-                                                            .map(SimpleGrantedAuthority::new)
-                                                            .collect(Collectors.toUnmodifiableList()));
+                                                    entry.getSubject(),
+                                                    entry.getAuthorities(),
+                                                    entry.getTokenId(),
+                                                    entry.getFamily(),
+                                                    entry.getExpiresAt());
                                         });
                                         return authenticationToken;
                                     })
                                     .contextWrite(context -> context.put("token", authentication));
                         })
-                        .onErrorResume(throwable -> Mono.empty())
-                        .switchIfEmpty(Mono.error(new BadCredentialsException("invalid token")));
+                        // a token which can not be read or decrypted, or a failing lookup, is an invalid token
+                        .onErrorResume(throwable -> !(throwable instanceof AuthenticationFailedException),
+                                throwable -> failure(AuthenticationFailedException.Reason.INVALID_TOKEN))
+                        .switchIfEmpty(failure(AuthenticationFailedException.Reason.INVALID_TOKEN));
+
+    }
+
+    private static <T> Mono<T> failure(AuthenticationFailedException.Reason reason) {
+        return Mono.error(() -> new AuthenticationFailedException(reason, "invalid token"));
+    }
 
+    private DecryptedTokenCache.Entry resolve(String token) throws ParseException, JOSEException {
+        final Jwe.KeyRing keyRing = keyRingProvider.keyRing();
+        DecryptedTokenCache.Entry entry = decryptedTokenCache.get(token, keyRing);
+        if (entry != null) {
+            return entry;
+        }
+        Jwe.Claims claims = TokenFormat.decode(token, keyRing, signingKeyRingProvider.signingKeyRing());
+        if (TokenType.REFRESH.equals(claims.getTokenType())) {
+            throw new AuthenticationFailedException(AuthenticationFailedException.Reason.INVALID_TOKEN, "invalid token");
+        }
+        entry = new DecryptedTokenCache.Entry(claims.getSubject(),
+                claims.getRoles()
+                        .stream()
+                        .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                        .collect(Collectors.toUnmodifiableList()),
+                claims.getExpiresAt(),
+                claims.getTokenId(),
+                claims.getFamily());
+        decryptedTokenCache.put(token, keyRing, entry);
+        return entry;
     }
 
     @Override
-    public Mono<Boolean> supports(Class<?> authentication) {
-        return Mono.just(false)
-                .flatMap(supports -> {
-                    if(authentication == null){
-                        return Mono.just(false);
-                    }
-                    return Mono.just(BearerTokenAuthenticationToken.class.isAssignableFrom(authentication));
-                });
+    public boolean isSupported(Class<?> authentication) {
+        return authentication != null && BearerTokenAuthenticationToken.class.isAssignableFrom(authentication);
     }
 }
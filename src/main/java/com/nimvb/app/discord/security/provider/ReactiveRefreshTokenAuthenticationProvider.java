@@ -0,0 +1,87 @@
+package com.nimvb.app.discord.security.provider;
+
+import com.nimvb.app.discord.repository.RefreshTokenFamilyRepository;
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
+import com.nimvb.app.discord.security.resource.RefreshTokenAuthenticationToken;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.util.Jwe;
+import com.nimvb.app.discord.security.util.TokenFormat;
+import com.nimvb.app.discord.security.util.TokenType;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Redeems a refresh token of the {@code refresh_token} grant. The token is only decrypted or verified with the
+ * symmetric keys and the password is never checked again; instead the family of the token is rotated, and a token
+ * which has already been rotated revokes its whole family. The user is looked up again, so a locked or disabled account
+ * can not refresh, and every token of a family expires at the deadline fixed by the login, however often it is rotated.
+ */
+@RequiredArgsConstructor
+public class ReactiveRefreshTokenAuthenticationProvider implements ReactiveAuthenticationProvider {
+
+    @NonNull private final KeyRingProvider              keyRingProvider;
+    @NonNull private final SigningKeyRingProvider       signingKeyRingProvider;
+    @NonNull private final RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+    @NonNull private final ReactiveUserDetailsService   userDetailsService;
+    @NonNull private final Clock                        clock;
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        return Mono.just(authentication)
+                .cast(RefreshTokenAuthenticationToken.class)
+                .flatMap(token -> Mono.fromCallable(() -> TokenFormat.decode(token.getToken(),
+                                keyRingProvider.keyRing(),
+                                signingKeyRingProvider.signingKeyRing()))
+                        .filter(this::isRedeemable)
+                        .flatMap(claims -> userDetailsService.findByUsername(claims.getSubject())
+                                .flatMap(userDetails -> {
+                                    if (!userDetails.isAccountNonLocked()) {
+                                        return ReactiveRefreshTokenAuthenticationProvider.<RefreshTokenAuthenticationToken>failure(AuthenticationFailedException.Reason.ACCOUNT_LOCKED);
+                                    }
+                                    if (!userDetails.isEnabled()) {
+                                        return ReactiveRefreshTokenAuthenticationProvider.<RefreshTokenAuthenticationToken>failure(AuthenticationFailedException.Reason.ACCOUNT_DISABLED);
+                                    }
+                                    final String nextTokenId = UUID.randomUUID().toString();
+                                    return refreshTokenFamilyRepository
+                                            .rotate(claims.getFamily(), claims.getTokenId(), nextTokenId, Instant.now(clock))
+                                            .flatMap(rotated -> rotated ?
+                                                    Mono.just(new RefreshTokenAuthenticationToken(token.getToken(),
+                                                            userDetails.getUsername(),
+                                                            claims.getFamily(),
+                                                            nextTokenId,
+                                                            claims.getExpiresAt(),
+                                                            userDetails.getAuthorities())) :
+                                                    ReactiveRefreshTokenAuthenticationProvider.<RefreshTokenAuthenticationToken>failure(AuthenticationFailedException.Reason.REUSED_REFRESH_TOKEN));
+                                })))
+                .cast(Authentication.class)
+                .onErrorResume(throwable -> !(throwable instanceof AuthenticationFailedException),
+                        throwable -> failure(AuthenticationFailedException.Reason.INVALID_REFRESH_TOKEN))
+                .switchIfEmpty(failure(AuthenticationFailedException.Reason.INVALID_REFRESH_TOKEN));
+    }
+
+    private static <T> Mono<T> failure(AuthenticationFailedException.Reason reason) {
+        return Mono.error(() -> new AuthenticationFailedException(reason, "invalid refresh token"));
+    }
+
+    private boolean isRedeemable(Jwe.Claims claims) {
+        return TokenType.REFRESH.equals(claims.getTokenType())
+                && claims.getSubject() != null
+                && claims.getFamily() != null
+                && claims.getTokenId() != null
+                && claims.getExpiresAt() != null
+                && Instant.now(clock).isBefore(claims.getExpiresAt());
+    }
+
+    @Override
+    public boolean isSupported(Class<?> authentication) {
+        return authentication != null && RefreshTokenAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+}
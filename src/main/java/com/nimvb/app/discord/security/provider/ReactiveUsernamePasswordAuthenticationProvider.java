@@ -1,28 +1,38 @@
 package com.nimvb.app.discord.security.provider;
 
-import com.nimvb.app.discord.security.exception.AccountDisabledException;
-import com.nimvb.app.discord.security.exception.AccountLockedException;
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
+import com.nimvb.app.discord.security.service.PasswordHashingExecutor;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsChecker;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import reactor.core.publisher.Mono;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+@Slf4j
 @RequiredArgsConstructor
 public class ReactiveUsernamePasswordAuthenticationProvider implements ReactiveAuthenticationProvider {
 
+    /**
+     * The message of every rejected login, so a locked or disabled account is not told apart from a wrong password
+     */
+    private static final String INVALID_CREDENTIALS = "invalid username or password";
+
     @NonNull
     private final ReactiveUserDetailsService userDetailsService;
 
     @NonNull
-    private final PasswordEncoder encoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
 
     @Setter
     @NonNull
@@ -32,6 +42,17 @@ public class ReactiveUsernamePasswordAuthenticationProvider implements ReactiveA
     @NonNull
     private UserDetailsChecker postAuthenticationChecker = this::postAuthenticationChecker;
 
+    /**
+     * Persists the new hash of a password whose hash is outdated, re-hashing is disabled without it
+     */
+    @Setter
+    private ReactiveUserDetailsPasswordService userDetailsPasswordService;
+
+    /**
+     * The users whose hash is being upgraded, so the concurrent logins of a user start a single re-hash
+     */
+    private final Set<String> upgrading = ConcurrentHashMap.newKeySet();
+
     @Override
     public Mono<Authentication> authenticate(Authentication authentication) {
 
@@ -44,7 +65,9 @@ public class ReactiveUsernamePasswordAuthenticationProvider implements ReactiveA
                     if (token.isEmpty()) {
                         return Mono.empty();
                     }
-                    return userDetailsMono.filter(userDetails -> encoder.matches(token.get().getCredentials().toString(), userDetails.getPassword()));
+                    final String rawPassword = token.get().getCredentials().toString();
+                    return userDetailsMono
+                            .filterWhen(userDetails -> passwordHashingExecutor.matches(rawPassword, userDetails.getPassword()));
                 })
                 .doOnNext(userDetails -> preAuthenticationChecker.check(userDetails))
                 .map(userDetails -> {
@@ -52,31 +75,51 @@ public class ReactiveUsernamePasswordAuthenticationProvider implements ReactiveA
                             userDetails.getAuthorities());
                 })
                 .doOnNext(token -> postAuthenticationChecker.check(((UserDetails) token.getPrincipal())))
+                // only a login which is let in re-hashes, a rejected one must not take a slot of the hashing
+                .flatMap(token -> Mono.deferContextual(contextView -> {
+                    contextView.<UsernamePasswordAuthenticationToken>getOrEmpty("token")
+                            .ifPresent(login -> upgradeEncoding((UserDetails) token.getPrincipal(), login.getCredentials().toString()));
+                    return Mono.just(token);
+                }))
                 .cast(Authentication.class)
                 .contextWrite(context -> context.put("token", authentication))
-                .onErrorResume(throwable -> Mono.empty())
-                .switchIfEmpty(Mono.error(new BadCredentialsException("invalid username or password")));
+                // the failures keep their reason, any other error of a lookup is reported as invalid credentials
+                .onErrorResume(throwable -> !(throwable instanceof PasswordHashingUnavailableException)
+                        && !(throwable instanceof AuthenticationFailedException), throwable -> Mono.empty())
+                .switchIfEmpty(Mono.error(() -> new AuthenticationFailedException(AuthenticationFailedException.Reason.INVALID_CREDENTIALS,
+                        INVALID_CREDENTIALS)));
     }
 
     @Override
-    public Mono<Boolean> supports(Class<?> authentication) {
-        return Mono.just(false)
-                .flatMap(supports -> {
-                    if (authentication == null) {
-                        return Mono.just(false);
-                    }
-                    return Mono.just(UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication));
-                });
+    public boolean isSupported(Class<?> authentication) {
+        return authentication != null && UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
     }
 
 
+    /**
+     * Re-hashes an outdated hash in the background, the login does not wait for it and a failure keeps the old hash;
+     * nothing is started while the hash of the same user is already being upgraded
+     */
+    private void upgradeEncoding(UserDetails userDetails, String rawPassword) {
+        if (userDetailsPasswordService == null
+                || !passwordHashingExecutor.getEncoder().upgradeEncoding(userDetails.getPassword())
+                || !upgrading.add(userDetails.getUsername())) {
+            return;
+        }
+        passwordHashingExecutor.encode(rawPassword)
+                .flatMap(encodedPassword -> userDetailsPasswordService.updatePassword(userDetails, encodedPassword))
+                .doFinally(signal -> upgrading.remove(userDetails.getUsername()))
+                .subscribe(updated -> log.debug("the password hash of {} is upgraded", updated.getUsername()),
+                        throwable -> log.warn("upgrading the password hash of {} failed", userDetails.getUsername(), throwable));
+    }
+
     private void preAuthenticationChecker(UserDetails user){
-//        if (!user.isAccountNonLocked()) {
-//            throw new AccountLockedException("account is locked");
-//        }
-//        if (!user.isEnabled()) {
-//            throw new AccountDisabledException("account is disabled");
-//        }
+        if (!user.isAccountNonLocked()) {
+            throw new AuthenticationFailedException(AuthenticationFailedException.Reason.ACCOUNT_LOCKED, INVALID_CREDENTIALS);
+        }
+        if (!user.isEnabled()) {
+            throw new AuthenticationFailedException(AuthenticationFailedException.Reason.ACCOUNT_DISABLED, INVALID_CREDENTIALS);
+        }
 //        if (!user.isAccountNonExpired()) {
 //            throw new AccountExpiredException("account is expired");
 //        }
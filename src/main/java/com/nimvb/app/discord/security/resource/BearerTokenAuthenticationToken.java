@@ -6,6 +6,7 @@ import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.util.Assert;
 
+import java.time.Instant;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -15,18 +16,49 @@ public class BearerTokenAuthenticationToken extends AbstractAuthenticationToken
 
     @Getter
     private final String token;
+    @Getter
+    @EqualsAndHashCode.Exclude
+    private final String username;
+    @Getter
+    @EqualsAndHashCode.Exclude
+    private final String tokenId;
+    @Getter
+    @EqualsAndHashCode.Exclude
+    private final String family;
+    @Getter
+    @EqualsAndHashCode.Exclude
+    private final Instant expiresAt;
 
     public BearerTokenAuthenticationToken(String token) throws IllegalArgumentException{
         super(Collections.emptyList());
         Assert.hasText(token, "token cannot be empty");
         this.token = token;
+        this.username = null;
+        this.tokenId = null;
+        this.family = null;
+        this.expiresAt = null;
         setAuthenticated(false);
     }
 
     public BearerTokenAuthenticationToken(String token, String username, Collection<? extends GrantedAuthority> authorities) throws IllegalArgumentException{
+        this(token, username, authorities, null, null, null);
+    }
+
+    /**
+     * Authenticated token which keeps what identifies it, for revoking it
+     * @param tokenId the {@code jti} of the token, {@code null} when it was issued without one
+     * @param family the refresh token family the token was issued with, {@code null} when there is none
+     * @param expiresAt the expiration of the token
+     */
+    public BearerTokenAuthenticationToken(String token, String username, Collection<? extends GrantedAuthority> authorities,
+                                          String tokenId, String family, Instant expiresAt) throws IllegalArgumentException{
         super(authorities);
         Assert.hasText(token, "token cannot be empty");
         this.token = token;
+        this.username = username;
+        this.tokenId = tokenId;
+        this.family = family;
+        this.expiresAt = expiresAt;
         setAuthenticated(true);
     }
 
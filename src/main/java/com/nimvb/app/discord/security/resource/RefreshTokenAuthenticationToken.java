@@ -0,0 +1,66 @@
+package com.nimvb.app.discord.security.resource;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.util.Assert;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+
+
+/**
+ * A refresh token presented with {@code grant_type=refresh_token}, once authenticated it carries the
+ * family, the rotated token id and the expiration which the next refresh token has to be issued with
+ */
+@EqualsAndHashCode(callSuper = true)
+public class RefreshTokenAuthenticationToken extends AbstractAuthenticationToken {
+
+    @Getter
+    private final String token;
+    private final String username;
+    @Getter
+    private final String family;
+    @Getter
+    private final String tokenId;
+    @Getter
+    private final Instant expiresAt;
+
+    public RefreshTokenAuthenticationToken(String token) throws IllegalArgumentException {
+        super(Collections.emptyList());
+        Assert.hasText(token, "token cannot be empty");
+        this.token = token;
+        this.username = null;
+        this.family = null;
+        this.tokenId = null;
+        this.expiresAt = null;
+        setAuthenticated(false);
+    }
+
+    public RefreshTokenAuthenticationToken(String token, String username, String family, String tokenId, Instant expiresAt, Collection<? extends GrantedAuthority> authorities) throws IllegalArgumentException {
+        super(authorities);
+        Assert.hasText(token, "token cannot be empty");
+        Assert.hasText(username, "username cannot be empty");
+        Assert.hasText(family, "family cannot be empty");
+        Assert.hasText(tokenId, "token id cannot be empty");
+        Assert.notNull(expiresAt, "expiration cannot be null");
+        this.token = token;
+        this.username = username;
+        this.family = family;
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+        setAuthenticated(true);
+    }
+
+    @Override
+    public Object getCredentials() {
+        return token;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return username != null ? username : token;
+    }
+}
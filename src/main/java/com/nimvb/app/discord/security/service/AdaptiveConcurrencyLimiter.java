@@ -0,0 +1,128 @@
+package com.nimvb.app.discord.security.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the requests in flight by a limit which follows their latency, so a slow database makes the excess
+ * requests fail at once instead of queueing until every client times out. The limit is adjusted with the gradient
+ * between the long term average latency and the latest one: while the latest stays within {@code tolerance} times the
+ * average the limit grows by about its square root, and it shrinks by up to half as the latency rises. A request
+ * which failed for lack of capacity further down shrinks it as well. The changes are smoothed, and the limit only
+ * grows while it is actually used, so an idle period does not inflate it.
+ * <p>
+ * Published as {@code security.concurrency.limit}, {@code security.concurrency.in.flight} and
+ * {@code security.concurrency.rejected}, tagged by {@code chain}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double LONG_WINDOW = 600;
+
+    private final int           minLimit;
+    private final int           maxLimit;
+    private final double        tolerance;
+    private final double        smoothing;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter       rejected;
+    private volatile double     limit;
+    private double              longLatency;
+
+    /**
+     * @param chain the chain the limiter is in front of, for tagging its metrics
+     * @param tolerance how many times the average latency the latest one may reach before the limit shrinks
+     * @param smoothing the weight of a new estimate of the limit, between 0 exclusive and 1
+     */
+    public AdaptiveConcurrencyLimiter(@NonNull String chain, int initialLimit, int minLimit, int maxLimit,
+                                      double tolerance, double smoothing, @NonNull MeterRegistry meterRegistry) throws IllegalArgumentException {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("the limits must be positive and minLimit <= initialLimit <= maxLimit");
+        }
+        if (tolerance < 1 || smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("tolerance must be at least 1 and smoothing in (0, 1]");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.limit = initialLimit;
+        Gauge.builder("security.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit).tag("chain", chain).register(meterRegistry);
+        Gauge.builder("security.concurrency.in.flight", inFlight, AtomicInteger::get).tag("chain", chain).register(meterRegistry);
+        this.rejected = Counter.builder("security.concurrency.rejected").tag("chain", chain).register(meterRegistry);
+    }
+
+    /**
+     * Takes a slot for a request, which has to be given back with one of {@link #onSuccess(long)},
+     * {@link #onDropped()} or {@link #onIgnore()}
+     * @return {@code false} when the limit is reached and the request should be rejected
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            final int current = inFlight.get();
+            if (current >= getLimit()) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * The request completed in {@code latencyNanos}
+     */
+    public void onSuccess(long latencyNanos) {
+        final int current = inFlight.getAndDecrement();
+        if (latencyNanos > 0) {
+            sample(latencyNanos, current);
+        }
+    }
+
+    /**
+     * The request failed for lack of capacity further down, the limit shrinks
+     */
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            limit = Math.max(minLimit, limit * 0.9);
+        }
+    }
+
+    /**
+     * The request ended without telling anything about the capacity, such as when it was cancelled
+     */
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void sample(double latency, int inFlight) {
+        if (longLatency == 0) {
+            longLatency = latency;
+        } else {
+            longLatency += (latency - longLatency) / LONG_WINDOW;
+        }
+        // the average recovers quickly once the latency dropped well below it, so a past slowdown is not kept
+        if (longLatency / latency > 2) {
+            longLatency *= 0.95;
+        }
+        final double current = limit;
+        if (inFlight < current / 2) {
+            return;
+        }
+        final double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / latency));
+        final double estimate = current * gradient + Math.sqrt(current);
+        limit = Math.min(maxLimit, Math.max(minLimit, current * (1 - smoothing) + estimate * smoothing));
+    }
+}
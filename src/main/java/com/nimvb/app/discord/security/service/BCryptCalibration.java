@@ -0,0 +1,72 @@
+package com.nimvb.app.discord.security.service;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.function.IntFunction;
+
+/**
+ * Picks the bcrypt strength whose hash takes the closest to a target latency on the running hardware. The strength
+ * is recorded in every bcrypt hash, so a different strength keeps the existing hashes valid and lets
+ * {@link BCryptPasswordEncoder#upgradeEncoding(String)} report the weaker ones.
+ */
+@Slf4j
+public final class BCryptCalibration {
+
+    public static final int MIN_STRENGTH = 4;
+    public static final int MAX_STRENGTH = 31;
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+
+    private BCryptCalibration() {
+    }
+
+    /**
+     * @param targetLatency the latency of a single hash
+     * @return the calibrated strength
+     */
+    public static int strength(@NonNull Duration targetLatency) {
+        int strength = strength(targetLatency, BCryptCalibration::measure);
+        log.info("bcrypt strength {} is calibrated for a hashing latency of {}", strength, targetLatency);
+        return strength;
+    }
+
+    /**
+     * Every additional strength doubles the latency, so the strengths are walked up until the first one which
+     * reaches the target, then the closer of it and the previous strength is chosen
+     * @param targetLatency the latency of a single hash
+     * @param latencyOfStrength measures the latency of a strength
+     * @return the calibrated strength
+     */
+    static int strength(@NonNull Duration targetLatency, @NonNull IntFunction<Duration> latencyOfStrength) {
+        Duration previous = null;
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            Duration latency = latencyOfStrength.apply(strength);
+            if (latency.compareTo(targetLatency) >= 0) {
+                if (previous != null
+                        && targetLatency.minus(previous).compareTo(latency.minus(targetLatency)) < 0) {
+                    return strength - 1;
+                }
+                return strength;
+            }
+            previous = latency;
+        }
+        return MAX_STRENGTH;
+    }
+
+    /**
+     * The faster of two runs, the first one also pays for warming up
+     */
+    private static Duration measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long fastest = Long.MAX_VALUE;
+        for (int run = 0; run < 2; run++) {
+            long startedAt = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            fastest = Math.min(fastest, System.nanoTime() - startedAt);
+        }
+        return Duration.ofNanos(fastest);
+    }
+}
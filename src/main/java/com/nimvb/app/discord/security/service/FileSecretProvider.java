@@ -0,0 +1,91 @@
+package com.nimvb.app.discord.security.service;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reads the secrets from a local properties file which uses the same keys as the {@code spring.security.jwe} properties:
+ * <pre>
+ * key-id=2022-02
+ * secret=...
+ * decryption-secrets.2022-01=...
+ * </pre>
+ * The file is parsed again whenever its modification time changes, so rotating a secret only needs the file to be replaced.
+ */
+public class FileSecretProvider implements SecretProvider {
+
+    private static final String DECRYPTION_SECRETS_PREFIX = "decryption-secrets.";
+
+    private final Path path;
+
+    private volatile Snapshot snapshot;
+
+    public FileSecretProvider(@NonNull Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public String secret() {
+        String secret = current().properties.getProperty("secret");
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("no secret is defined in " + path);
+        }
+        return secret;
+    }
+
+    @Override
+    public String keyId() {
+        return current().properties.getProperty("key-id", DEFAULT_KEY_ID);
+    }
+
+    @Override
+    public Map<String, String> decryptionSecrets() {
+        Properties          properties = current().properties;
+        Map<String, String> secrets    = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(DECRYPTION_SECRETS_PREFIX)) {
+                secrets.put(name.substring(DECRYPTION_SECRETS_PREFIX.length()), properties.getProperty(name));
+            }
+        }
+        return secrets;
+    }
+
+    private Snapshot current() {
+        try {
+            FileTime lastModified = Files.getLastModifiedTime(path);
+            Snapshot current      = snapshot;
+            if (current != null && current.lastModified.equals(lastModified)) {
+                return current;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            current = new Snapshot(lastModified, properties);
+            snapshot = current;
+            return current;
+        } catch (IOException e) {
+            throw new UncheckedIOException("unable to read the secrets from " + path, e);
+        }
+    }
+
+    private static final class Snapshot {
+        private final FileTime   lastModified;
+        private final Properties properties;
+
+        private Snapshot(FileTime lastModified, Properties properties) {
+            this.lastModified = lastModified;
+            this.properties = properties;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimvb.app.discord.security.util.Jwe;
+
+public interface KeyRingProvider {
+
+    /**
+     * Retrieve the current key ring
+     * @return the key ring which new tokens should be encrypted with and incoming tokens decrypted with
+     */
+    Jwe.KeyRing keyRing();
+}
@@ -0,0 +1,224 @@
+package com.nimvb.app.discord.security.service;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts failed logins per username and per client address, so a client which keeps guessing is turned away before
+ * its credentials are looked up or hashed. Failures are counted over a sliding window, approximated by weighting the
+ * count of the previous fixed window by how much of it still overlaps; reaching the limit blocks the key for a
+ * back-off which doubles every time the key is blocked again. Keys are kept as 64-bit hashes in lock-striped LRU
+ * maps of bounded size, so the memory stays bounded however many distinct keys are seen and the least recently
+ * failed ones are forgotten first.
+ */
+public class LoginThrottle {
+
+    private static final int STRIPES = 64;
+
+    private final FailureTracker usernames;
+    private final FailureTracker addresses;
+
+    public LoginThrottle(@NonNull Policy usernamePolicy, @NonNull Policy addressPolicy, @NonNull Clock clock) {
+        this.usernames = new FailureTracker(usernamePolicy, clock);
+        this.addresses = new FailureTracker(addressPolicy, clock);
+    }
+
+    /**
+     * How long a login for {@code username} from {@code address} has to wait
+     * @param username the username of the login, may be {@code null}
+     * @param address the client address of the login, may be {@code null}
+     * @return the longer wait of both keys, {@link Duration#ZERO} when the login may be attempted
+     */
+    public Duration retryAfter(String username, String address) {
+        Duration byUsername = usernames.retryAfter(username);
+        Duration byAddress = addresses.retryAfter(address);
+        return byUsername.compareTo(byAddress) >= 0 ? byUsername : byAddress;
+    }
+
+    public void recordFailure(String username, String address) {
+        usernames.recordFailure(username);
+        addresses.recordFailure(address);
+    }
+
+    /**
+     * Forgets the failures of {@code username}; the ones of the address are kept since a single address may be
+     * shared by many clients, or be guessing while logging into an account of its own
+     */
+    public void recordSuccess(String username) {
+        usernames.reset(username);
+    }
+
+    /**
+     * Limit of a key: {@code maxFailures} within {@code window} block it for {@code initialBackoff}, doubling up to
+     * {@code maxBackoff} while it keeps being blocked; at most {@code maxKeys} keys are tracked
+     */
+    @Getter
+    public static final class Policy {
+
+        private final int      maxFailures;
+        private final Duration window;
+        private final Duration initialBackoff;
+        private final Duration maxBackoff;
+        private final int      maxKeys;
+
+        public Policy(int maxFailures, @NonNull Duration window, @NonNull Duration initialBackoff, @NonNull Duration maxBackoff, int maxKeys) {
+            if (maxFailures < 1 || maxKeys < 1) {
+                throw new IllegalArgumentException("maxFailures and maxKeys must be positive");
+            }
+            if (window.toMillis() < 1 || initialBackoff.toMillis() < 1 || maxBackoff.compareTo(initialBackoff) < 0) {
+                throw new IllegalArgumentException("window and initialBackoff must be positive and not exceed maxBackoff");
+            }
+            this.maxFailures = maxFailures;
+            this.window = window;
+            this.initialBackoff = initialBackoff;
+            this.maxBackoff = maxBackoff;
+            this.maxKeys = maxKeys;
+        }
+    }
+
+    private static final class FailureTracker {
+
+        private final Policy   policy;
+        private final Clock    clock;
+        private final Stripe[] stripes = new Stripe[STRIPES];
+        private final long     windowMillis;
+        private final long     initialBackoffMillis;
+        private final long     maxBackoffMillis;
+
+        private FailureTracker(Policy policy, Clock clock) {
+            this.policy = policy;
+            this.clock = clock;
+            this.windowMillis = policy.getWindow().toMillis();
+            this.initialBackoffMillis = policy.getInitialBackoff().toMillis();
+            this.maxBackoffMillis = policy.getMaxBackoff().toMillis();
+            int capacity = Math.max(1, policy.getMaxKeys() / STRIPES);
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe(capacity);
+            }
+        }
+
+        private Duration retryAfter(String key) {
+            if (key == null) {
+                return Duration.ZERO;
+            }
+            long hash = hash(key);
+            Stripe stripe = stripe(hash);
+            long now = clock.millis();
+            synchronized (stripe) {
+                Window window = stripe.get(hash);
+                if (window == null || window.blockedUntil <= now) {
+                    return Duration.ZERO;
+                }
+                return Duration.ofMillis(window.blockedUntil - now);
+            }
+        }
+
+        private void recordFailure(String key) {
+            if (key == null) {
+                return;
+            }
+            long hash = hash(key);
+            Stripe stripe = stripe(hash);
+            long now = clock.millis();
+            synchronized (stripe) {
+                Window window = stripe.computeIfAbsent(hash, ignored -> new Window(now));
+                window.roll(now, windowMillis, maxBackoffMillis);
+                if (window.blockedUntil > now) {
+                    return;
+                }
+                window.current++;
+                if (window.estimate(now, windowMillis) >= policy.getMaxFailures()) {
+                    window.strikes++;
+                    window.blockedUntil = now + backoff(window.strikes);
+                    window.current = 0;
+                    window.previous = 0;
+                }
+            }
+        }
+
+        private void reset(String key) {
+            if (key == null) {
+                return;
+            }
+            long hash = hash(key);
+            Stripe stripe = stripe(hash);
+            synchronized (stripe) {
+                stripe.remove(hash);
+            }
+        }
+
+        private long backoff(int strikes) {
+            int shift = strikes - 1;
+            if (shift >= Long.numberOfLeadingZeros(initialBackoffMillis) - 1) {
+                return maxBackoffMillis;
+            }
+            return Math.min(initialBackoffMillis << shift, maxBackoffMillis);
+        }
+
+        private Stripe stripe(long hash) {
+            return stripes[(int) (hash ^ (hash >>> 32)) & (STRIPES - 1)];
+        }
+
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<Long, Window> {
+
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Window> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private static final class Window {
+
+        private long start;
+        private int  current;
+        private int  previous;
+        private int  strikes;
+        private long blockedUntil;
+
+        private Window(long start) {
+            this.start = start;
+        }
+
+        /**
+         * Moves the window to the one {@code now} falls in, the back-off is forgotten once the key stayed unblocked
+         * for {@code forgetAfter}
+         */
+        private void roll(long now, long windowMillis, long forgetAfter) {
+            long elapsed = now - start;
+            if (elapsed >= windowMillis) {
+                previous = elapsed < 2 * windowMillis ? current : 0;
+                current = 0;
+                start = now - elapsed % windowMillis;
+            }
+            if (strikes > 0 && now - blockedUntil >= forgetAfter) {
+                strikes = 0;
+            }
+        }
+
+        private double estimate(long now, long windowMillis) {
+            return current + previous * (double) (windowMillis - (now - start)) / windowMillis;
+        }
+    }
+}
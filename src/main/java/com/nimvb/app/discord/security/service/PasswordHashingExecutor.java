@@ -0,0 +1,142 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.Getter;
+import lombok.NonNull;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every {@link PasswordEncoder} operation on a fixed number of threads with a bounded wait queue, so the
+ * deliberately slow hashes never run on the event loops. When the queue is full the operation fails immediately
+ * with {@link PasswordHashingUnavailableException} instead of queueing without limit.
+ * <p>
+ * Metrics: {@code password.hashing.queue} (waiting operations), {@code password.hashing.wait} (time in the queue),
+ * {@code password.hashing.time} (time of the hash, tagged by {@code operation}) and {@code password.hashing.rejected}.
+ */
+public class PasswordHashingExecutor {
+
+    @Getter
+    private final PasswordEncoder    encoder;
+    private final Executor           executor;
+    private final ThreadPoolExecutor pool;
+    @Getter
+    private final Duration           retryAfter;
+    private final Timer              waitTimer;
+    private final Timer              matchesTimer;
+    private final Timer              encodeTimer;
+    private final Counter            rejected;
+
+    /**
+     * @param encoder the encoder whose operations are executed
+     * @param threads the number of hashing threads, usually the number of cores
+     * @param queueCapacity the number of operations which may wait for a thread
+     * @param retryAfter the delay suggested to a rejected client
+     * @param meterRegistry the registry of the metrics
+     */
+    public PasswordHashingExecutor(@NonNull PasswordEncoder encoder,
+                                   int threads,
+                                   int queueCapacity,
+                                   @NonNull Duration retryAfter,
+                                   @NonNull MeterRegistry meterRegistry) {
+        this(encoder, new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory(), new ThreadPoolExecutor.AbortPolicy()), retryAfter, meterRegistry);
+    }
+
+    private PasswordHashingExecutor(PasswordEncoder encoder, Executor executor, Duration retryAfter, MeterRegistry meterRegistry) {
+        this.encoder = encoder;
+        this.executor = executor;
+        this.pool = executor instanceof ThreadPoolExecutor ? (ThreadPoolExecutor) executor : null;
+        this.retryAfter = retryAfter;
+        this.waitTimer = Timer.builder("password.hashing.wait").register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing.time").tag("operation", "matches").register(meterRegistry);
+        this.encodeTimer = Timer.builder("password.hashing.time").tag("operation", "encode").register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected").register(meterRegistry);
+        Gauge.builder("password.hashing.queue", this, PasswordHashingExecutor::queueDepth).register(meterRegistry);
+    }
+
+    /**
+     * An executor which hashes on the subscribing thread and never rejects, meant for tests and tools
+     * @param encoder the encoder whose operations are executed
+     * @return the executor
+     */
+    public static PasswordHashingExecutor inline(@NonNull PasswordEncoder encoder) {
+        return new PasswordHashingExecutor(encoder, Runnable::run, Duration.ZERO, new SimpleMeterRegistry());
+    }
+
+    public Mono<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    public Mono<String> encode(CharSequence rawPassword) {
+        return submit(encodeTimer, () -> encoder.encode(rawPassword));
+    }
+
+    public int queueDepth() {
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The result is published on the parallel scheduler so the hashing thread is released as soon as the hash is done,
+     * an operation which is cancelled while it waits in the queue is skipped
+     */
+    private <T> Mono<T> submit(Timer hashTimer, Callable<T> operation) {
+        Mono<T> result = Mono.create(sink -> {
+            final AtomicBoolean cancelled = new AtomicBoolean();
+            sink.onCancel(() -> cancelled.set(true));
+            final long enqueuedAt = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    final long startedAt = System.nanoTime();
+                    waitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+                    if (cancelled.get()) {
+                        return;
+                    }
+                    try {
+                        sink.success(operation.call());
+                    } catch (Throwable throwable) {
+                        sink.error(throwable);
+                    } finally {
+                        hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    }
+                });
+            } catch (RejectedExecutionException exception) {
+                rejected.increment();
+                sink.error(new PasswordHashingUnavailableException("password hashing is saturated", retryAfter));
+            }
+        });
+        return pool == null ? result : result.publishOn(Schedulers.parallel());
+    }
+
+    private static ThreadFactory threadFactory() {
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
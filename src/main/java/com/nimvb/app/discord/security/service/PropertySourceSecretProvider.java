@@ -1,18 +1,45 @@
 package com.nimvb.app.discord.security.service;
 
 
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Reads the secrets from the {@code spring.security.jwe} properties. The environment is consulted on every call,
+ * so changes made to the property sources at runtime are picked up by the next reload of the key ring.
+ */
 @Service
-public class PropertySourceSecretProvider implements SecretProvider {
+public class PropertySourceSecretProvider implements SecretProvider, EnvironmentAware {
+
+    private static final String PREFIX = "spring.security.jwe";
 
-    @Value("${spring.security.jwe.secret:#{T(com.nimvb.app.discord.security.service.SecretProvider).DEFAULT_SECRET}}")
-    private String secret;
+    private Environment environment;
 
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
 
     public String secret(){
-        return secret;
+        return environment.getProperty(PREFIX + ".secret", DEFAULT_SECRET);
+    }
+
+    @Override
+    public String keyId() {
+        return environment.getProperty(PREFIX + ".key-id", DEFAULT_KEY_ID);
+    }
+
+    @Override
+    public Map<String, String> decryptionSecrets() {
+        return Binder.get(environment)
+                .bind(PREFIX + ".decryption-secrets", Bindable.mapOf(String.class, String.class))
+                .orElseGet(Collections::emptyMap);
     }
 
 }
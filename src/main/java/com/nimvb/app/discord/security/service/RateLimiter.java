@@ -0,0 +1,192 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimvb.app.discord.security.matcher.RouteTable;
+import lombok.Getter;
+import lombok.NonNull;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets per bucket of routes and client, the bucket of a request being the {@link Limit} its route resolves
+ * to in {@code limits}; each refilled with {@link Limit#getCapacity() capacity} tokens per
+ * {@link Limit#getPeriod() period}. A bucket is kept as the time it will be full again (the theoretical arrival time
+ * of the generic cell rate algorithm), so taking a token is a single compare-and-set and no lock is held.
+ * <p>
+ * The buckets live in lock-striped maps bounded by {@code maxKeys} in total; a stripe which outgrows its share drops
+ * its full buckets, which are the same as the ones never seen, then the fullest ones until it is back to three quarters
+ * of its share, so the cost of a sweep is spread over the keys which fill it again.
+ */
+public class RateLimiter {
+
+    private static final int STRIPES = 64;
+
+    private final RouteTable<Limit> limits;
+    private final Clock             clock;
+    private final Stripe[]          stripes = new Stripe[STRIPES];
+
+    public RateLimiter(@NonNull RouteTable<Limit> limits, int maxKeys, @NonNull Clock clock) throws IllegalArgumentException {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("maxKeys must be positive");
+        }
+        this.limits = limits;
+        this.clock = clock;
+        int capacity = Math.max(1, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    /**
+     * @return the limit of the route of {@code exchange}, {@code null} when it is not limited
+     */
+    public Limit limitOf(@NonNull ServerWebExchange exchange) {
+        return limits.resolve(exchange);
+    }
+
+    /**
+     * Takes a token of the bucket of {@code limit} kept for {@code client}
+     * @param client identifies who the request is counted for, such as its user or its address
+     * @return whether the request may proceed, and the state of the bucket after it
+     */
+    public Decision acquire(@NonNull Limit limit, @NonNull String client) {
+        final String key = limit.getBucket() + ':' + client;
+        final long now = Math.multiplyExact(clock.millis(), 1000L);
+        final Stripe stripe = stripes[key.hashCode() & (STRIPES - 1)];
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            bucket = stripe.buckets.computeIfAbsent(key, ignored -> new AtomicLong(now));
+        }
+        final Decision decision = take(bucket, limit, now);
+        // evicted once the token is taken, so the new bucket is not mistaken for an idle one
+        if (stripe.buckets.size() > stripe.capacity) {
+            stripe.evict(now);
+        }
+        return decision;
+    }
+
+    private static Decision take(AtomicLong bucket, Limit limit, long now) {
+        final long interval = limit.intervalMicros;
+        final long period = limit.periodMicros;
+        for (;;) {
+            final long full = bucket.get();
+            final long next = Math.max(full, now) + interval;
+            final long ahead = next - now;
+            if (ahead > period) {
+                return new Decision(limit, false, 0, now, Math.max(full - now, 0), ahead - period);
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return new Decision(limit, true, (int) ((period - ahead) / interval), now, ahead, 0);
+            }
+        }
+    }
+
+    /**
+     * {@code capacity} requests per {@code period} for every client, which may all be made at once
+     */
+    @Getter
+    public static final class Limit {
+
+        private final String   bucket;
+        private final int      capacity;
+        private final Duration period;
+        private final long     periodMicros;
+        private final long     intervalMicros;
+
+        public Limit(@NonNull String bucket, int capacity, @NonNull Duration period) throws IllegalArgumentException {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity must be positive");
+            }
+            if (period.toNanos() / 1000 < capacity) {
+                throw new IllegalArgumentException("period must be at least a microsecond per request");
+            }
+            this.bucket = bucket;
+            this.capacity = capacity;
+            this.period = period;
+            this.periodMicros = period.toNanos() / 1000;
+            this.intervalMicros = periodMicros / capacity;
+        }
+    }
+
+    @Getter
+    public static final class Decision {
+
+        private final Limit    limit;
+        private final boolean  allowed;
+        /**
+         * The requests which may still be made at once
+         */
+        private final int      remaining;
+        /**
+         * How long until the bucket is full again
+         */
+        private final Duration resetAfter;
+        private final Instant  resetAt;
+        /**
+         * How long until the next request may be made, {@link Duration#ZERO} when this one was allowed
+         */
+        private final Duration retryAfter;
+
+        private Decision(Limit limit, boolean allowed, int remaining, long nowMicros, long resetAfterMicros, long retryAfterMicros) {
+            this.limit = limit;
+            this.allowed = allowed;
+            this.remaining = remaining;
+            this.resetAfter = Duration.ofNanos(resetAfterMicros * 1000);
+            this.resetAt = Instant.EPOCH.plusNanos((nowMicros + resetAfterMicros) * 1000);
+            this.retryAfter = Duration.ofNanos(retryAfterMicros * 1000);
+        }
+    }
+
+    private static final class Stripe {
+
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final int                     capacity;
+        private final int                     lowWater;
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+            this.lowWater = Math.max(1, capacity * 3 / 4);
+        }
+
+        private synchronized void evict(long now) {
+            if (buckets.size() <= capacity) {
+                return;
+            }
+            // the times are read once, as the buckets keep being taken from while they are sorted
+            final List<Idle> idle = new ArrayList<>(buckets.size());
+            buckets.forEach((key, bucket) -> idle.add(new Idle(key, bucket, bucket.get())));
+            idle.sort(Comparator.comparingLong(entry -> entry.full));
+            int size = buckets.size();
+            for (Idle entry : idle) {
+                if (entry.full > now && size <= lowWater) {
+                    return;
+                }
+                // a bucket taken again since it was dropped is another one, and is kept
+                if (buckets.remove(entry.key, entry.bucket)) {
+                    size--;
+                }
+            }
+        }
+    }
+
+    private static final class Idle {
+
+        private final String     key;
+        private final AtomicLong bucket;
+        private final long       full;
+
+        private Idle(String key, AtomicLong bucket, long full) {
+            this.key = key;
+            this.bucket = bucket;
+            this.full = full;
+        }
+    }
+}
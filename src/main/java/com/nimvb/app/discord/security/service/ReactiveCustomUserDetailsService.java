@@ -1,23 +1,42 @@
 package com.nimvb.app.discord.security.service;
 
+import com.nimvb.app.discord.domain.UserCredentials;
+import com.nimvb.app.discord.event.UserChangedEvent;
+import com.nimvb.app.discord.security.cache.UserDetailsCache;
 import com.nimvb.app.discord.service.UserService;
+import lombok.NonNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
-import java.util.Collections;
+import java.util.function.Function;
 
+
+/**
+ * Looks the credentials of the users up through the {@link UserService}, keeping them in a {@link UserDetailsCache}
+ * when one is given; a cached user is dropped once a {@link UserChangedEvent} of it is published, and loaded again from
+ * the latest writes
+ */
 @Service
-public class ReactiveCustomUserDetailsService implements ReactiveUserDetailsService {
+public class ReactiveCustomUserDetailsService implements ReactiveUserDetailsService, ReactiveUserDetailsPasswordService {
 
-    private final UserService userService;
+    private final UserService      userService;
+    private final UserDetailsCache userDetailsCache;
 
-    @Autowired
     public ReactiveCustomUserDetailsService(UserService userService) {
         this.userService = userService;
+        this.userDetailsCache = null;
+    }
+
+    @Autowired
+    public ReactiveCustomUserDetailsService(UserService userService, @NonNull UserDetailsCache userDetailsCache) {
+        this.userService = userService;
+        this.userDetailsCache = userDetailsCache;
     }
 
 
@@ -26,12 +45,51 @@ public class ReactiveCustomUserDetailsService implements ReactiveUserDetailsServ
         if(username == null){
             return Mono.empty();
         }
+        if (userDetailsCache == null) {
+            return load(username);
+        }
+        // a copy, since erasing the credentials of an authenticated user must not erase the cached ones
+        return userDetailsCache.get(username, this::load, this::loadLatest)
+                .map(userDetails -> User.withUserDetails(userDetails).build());
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (userDetailsCache == null) {
+            return;
+        }
+        if (event.getUsername() == null) {
+            userDetailsCache.invalidateAll();
+        } else {
+            userDetailsCache.invalidate(event.getUsername());
+        }
+    }
+
+    private Mono<UserDetails> load(String username) {
+        return load(username, userService::findCredentials);
+    }
+
+    private Mono<UserDetails> loadLatest(String username) {
+        return load(username, userService::findLatestCredentials);
+    }
+
+    private Mono<UserDetails> load(String username, Function<String, Mono<UserCredentials>> lookup) {
         return Mono.just(username)
-                .flatMap(s -> userService.find(username))
-                .map(user -> User.withUsername(username)
-                        .password(user.getPassword())
-                        .authorities(Collections.emptyList())
+                .flatMap(lookup)
+                .map(credentials -> User.withUsername(username)
+                        .password(credentials.getPassword())
+                        .authorities(credentials.roleList().toArray(String[]::new))
+                        .disabled(credentials.isDisabled())
+                        .accountLocked(credentials.isLocked())
                         .build())
                 .onErrorResume(throwable -> Mono.empty());
     }
+
+    @Override
+    public Mono<UserDetails> updatePassword(UserDetails user, String newPassword) {
+        return userService.updatePassword(user.getUsername(), newPassword)
+                .then(Mono.fromSupplier(() -> User.withUserDetails(user)
+                        .password(newPassword)
+                        .build()));
+    }
 }
@@ -0,0 +1,163 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimvb.app.discord.security.util.Jwe;
+import com.nimvb.app.discord.security.util.Jws;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * {@link KeyRingProvider} which builds the key ring from a {@link SecretProvider} and keeps polling it in the background,
+ * so secrets can be rotated without a restart. Keys are only derived again when their secret has changed, and a failing
+ * reload keeps serving the previous key ring. The same secrets also back a {@link #signingKeyRing() HS256 signing key ring},
+ * derived with a different salt.
+ */
+@Slf4j
+public class ReloadingKeyRingProvider implements KeyRingProvider, DisposableBean {
+
+    private final SecretProvider     secretProvider;
+    private final EncryptionMethod       encryptionMethod;
+    private final List<EncryptionMethod> acceptedEncryptionMethods;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Disposable         reloading;
+
+    private volatile Jwe.KeyRing keyRing;
+    private volatile Jws.KeyRing signingKeyRing;
+
+    /**
+     * @param secretProvider source of the secrets
+     * @param reloadInterval period of polling the {@code secretProvider}, zero or negative disables reloading
+     * @throws IllegalStateException when the initial key ring could not be built
+     */
+    public ReloadingKeyRingProvider(@NonNull SecretProvider secretProvider, @NonNull Duration reloadInterval) throws IllegalStateException {
+        this(secretProvider, reloadInterval, EncryptionMethod.A128CBC_HS256);
+    }
+
+    /**
+     * @param secretProvider source of the secrets
+     * @param reloadInterval period of polling the {@code secretProvider}, zero or negative disables reloading
+     * @param encryptionMethod content encryption of the tokens issued with the active key
+     * @throws IllegalStateException when the initial key ring could not be built
+     */
+    public ReloadingKeyRingProvider(@NonNull SecretProvider secretProvider,
+                                    @NonNull Duration reloadInterval,
+                                    @NonNull EncryptionMethod encryptionMethod) throws IllegalStateException {
+        this(secretProvider, reloadInterval, encryptionMethod, List.of());
+    }
+
+    /**
+     * @param secretProvider source of the secrets
+     * @param reloadInterval period of polling the {@code secretProvider}, zero or negative disables reloading
+     * @param encryptionMethod content encryption of the tokens issued with the active key
+     * @param acceptedEncryptionMethods content encryptions which are still decrypted, e.g. while migrating from them
+     * @throws IllegalStateException when the initial key ring could not be built
+     */
+    public ReloadingKeyRingProvider(@NonNull SecretProvider secretProvider,
+                                    @NonNull Duration reloadInterval,
+                                    @NonNull EncryptionMethod encryptionMethod,
+                                    @NonNull List<EncryptionMethod> acceptedEncryptionMethods) throws IllegalStateException {
+        this.secretProvider = secretProvider;
+        this.encryptionMethod = encryptionMethod;
+        this.acceptedEncryptionMethods = List.copyOf(acceptedEncryptionMethods);
+        load();
+        if (reloadInterval.isZero() || reloadInterval.isNegative()) {
+            this.reloading = Disposables.disposed();
+        } else {
+            this.reloading = Flux.interval(reloadInterval, reloadInterval, Schedulers.boundedElastic())
+                    .subscribe(tick -> reload());
+        }
+    }
+
+    @Override
+    public Jwe.KeyRing keyRing() {
+        return keyRing;
+    }
+
+    /**
+     * @return the HS256 keys derived from the same secrets as {@link #keyRing()}, with the same key ids
+     */
+    public Jws.KeyRing signingKeyRing() {
+        return signingKeyRing;
+    }
+
+    /**
+     * Build the key ring again from the current secrets, the previous key ring is kept when it fails
+     */
+    public void reload() {
+        try {
+            load();
+        } catch (RuntimeException e) {
+            log.warn("reloading the key ring failed, the previous keys are kept", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        reloading.dispose();
+    }
+
+    private synchronized void load() {
+        final String              activeKeyId    = secretProvider.keyId();
+        final Entry               active         = derive(activeKeyId, secretProvider.secret());
+        final Map<String, String> secrets        = secretProvider.decryptionSecrets();
+        final List<Entry>         decryptionKeys = new ArrayList<>();
+        secrets.forEach((keyId, secret) -> {
+            if (!Objects.equals(keyId, activeKeyId)) {
+                decryptionKeys.add(derive(keyId, secret));
+            }
+        });
+        entries.keySet().removeIf(keyId -> !Objects.equals(keyId, activeKeyId) && !secrets.containsKey(keyId));
+
+        final Jwe.KeyRing current = this.keyRing;
+        if (current != null && current.active() == active.algorithm && current.size() == decryptionKeys.size() + 1
+                && decryptionKeys.stream().allMatch(key -> current.find(key.algorithm.getKeyId()) == key.algorithm)) {
+            return;
+        }
+        signingKeyRing = Jws.KeyRing.of(active.signingAlgorithm,
+                decryptionKeys.stream().map(entry -> entry.signingAlgorithm).collect(Collectors.toList()));
+        keyRing = Jwe.KeyRing.of(active.algorithm,
+                decryptionKeys.stream().map(entry -> entry.algorithm).collect(Collectors.toList()));
+    }
+
+    private Entry derive(String keyId, String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("no secret is defined for key " + keyId);
+        }
+        Entry entry = entries.get(keyId);
+        if (entry != null && entry.secret.equals(secret)) {
+            return entry;
+        }
+        try {
+            entry = new Entry(secret, Jwe.Algorithm.of(keyId, secret, encryptionMethod, acceptedEncryptionMethods), Jws.Algorithm.HS256(keyId, secret));
+            entries.put(keyId, entry);
+            return entry;
+        } catch (Exception e) {
+            throw new IllegalStateException("unable to derive key " + keyId, e);
+        }
+    }
+
+    private static final class Entry {
+        private final String        secret;
+        private final Jwe.Algorithm algorithm;
+        private final Jws.Algorithm signingAlgorithm;
+
+        private Entry(String secret, Jwe.Algorithm algorithm, Jws.Algorithm signingAlgorithm) {
+            this.secret = secret;
+            this.algorithm = algorithm;
+            this.signingAlgorithm = signingAlgorithm;
+        }
+    }
+}
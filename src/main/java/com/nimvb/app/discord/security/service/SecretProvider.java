@@ -1,12 +1,33 @@
 package com.nimvb.app.discord.security.service;
 
+import java.util.Collections;
+import java.util.Map;
+
 public interface SecretProvider {
 
     String DEFAULT_SECRET = "secret";
 
+    String DEFAULT_KEY_ID = "default";
+
     /**
      * Retrieve the required secret
      * @return secret
      */
     String secret();
+
+    /**
+     * Retrieve the identifier of {@link #secret()}, it is stamped as the {@code kid} of the tokens encrypted with it
+     * @return key id
+     */
+    default String keyId() {
+        return DEFAULT_KEY_ID;
+    }
+
+    /**
+     * Retrieve the retired secrets, tokens encrypted with them are still accepted but no new token is issued with them
+     * @return secrets indexed by their key id
+     */
+    default Map<String, String> decryptionSecrets() {
+        return Collections.emptyMap();
+    }
 }
@@ -0,0 +1,12 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimvb.app.discord.security.util.Jws;
+
+public interface SigningKeyRingProvider {
+
+    /**
+     * Retrieve the current signing key ring
+     * @return the key ring which new signed tokens should be signed with and incoming ones verified with
+     */
+    Jws.KeyRing signingKeyRing();
+}
@@ -0,0 +1,21 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimvb.app.discord.security.util.TokenFormat;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Format of each type of the issued tokens
+ */
+@Getter
+@RequiredArgsConstructor
+public class TokenFormats {
+
+    @NonNull private final TokenFormat accessToken;
+    @NonNull private final TokenFormat refreshToken;
+
+    public static TokenFormats defaults() {
+        return new TokenFormats(TokenFormat.JWE, TokenFormat.JWE);
+    }
+}
@@ -0,0 +1,178 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimvb.app.discord.domain.RevokedToken;
+import com.nimvb.app.discord.repository.RevokedTokenRepository;
+import com.nimvb.app.discord.security.cache.DecryptedTokenCache;
+import com.nimvb.app.discord.security.util.BloomFilter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Denylist of revoked tokens kept in the {@code revoked_tokens} collection, fronted by a Bloom filter of their ids on
+ * every node, so checking a token which was not revoked costs a single in-memory probe and only the filter's hits are
+ * looked up in the collection. The filter is brought up to date with the tokens revoked on other nodes every
+ * {@code syncInterval} and is built again from the collection every {@code rebuildInterval}, or once more tokens
+ * were put than it was sized for, so the ids of the expired tokens are dropped. Until the filter was built for the
+ * first time every check is looked up in the collection. The tokens revoked on this node while the filter is built
+ * again are put into the new filter before it replaces the current one.
+ */
+@Slf4j
+public class TokenRevocationService implements DisposableBean {
+
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(5);
+
+    private final RevokedTokenRepository repository;
+    private final DecryptedTokenCache    decryptedTokenCache;
+    private final Clock                  clock;
+    private final long                   expectedTokens;
+    private final double                 falsePositiveRate;
+    private final Duration               rebuildInterval;
+    private final Disposable             synchronizing;
+
+    private final Object lock = new Object();
+
+    private volatile BloomFilter filter;
+    private volatile Instant     syncedAt;
+    private volatile Instant     rebuiltAt;
+
+    /**
+     * The ids of the tokens revoked on this node while the filter is built again, guarded by {@link #lock}
+     */
+    private List<String> revokedWhileRebuilding;
+
+    /**
+     * @param expectedTokens the number of tokens which are expected to be revoked and not yet expired at once
+     * @param falsePositiveRate the rate of the tokens which are looked up without being revoked
+     * @param syncInterval period of synchronizing the filter with the collection, zero or negative disables it
+     * @param rebuildInterval period of building the filter again from the collection
+     */
+    public TokenRevocationService(@NonNull RevokedTokenRepository repository,
+                                  @NonNull DecryptedTokenCache decryptedTokenCache,
+                                  @NonNull Clock clock,
+                                  long expectedTokens,
+                                  double falsePositiveRate,
+                                  @NonNull Duration syncInterval,
+                                  @NonNull Duration rebuildInterval) throws IllegalArgumentException {
+        if (expectedTokens < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("expectedTokens must be positive and falsePositiveRate between 0 and 1");
+        }
+        this.repository = repository;
+        this.decryptedTokenCache = decryptedTokenCache;
+        this.clock = clock;
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = rebuildInterval;
+        if (syncInterval.isZero() || syncInterval.isNegative()) {
+            this.synchronizing = Disposables.disposed();
+        } else {
+            this.synchronizing = Flux.interval(Duration.ZERO, syncInterval, Schedulers.boundedElastic())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> synchronize()
+                            .onErrorResume(throwable -> {
+                                log.warn("synchronizing the revoked tokens failed, the current filter is kept", throwable);
+                                return Mono.empty();
+                            }))
+                    .subscribe();
+        }
+    }
+
+    /**
+     * Revokes a token, it is rejected on this node at once and on the other nodes after their next synchronization
+     * @param token the revoked token
+     * @param tokenId the {@code jti} of the token
+     * @param username the subject of the token
+     * @param expiresAt the expiration of the token, the revocation is kept until then
+     */
+    public Mono<Void> revoke(@NonNull String token, @NonNull String tokenId, String username, @NonNull Instant expiresAt) {
+        return repository
+                .save(new RevokedToken(tokenId, username, clock.instant(), expiresAt))
+                .doOnNext(revoked -> {
+                    synchronized (lock) {
+                        if (revokedWhileRebuilding != null) {
+                            revokedWhileRebuilding.add(tokenId);
+                        }
+                    }
+                    BloomFilter current = filter;
+                    if (current != null) {
+                        current.put(tokenId);
+                    }
+                    decryptedTokenCache.invalidate(token);
+                })
+                .then();
+    }
+
+    /**
+     * @param tokenId the {@code jti} of a token, may be {@code null} for tokens issued without one
+     * @return Mono provides {@code true} when the token was revoked
+     */
+    public Mono<Boolean> isRevoked(String tokenId) {
+        if (tokenId == null) {
+            return Mono.just(false);
+        }
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(tokenId)) {
+            return Mono.just(false);
+        }
+        return repository.existsById(tokenId);
+    }
+
+    /**
+     * Puts the tokens revoked since the last synchronization into the filter, or builds the filter again when it
+     * is due
+     */
+    public Mono<Void> synchronize() {
+        return Mono.defer(() -> {
+            final Instant     now     = clock.instant();
+            final BloomFilter current = filter;
+            if (current == null || current.size() > current.getExpectedInsertions() || !now.isBefore(rebuiltAt.plus(rebuildInterval))) {
+                // the tokens revoked from now on may be missed by the reads and would only go into the current filter
+                synchronized (lock) {
+                    revokedWhileRebuilding = new ArrayList<>();
+                }
+                return repository.count()
+                        .flatMap(count -> {
+                            BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, count * 2), falsePositiveRate);
+                            return repository.findAll()
+                                    .doOnNext(revoked -> rebuilt.put(revoked.getId()))
+                                    .then(Mono.<Void>fromRunnable(() -> {
+                                        synchronized (lock) {
+                                            revokedWhileRebuilding.forEach(rebuilt::put);
+                                            revokedWhileRebuilding = null;
+                                            filter = rebuilt;
+                                            rebuiltAt = now;
+                                            syncedAt = now;
+                                        }
+                                    }));
+                        })
+                        .doOnError(throwable -> stopRecording())
+                        .doOnCancel(this::stopRecording);
+            }
+            return repository.findByRevokedAtGreaterThanEqual(syncedAt.minus(CLOCK_SKEW))
+                    .doOnNext(revoked -> current.put(revoked.getId()))
+                    .then(Mono.fromRunnable(() -> syncedAt = now));
+        });
+    }
+
+    private void stopRecording() {
+        synchronized (lock) {
+            revokedWhileRebuilding = null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        synchronizing.dispose();
+    }
+}
@@ -0,0 +1,101 @@
+package com.nimvb.app.discord.security.util;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size Bloom filter of strings which is safe for concurrent use. {@link #mightContain(String)} never misses a
+ * string which was {@link #put(String) put}, and reports an absent one at about the false positive rate the filter
+ * was sized for, as long as no more than {@link #getExpectedInsertions()} strings were put.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long            bitCount;
+    private final int             hashCount;
+    private final AtomicLong      size = new AtomicLong();
+
+    @Getter
+    private final long expectedInsertions;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) throws IllegalArgumentException {
+        if (expectedInsertions < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("expectedInsertions must be positive and falsePositiveRate between 0 and 1");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) >>> 6);
+        this.expectedInsertions = expectedInsertions;
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitCount / expectedInsertions * Math.log(2))));
+    }
+
+    /**
+     * @return true when {@code value} was not in the filter before
+     */
+    public boolean put(@NonNull String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long hash1 = hash(bytes, 0x9e3779b97f4a7c15L);
+        long hash2 = hash(bytes, 0xc2b2ae3d27d4eb4fL) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            changed |= set(Math.floorMod(hash1 + i * hash2, bitCount));
+        }
+        if (changed) {
+            size.incrementAndGet();
+        }
+        return changed;
+    }
+
+    public boolean mightContain(@NonNull String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long hash1 = hash(bytes, 0x9e3779b97f4a7c15L);
+        long hash2 = hash(bytes, 0xc2b2ae3d27d4eb4fL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of strings put, strings which were already in the filter are not counted
+     */
+    public long size() {
+        return size.get();
+    }
+
+    private boolean set(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    private static long hash(byte[] bytes, long seed) {
+        long hash = seed ^ 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -4,17 +4,33 @@ import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.DirectDecrypter;
 import com.nimbusds.jose.crypto.DirectEncrypter;
 import com.nimbusds.jwt.JWTClaimsSet;
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 
-import javax.crypto.SecretKey;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.text.ParseException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class Jwe {
@@ -26,7 +42,11 @@ public class Jwe {
     }
 
     public static DecryptionManagerBuilder require(Algorithm algorithm) {
-        return new DecryptionManagerBuilder(algorithm);
+        return new DecryptionManagerBuilder(KeyRing.of(algorithm));
+    }
+
+    public static DecryptionManagerBuilder require(KeyRing keyRing) {
+        return new DecryptionManagerBuilder(keyRing);
     }
 
     protected Jwe(Builder builder) {
@@ -34,26 +54,241 @@ public class Jwe {
         this.builder = builder;
     }
 
+    /**
+     * Key material together with the header and the encrypter/decrypter pair bound to it.
+     * Deriving the key is expensive, so an instance should be created once and shared; it
+     * holds no mutable state and is safe to use from multiple threads.
+     */
     public static class Algorithm {
 
-        private final JWEHeader    header;
-        private final JWEEncrypter encryptor;
-        private final JWEDecrypter decrypter;
+        private static final List<EncryptionMethod> ENCRYPTION_METHODS =
+                List.of(EncryptionMethod.A128CBC_HS256, EncryptionMethod.A128GCM, EncryptionMethod.A256GCM);
+
+        private final JWEHeader                           header;
+        private final JWEEncrypter                        encryptor;
+        private final Map<EncryptionMethod, JWEDecrypter> decrypters;
+        private final CompactKey[]                        compactKeys;
 
         protected Algorithm(JWEHeader header, JWEEncrypter encryptor, JWEDecrypter decrypter) {
             this.header = header;
             this.encryptor = encryptor;
-            this.decrypter = decrypter;
+            this.decrypters = Map.of(header.getEncryptionMethod(), decrypter);
+            this.compactKeys = new CompactKey[0];
+        }
+
+        /**
+         * @param keys the key of every accepted method, the one of the method of {@code header} first
+         */
+        private Algorithm(JWEHeader header, Map<EncryptionMethod, byte[]> keys) throws KeyLengthException {
+            this.header = header;
+            this.encryptor = new DirectEncrypter(new SecretKeySpec(keys.get(header.getEncryptionMethod()), "AES"));
+            final Map<EncryptionMethod, JWEDecrypter> decrypters = new HashMap<>();
+            this.compactKeys = new CompactKey[keys.size()];
+            int index = 0;
+            for (Map.Entry<EncryptionMethod, byte[]> key : keys.entrySet()) {
+                decrypters.put(key.getKey(), new DirectDecrypter(new SecretKeySpec(key.getValue(), "AES")));
+                compactKeys[index++] = CompactKey.of(new JWEHeader.Builder(JWEAlgorithm.DIR, key.getKey()).keyID(header.getKeyID()).build(), key.getValue());
+            }
+            this.decrypters = Collections.unmodifiableMap(decrypters);
         }
 
         public static Algorithm AES128HS256(String secret) throws KeyLengthException, NoSuchAlgorithmException, InvalidKeySpecException {
+            return AES128HS256(null, secret);
+        }
+
+        /**
+         * Derive the key from {@code secret} and stamp {@code keyId} as the {@code kid} of every token encrypted with it
+         * @param keyId identifier of the key, {@code null} for not adding the {@code kid} header
+         * @param secret the secret which the key is derived from
+         * @return the algorithm
+         */
+        public static Algorithm AES128HS256(String keyId, String secret) throws KeyLengthException, NoSuchAlgorithmException, InvalidKeySpecException {
+            return of(keyId, secret, EncryptionMethod.A128CBC_HS256);
+        }
+
+        public static Algorithm A128GCM(String keyId, String secret) throws KeyLengthException, NoSuchAlgorithmException, InvalidKeySpecException {
+            return of(keyId, secret, EncryptionMethod.A128GCM);
+        }
+
+        public static Algorithm A256GCM(String keyId, String secret) throws KeyLengthException, NoSuchAlgorithmException, InvalidKeySpecException {
+            return of(keyId, secret, EncryptionMethod.A256GCM);
+        }
+
+        /**
+         * Derive the key from {@code secret} for encrypting the new tokens with {@code method}, only tokens encrypted
+         * with {@code method} are decrypted
+         * @see #of(String, String, EncryptionMethod, Collection)
+         */
+        public static Algorithm of(String keyId, @NonNull String secret, @NonNull EncryptionMethod method) throws KeyLengthException, NoSuchAlgorithmException, InvalidKeySpecException {
+            return of(keyId, secret, method, Collections.emptyList());
+        }
+
+        /**
+         * Derive the keys from {@code secret} for encrypting the new tokens with {@code method} and for decrypting the
+         * tokens encrypted with {@code method} or any of {@code acceptedMethods}, so the method can be changed without
+         * invalidating the tokens already issued. Every method has its own key, salted with the name of the method, so
+         * no bytes serve as both a MAC and an AES key; {@code A128CBC-HS256} keeps the salt it always had.
+         * @param keyId identifier of the key, {@code null} for not adding the {@code kid} header
+         * @param secret the secret which the keys are derived from
+         * @param method content encryption of the new tokens
+         * @param acceptedMethods content encryptions which are only decrypted, while the tokens issued with them expire
+         * @return the algorithm
+         * @throws IllegalArgumentException when a method is not one of the supported ones
+         */
+        public static Algorithm of(String keyId,
+                                   @NonNull String secret,
+                                   @NonNull EncryptionMethod method,
+                                   @NonNull Collection<EncryptionMethod> acceptedMethods) throws KeyLengthException, NoSuchAlgorithmException, InvalidKeySpecException {
+            final Map<EncryptionMethod, byte[]> keys = new LinkedHashMap<>();
+            keys.put(method, derive(secret, method));
+            for (EncryptionMethod acceptedMethod : acceptedMethods) {
+                if (!keys.containsKey(acceptedMethod)) {
+                    keys.put(acceptedMethod, derive(secret, acceptedMethod));
+                }
+            }
+            JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.DIR, method).keyID(keyId).build();
+            return new Algorithm(header, keys);
+        }
+
+        private static byte[] derive(String secret, EncryptionMethod method) throws NoSuchAlgorithmException, InvalidKeySpecException {
+            if (!ENCRYPTION_METHODS.contains(method)) {
+                throw new IllegalArgumentException("unsupported encryption method " + method);
+            }
+            final String salt = EncryptionMethod.A128CBC_HS256.equals(method) ? secret : method.getName() + ":" + secret;
             SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            SecretKey       secretKey = secretKeyFactory.generateSecret(new PBEKeySpec(secret.toCharArray(), secret.getBytes(StandardCharsets.UTF_8), 10, 256));
-            DirectEncrypter encryptor = new DirectEncrypter(secretKey);
-            DirectDecrypter decryptor = new DirectDecrypter(secretKey);
-            return new Algorithm(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A128CBC_HS256), encryptor, decryptor);
+            return secretKeyFactory.generateSecret(new PBEKeySpec(secret.toCharArray(), salt.getBytes(StandardCharsets.UTF_8), 10,
+                    method.cekBitLength())).getEncoded();
+        }
+
+        public EncryptionMethod getEncryptionMethod() {
+            return header.getEncryptionMethod();
+        }
+
+        /**
+         * @return the decrypter of the tokens encrypted with {@code method}, {@code null} when they are not accepted
+         */
+        private JWEDecrypter decrypter(EncryptionMethod method) {
+            return decrypters.get(method);
+        }
+
+        public String getKeyId() {
+            return header.getKeyID();
+        }
+
+    }
+
+    /**
+     * Immutable set of keys: one active key which new tokens are encrypted with and any number of keys
+     * which are only accepted for decrypting tokens issued before a rotation. Keys are indexed by their {@code kid}.
+     */
+    public static class KeyRing {
+
+        private final Algorithm              active;
+        private final Map<String, Algorithm> keys;
+        private final Algorithm[]            algorithms;
+
+        protected KeyRing(Algorithm active, Map<String, Algorithm> keys) {
+            this.active = active;
+            this.keys = keys;
+            List<Algorithm> algorithms = new ArrayList<>(keys.size() + 1);
+            algorithms.add(active);
+            keys.values().stream().filter(key -> key != active).forEach(algorithms::add);
+            this.algorithms = algorithms.toArray(new Algorithm[0]);
+        }
+
+        public static KeyRing of(Algorithm active) {
+            return of(active, Collections.emptyList());
         }
 
+        /**
+         * Create a key ring
+         * @param active the key used for encrypting new tokens
+         * @param decryptionKeys keys only used for decrypting, each of them must have a key id
+         * @return the key ring
+         * @throws IllegalArgumentException when a decryption key has no key id or two keys share the same key id
+         */
+        public static KeyRing of(@NonNull Algorithm active, @NonNull Collection<Algorithm> decryptionKeys) throws IllegalArgumentException {
+            Map<String, Algorithm> keys = new HashMap<>();
+            if (active.getKeyId() != null) {
+                keys.put(active.getKeyId(), active);
+            }
+            for (Algorithm key : decryptionKeys) {
+                if (key.getKeyId() == null) {
+                    throw new IllegalArgumentException("decryption keys should have a key id");
+                }
+                if (keys.putIfAbsent(key.getKeyId(), key) != null) {
+                    throw new IllegalArgumentException("duplicated key id " + key.getKeyId());
+                }
+            }
+            return new KeyRing(active, Collections.unmodifiableMap(keys));
+        }
+
+        public Algorithm active() {
+            return active;
+        }
+
+        /**
+         * @return number of the keys identified by a key id
+         */
+        public int size() {
+            return keys.size();
+        }
+
+        /**
+         * Find the key which a token should be decrypted with
+         * @param keyId the {@code kid} of the token
+         * @return the key with the {@code keyId}, the active key when {@code keyId} is {@code null}, otherwise {@code null}
+         */
+        public Algorithm find(String keyId) {
+            if (keyId == null) {
+                return active;
+            }
+            return keys.get(keyId);
+        }
+
+        /**
+         * Find the key whose encoded header is exactly the first {@code headerLength} characters of {@code token}
+         */
+        private CompactKey match(String token, int headerLength) {
+            for (Algorithm algorithm : algorithms) {
+                for (CompactKey key : algorithm.compactKeys) {
+                    if (key.encodedHeader.length() == headerLength
+                            && token.regionMatches(0, key.encodedHeader, 0, headerLength)) {
+                        return key;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Claims of a token which the application understands
+     */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+    public static class Claims {
+
+        private final String       subject;
+        private final String       issuer;
+        private final Instant      issuedAt;
+        private final Instant      expiresAt;
+        @NonNull private final List<String> roles;
+        private final String       tokenId;
+        private final String       family;
+        private final String       tokenType;
+
+        public static Claims of(@NonNull JWTClaimsSet claimsSet) throws ParseException {
+            List<String> roles = claimsSet.getStringListClaim("roles");
+            return new Claims(claimsSet.getSubject(),
+                    claimsSet.getIssuer(),
+                    claimsSet.getIssueTime() == null ? null : claimsSet.getIssueTime().toInstant(),
+                    claimsSet.getExpirationTime() == null ? null : claimsSet.getExpirationTime().toInstant(),
+                    roles == null ? Collections.emptyList() : Collections.unmodifiableList(roles),
+                    claimsSet.getJWTID(),
+                    claimsSet.getStringClaim("fam"),
+                    claimsSet.getStringClaim("token_type"));
+        }
     }
 
 
@@ -65,6 +300,7 @@ public class Jwe {
         private Date                issuedAt;
         private String              issuer;
         private String              audience;
+        private String              tokenId;
         private Map<String, Object> claims = new HashMap<>();
 
         public Builder withSubject(String subject) {
@@ -97,21 +333,31 @@ public class Jwe {
             return this;
         }
 
+        /**
+         * Identify the token by the {@code jti} claim, so it can be revoked
+         * @param tokenId unique id of the token
+         */
+        public Builder withTokenId(String tokenId) {
+            this.tokenId = tokenId;
+            return this;
+        }
+
         public String encrypt(Algorithm algorithm) throws JOSEException {
             return new Jwe(this).encrypt(algorithm);
         }
+
+        /**
+         * Sign the claims instead of encrypting them, the token is a compact JWS
+         * @param algorithm the signing key
+         * @return the signed token
+         */
+        public String sign(Jws.Algorithm algorithm) throws JOSEException {
+            return Jws.sign(algorithm, new Jwe(this).claimsSet());
+        }
     }
 
     private String encrypt(Algorithm algorithm) throws JOSEException {
-        JWTClaimsSet.Builder claimSetBuilder = new JWTClaimsSet.Builder();
-        claimSetBuilder
-                .subject(builder.subject)
-                .expirationTime(builder.expiredAt)
-                .issuer(builder.issuer)
-                .issueTime(builder.issuedAt)
-                .audience(builder.audience);
-        builder.claims.forEach(claimSetBuilder::claim);
-        JWTClaimsSet claimsSet = claimSetBuilder.build();
+        JWTClaimsSet claimsSet = claimsSet();
 
         Payload   payload   = new Payload(claimsSet.toJSONObject());
         JWEObject jweObject = new JWEObject(algorithm.header, payload);
@@ -121,16 +367,29 @@ public class Jwe {
         return jweObject.serialize();
     }
 
+    private JWTClaimsSet claimsSet() {
+        JWTClaimsSet.Builder claimSetBuilder = new JWTClaimsSet.Builder();
+        claimSetBuilder
+                .subject(builder.subject)
+                .expirationTime(builder.expiredAt)
+                .issuer(builder.issuer)
+                .issueTime(builder.issuedAt)
+                .audience(builder.audience)
+                .jwtID(builder.tokenId);
+        builder.claims.forEach(claimSetBuilder::claim);
+        return claimSetBuilder.build();
+    }
+
 
     public static class DecryptionManagerBuilder {
-        private final Algorithm algorithm;
+        private final KeyRing keyRing;
 
-        protected DecryptionManagerBuilder(Algorithm algorithm) {
-            this.algorithm = algorithm;
+        protected DecryptionManagerBuilder(KeyRing keyRing) {
+            this.keyRing = keyRing;
         }
 
         public DecryptionManager build() {
-            return new DecryptionManager(this.algorithm);
+            return new DecryptionManager(this.keyRing);
         }
 
 
@@ -138,18 +397,531 @@ public class Jwe {
 
     public static class DecryptionManager {
 
-        private final Algorithm algorithm;
+        private final KeyRing keyRing;
+
+        protected DecryptionManager(KeyRing keyRing) {
+            this.keyRing = keyRing;
+        }
+
+        /**
+         * Decrypt the token and read its claims. Tokens with exactly the header of a key of the ring, which is the case
+         * for all the tokens this application issues, are decoded without building any intermediate object; anything
+         * else goes through {@link #decrypt(String)}
+         * @param token the compact serialized token
+         * @return the claims of the token
+         */
+        public Claims decode(String token) throws ParseException, JOSEException {
+            Claims claims = decodeCompact(token);
+            if (claims != null) {
+                return claims;
+            }
+            return Claims.of(decrypt(token));
+        }
 
-        protected DecryptionManager(Algorithm algorithm) {
-            this.algorithm = algorithm;
+        /**
+         * @return the claims, {@code null} when the token is not in the expected form
+         * @throws JOSEException when the token is in the expected form but its authentication tag does not match
+         */
+        private Claims decodeCompact(String token) throws JOSEException {
+            final int header = token.indexOf('.');
+            if (header < 0) {
+                return null;
+            }
+            final CompactKey key = keyRing.match(token, header);
+            if (key == null) {
+                return null;
+            }
+            final int encryptedKey = header + 1;
+            if (encryptedKey >= token.length() || token.charAt(encryptedKey) != '.') {
+                return null;
+            }
+            final int iv         = token.indexOf('.', encryptedKey + 1);
+            final int cipherText = iv < 0 ? -1 : token.indexOf('.', iv + 1);
+            if (cipherText < 0 || token.indexOf('.', cipherText + 1) >= 0) {
+                return null;
+            }
+            final Buffers buffers = BUFFERS.get();
+            if (Base64Url.decodedLength(iv - encryptedKey - 1) != key.ivLength
+                    || Base64Url.decodedLength(token.length() - cipherText - 1) != CompactKey.TAG_LENGTH
+                    || Base64Url.decode(token, encryptedKey + 1, iv, buffers.iv) < 0
+                    || Base64Url.decode(token, cipherText + 1, token.length(), buffers.tag) < 0) {
+                return null;
+            }
+            final byte[] encrypted       = buffers.cipherText(Base64Url.decodedLength(cipherText - iv - 1) + CompactKey.TAG_LENGTH);
+            final int    encryptedLength = Base64Url.decode(token, iv + 1, cipherText, encrypted);
+            if (encryptedLength <= 0) {
+                return null;
+            }
+            final byte[] plainText = buffers.plainText(encryptedLength);
+            final int    plainTextLength;
+            try {
+                plainTextLength = key.open(buffers, encrypted, encryptedLength, plainText);
+            } catch (GeneralSecurityException e) {
+                throw new TokenRejectedException(e.getMessage(), e);
+            }
+            return new ClaimsReader(plainText, plainTextLength).read();
         }
 
         public JWTClaimsSet decrypt(String token) throws ParseException, JOSEException {
             JWEObject jweObject = JWEObject.parse(token);
-            jweObject.decrypt(algorithm.decrypter);
+            Algorithm algorithm = keyRing.find(jweObject.getHeader().getKeyID());
+            if (algorithm == null) {
+                throw new TokenRejectedException("unknown key id " + jweObject.getHeader().getKeyID());
+            }
+            final JWEDecrypter decrypter = algorithm.decrypter(jweObject.getHeader().getEncryptionMethod());
+            if (decrypter == null) {
+                throw new TokenRejectedException("encryption method " + jweObject.getHeader().getEncryptionMethod() + " is not accepted");
+            }
+            jweObject.decrypt(decrypter);
             Payload payload = jweObject.getPayload();
             return JWTClaimsSet.parse(payload.toJSONObject());
         }
     }
 
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Per thread scratch space of {@link DecryptionManager#decode(String)}, grows to the largest token seen by the thread
+     */
+    private static final class Buffers {
+
+        private final byte[] iv  = new byte[CompactKey.BLOCK_LENGTH];
+        private final byte[] tag = new byte[CompactKey.TAG_LENGTH];
+        private final byte[] mac = new byte[CompactKey.MAC_LENGTH];
+        private byte[]       cipherText = new byte[512];
+        private byte[]       plainText  = new byte[512];
+
+        private byte[] cipherText(int length) {
+            if (cipherText.length < length) {
+                cipherText = new byte[length];
+            }
+            return cipherText;
+        }
+
+        private byte[] plainText(int length) {
+            if (plainText.length < length) {
+                plainText = new byte[length];
+            }
+            return plainText;
+        }
+    }
+
+    /**
+     * A {@code dir} key bound to one exact encoded header, with a {@link Mac} and a {@link Cipher} per thread so the key
+     * schedule is not rebuilt for every token. {@code A128CBC-HS256} keys are split into their HMAC-SHA256 and AES
+     * halves, the GCM keys are used as they are.
+     */
+    private static final class CompactKey {
+
+        private static final int BLOCK_LENGTH  = 16;
+        private static final int GCM_IV_LENGTH = 12;
+        private static final int TAG_LENGTH    = 16;
+        private static final int MAC_LENGTH    = 32;
+
+        private final String              encodedHeader;
+        private final boolean             gcm;
+        private final int                 ivLength;
+        private final byte[]              aad;
+        private final byte[]              aadLength;
+        private final SecretKeySpec       encryptionKey;
+        private final ThreadLocal<Mac>    mac;
+        private final ThreadLocal<Cipher> cipher;
+
+        private CompactKey(String encodedHeader, EncryptionMethod method, byte[] key) {
+            this.encodedHeader = encodedHeader;
+            this.gcm = !EncryptionMethod.A128CBC_HS256.equals(method);
+            this.ivLength = gcm ? GCM_IV_LENGTH : BLOCK_LENGTH;
+            this.aad = encodedHeader.getBytes(StandardCharsets.US_ASCII);
+            long bits = (long) aad.length * 8;
+            this.aadLength = new byte[8];
+            for (int i = 7; i >= 0; i--) {
+                aadLength[i] = (byte) bits;
+                bits >>>= 8;
+            }
+            if (gcm) {
+                this.encryptionKey = new SecretKeySpec(key, "AES");
+                this.mac = null;
+            } else {
+                final SecretKeySpec macKey = new SecretKeySpec(key, 0, key.length / 2, "HmacSHA256");
+                this.encryptionKey = new SecretKeySpec(key, key.length / 2, key.length / 2, "AES");
+                this.mac = ThreadLocal.withInitial(() -> {
+                    try {
+                        Mac mac = Mac.getInstance("HmacSHA256");
+                        mac.init(macKey);
+                        return mac;
+                    } catch (GeneralSecurityException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            final String transformation = gcm ? "AES/GCM/NoPadding" : "AES/CBC/PKCS5Padding";
+            this.cipher = ThreadLocal.withInitial(() -> {
+                try {
+                    return Cipher.getInstance(transformation);
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        /**
+         * @param header the {@code dir} header the key is bound to
+         * @param key the key derived for the method of {@code header}
+         * @return the compact key
+         */
+        private static CompactKey of(JWEHeader header, byte[] key) {
+            return new CompactKey(header.toBase64URL().toString(), header.getEncryptionMethod(), key);
+        }
+
+        /**
+         * Verify and decrypt
+         * @return length of the plain text
+         * @throws JOSEException when the authentication tag does not match
+         */
+        private int open(Buffers buffers, byte[] cipherText, int cipherTextLength, byte[] plainText) throws JOSEException, GeneralSecurityException {
+            Cipher cipher = this.cipher.get();
+            if (gcm) {
+                System.arraycopy(buffers.tag, 0, cipherText, cipherTextLength, TAG_LENGTH);
+                cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_LENGTH * 8, buffers.iv, 0, GCM_IV_LENGTH));
+                cipher.updateAAD(aad);
+                try {
+                    return cipher.doFinal(cipherText, 0, cipherTextLength + TAG_LENGTH, plainText, 0);
+                } catch (AEADBadTagException e) {
+                    throw new TokenRejectedException("AES/GCM/NoPadding decryption failed: " + e.getMessage(), e);
+                }
+            }
+            Mac mac = this.mac.get();
+            mac.update(aad);
+            mac.update(buffers.iv, 0, BLOCK_LENGTH);
+            mac.update(cipherText, 0, cipherTextLength);
+            mac.update(aadLength);
+            mac.doFinal(buffers.mac, 0);
+            int difference = 0;
+            for (int i = 0; i < TAG_LENGTH; i++) {
+                difference |= buffers.mac[i] ^ buffers.tag[i];
+            }
+            if (difference != 0) {
+                throw new TokenRejectedException("MAC check failed");
+            }
+            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new IvParameterSpec(buffers.iv, 0, BLOCK_LENGTH));
+            return cipher.doFinal(cipherText, 0, cipherTextLength, plainText, 0);
+        }
+    }
+
+    /**
+     * Base64url (no padding) decoding straight from a region of a {@link String}
+     */
+    private static final class Base64Url {
+
+        private static final byte[] VALUES = new byte[128];
+
+        static {
+            Arrays.fill(VALUES, (byte) -1);
+            String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+            for (int i = 0; i < alphabet.length(); i++) {
+                VALUES[alphabet.charAt(i)] = (byte) i;
+            }
+        }
+
+        private static int decodedLength(int encodedLength) {
+            return encodedLength % 4 == 1 ? -1 : encodedLength * 3 / 4;
+        }
+
+        /**
+         * @return number of the decoded bytes, {@code -1} when the region is not valid base64url
+         */
+        private static int decode(String source, int from, int to, byte[] target) {
+            if (decodedLength(to - from) < 0) {
+                return -1;
+            }
+            int length = 0;
+            int bits   = 0;
+            int count  = 0;
+            for (int i = from; i < to; i++) {
+                char c = source.charAt(i);
+                int  value = c < 128 ? VALUES[c] : -1;
+                if (value < 0) {
+                    return -1;
+                }
+                bits = (bits << 6) | value;
+                count += 6;
+                if (count >= 8) {
+                    count -= 8;
+                    target[length++] = (byte) (bits >> count);
+                }
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Reader of the flat claims objects {@link Builder} produces: string, integer, boolean and {@code null} values and
+     * arrays of them. It gives up, returning {@code null}, on anything else like nested objects, fractions or escapes.
+     */
+    private static final class ClaimsReader {
+
+        private static final byte[] SUBJECT    = "sub".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] ISSUER     = "iss".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] ISSUED_AT  = "iat".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] EXPIRED_AT = "exp".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] ROLES      = "roles".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] TOKEN_ID   = "jti".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] FAMILY     = "fam".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] TOKEN_TYPE = "token_type".getBytes(StandardCharsets.US_ASCII);
+        private static final long   ABSENT     = Long.MIN_VALUE;
+
+        private final byte[] json;
+        private final int    end;
+        private int          position;
+        private boolean      failed;
+
+        private ClaimsReader(byte[] json, int length) {
+            this.json = json;
+            this.end = length;
+        }
+
+        private Claims read() {
+            String       subject   = null;
+            String       issuer    = null;
+            long         issuedAt  = ABSENT;
+            long         expiredAt = ABSENT;
+            List<String> roles     = Collections.emptyList();
+            String       tokenId   = null;
+            String       family    = null;
+            String       tokenType = null;
+            if (next() != '{') {
+                return null;
+            }
+            int separator;
+            if (peek() == '}') {
+                separator = next();
+            } else {
+                do {
+                    if (next() != '"') {
+                        return null;
+                    }
+                    final int nameStart = position;
+                    final int nameEnd   = skipString();
+                    if (failed || next() != ':') {
+                        return null;
+                    }
+                    if (is(nameStart, nameEnd, SUBJECT)) {
+                        subject = nullableString();
+                    } else if (is(nameStart, nameEnd, ISSUER)) {
+                        issuer = nullableString();
+                    } else if (is(nameStart, nameEnd, ISSUED_AT)) {
+                        issuedAt = nullableNumber();
+                    } else if (is(nameStart, nameEnd, EXPIRED_AT)) {
+                        expiredAt = nullableNumber();
+                    } else if (is(nameStart, nameEnd, ROLES)) {
+                        roles = nullableStrings();
+                    } else if (is(nameStart, nameEnd, TOKEN_ID)) {
+                        tokenId = nullableString();
+                    } else if (is(nameStart, nameEnd, FAMILY)) {
+                        family = nullableString();
+                    } else if (is(nameStart, nameEnd, TOKEN_TYPE)) {
+                        tokenType = nullableString();
+                    } else {
+                        skipValue();
+                    }
+                    if (failed) {
+                        return null;
+                    }
+                    separator = next();
+                } while (separator == ',');
+            }
+            if (separator != '}' || peek() != -1) {
+                return null;
+            }
+            return new Claims(subject,
+                    issuer,
+                    issuedAt == ABSENT ? null : Instant.ofEpochSecond(issuedAt),
+                    expiredAt == ABSENT ? null : Instant.ofEpochSecond(expiredAt),
+                    roles,
+                    tokenId,
+                    family,
+                    tokenType);
+        }
+
+        private boolean is(int from, int to, byte[] name) {
+            if (to - from != name.length) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (json[from + i] != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int peek() {
+            while (position < end && (json[position] == ' ' || json[position] == '\t' || json[position] == '\n' || json[position] == '\r')) {
+                position++;
+            }
+            return position < end ? json[position] & 0xFF : -1;
+        }
+
+        private int next() {
+            int next = peek();
+            if (next != -1) {
+                position++;
+            }
+            return next;
+        }
+
+        /**
+         * Read the rest of a string whose opening quote is consumed
+         */
+        private String string() {
+            final int start = position;
+            final int stop  = skipString();
+            return failed ? null : new String(json, start, stop - start, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Skip the rest of a string whose opening quote is consumed
+         * @return position of the closing quote
+         */
+        private int skipString() {
+            while (position < end) {
+                byte b = json[position++];
+                if (b == '"') {
+                    return position - 1;
+                }
+                if (b == '\\' || (b >= 0 && b < 0x20)) {
+                    break;
+                }
+            }
+            failed = true;
+            return -1;
+        }
+
+        private boolean literal(String literal) {
+            if (end - position < literal.length()) {
+                return false;
+            }
+            for (int i = 0; i < literal.length(); i++) {
+                if (json[position + i] != literal.charAt(i)) {
+                    return false;
+                }
+            }
+            position += literal.length();
+            return true;
+        }
+
+        private String nullableString() {
+            int next = peek();
+            if (next == '"') {
+                position++;
+                return string();
+            }
+            if (!literal("null")) {
+                failed = true;
+            }
+            return null;
+        }
+
+        private long nullableNumber() {
+            int next = peek();
+            if (next == 'n') {
+                if (!literal("null")) {
+                    failed = true;
+                }
+                return ABSENT;
+            }
+            boolean negative = next == '-';
+            if (negative) {
+                position++;
+            }
+            final int start = position;
+            long value = 0;
+            while (position < end && json[position] >= '0' && json[position] <= '9' && position - start < 18) {
+                value = value * 10 + (json[position++] - '0');
+            }
+            if (position == start || (position < end && (json[position] == '.' || json[position] == 'e'
+                    || json[position] == 'E' || (json[position] >= '0' && json[position] <= '9')))) {
+                failed = true;
+                return ABSENT;
+            }
+            return negative ? -value : value;
+        }
+
+        private List<String> nullableStrings() {
+            int next = next();
+            if (next == 'n') {
+                position--;
+                if (!literal("null")) {
+                    failed = true;
+                }
+                return Collections.emptyList();
+            }
+            if (next != '[') {
+                failed = true;
+                return null;
+            }
+            List<String> values = new ArrayList<>(4);
+            if (peek() == ']') {
+                position++;
+                return Collections.unmodifiableList(values);
+            }
+            do {
+                if (next() != '"') {
+                    failed = true;
+                    return null;
+                }
+                values.add(string());
+                if (failed) {
+                    return null;
+                }
+                next = next();
+            } while (next == ',');
+            if (next != ']') {
+                failed = true;
+            }
+            return Collections.unmodifiableList(values);
+        }
+
+        private void skipValue() {
+            int next = peek();
+            if (next == '[') {
+                position++;
+                if (peek() == ']') {
+                    position++;
+                    return;
+                }
+                do {
+                    skipScalar();
+                    if (failed) {
+                        return;
+                    }
+                    next = next();
+                } while (next == ',');
+                if (next != ']') {
+                    failed = true;
+                }
+                return;
+            }
+            skipScalar();
+        }
+
+        private void skipScalar() {
+            int next = peek();
+            if (next == '"') {
+                position++;
+                skipString();
+            } else if (next == 't') {
+                failed = !literal("true");
+            } else if (next == 'f') {
+                failed = !literal("false");
+            } else if (next == 'n') {
+                failed = !literal("null");
+            } else if (next == '-' || (next >= '0' && next <= '9')) {
+                nullableNumber();
+            } else {
+                failed = true;
+            }
+        }
+    }
 }
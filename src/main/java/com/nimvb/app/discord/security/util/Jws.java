@@ -0,0 +1,198 @@
+package com.nimvb.app.discord.security.util;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.Ed25519Signer;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jwt.JWTClaimsSet;
+import lombok.NonNull;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Signed only counterpart of {@link Jwe} for the tokens which need integrity but no confidentiality. Tokens are created
+ * with {@link Jwe.Builder#sign(Algorithm)} and verified without any decryption.
+ */
+public class Jws {
+
+    public static VerificationManagerBuilder require(KeyRing keyRing) {
+        return new VerificationManagerBuilder(keyRing);
+    }
+
+    static String sign(Algorithm algorithm, JWTClaimsSet claimsSet) throws JOSEException {
+        if (algorithm.signer == null) {
+            throw new JOSEException("key " + algorithm.getKeyId() + " can only verify signatures");
+        }
+        JWSObject jwsObject = new JWSObject(algorithm.header, new Payload(claimsSet.toJSONObject()));
+        jwsObject.sign(algorithm.signer);
+        return jwsObject.serialize();
+    }
+
+    /**
+     * Signing key together with the header and the signer/verifier pair bound to it. It holds no mutable state and is
+     * safe to use from multiple threads.
+     */
+    public static class Algorithm {
+
+        private final JWSHeader   header;
+        private final JWSSigner   signer;
+        private final JWSVerifier verifier;
+
+        protected Algorithm(JWSHeader header, JWSSigner signer, JWSVerifier verifier) {
+            this.header = header;
+            this.signer = signer;
+            this.verifier = verifier;
+        }
+
+        /**
+         * Derive a HMAC-SHA256 key from {@code secret}; it is salted differently from the key {@link Jwe.Algorithm}
+         * derives from the same secret, so the two never share key material
+         * @param keyId identifier of the key, {@code null} for not adding the {@code kid} header
+         * @param secret the secret which the key is derived from
+         * @return the algorithm
+         */
+        public static Algorithm HS256(String keyId, @NonNull String secret) throws JOSEException, NoSuchAlgorithmException, InvalidKeySpecException {
+            SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+            byte[] key = secretKeyFactory.generateSecret(new PBEKeySpec(secret.toCharArray(), ("jws:" + secret).getBytes(StandardCharsets.UTF_8), 10, 256)).getEncoded();
+            JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.HS256).keyID(keyId).build();
+            return new Algorithm(header, new MACSigner(key), new MACVerifier(key));
+        }
+
+        /**
+         * @param key an {@code Ed25519} key pair, without the private part the algorithm can only verify
+         * @return the algorithm, the {@code kid} of the key is stamped on the tokens
+         * @throws IllegalArgumentException when the key is not on the {@code Ed25519} curve
+         */
+        public static Algorithm Ed25519(@NonNull OctetKeyPair key) throws JOSEException {
+            if (!Curve.Ed25519.equals(key.getCurve())) {
+                throw new IllegalArgumentException("unsupported curve " + key.getCurve());
+            }
+            JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.EdDSA).keyID(key.getKeyID()).build();
+            return new Algorithm(header, key.isPrivate() ? new Ed25519Signer(key) : null, new Ed25519Verifier(key.toPublicJWK()));
+        }
+
+        public String getKeyId() {
+            return header.getKeyID();
+        }
+
+        public JWSAlgorithm getAlgorithm() {
+            return header.getAlgorithm();
+        }
+    }
+
+    /**
+     * Immutable set of signing keys: one active key which new tokens are signed with and any number of keys which are
+     * only accepted for verifying. Keys are indexed by their {@code kid}.
+     */
+    public static class KeyRing {
+
+        private final Algorithm              active;
+        private final Map<String, Algorithm> keys;
+
+        protected KeyRing(Algorithm active, Map<String, Algorithm> keys) {
+            this.active = active;
+            this.keys = keys;
+        }
+
+        public static KeyRing of(Algorithm active) {
+            return of(active, Collections.emptyList());
+        }
+
+        /**
+         * Create a key ring
+         * @param active the key used for signing new tokens
+         * @param verificationKeys keys only used for verifying, each of them must have a key id
+         * @return the key ring
+         * @throws IllegalArgumentException when a verification key has no key id or two keys share the same key id
+         */
+        public static KeyRing of(@NonNull Algorithm active, @NonNull Collection<Algorithm> verificationKeys) throws IllegalArgumentException {
+            Map<String, Algorithm> keys = new HashMap<>();
+            if (active.getKeyId() != null) {
+                keys.put(active.getKeyId(), active);
+            }
+            for (Algorithm key : verificationKeys) {
+                if (key.getKeyId() == null) {
+                    throw new IllegalArgumentException("verification keys should have a key id");
+                }
+                if (keys.putIfAbsent(key.getKeyId(), key) != null) {
+                    throw new IllegalArgumentException("duplicated key id " + key.getKeyId());
+                }
+            }
+            return new KeyRing(active, Collections.unmodifiableMap(keys));
+        }
+
+        public Algorithm active() {
+            return active;
+        }
+
+        /**
+         * Find the key which a token should be verified with
+         * @param keyId the {@code kid} of the token
+         * @return the key with the {@code keyId}, the active key when {@code keyId} is {@code null}, otherwise {@code null}
+         */
+        public Algorithm find(String keyId) {
+            if (keyId == null) {
+                return active;
+            }
+            return keys.get(keyId);
+        }
+    }
+
+    public static class VerificationManagerBuilder {
+        private final KeyRing keyRing;
+
+        protected VerificationManagerBuilder(KeyRing keyRing) {
+            this.keyRing = keyRing;
+        }
+
+        public VerificationManager build() {
+            return new VerificationManager(this.keyRing);
+        }
+    }
+
+    public static class VerificationManager {
+
+        private final KeyRing keyRing;
+
+        protected VerificationManager(KeyRing keyRing) {
+            this.keyRing = keyRing;
+        }
+
+        /**
+         * Verify the signature of the token and read its claims
+         * @param token the compact serialized token
+         * @return the claims
+         * @throws JOSEException when the key is unknown, the {@code alg} is not the one of the key or the signature does not match
+         */
+        public JWTClaimsSet verify(String token) throws ParseException, JOSEException {
+            JWSObject jwsObject = JWSObject.parse(token);
+            Algorithm algorithm = keyRing.find(jwsObject.getHeader().getKeyID());
+            if (algorithm == null) {
+                throw new TokenRejectedException("unknown key id " + jwsObject.getHeader().getKeyID());
+            }
+            if (!algorithm.getAlgorithm().equals(jwsObject.getHeader().getAlgorithm())) {
+                throw new TokenRejectedException("unexpected algorithm " + jwsObject.getHeader().getAlgorithm());
+            }
+            if (!jwsObject.verify(algorithm.verifier)) {
+                throw new TokenRejectedException("invalid signature");
+            }
+            return JWTClaimsSet.parse(jwsObject.getPayload().toJSONObject());
+        }
+
+        public Jwe.Claims decode(String token) throws ParseException, JOSEException {
+            return Jwe.Claims.of(verify(token));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.nimvb.app.discord.security.util;
+
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * The value of the {@code Retry-After} header, in whole seconds
+ */
+public final class RetryAfter {
+
+    private RetryAfter() {
+    }
+
+    /**
+     * Rounds up and to one second at least, so a client never retries before {@code duration} has passed nor
+     * at once
+     * @param duration the time to wait before retrying
+     * @return the value of the header
+     */
+    public static String seconds(@NonNull Duration duration) {
+        return String.valueOf(Math.max(1, (duration.toMillis() + 999) / 1000));
+    }
+}
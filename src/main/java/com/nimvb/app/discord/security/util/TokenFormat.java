@@ -0,0 +1,45 @@
+package com.nimvb.app.discord.security.util;
+
+import com.nimbusds.jose.JOSEException;
+import lombok.NonNull;
+
+import java.text.ParseException;
+
+/**
+ * Serialization of an issued token
+ */
+public enum TokenFormat {
+    /**
+     * Encrypted with {@link Jwe}, the claims are confidential
+     */
+    JWE,
+    /**
+     * Only signed with {@link Jws}, the claims are readable by the holder and verified without any decryption
+     */
+    JWS;
+
+    /**
+     * A compact JWS has three parts and a compact JWE five, so the header does not need to be parsed to tell them apart
+     * @param token the compact serialized token
+     * @return the format the token is serialized with
+     */
+    public static TokenFormat of(@NonNull String token) {
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+        return second > 0 && token.indexOf('.', second + 1) < 0 ? JWS : JWE;
+    }
+
+    /**
+     * Decode the token with the key ring of its format
+     * @param token the compact serialized token
+     * @param keyRing keys of the encrypted tokens
+     * @param signingKeyRing keys of the signed tokens
+     * @return the claims of the token
+     */
+    public static Jwe.Claims decode(@NonNull String token, Jwe.KeyRing keyRing, Jws.KeyRing signingKeyRing)
+            throws ParseException, JOSEException {
+        return of(token) == JWS
+                ? Jws.require(signingKeyRing).build().decode(token)
+                : Jwe.require(keyRing).build().decode(token);
+    }
+}
@@ -0,0 +1,23 @@
+package com.nimvb.app.discord.security.util;
+
+import com.nimbusds.jose.JOSEException;
+
+/**
+ * A token which does not decrypt or verify; it is raised for every forged or corrupted token, so it does not fill in
+ * a stack trace
+ */
+class TokenRejectedException extends JOSEException {
+
+    TokenRejectedException(String message) {
+        super(message);
+    }
+
+    TokenRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
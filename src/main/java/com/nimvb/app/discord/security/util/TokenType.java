@@ -0,0 +1,14 @@
+package com.nimvb.app.discord.security.util;
+
+/**
+ * Claims which distinguish a refresh token from an access token, an access token carries no token type
+ */
+public final class TokenType {
+
+    public static final String CLAIM        = "token_type";
+    public static final String FAMILY_CLAIM = "fam";
+    public static final String REFRESH      = "refresh";
+
+    private TokenType() {
+    }
+}
@@ -0,0 +1,31 @@
+package com.nimvb.app.discord.service;
+
+import com.nimvb.app.discord.domain.RefreshTokenFamily;
+import com.nimvb.app.discord.model.AccessToken;
+import com.nimvb.app.discord.security.resource.RefreshTokenAuthenticationToken;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+public class AccessTokenConverterOfRefreshTokenAuthentication implements AccessTokenConverter<RefreshTokenAuthenticationToken> {
+
+    private final AccessTokenIssuer issuer;
+
+    /**
+     * The family has already been rotated by the authentication, so the tokens are issued without touching the store
+     */
+    @Override
+    public Mono<AccessToken> convert(@NonNull RefreshTokenAuthenticationToken authentication) {
+        return Mono.just(authentication)
+                .flatMap(authenticationToken -> issuer.issue(authenticationToken.getName(),
+                        authenticationToken.getAuthorities(),
+                        new RefreshTokenFamily(authenticationToken.getFamily(),
+                                authenticationToken.getName(),
+                                authenticationToken.getTokenId(),
+                                false,
+                                authenticationToken.getExpiresAt())));
+    }
+}
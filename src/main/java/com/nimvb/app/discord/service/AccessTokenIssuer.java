@@ -0,0 +1,83 @@
+package com.nimvb.app.discord.service;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimvb.app.discord.domain.RefreshTokenFamily;
+import com.nimvb.app.discord.model.AccessToken;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.service.TokenFormats;
+import com.nimvb.app.discord.security.util.Jwe;
+import com.nimvb.app.discord.security.util.TokenFormat;
+import com.nimvb.app.discord.security.util.TokenType;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Mints the access token and the refresh token of a {@link RefreshTokenFamily} with the active keys
+ */
+@Service
+@RequiredArgsConstructor
+public class AccessTokenIssuer {
+
+    public static final Duration ACCESS_TOKEN_VALIDITY  = Duration.ofHours(1);
+    public static final Duration REFRESH_TOKEN_VALIDITY = Duration.ofHours(24);
+
+    private final KeyRingProvider        keyRingProvider;
+    private final SigningKeyRingProvider signingKeyRingProvider;
+    private final TokenFormats           tokenFormats;
+    private final Clock                  clock;
+
+    /**
+     * Issues the tokens of a user
+     * @param username the subject of both tokens
+     * @param authorities the roles of the access token
+     * @param family the family whose current token id and expiration the refresh token is issued with
+     * @return Mono provides the issued {@link AccessToken}
+     */
+    public Mono<AccessToken> issue(@NonNull String username,
+                                   @NonNull Collection<? extends GrantedAuthority> authorities,
+                                   @NonNull RefreshTokenFamily family) {
+        Date expiredAt = Date.from(Instant.now(clock).plus(ACCESS_TOKEN_VALIDITY));
+        final Jwe.Builder accessTokenBuilder = Jwe
+                .create()
+                .withSubject(username)
+                .withExpiredAt(expiredAt)
+                .withIssuer("users")
+                .withTokenId(UUID.randomUUID().toString())
+                .withClaim("roles", authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList()))
+                .withClaim(TokenType.FAMILY_CLAIM, family.getId());
+        final Jwe.Builder refreshTokenBuilder = Jwe
+                .create()
+                .withSubject(username)
+                .withExpiredAt(Date.from(family.getExpiresAt()))
+                .withIssuer("users")
+                .withClaim("roles", Collections.emptyList())
+                .withTokenId(family.getTokenId())
+                .withClaim(TokenType.FAMILY_CLAIM, family.getId())
+                .withClaim(TokenType.CLAIM, TokenType.REFRESH);
+        return Mono.fromCallable(() -> {
+            final String accessToken = issue(accessTokenBuilder, tokenFormats.getAccessToken());
+            final String refreshToken = issue(refreshTokenBuilder, tokenFormats.getRefreshToken());
+            return new AccessToken(accessToken, "Bearer", expiredAt.toInstant().toEpochMilli(), refreshToken, "");
+        });
+    }
+
+    private String issue(Jwe.Builder builder, TokenFormat format) throws JOSEException {
+        if (format == TokenFormat.JWS) {
+            return builder.sign(signingKeyRingProvider.signingKeyRing().active());
+        }
+        return builder.encrypt(keyRingProvider.keyRing().active());
+    }
+}
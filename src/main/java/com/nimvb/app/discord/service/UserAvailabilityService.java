@@ -0,0 +1,243 @@
+package com.nimvb.app.discord.service;
+
+import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.event.UserCreatedEvent;
+import com.nimvb.app.discord.repository.UserRepository;
+import com.nimvb.app.discord.security.util.BloomFilter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers whether a username or an email is taken from a Bloom filter of the taken ones on every node, so checking a
+ * free value costs a single in-memory probe and only the filter's hits are looked up in the {@code users} collection.
+ * <p>
+ * The filter is built from the collection on the first synchronization, takes the users created on this node at once
+ * and the ones created on the other nodes every {@code syncInterval}, found by the creation time of their
+ * {@code _id}. It is built again once more values were put than it was sized for, the users created on this node
+ * meanwhile are put into the new filter before it replaces the current one. Until it was built for the first
+ * time every check is looked up in the collection.
+ * <p>
+ * Without a {@link ReactiveMongoTemplate} the filter is built from the {@link UserRepository} itself, which then has
+ * to keep every user on this node, so the users created on this node are all there is to take between the builds.
+ */
+@Slf4j
+public class UserAvailabilityService implements DisposableBean {
+
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(5);
+    private static final String   USERNAME   = "username:";
+    private static final String   EMAIL      = "email:";
+
+    private final ReactiveMongoTemplate template;
+    private final UserRepository        repository;
+    private final Clock                 clock;
+    private final long                  expectedUsers;
+    private final double                falsePositiveRate;
+    private final Disposable            synchronizing;
+
+    private final Object lock = new Object();
+
+    private volatile BloomFilter filter;
+    private volatile Instant     syncedAt;
+
+    /**
+     * The users created on this node while the filter is built again, guarded by {@link #lock}
+     */
+    private List<UserCreatedEvent> createdWhileRebuilding;
+
+    /**
+     * @param expectedUsers the number of users the filter is sized for, it grows past it on the next synchronization
+     * @param falsePositiveRate the rate of the free values which are looked up
+     * @param syncInterval period of synchronizing the filter with the collection, zero or negative disables it
+     */
+    public UserAvailabilityService(@NonNull ReactiveMongoTemplate template,
+                                   @NonNull UserRepository repository,
+                                   @NonNull Clock clock,
+                                   long expectedUsers,
+                                   double falsePositiveRate,
+                                   @NonNull Duration syncInterval) throws IllegalArgumentException {
+        this(repository, template, clock, expectedUsers, falsePositiveRate, syncInterval);
+    }
+
+    /**
+     * Builds the filter from the {@code repository}, for repositories which keep every user on this node
+     * @param expectedUsers the number of users the filter is sized for, it grows past it on the next synchronization
+     * @param falsePositiveRate the rate of the free values which are looked up
+     * @param syncInterval period of checking whether the filter is due to be built again, zero or negative disables it
+     */
+    public UserAvailabilityService(@NonNull UserRepository repository,
+                                   @NonNull Clock clock,
+                                   long expectedUsers,
+                                   double falsePositiveRate,
+                                   @NonNull Duration syncInterval) throws IllegalArgumentException {
+        this(repository, null, clock, expectedUsers, falsePositiveRate, syncInterval);
+    }
+
+    private UserAvailabilityService(@NonNull UserRepository repository,
+                                    ReactiveMongoTemplate template,
+                                    @NonNull Clock clock,
+                                    long expectedUsers,
+                                    double falsePositiveRate,
+                                    @NonNull Duration syncInterval) throws IllegalArgumentException {
+        if (expectedUsers < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("expectedUsers must be positive and falsePositiveRate between 0 and 1");
+        }
+        this.template = template;
+        this.repository = repository;
+        this.clock = clock;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+        if (syncInterval.isZero() || syncInterval.isNegative()) {
+            this.synchronizing = Disposables.disposed();
+        } else {
+            this.synchronizing = Flux.interval(Duration.ZERO, syncInterval, Schedulers.boundedElastic())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> synchronize()
+                            .onErrorResume(throwable -> {
+                                log.warn("synchronizing the taken usernames and emails failed, the current filter is kept", throwable);
+                                return Mono.empty();
+                            }))
+                    .subscribe();
+        }
+    }
+
+    public Mono<Boolean> isUsernameAvailable(@NonNull String username) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(USERNAME + username)) {
+            return Mono.just(true);
+        }
+        return repository.findByUsername(username).hasElement().map(taken -> !taken);
+    }
+
+    public Mono<Boolean> isEmailAvailable(@NonNull String email) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(EMAIL + email)) {
+            return Mono.just(true);
+        }
+        return repository.findByEmail(email).hasElement().map(taken -> !taken);
+    }
+
+    @EventListener
+    public void onUserCreated(UserCreatedEvent event) {
+        synchronized (lock) {
+            if (createdWhileRebuilding != null) {
+                createdWhileRebuilding.add(event);
+            }
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            put(current, event.getUsername(), event.getEmail());
+        }
+    }
+
+    /**
+     * Puts the users created since the last synchronization into the filter, or builds the filter again when it is
+     * due
+     */
+    public Mono<Void> synchronize() {
+        return Mono.defer(() -> {
+            final Instant     now     = clock.instant();
+            final BloomFilter current = filter;
+            if (current == null || current.size() > current.getExpectedInsertions()) {
+                // the users created from now on may be missed by the reads and would only go into the current filter
+                synchronized (lock) {
+                    createdWhileRebuilding = new ArrayList<>();
+                }
+                return count().flatMap(count -> {
+                    // every user puts its username and its email
+                    BloomFilter rebuilt = new BloomFilter(Math.max(expectedUsers, count * 2) * 2, falsePositiveRate);
+                    return takenValues(rebuilt)
+                            .then(Mono.<Void>fromRunnable(() -> {
+                                synchronized (lock) {
+                                    createdWhileRebuilding.forEach(event -> put(rebuilt, event.getUsername(), event.getEmail()));
+                                    createdWhileRebuilding = null;
+                                    filter = rebuilt;
+                                    syncedAt = now;
+                                }
+                            }));
+                }).doOnError(throwable -> stopRecording()).doOnCancel(this::stopRecording);
+            }
+            if (template == null) {
+                return Mono.fromRunnable(() -> syncedAt = now);
+            }
+            final String collection = template.getCollectionName(User.class);
+            final Query query = takenQuery()
+                    .addCriteria(Criteria.where("_id").gte(firstIdOf(syncedAt.minus(CLOCK_SKEW))));
+            return template.find(query, Document.class, collection)
+                    .doOnNext(user -> put(current, user.getString("username"), user.getString("email")))
+                    .then(Mono.fromRunnable(() -> syncedAt = now));
+        });
+    }
+
+    @Override
+    public void destroy() {
+        synchronizing.dispose();
+    }
+
+    private void stopRecording() {
+        synchronized (lock) {
+            createdWhileRebuilding = null;
+        }
+    }
+
+    private Mono<Long> count() {
+        if (template == null) {
+            return repository.count();
+        }
+        return template.getCollection(template.getCollectionName(User.class))
+                .flatMap(users -> Mono.from(users.estimatedDocumentCount()));
+    }
+
+    /**
+     * Puts every taken username and email into {@code filter}
+     */
+    private Mono<Void> takenValues(BloomFilter filter) {
+        if (template == null) {
+            return repository.findAll()
+                    .doOnNext(user -> put(filter, user.getUsername(), user.getEmail()))
+                    .then();
+        }
+        return template.find(takenQuery(), Document.class, template.getCollectionName(User.class))
+                .doOnNext(user -> put(filter, user.getString("username"), user.getString("email")))
+                .then();
+    }
+
+    private static Query takenQuery() {
+        Query query = new Query();
+        query.fields().include("username", "email");
+        return query;
+    }
+
+    /**
+     * The smallest id which could have been generated at {@code instant}, its leading four bytes are the seconds
+     */
+    private static ObjectId firstIdOf(Instant instant) {
+        return new ObjectId(String.format("%08x%016x", instant.getEpochSecond(), 0L));
+    }
+
+    private static void put(BloomFilter filter, String username, String email) {
+        if (username != null) {
+            filter.put(USERNAME + username);
+        }
+        if (email != null) {
+            filter.put(EMAIL + email);
+        }
+    }
+}
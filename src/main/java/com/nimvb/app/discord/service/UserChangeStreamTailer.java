@@ -0,0 +1,255 @@
+package com.nimvb.app.discord.service;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.OperationType;
+import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.event.UserChangedEvent;
+import com.nimvb.app.discord.security.cache.UserDetailsCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Follows the change stream of the {@code users} collection, so a user changed or removed on any node is dropped
+ * from the caches of this node within moments. Every update publishes a {@link UserChangedEvent} of its user; a
+ * removal, or anything after which changes may have been missed, publishes {@link UserChangedEvent#everyUser(Object)}.
+ * <p>
+ * The position in the stream is saved to the {@code change_stream_offsets} collection every {@code checkpointInterval}
+ * and on shutdown, and the stream resumes from it after a restart; a position which is no longer in the oplog is
+ * dropped. At most {@code bufferSize} changes are requested ahead of the ones being handled.
+ * <p>
+ * Change streams need a replica set. While the stream can not be followed, the {@link UserDetailsCache} keeps its
+ * entries for {@code fallbackTtl} only, and the stream is tried again every {@code retryInterval}.
+ * <p>
+ * Metrics: {@code users.change.stream.lag} (time from the change to its handling), {@code users.change.stream.events}
+ * (tagged by {@code operation}) and {@code users.change.stream.available} (1 while the stream is followed).
+ */
+@Slf4j
+public class UserChangeStreamTailer implements DisposableBean {
+
+    static final String OFFSETS = "change_stream_offsets";
+
+    private static final Set<Integer> LOST_POSITION_CODES = Set.of(136, 260, 280, 286);
+
+    private final ReactiveMongoTemplate       template;
+    private final ApplicationEventPublisher   eventPublisher;
+    private final UserDetailsCache            userDetailsCache;
+    private final Clock                       clock;
+    private final int                         bufferSize;
+    private final Duration                    expireAfterWrite;
+    private final Duration                    fallbackTtl;
+    private final String                      collection;
+    private final AtomicBoolean               available = new AtomicBoolean();
+    private final AtomicReference<BsonValue>  position  = new AtomicReference<>();
+    private final AtomicReference<BsonValue>  saved     = new AtomicReference<>();
+    private final Timer                       lag;
+    private final Map<OperationType, Counter> events    = new EnumMap<>(OperationType.class);
+    private final Counter                     unknownEvents;
+    private final Disposable                  tailing;
+    private final Disposable                  checkpointing;
+
+    /**
+     * @param userDetailsCache the cache whose entries expire after {@code fallbackTtl} while the stream is not followed
+     * @param bufferSize the number of changes requested ahead of the ones being handled
+     * @param retryInterval period of trying the stream again once it failed, zero or negative disables the tailing
+     * @param checkpointInterval period of saving the position in the stream
+     * @param fallbackTtl how long a user is cached while the stream is not followed
+     */
+    public UserChangeStreamTailer(@NonNull ReactiveMongoTemplate template,
+                                  @NonNull ApplicationEventPublisher eventPublisher,
+                                  @NonNull UserDetailsCache userDetailsCache,
+                                  @NonNull Clock clock,
+                                  @NonNull MeterRegistry meterRegistry,
+                                  int bufferSize,
+                                  @NonNull Duration retryInterval,
+                                  @NonNull Duration checkpointInterval,
+                                  @NonNull Duration fallbackTtl) throws IllegalArgumentException {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.template = template;
+        this.eventPublisher = eventPublisher;
+        this.userDetailsCache = userDetailsCache;
+        this.clock = clock;
+        this.bufferSize = bufferSize;
+        this.expireAfterWrite = userDetailsCache.getExpireAfterWrite();
+        this.fallbackTtl = fallbackTtl;
+        this.collection = template.getCollectionName(User.class);
+        this.lag = Timer.builder("users.change.stream.lag").register(meterRegistry);
+        for (OperationType operation : OperationType.values()) {
+            events.put(operation, Counter.builder("users.change.stream.events").tag("operation", operation.getValue()).register(meterRegistry));
+        }
+        this.unknownEvents = Counter.builder("users.change.stream.events").tag("operation", "unknown").register(meterRegistry);
+        Gauge.builder("users.change.stream.available", available, value -> value.get() ? 1 : 0).register(meterRegistry);
+        degrade();
+        if (retryInterval.isZero() || retryInterval.isNegative()) {
+            this.tailing = Disposables.disposed();
+            this.checkpointing = Disposables.disposed();
+            return;
+        }
+        this.tailing = tail()
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, retryInterval)
+                        .doBeforeRetry(signal -> {
+                            log.warn("following the changes of the users failed, it is tried again in {}", retryInterval, signal.failure());
+                            degrade();
+                        }))
+                .subscribe();
+        this.checkpointing = Flux.interval(checkpointInterval, checkpointInterval, Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .concatMap(tick -> checkpoint()
+                        .onErrorResume(throwable -> {
+                            log.warn("saving the position in the changes of the users failed", throwable);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    /**
+     * Follows the stream from the saved position until it fails or is closed, both of which end in an error
+     */
+    Flux<ChangeStreamEvent<Document>> tail() {
+        return Flux.defer(() -> template.executeCommand(new Document("isMaster", 1))
+                .flatMap(reply -> reply.containsKey("setName") ?
+                        Mono.just(reply) :
+                        Mono.<Document>error(new IllegalStateException("change streams need a replica set")))
+                // the last handled change when the stream failed, the saved one after a restart
+                .then(Mono.justOrEmpty(position.get())
+                        .switchIfEmpty(template.findOne(Query.query(Criteria.where("_id").is(collection)), Document.class, OFFSETS)
+                                .mapNotNull(offset -> offset
+                                        .toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry())
+                                        .get("position")))
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty()))
+                .flatMapMany(resumeFrom -> {
+                    ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                            .returnFullDocumentOnUpdate()
+                            .filter(new Document("$match", new Document("operationType",
+                                            new Document("$in", List.of("update", "replace", "delete", "drop", "invalidate")))),
+                                    // only the username of the changed user travels
+                                    new Document("$project", new Document("operationType", 1)
+                                            .append("clusterTime", 1)
+                                            .append("documentKey", 1)
+                                            .append("ns", 1)
+                                            .append("fullDocument.username", 1)));
+                    resumeFrom.ifPresent(options::resumeAfter);
+                    return template.changeStream(collection, options.build(), Document.class)
+                            .doOnSubscribe(subscription -> restore(resumeFrom.isPresent()))
+                            .onErrorResume(throwable -> resumeFrom.isPresent() && isPositionLost(throwable),
+                                    throwable -> forget().then(Mono.<ChangeStreamEvent<Document>>error(throwable)));
+                })
+                .limitRate(bufferSize)
+                .doOnNext(this::handle)
+                .concatWith(Mono.error(() -> new IllegalStateException("the change stream of the users is closed"))));
+    }
+
+    /**
+     * Saves the position of the last handled change, when it moved since it was saved
+     */
+    public Mono<Void> checkpoint() {
+        return Mono.defer(() -> {
+            final BsonValue current = position.get();
+            if (current == null || current.equals(saved.get())) {
+                return Mono.empty();
+            }
+            return template.upsert(Query.query(Criteria.where("_id").is(collection)),
+                            Update.update("position", current).set("savedAt", clock.instant()),
+                            OFFSETS)
+                    .doOnNext(result -> saved.set(current))
+                    .then();
+        });
+    }
+
+    @Override
+    public void destroy() {
+        tailing.dispose();
+        checkpointing.dispose();
+        try {
+            checkpoint().block(Duration.ofSeconds(5));
+        } catch (RuntimeException exception) {
+            log.warn("saving the position in the changes of the users failed", exception);
+        }
+    }
+
+    private void handle(ChangeStreamEvent<Document> event) {
+        if (event.getTimestamp() != null) {
+            lag.record(Duration.between(event.getTimestamp(), clock.instant()));
+        }
+        final OperationType operation = event.getOperationType();
+        events.getOrDefault(operation, unknownEvents).increment();
+        final Document body = event.getBody();
+        if ((operation == OperationType.UPDATE || operation == OperationType.REPLACE)
+                && body != null && body.getString("username") != null) {
+            eventPublisher.publishEvent(new UserChangedEvent(this, body.getString("username")));
+        } else {
+            eventPublisher.publishEvent(UserChangedEvent.everyUser(this));
+        }
+        if (event.getResumeToken() != null) {
+            position.set(event.getResumeToken());
+        }
+    }
+
+    /**
+     * The stream is followed again; the changes made while it was not may have been missed unless it resumed
+     */
+    private void restore(boolean resumed) {
+        if (available.compareAndSet(false, true)) {
+            userDetailsCache.setExpireAfterWrite(expireAfterWrite);
+            if (!resumed) {
+                eventPublisher.publishEvent(UserChangedEvent.everyUser(this));
+            }
+            log.info("the changes of the users are followed");
+        }
+    }
+
+    private void degrade() {
+        available.set(false);
+        userDetailsCache.setExpireAfterWrite(fallbackTtl);
+    }
+
+    private Mono<Void> forget() {
+        log.warn("the saved position in the changes of the users is no longer available, the changes are followed from now on");
+        position.set(null);
+        saved.set(null);
+        return template.remove(Query.query(Criteria.where("_id").is(collection)), OFFSETS).then();
+    }
+
+    private static boolean isPositionLost(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException && LOST_POSITION_CODES.contains(((MongoException) cause).getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
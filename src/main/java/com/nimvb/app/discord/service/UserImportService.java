@@ -0,0 +1,203 @@
+package com.nimvb.app.discord.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.event.UserCreatedEvent;
+import com.nimvb.app.discord.model.UserImportResult;
+import com.nimvb.app.discord.request.UserRegistrationRequest;
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
+import com.nimvb.app.discord.security.service.PasswordHashingExecutor;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports users from a stream of JSON lines, each line holds one {@link UserRegistrationRequest}.
+ * <p>
+ * A line is parsed and validated on its own, at most {@code hashingConcurrency} passwords are hashed at the same time
+ * and the users are inserted {@code batchSize} at a time by unordered bulk inserts. Every non blank line yields one
+ * {@link UserImportResult}, in the order of the lines, and no more than a few batches are held in memory whatever
+ * the size of the input.
+ */
+@Slf4j
+public class UserImportService {
+
+    private static final int HASHING_ATTEMPTS = 5;
+
+    private final ReactiveMongoTemplate     template;
+    private final PasswordHashingExecutor   passwordHashingExecutor;
+    private final Validator                 validator;
+    private final ObjectMapper              mapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int                       batchSize;
+    private final int                       hashingConcurrency;
+
+    /**
+     * @param batchSize the number of users inserted by one bulk insert
+     * @param hashingConcurrency the number of passwords hashed at the same time, it should leave room in the queue of
+     *                           the {@code passwordHashingExecutor} for the logins
+     */
+    public UserImportService(@NonNull ReactiveMongoTemplate template,
+                             @NonNull PasswordHashingExecutor passwordHashingExecutor,
+                             @NonNull Validator validator,
+                             @NonNull ObjectMapper mapper,
+                             @NonNull ApplicationEventPublisher eventPublisher,
+                             int batchSize,
+                             int hashingConcurrency) {
+        if (batchSize < 1 || hashingConcurrency < 1) {
+            throw new IllegalArgumentException("the batch size and the hashing concurrency should be positive");
+        }
+        this.template = template;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.validator = validator;
+        this.mapper = mapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.hashingConcurrency = hashingConcurrency;
+    }
+
+    public Flux<UserImportResult> importUsers(@NonNull Flux<String> lines) {
+        return lines
+                .index((index, line) -> new Row(index + 1, line))
+                .filter(row -> !row.line.isBlank())
+                .flatMapSequential(this::prepare, hashingConcurrency, hashingConcurrency)
+                .buffer(batchSize)
+                .concatMap(this::insert, 1);
+    }
+
+    /**
+     * Parses, validates and hashes the password of a row, a row which can not be inserted carries its result
+     */
+    private Mono<Row> prepare(Row row) {
+        final UserRegistrationRequest request;
+        try {
+            request = mapper.readValue(row.line, UserRegistrationRequest.class);
+        } catch (JsonProcessingException exception) {
+            return Mono.just(row.withResult(UserImportResult.Status.INVALID, null, "malformed line"));
+        }
+        final Set<ConstraintViolation<UserRegistrationRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return Mono.just(row.withResult(UserImportResult.Status.INVALID, request.getUsername(), violations
+                    .stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", "))));
+        }
+        return passwordHashingExecutor.encode(request.getPassword())
+                .retryWhen(Retry.fixedDelay(HASHING_ATTEMPTS, passwordHashingExecutor.getRetryAfter())
+                        .filter(PasswordHashingUnavailableException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .map(encodedPassword -> row.withUser(User.builder()
+                        .withUsername(request.getUsername())
+                        .withPassword(encodedPassword)
+                        .withEmail(request.getEmail())
+                        .build()))
+                .onErrorResume(throwable -> Mono.just(row.withResult(UserImportResult.Status.FAILED, request.getUsername(), "password hashing failed")));
+    }
+
+    private Flux<UserImportResult> insert(List<Row> batch) {
+        final List<Document> documents = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (row.user != null) {
+                final Document document = new Document();
+                template.getConverter().write(row.user, document);
+                documents.add(document);
+            }
+        }
+        if (documents.isEmpty()) {
+            return Flux.fromIterable(batch).map(row -> row.result);
+        }
+        return template.getCollection(template.getCollectionName(User.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> Collections.<Integer, BulkWriteError>emptyMap())
+                .onErrorResume(MongoBulkWriteException.class, exception -> Mono.just(exception
+                        .getWriteErrors()
+                        .stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, error -> error, (first, second) -> first, HashMap::new))))
+                .map(errors -> results(batch, errors))
+                .onErrorResume(throwable -> {
+                    log.warn("importing a batch of {} users failed", documents.size(), throwable);
+                    return Mono.just(failed(batch));
+                })
+                .flatMapIterable(results -> results);
+    }
+
+    private List<UserImportResult> results(List<Row> batch, Map<Integer, BulkWriteError> errors) {
+        final List<UserImportResult> results = new ArrayList<>(batch.size());
+        int index = 0;
+        for (Row row : batch) {
+            if (row.user == null) {
+                results.add(row.result);
+                continue;
+            }
+            final BulkWriteError error = errors.get(index++);
+            if (error == null) {
+                results.add(UserImportResult.created(row.number, row.user.getUsername()));
+                eventPublisher.publishEvent(new UserCreatedEvent(this, row.user.getUsername(), row.user.getEmail()));
+            } else if (ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+                results.add(new UserImportResult(row.number, row.user.getUsername(), UserImportResult.Status.DUPLICATE, "username or email is already exists"));
+            } else {
+                results.add(new UserImportResult(row.number, row.user.getUsername(), UserImportResult.Status.FAILED, error.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private static List<UserImportResult> failed(List<Row> batch) {
+        return batch
+                .stream()
+                .map(row -> row.user == null ?
+                        row.result :
+                        new UserImportResult(row.number, row.user.getUsername(), UserImportResult.Status.FAILED, "inserting the user failed"))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * A line on its way through the import, it ends up with either a user to insert or a result
+     */
+    private static final class Row {
+        private final long             number;
+        private final String           line;
+        private final User             user;
+        private final UserImportResult result;
+
+        private Row(long number, String line) {
+            this(number, line, null, null);
+        }
+
+        private Row(long number, String line, User user, UserImportResult result) {
+            this.number = number;
+            this.line = line;
+            this.user = user;
+            this.result = result;
+        }
+
+        private Row withUser(User user) {
+            return new Row(number, null, user, null);
+        }
+
+        private Row withResult(UserImportResult.Status status, String username, String message) {
+            return new Row(number, null, null, new UserImportResult(number, username, status, message));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.nimvb.app.discord.service;
 
 import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.domain.UserCredentials;
 import com.nimvb.app.discord.exception.UserNotFoundException;
 import com.nimvb.app.discord.request.UserRegistrationRequest;
 import lombok.NonNull;
@@ -21,4 +22,32 @@ public interface UserService {
      */
     Mono<User> find(@NonNull String username);
 
+    /**
+     * Find only what authenticates the user which has username equals to {@code username}
+     * @param username the target username
+     * @throws  UserNotFoundException when no user with the provided {@code username} is exists
+     * @return the credentials of the user or {@link Mono#error(Throwable)} if the user is not
+     * found
+     */
+    Mono<UserCredentials> findCredentials(@NonNull String username);
+
+    /**
+     * Like {@link #findCredentials(String)}, but seeing every write made before, however the reads are routed
+     * @param username the target username
+     * @throws  UserNotFoundException when no user with the provided {@code username} is exists
+     * @return the credentials of the user or {@link Mono#error(Throwable)} if the user is not
+     * found
+     */
+    Mono<UserCredentials> findLatestCredentials(@NonNull String username);
+
+    /**
+     * Replace the password hash of the user which has username equals to {@code username}
+     * @param username the target username
+     * @param encodedPassword the new hash, already encoded
+     * @throws  UserNotFoundException when no user with the provided {@code username} is exists
+     * @return Mono completes once the hash is persisted or {@link Mono#error(Throwable)} if the user is not
+     * found
+     */
+    Mono<Void> updatePassword(@NonNull String username, @NonNull String encodedPassword);
+
 }
@@ -1,13 +1,18 @@
 package com.nimvb.app.discord.service;
 
 import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.domain.UserCredentials;
+import com.nimvb.app.discord.event.UserChangedEvent;
+import com.nimvb.app.discord.event.UserCreatedEvent;
 import com.nimvb.app.discord.exception.UserNotFoundException;
 import com.nimvb.app.discord.exception.UsernameIsAlreadyExistsException;
 import com.nimvb.app.discord.repository.UserRepository;
 import com.nimvb.app.discord.request.UserRegistrationRequest;
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
+import com.nimvb.app.discord.security.service.PasswordHashingExecutor;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
@@ -17,19 +22,22 @@ import reactor.core.publisher.Mono;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public Mono<Void> create(@NonNull UserRegistrationRequest request) {
 
         return Mono.just(request)
-                .map(req -> User.builder()
-                        .withUsername(req.getUsername())
-                        .withPassword(passwordEncoder.encode(req.getPassword()))
-                        .withEmail(req.getEmail())
-                        .build())
+                .flatMap(req -> passwordHashingExecutor.encode(req.getPassword())
+                        .map(encodedPassword -> User.builder()
+                                .withUsername(req.getUsername())
+                                .withPassword(encodedPassword)
+                                .withEmail(req.getEmail())
+                                .build()))
                 .flatMap(userRepository::save)
-                .onErrorResume(throwable -> {
+                .doOnNext(user -> eventPublisher.publishEvent(new UserCreatedEvent(this, user.getUsername(), user.getEmail())))
+                .onErrorResume(throwable -> !(throwable instanceof PasswordHashingUnavailableException), throwable -> {
                     return Mono.error(
                             new UsernameIsAlreadyExistsException(request.getUsername(),
                                     throwable));
@@ -44,4 +52,28 @@ public class UserServiceImpl implements UserService {
                 .findByUsername(username)
                 .switchIfEmpty(Mono.error(new UserNotFoundException(username)));
     }
+
+    @Override
+    public Mono<UserCredentials> findCredentials(@NonNull String username) {
+        return userRepository
+                .findCredentials(username)
+                .switchIfEmpty(Mono.error(new UserNotFoundException(username)));
+    }
+
+    @Override
+    public Mono<UserCredentials> findLatestCredentials(@NonNull String username) {
+        return userRepository
+                .findLatestCredentials(username)
+                .switchIfEmpty(Mono.error(new UserNotFoundException(username)));
+    }
+
+    @Override
+    public Mono<Void> updatePassword(@NonNull String username, @NonNull String encodedPassword) {
+        return userRepository
+                .updatePassword(username, encodedPassword)
+                .filter(updated -> updated)
+                .switchIfEmpty(Mono.error(new UserNotFoundException(username)))
+                .doOnNext(updated -> eventPublisher.publishEvent(new UserChangedEvent(this, username)))
+                .then();
+    }
 }
@@ -0,0 +1,71 @@
+package com.nimvb.app.discord.configuration;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.SecretProvider;
+import com.nimvb.app.discord.security.util.Jwe;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class JweConfigurationTest {
+
+    @Test
+    void ShouldProvideABeanOfKeyRingProviderType() {
+        new ApplicationContextRunner()
+                .withBean(SecretProvider.class, () -> () -> SecretProvider.DEFAULT_SECRET)
+                .withUserConfiguration(JweConfiguration.class)
+                .run(context -> {
+                    Assertions.assertThat(context).hasSingleBean(KeyRingProvider.class);
+                    Assertions.assertThat(context.getBean(KeyRingProvider.class).keyRing().active().getKeyId())
+                            .isEqualTo(SecretProvider.DEFAULT_KEY_ID);
+                });
+    }
+
+    @Test
+    void ShouldEncryptWithTheConfiguredEncryptionMethod() {
+        new ApplicationContextRunner()
+                .withBean(SecretProvider.class, () -> () -> SecretProvider.DEFAULT_SECRET)
+                .withPropertyValues("spring.security.jwe.encryption-method=A256GCM")
+                .withUserConfiguration(JweConfiguration.class)
+                .run(context -> Assertions.assertThat(context.getBean(KeyRingProvider.class).keyRing().active().getEncryptionMethod())
+                        .isEqualTo(EncryptionMethod.A256GCM));
+    }
+
+    @Test
+    void ShouldDecodeTokensOfTheConfiguredAcceptedEncryptionMethods() {
+        new ApplicationContextRunner()
+                .withBean(SecretProvider.class, () -> () -> SecretProvider.DEFAULT_SECRET)
+                .withPropertyValues("spring.security.jwe.encryption-method=A256GCM",
+                        "spring.security.jwe.accepted-encryption-methods=A128CBC-HS256")
+                .withUserConfiguration(JweConfiguration.class)
+                .run(context -> {
+                    final String token = Jwe.create()
+                            .withSubject("user")
+                            .encrypt(Jwe.Algorithm.AES128HS256(SecretProvider.DEFAULT_KEY_ID, SecretProvider.DEFAULT_SECRET));
+                    final Jwe.DecryptionManager manager = Jwe.require(context.getBean(KeyRingProvider.class).keyRing()).build();
+                    Assertions.assertThat(manager.decrypt(token).getSubject()).isEqualTo("user");
+                });
+    }
+
+    @Test
+    void ShouldFailWhenTheEncryptionMethodIsNotSupported() {
+        new ApplicationContextRunner()
+                .withBean(SecretProvider.class, () -> () -> SecretProvider.DEFAULT_SECRET)
+                .withPropertyValues("spring.security.jwe.encryption-method=A192GCM")
+                .withUserConfiguration(JweConfiguration.class)
+                .run(context -> Assertions.assertThat(context).hasFailed());
+    }
+
+    @Test
+    void ShouldFailWhenTheInitialKeyRingCanNotBeBuilt() {
+        new ApplicationContextRunner()
+                .withBean(SecretProvider.class, () -> () -> "")
+                .withUserConfiguration(JweConfiguration.class)
+                .run(context -> Assertions.assertThat(context).hasFailed());
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.nimvb.app.discord.configuration;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimvb.app.discord.security.service.SecretProvider;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.service.TokenFormats;
+import com.nimvb.app.discord.security.util.TokenFormat;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+class JwsConfigurationTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withBean(SecretProvider.class, () -> () -> SecretProvider.DEFAULT_SECRET)
+            .withUserConfiguration(JweConfiguration.class, JwsConfiguration.class);
+
+    @Test
+    void ShouldProvideHS256SigningKeysDerivedFromTheSecretsByDefault() {
+        runner.run(context -> {
+            Assertions.assertThat(context.getBean(TokenFormats.class).getAccessToken()).isEqualTo(TokenFormat.JWE);
+            Assertions.assertThat(context.getBean(TokenFormats.class).getRefreshToken()).isEqualTo(TokenFormat.JWE);
+            Assertions.assertThat(context.getBean(SigningKeyRingProvider.class).signingKeyRing().active().getAlgorithm()).isEqualTo(JWSAlgorithm.HS256);
+            Assertions.assertThat(context.getBean(SigningKeyRingProvider.class).signingKeyRing().active().getKeyId()).isEqualTo(SecretProvider.DEFAULT_KEY_ID);
+        });
+    }
+
+    @Test
+    void ShouldProvideTheConfiguredFormatOfEachTokenType() {
+        runner.withPropertyValues("spring.security.tokens.access-token-format=JWS")
+                .run(context -> {
+                    Assertions.assertThat(context.getBean(TokenFormats.class).getAccessToken()).isEqualTo(TokenFormat.JWS);
+                    Assertions.assertThat(context.getBean(TokenFormats.class).getRefreshToken()).isEqualTo(TokenFormat.JWE);
+                });
+    }
+
+    @Test
+    void ShouldProvideEd25519SigningKeysWhenConfigured() throws Exception {
+        final OctetKeyPair active  = new OctetKeyPairGenerator(Curve.Ed25519).keyID("active").generate();
+        final OctetKeyPair retired = new OctetKeyPairGenerator(Curve.Ed25519).keyID("retired").generate();
+        final String       keys    = new JWKSet(List.<JWK>of(active, retired.toPublicJWK())).toString(false);
+        runner.withPropertyValues("spring.security.jws.algorithm=Ed25519", "spring.security.jws.key-id=active")
+                .withSystemProperties("spring.security.jws.ed25519-keys=" + keys)
+                .run(context -> {
+                    Assertions.assertThat(context.getBean(SigningKeyRingProvider.class).signingKeyRing().active().getKeyId()).isEqualTo("active");
+                    Assertions.assertThat(context.getBean(SigningKeyRingProvider.class).signingKeyRing().find("retired")).isNotNull();
+                });
+    }
+
+    @Test
+    void ShouldFailWhenTheActiveEd25519KeyIsMissing() throws Exception {
+        final OctetKeyPair key = new OctetKeyPairGenerator(Curve.Ed25519).keyID("retired").generate();
+        runner.withPropertyValues("spring.security.jws.algorithm=Ed25519", "spring.security.jws.key-id=active")
+                .withSystemProperties("spring.security.jws.ed25519-keys=" + new JWKSet(key).toString(false))
+                .run(context -> Assertions.assertThat(context).hasFailed());
+    }
+}
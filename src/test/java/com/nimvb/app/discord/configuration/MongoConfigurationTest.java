@@ -0,0 +1,62 @@
+package com.nimvb.app.discord.configuration;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(SpringExtension.class)
+class MongoConfigurationTest {
+
+    private final MongoConfiguration configuration = new MongoConfiguration();
+
+    @Test
+    void ShouldApplyThePoolTheTimeoutsAndTheCompressorsWhenTheyAreConfigured() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.data.mongodb.driver.pool.min-size", "4")
+                .withProperty("spring.data.mongodb.driver.pool.max-size", "32")
+                .withProperty("spring.data.mongodb.driver.pool.max-wait", "500ms")
+                .withProperty("spring.data.mongodb.driver.pool.max-idle-time", "1m")
+                .withProperty("spring.data.mongodb.driver.connect-timeout", "2s")
+                .withProperty("spring.data.mongodb.driver.socket-timeout", "5s")
+                .withProperty("spring.data.mongodb.driver.compressors", "zstd,snappy,zlib");
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+        configuration.mongoDriverSettingsCustomizer(environment).customize(builder);
+        MongoClientSettings settings = builder.build();
+
+        Assertions.assertThat(settings.getConnectionPoolSettings().getMinSize()).isEqualTo(4);
+        Assertions.assertThat(settings.getConnectionPoolSettings().getMaxSize()).isEqualTo(32);
+        Assertions.assertThat(settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS)).isEqualTo(500);
+        Assertions.assertThat(settings.getConnectionPoolSettings().getMaxConnectionIdleTime(TimeUnit.SECONDS)).isEqualTo(60);
+        Assertions.assertThat(settings.getSocketSettings().getConnectTimeout(TimeUnit.MILLISECONDS)).isEqualTo(2000);
+        Assertions.assertThat(settings.getSocketSettings().getReadTimeout(TimeUnit.MILLISECONDS)).isEqualTo(5000);
+        Assertions.assertThat(settings.getCompressorList())
+                .extracting(MongoCompressor::getName)
+                .containsExactly("zstd", "snappy", "zlib");
+    }
+
+    @Test
+    void ShouldKeepTheDefaultsOfTheDriverWhenNothingIsConfigured() {
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+        configuration.mongoDriverSettingsCustomizer(new MockEnvironment()).customize(builder);
+        MongoClientSettings settings = builder.build();
+        MongoClientSettings defaults = MongoClientSettings.builder().build();
+
+        Assertions.assertThat(settings.getConnectionPoolSettings()).isEqualTo(defaults.getConnectionPoolSettings());
+        Assertions.assertThat(settings.getSocketSettings()).isEqualTo(defaults.getSocketSettings());
+        Assertions.assertThat(settings.getCompressorList()).isEmpty();
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheCompressorIsUnknown() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.data.mongodb.driver.compressors", "lz4");
+        Assertions.assertThatThrownBy(() -> configuration.mongoDriverSettingsCustomizer(environment))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
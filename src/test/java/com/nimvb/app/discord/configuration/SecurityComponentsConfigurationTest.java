@@ -1,6 +1,15 @@
 package com.nimvb.app.discord.configuration;
 
+import com.nimvb.app.discord.repository.RefreshTokenFamilyRepository;
+import com.nimvb.app.discord.repository.RevokedTokenRepository;
+import com.nimvb.app.discord.security.cache.DecryptedTokenCache;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.PasswordHashingExecutor;
 import com.nimvb.app.discord.security.service.SecretProvider;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.service.TokenRevocationService;
+import com.nimvb.app.discord.security.util.Jwe;
+import com.nimvb.app.discord.security.util.Jws;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,30 +20,43 @@ import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Clock;
+
 @ExtendWith(SpringExtension.class)
 class SecurityComponentsConfigurationTest {
 
-    @MockBean
-    SecretProvider secretProvider;
-
     @MockBean
     ReactiveUserDetailsService reactiveUserDetailsService;
 
     @MockBean
     PasswordEncoder passwordEncoder;
 
+    @MockBean
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    @MockBean
+    RevokedTokenRepository revokedTokenRepository;
 
     @Test
-    void ShouldProvideABeanForReactiveAuthenticationManager(){
+    void ShouldProvideABeanForReactiveAuthenticationManager() throws Exception {
+        final Jwe.KeyRing keyRing = Jwe.KeyRing.of(Jwe.Algorithm.AES128HS256(SecretProvider.DEFAULT_SECRET));
+        final Jws.KeyRing signingKeyRing = Jws.KeyRing.of(Jws.Algorithm.HS256(SecretProvider.DEFAULT_KEY_ID, SecretProvider.DEFAULT_SECRET));
         new ApplicationContextRunner()
-                .withBean(SecretProvider.class, () -> secretProvider,bd -> {})
+                .withBean(KeyRingProvider.class, () -> () -> keyRing,bd -> {})
+                .withBean(SigningKeyRingProvider.class, () -> () -> signingKeyRing,bd -> {})
                 .withBean(ReactiveUserDetailsService.class, () -> reactiveUserDetailsService,bd -> {})
-                .withBean(PasswordEncoder.class, () -> passwordEncoder,bd -> {})
+                .withBean(PasswordHashingExecutor.class, () -> PasswordHashingExecutor.inline(passwordEncoder),bd -> {})
+                .withBean(RefreshTokenFamilyRepository.class, () -> refreshTokenFamilyRepository,bd -> {})
+                .withBean(RevokedTokenRepository.class, () -> revokedTokenRepository,bd -> {})
+                .withPropertyValues("spring.security.revocation.sync-interval=0s")
+                .withBean(Clock.class, Clock::systemUTC,bd -> {})
                 .withUserConfiguration(SecurityComponentsConfiguration.class)
                 .run(context -> {
-            Assertions.assertThat(context).hasSingleBean(SecretProvider.class);
+            Assertions.assertThat(context).hasSingleBean(KeyRingProvider.class);
             Assertions.assertThat(context).hasSingleBean(ReactiveUserDetailsService.class);
             Assertions.assertThat(context).hasSingleBean(ReactiveAuthenticationManager.class);
+            Assertions.assertThat(context).hasSingleBean(DecryptedTokenCache.class);
+            Assertions.assertThat(context).hasSingleBean(TokenRevocationService.class);
         });
     }
 
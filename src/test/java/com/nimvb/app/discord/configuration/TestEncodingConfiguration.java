@@ -1,5 +1,6 @@
 package com.nimvb.app.discord.configuration;
 
+import com.nimvb.app.discord.security.service.PasswordHashingExecutor;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
@@ -12,4 +13,9 @@ public class TestEncodingConfiguration {
     PasswordEncoder passwordEncoder(){
         return NoOpPasswordEncoder.getInstance();
     }
+
+    @Bean
+    PasswordHashingExecutor passwordHashingExecutor(PasswordEncoder passwordEncoder){
+        return PasswordHashingExecutor.inline(passwordEncoder);
+    }
 }
@@ -0,0 +1,40 @@
+package com.nimvb.app.discord.configuration;
+
+import com.nimbusds.jose.KeyLengthException;
+import com.nimbusds.jose.JOSEException;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.SecretProvider;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.service.TokenFormats;
+import com.nimvb.app.discord.security.util.Jwe;
+import com.nimvb.app.discord.security.util.Jws;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+
+/**
+ * Test configuration to provide fixed encryption and signing key rings with a single key derived from
+ * {@link SecretProvider#DEFAULT_SECRET}, and the default token formats
+ */
+@TestConfiguration
+public class TestJweConfiguration {
+
+    @Bean
+    KeyRingProvider keyRingProvider() throws KeyLengthException, NoSuchAlgorithmException, InvalidKeySpecException {
+        final Jwe.KeyRing keyRing = Jwe.KeyRing.of(Jwe.Algorithm.AES128HS256(SecretProvider.DEFAULT_KEY_ID, SecretProvider.DEFAULT_SECRET));
+        return () -> keyRing;
+    }
+
+    @Bean
+    SigningKeyRingProvider signingKeyRingProvider() throws JOSEException, NoSuchAlgorithmException, InvalidKeySpecException {
+        final Jws.KeyRing keyRing = Jws.KeyRing.of(Jws.Algorithm.HS256(SecretProvider.DEFAULT_KEY_ID, SecretProvider.DEFAULT_SECRET));
+        return () -> keyRing;
+    }
+
+    @Bean
+    TokenFormats tokenFormats() {
+        return TokenFormats.defaults();
+    }
+}
@@ -0,0 +1,77 @@
+package com.nimvb.app.discord.controller;
+
+import com.nimvb.app.discord.configuration.SecurityOfPrivateResourcesConfiguration;
+import com.nimvb.app.discord.configuration.SecurityOfPublicResourcesConfiguration;
+import com.nimvb.app.discord.service.UserAvailabilityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+
+@ExtendWith(SpringExtension.class)
+@WebFluxTest(controllers = {AvailabilityController.class})
+@Import({SecurityOfPublicResourcesConfiguration.class, SecurityOfPrivateResourcesConfiguration.class})
+@AutoConfigureWebTestClient(timeout = "PT15M")
+class AvailabilityControllerTest {
+
+    private static final String RELATIVE_URL = "/api/v1/users/availability";
+
+    @MockBean
+    ReactiveAuthenticationManager reactiveAuthenticationManager;
+
+    @MockBean
+    UserAvailabilityService userAvailabilityService;
+
+    @Autowired
+    WebTestClient client;
+
+    @BeforeEach
+    void init() {
+        Mockito.when(userAvailabilityService.isUsernameAvailable("taken")).thenReturn(Mono.just(false));
+        Mockito.when(userAvailabilityService.isEmailAvailable("free@email.com")).thenReturn(Mono.just(true));
+    }
+
+    @Test
+    void ShouldAnswerWithoutAuthenticationWhenTheAvailabilityIsAsked() {
+        client.get()
+                .uri(RELATIVE_URL + "?username=taken&email=free@email.com")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.username").isEqualTo(false)
+                .jsonPath("$.email").isEqualTo(true);
+    }
+
+    @Test
+    void ShouldLeaveOutTheValueWhichIsNotAskedFor() {
+        client.get()
+                .uri(RELATIVE_URL + "?username=taken")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.username").isEqualTo(false)
+                .jsonPath("$.email").doesNotExist();
+        Mockito.verify(userAvailabilityService, Mockito.never()).isEmailAvailable(Mockito.anyString());
+    }
+
+    @Test
+    void ShouldReturnBadRequestWhenNothingIsAskedFor() {
+        client.get()
+                .uri(RELATIVE_URL)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+}
@@ -4,9 +4,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nimvb.app.discord.configuration.SecurityOfPrivateResourcesConfiguration;
 import com.nimvb.app.discord.configuration.SecurityOfPublicResourcesConfiguration;
 import com.nimvb.app.discord.configuration.TestClockConfiguration;
+import com.nimvb.app.discord.configuration.TestJweConfiguration;
+import com.nimvb.app.discord.domain.RefreshTokenFamily;
 import com.nimvb.app.discord.domain.User;
-import com.nimvb.app.discord.security.service.SecretProvider;
+import com.nimvb.app.discord.repository.RefreshTokenFamilyRepository;
+import com.nimvb.app.discord.security.resource.RefreshTokenAuthenticationToken;
+import com.nimvb.app.discord.service.AccessTokenConverterOfRefreshTokenAuthentication;
 import com.nimvb.app.discord.service.AccessTokenConverterOfUsernamePasswordAuthentication;
+import com.nimvb.app.discord.service.AccessTokenIssuer;
 import com.nimvb.app.discord.util.UserBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +23,8 @@ import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWeb
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.ClientHttpRequest;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -29,6 +36,7 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.Collections;
 import java.util.Map;
 
@@ -39,7 +47,10 @@ import java.util.Map;
         SecurityOfPublicResourcesConfiguration.class,
         SecurityOfPrivateResourcesConfiguration.class,
         TestClockConfiguration.class,
-        AccessTokenConverterOfUsernamePasswordAuthentication.class})
+        TestJweConfiguration.class,
+        AccessTokenIssuer.class,
+        AccessTokenConverterOfUsernamePasswordAuthentication.class,
+        AccessTokenConverterOfRefreshTokenAuthentication.class})
 @AutoConfigureWebTestClient(timeout = "PT15M")
 class LoginControllerTest {
 
@@ -50,10 +61,10 @@ class LoginControllerTest {
     );
 
     @MockBean
-    SecretProvider secretProvider;
+    ReactiveAuthenticationManager reactiveAuthenticationManager;
 
     @MockBean
-    ReactiveAuthenticationManager reactiveAuthenticationManager;
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
 
     @Autowired
     WebTestClient client;
@@ -64,9 +75,15 @@ class LoginControllerTest {
 
     @BeforeEach
     void init(){
-        Mockito.when(secretProvider.secret()).thenReturn(SecretProvider.DEFAULT_SECRET);
         Mockito.when(reactiveAuthenticationManager.authenticate(ArgumentMatchers.any(Authentication.class))).thenAnswer(invocation -> {
             final Authentication argument = invocation.getArgument(0);
+            if(argument instanceof RefreshTokenAuthenticationToken){
+                if(!"refresh-token".equals(argument.getCredentials())){
+                    return Mono.error(new BadCredentialsException("invalid refresh token"));
+                }
+                return Mono.just(new RefreshTokenAuthenticationToken("refresh-token", "username", "family", "rotated",
+                        Instant.now().plusSeconds(60), Collections.emptyList()));
+            }
             if(!(argument instanceof UsernamePasswordAuthenticationToken)){
                 return Mono.empty();
             }
@@ -84,6 +101,8 @@ class LoginControllerTest {
                     });
 
         });
+        Mockito.when(refreshTokenFamilyRepository.save(ArgumentMatchers.any(RefreshTokenFamily.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
     }
 
     @Test
@@ -178,4 +197,67 @@ class LoginControllerTest {
                 .jsonPath("$.refresh_token").isNotEmpty()
                 .jsonPath("$.scope").hasJsonPath();
     }
+
+    @Test
+    void ShouldReturnResponseWithOkStatusCodeAndProperResponseWhenTheRequestHasAValidRefreshToken(){
+
+        BodyInserters.FormInserter<String> formData = BodyInserters
+                .fromFormData("grant_type", "refresh_token")
+                .with("refresh_token", "refresh-token");
+
+        client.post()
+                .uri(RELATIVE_URL)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(formData)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_JSON).expectBody()
+                .jsonPath("$.access_token").isNotEmpty()
+                .jsonPath("$.refresh_token").isNotEmpty();
+        Mockito.verifyNoInteractions(refreshTokenFamilyRepository);
+    }
+
+    @Test
+    void ShouldReturnResponseWithUnauthorizedStatusCodeWhenTheRequestHasAnInvalidRefreshToken(){
+
+        BodyInserters.FormInserter<String> formData = BodyInserters
+                .fromFormData("grant_type", "refresh_token")
+                .with("refresh_token", "reused-token");
+
+        client.post()
+                .uri(RELATIVE_URL)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(formData)
+                .exchange()
+                .expectStatus()
+                .isUnauthorized();
+    }
+
+    @Test
+    void ShouldReturnResponseWithTooManyRequestsStatusCodeWithoutAuthenticatingWhenTheUsernameFailedTooManyTimes(){
+
+        for (int i = 0; i < 5; i++) {
+            client.post()
+                    .uri(RELATIVE_URL)
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                    .body(BodyInserters.fromFormData("username", "throttleduser").with("password", "password"))
+                    .exchange()
+                    .expectStatus()
+                    .isUnauthorized();
+        }
+
+        client.post()
+                .uri(RELATIVE_URL)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData("username", "throttleduser").with("password", "password"))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader()
+                .exists(HttpHeaders.RETRY_AFTER);
+        Mockito.verify(reactiveAuthenticationManager, Mockito.times(5))
+                .authenticate(ArgumentMatchers.argThat(authentication -> "throttleduser".equals(authentication.getName())));
+    }
 }
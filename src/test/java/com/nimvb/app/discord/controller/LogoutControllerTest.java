@@ -0,0 +1,106 @@
+package com.nimvb.app.discord.controller;
+
+import com.nimvb.app.discord.configuration.SecurityOfPrivateResourcesConfiguration;
+import com.nimvb.app.discord.configuration.SecurityOfPublicResourcesConfiguration;
+import com.nimvb.app.discord.repository.RefreshTokenFamilyRepository;
+import com.nimvb.app.discord.security.resource.BearerTokenAuthenticationToken;
+import com.nimvb.app.discord.security.service.TokenRevocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collections;
+
+
+@ExtendWith(SpringExtension.class)
+@WebFluxTest(controllers = {LogoutController.class})
+@Import({SecurityOfPublicResourcesConfiguration.class, SecurityOfPrivateResourcesConfiguration.class})
+@AutoConfigureWebTestClient(timeout = "PT15M")
+class LogoutControllerTest {
+
+    private static final String  RELATIVE_URL = "/api/v1/logout";
+    private static final Instant EXPIRES_AT   = Instant.parse("2030-01-01T00:00:00Z");
+
+    @MockBean
+    ReactiveAuthenticationManager reactiveAuthenticationManager;
+
+    @MockBean
+    TokenRevocationService tokenRevocationService;
+
+    @MockBean
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    @Autowired
+    WebTestClient client;
+
+    @BeforeEach
+    void init() {
+        Mockito.when(reactiveAuthenticationManager.authenticate(ArgumentMatchers.any(Authentication.class))).thenAnswer(invocation -> {
+            final Authentication argument = invocation.getArgument(0);
+            if (!(argument instanceof BearerTokenAuthenticationToken)) {
+                return Mono.empty();
+            }
+            final String token = ((BearerTokenAuthenticationToken) argument).getToken();
+            switch (token) {
+                case "token":
+                    return Mono.just(new BearerTokenAuthenticationToken(token, "username", Collections.emptyList(), "jti", "family", EXPIRES_AT));
+                case "legacy":
+                    return Mono.just(new BearerTokenAuthenticationToken(token, "username", Collections.emptyList()));
+                default:
+                    return Mono.error(new BadCredentialsException("invalid token"));
+            }
+        });
+        Mockito.when(tokenRevocationService.revoke(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Mono.empty());
+        Mockito.when(refreshTokenFamilyRepository.revoke(ArgumentMatchers.anyString())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void ShouldRevokeTheTokenAndItsFamilyWhenAValidTokenLogsOut() {
+        client.post()
+                .uri(RELATIVE_URL)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer token")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+        Mockito.verify(tokenRevocationService).revoke("token", "jti", "username", EXPIRES_AT);
+        Mockito.verify(refreshTokenFamilyRepository).revoke("family");
+    }
+
+    @Test
+    void ShouldReturnResponseWithBadRequestStatusCodeWhenTheTokenHasNoId() {
+        client.post()
+                .uri(RELATIVE_URL)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer legacy")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+        Mockito.verifyNoInteractions(tokenRevocationService);
+    }
+
+    @Test
+    void ShouldReturnResponseWithUnauthorizedStatusCodeWhenTheTokenIsInvalid() {
+        client.post()
+                .uri(RELATIVE_URL)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer invalid")
+                .exchange()
+                .expectStatus()
+                .isUnauthorized();
+        Mockito.verifyNoInteractions(tokenRevocationService);
+    }
+}
@@ -7,6 +7,7 @@ import com.nimvb.app.discord.domain.User;
 import com.nimvb.app.discord.exception.UserNotFoundException;
 import com.nimvb.app.discord.exception.UsernameIsAlreadyExistsException;
 import com.nimvb.app.discord.request.UserRegistrationRequest;
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
 import com.nimvb.app.discord.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,12 +20,14 @@ import org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurity
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -53,6 +56,9 @@ class RegistrationControllerPublicTest {
             if(users.containsKey(request.getUsername())){
                 return Mono.error(new UsernameIsAlreadyExistsException(request.getUsername(),null));
             }
+            if(request.getUsername().equals("saturated")){
+                return Mono.error(new PasswordHashingUnavailableException("password hashing is saturated", Duration.ofSeconds(1)));
+            }
             User user = new User(request.getUsername(), request.getPassword(), request.getEmail());
             users.put(request.getUsername(), user);
             return Mono.just(user)
@@ -200,4 +206,23 @@ class RegistrationControllerPublicTest {
     }
 
 
-}
\ No newline at end of file
+
+    @Test
+    void ShouldReturnResponseWithServiceUnavailableAsStatusCodeWhenPasswordHashingIsSaturated() throws JsonProcessingException {
+
+        ObjectNode bodyWithValidData = mapper.createObjectNode()
+                .put("username", "saturated")
+                .put("password", "password")
+                .put("email", "email@email.com");
+
+        client.post()
+                .uri("/api/v1/users/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(mapper.writeValueAsString(bodyWithValidData))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(503)
+                .expectHeader()
+                .valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    }
+}
@@ -0,0 +1,106 @@
+package com.nimvb.app.discord.controller;
+
+import com.nimvb.app.discord.configuration.SecurityOfPrivateResourcesConfiguration;
+import com.nimvb.app.discord.configuration.SecurityOfPublicResourcesConfiguration;
+import com.nimvb.app.discord.model.UserImportResult;
+import com.nimvb.app.discord.security.resource.BearerTokenAuthenticationToken;
+import com.nimvb.app.discord.service.UserImportService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+
+
+@ExtendWith(SpringExtension.class)
+@WebFluxTest(controllers = {UserImportController.class})
+@Import({SecurityOfPublicResourcesConfiguration.class, SecurityOfPrivateResourcesConfiguration.class})
+@AutoConfigureWebTestClient(timeout = "PT15M")
+class UserImportControllerTest {
+
+    private static final String RELATIVE_URL = "/api/v1/admin/users/import";
+
+    @MockBean
+    ReactiveAuthenticationManager reactiveAuthenticationManager;
+
+    @MockBean
+    UserImportService userImportService;
+
+    @Autowired
+    WebTestClient client;
+
+    @BeforeEach
+    void init() {
+        Mockito.when(reactiveAuthenticationManager.authenticate(ArgumentMatchers.any(Authentication.class))).thenAnswer(invocation -> {
+            final Authentication argument = invocation.getArgument(0);
+            if (!(argument instanceof BearerTokenAuthenticationToken)) {
+                return Mono.empty();
+            }
+            final String token = ((BearerTokenAuthenticationToken) argument).getToken();
+            switch (token) {
+                case "admin":
+                    return Mono.just(new BearerTokenAuthenticationToken(token, "admin", List.of(new SimpleGrantedAuthority("ADMIN"))));
+                case "user":
+                    return Mono.just(new BearerTokenAuthenticationToken(token, "user", Collections.emptyList()));
+                default:
+                    return Mono.error(new BadCredentialsException("invalid token"));
+            }
+        });
+        Mockito.when(userImportService.importUsers(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            final Flux<String> lines = invocation.getArgument(0);
+            return lines.index((index, line) -> UserImportResult.created(index + 1, line));
+        });
+    }
+
+    @Test
+    void ShouldStreamTheResultOfEveryLineWhenAnAdminImportsUsers() {
+        client.post()
+                .uri(RELATIVE_URL)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer admin")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("first\nsecond\r\nthird")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(body -> Assertions.assertThat(body.split("\n"))
+                        .containsExactly(
+                                "{\"line\":1,\"username\":\"first\",\"status\":\"CREATED\"}",
+                                "{\"line\":2,\"username\":\"second\",\"status\":\"CREATED\"}",
+                                "{\"line\":3,\"username\":\"third\",\"status\":\"CREATED\"}"));
+    }
+
+    @Test
+    void ShouldReturnForbiddenWhenAUserWhichIsNotAnAdminImportsUsers() {
+        client.post()
+                .uri(RELATIVE_URL)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer user")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("first")
+                .exchange()
+                .expectStatus()
+                .isForbidden();
+        Mockito.verifyNoInteractions(userImportService);
+    }
+}
@@ -0,0 +1,103 @@
+package com.nimvb.app.discord.repository;
+
+import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.util.UserBuilder;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@ExtendWith(SpringExtension.class)
+class InMemoryUserRepositoryTest extends UserRepositoryContract {
+
+    InMemoryUserRepository repository;
+
+    @BeforeEach
+    void init() {
+        // a capacity of one makes every test grow the arrays
+        repository = new InMemoryUserRepository(1, null);
+    }
+
+    @Override
+    UserRepository repository() {
+        return repository;
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheCapacityIsInvalid() {
+        Assertions.assertThatThrownBy(() -> new InMemoryUserRepository(0, null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ShouldFindEveryUserWhenManyUsersAreSavedAndHalfOfThemAreDeleted() {
+        final List<User> users = IntStream.range(0, 1_000)
+                .mapToObj(index -> UserBuilder.build("user" + index, "password", "user" + index + "@email.com"))
+                .collect(Collectors.toList());
+        repository.saveAll(users).blockLast();
+        Flux.range(0, users.size()).filter(index -> index % 2 == 0).map(users::get).concatMap(repository::delete).blockLast();
+
+        for (int index = 0; index < users.size(); index++) {
+            final User user = users.get(index);
+            StepVerifier.create(repository.findByUsername(user.getUsername()))
+                    .expectNextCount(index % 2 == 0 ? 0 : 1)
+                    .verifyComplete();
+            StepVerifier.create(repository.findByEmail(user.getEmail()))
+                    .expectNextCount(index % 2 == 0 ? 0 : 1)
+                    .verifyComplete();
+        }
+        StepVerifier.create(repository.count()).expectNext(500L).verifyComplete();
+    }
+
+    @Test
+    void ShouldKeepTheUsersWhenTheyAreSnapshottedAndLoadedAgain(@TempDir Path directory) throws Exception {
+        final Path snapshot = directory.resolve("users.snapshot");
+        final InMemoryUserRepository snapshotted = new InMemoryUserRepository(16, snapshot);
+        final User locked = User.builder()
+                .withUsername("locked")
+                .withPassword("password")
+                .withEmail("locked@email.com")
+                .withRoles(List.of("USER"))
+                .withLocked(true)
+                .build();
+        snapshotted.saveAll(List.of(UserBuilder.build("username", "password", "email@email.com"), locked)).blockLast();
+        snapshotted.destroy();
+
+        final InMemoryUserRepository loaded = new InMemoryUserRepository(16, snapshot);
+        StepVerifier.create(loaded.findAll())
+                .expectNext(UserBuilder.build("username", "password", "email@email.com"), locked)
+                .verifyComplete();
+    }
+
+    @Test
+    void ShouldFreeTheUsernameAndTheEmailWhenTheUserIsDeleted() {
+        final User first = UserBuilder.build("first", "password", "first@email.com");
+        final User second = UserBuilder.build("second", "password", "second@email.com");
+        repository.saveAll(List.of(first, second)).blockLast();
+
+        StepVerifier.create(repository.delete(first)).verifyComplete();
+
+        StepVerifier.create(repository.findByUsername("first")).expectNextCount(0).verifyComplete();
+        StepVerifier.create(repository.findByEmail("first@email.com")).expectNextCount(0).verifyComplete();
+        StepVerifier.create(repository.findByUsername("second")).expectNext(second).verifyComplete();
+        StepVerifier.create(repository.findByEmail("second@email.com")).expectNext(second).verifyComplete();
+        StepVerifier.create(repository.save(UserBuilder.build("first", "password", "first@email.com")))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnErrorWhenAnOperationByIdIsRequested() {
+        StepVerifier.create(repository.findById(new org.bson.types.ObjectId()))
+                .expectError(UnsupportedOperationException.class)
+                .verify();
+    }
+}
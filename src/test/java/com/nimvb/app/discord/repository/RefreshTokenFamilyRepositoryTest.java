@@ -0,0 +1,90 @@
+package com.nimvb.app.discord.repository;
+
+import com.nimvb.app.discord.configuration.MongoConfiguration;
+import com.nimvb.app.discord.domain.RefreshTokenFamily;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@ExtendWith(SpringExtension.class)
+@DataMongoTest
+@Import({ValidationAutoConfiguration.class, MongoConfiguration.class})
+@TestPropertySource(properties = {
+        "spring.mongodb.embedded.version=3.5.5",
+        "spring.data.mongodb.auto-index-creation=true"
+})
+@DirtiesContext
+class RefreshTokenFamilyRepositoryTest {
+
+    @Autowired
+    ReactiveMongoTemplate template;
+
+    @Autowired
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    private final Instant expiresAt = Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.MILLIS);
+
+    @AfterEach
+    public void destroy() {
+        template.dropCollection(RefreshTokenFamily.class).block();
+    }
+
+    @Test
+    void ShouldReplaceTheTokenIdAndKeepTheExpirationWhenTheCurrentTokenIdIsRotated() {
+        refreshTokenFamilyRepository.save(new RefreshTokenFamily("family", "username", "first", false, expiresAt)).block();
+
+        StepVerifier.create(refreshTokenFamilyRepository.rotate("family", "first", "second", Instant.now()))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(refreshTokenFamilyRepository.findById("family"))
+                .expectNext(new RefreshTokenFamily("family", "username", "second", false, expiresAt))
+                .verifyComplete();
+    }
+
+    @Test
+    void ShouldRevokeTheFamilyWhenItIsRotatedAfterItsExpiration() {
+        refreshTokenFamilyRepository.save(new RefreshTokenFamily("family", "username", "first", false, expiresAt)).block();
+
+        StepVerifier.create(refreshTokenFamilyRepository.rotate("family", "first", "second", expiresAt))
+                .expectNext(false)
+                .verifyComplete();
+        StepVerifier.create(refreshTokenFamilyRepository.findById("family"))
+                .expectNext(new RefreshTokenFamily("family", "username", "first", true, expiresAt))
+                .verifyComplete();
+    }
+
+    @Test
+    void ShouldRevokeTheFamilyWhenAnAlreadyRotatedTokenIdIsReused() {
+        refreshTokenFamilyRepository.save(new RefreshTokenFamily("family", "username", "first", false, expiresAt)).block();
+        refreshTokenFamilyRepository.rotate("family", "first", "second", Instant.now()).block();
+
+        StepVerifier.create(refreshTokenFamilyRepository.rotate("family", "first", "third", Instant.now()))
+                .expectNext(false)
+                .verifyComplete();
+        StepVerifier.create(refreshTokenFamilyRepository.rotate("family", "second", "third", Instant.now()))
+                .expectNext(false)
+                .verifyComplete();
+        StepVerifier.create(refreshTokenFamilyRepository.findById("family"))
+                .expectNext(new RefreshTokenFamily("family", "username", "second", true, expiresAt))
+                .verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnFalseWhenTheFamilyDoesNotExist() {
+        StepVerifier.create(refreshTokenFamilyRepository.rotate("unknown", "first", "second", Instant.now()))
+                .expectNext(false)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,56 @@
+package com.nimvb.app.discord.repository;
+
+import com.nimvb.app.discord.configuration.MongoConfiguration;
+import com.nimvb.app.discord.domain.RevokedToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@ExtendWith(SpringExtension.class)
+@DataMongoTest
+@Import({ValidationAutoConfiguration.class, MongoConfiguration.class})
+@TestPropertySource(properties = {
+        "spring.mongodb.embedded.version=3.5.5",
+        "spring.data.mongodb.auto-index-creation=true"
+})
+@DirtiesContext
+class RevokedTokenRepositoryTest {
+
+    @Autowired
+    ReactiveMongoTemplate template;
+
+    @Autowired
+    RevokedTokenRepository revokedTokenRepository;
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @AfterEach
+    public void destroy() {
+        template.dropCollection(RevokedToken.class).block();
+    }
+
+    @Test
+    void ShouldFindOnlyTheTokensRevokedSinceTheGivenInstant() {
+        RevokedToken older = new RevokedToken("older", "username", now.minusSeconds(60), now.plusSeconds(3600));
+        RevokedToken newer = new RevokedToken("newer", "username", now, now.plusSeconds(3600));
+        revokedTokenRepository.save(older).block();
+        revokedTokenRepository.save(newer).block();
+
+        StepVerifier.create(revokedTokenRepository.findByRevokedAtGreaterThanEqual(now.minusSeconds(5)))
+                .expectNext(newer)
+                .verifyComplete();
+        StepVerifier.create(revokedTokenRepository.existsById("older")).expectNext(true).verifyComplete();
+    }
+}
@@ -0,0 +1,143 @@
+package com.nimvb.app.discord.repository;
+
+import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.domain.UserCredentials;
+import com.nimvb.app.discord.util.UserBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+/**
+ * What every {@link UserRepository} does, whatever keeps the users; every implementation runs it on an empty store
+ */
+abstract class UserRepositoryContract {
+
+    abstract UserRepository repository();
+
+    @Test
+    void ShouldReturnTheUserWhenTheUsernameIsProvided(){
+        User user = UserBuilder.build("username","password","email@email.com");
+        repository().save(user).block();
+
+
+        final Mono<User> target = repository().findByUsername("username");
+        final Mono<User> nothing = repository().findByUsername("other");
+        StepVerifier.create(target)
+                .expectNextCount(1)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(target)
+                .expectNext(user)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(nothing)
+                .expectNextCount(0)
+                .expectComplete()
+                .verify();
+
+
+
+    }
+
+    @Test
+    void ShouldReturnTheUserWhenTheEmailIsProvided(){
+        User user = UserBuilder.build("username","password","email@email.com");
+        repository().save(user).block();
+
+
+        final Mono<User> target = repository().findByEmail("email@email.com");
+        final Mono<User> nothing = repository().findByEmail("other");
+        StepVerifier.create(target)
+                .expectNextCount(1)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(target)
+                .expectNext(user)
+                .expectComplete()
+                .verify();
+
+        StepVerifier.create(nothing)
+                .expectNextCount(0)
+                .expectComplete()
+                .verify();
+
+
+
+    }
+
+    @Test
+    void ShouldReplaceOnlyThePasswordWhenThePasswordOfAnExistingUserIsUpdated(){
+        User user = UserBuilder.build("username","password","email@email.com");
+        repository().save(user).block();
+
+        StepVerifier.create(repository().updatePassword("username", "rehashed"))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(repository().updatePassword("other", "rehashed"))
+                .expectNext(false)
+                .verifyComplete();
+        StepVerifier.create(repository().findAll())
+                .expectNext(UserBuilder.build("username","rehashed","email@email.com"))
+                .verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnOnlyTheCredentialsWhenTheCredentialsOfAnExistingUserAreRequested(){
+        User user = User.builder()
+                .withUsername("username")
+                .withPassword("password")
+                .withEmail("email@email.com")
+                .withRoles(List.of("USER", "ADMIN"))
+                .withLocked(true)
+                .build();
+        repository().save(user).block();
+
+        StepVerifier.create(repository().findCredentials("username"))
+                .expectNext(new UserCredentials("username", "password", "USER ADMIN", false, true))
+                .verifyComplete();
+        StepVerifier.create(repository().findCredentials("other"))
+                .expectNextCount(0)
+                .verifyComplete();
+    }
+
+    @Test
+    void ShouldProvideTheLatestCredentialsWhenAnExistingUserIsRequested(){
+        repository().save(UserBuilder.build("username","password","email@email.com")).block();
+        repository().updatePassword("username", "changed").block();
+
+        StepVerifier.create(repository().findLatestCredentials("username"))
+                .expectNext(new UserCredentials("username", "changed", null, false, false))
+                .verifyComplete();
+        StepVerifier.create(repository().findLatestCredentials("other"))
+                .expectNextCount(0)
+                .verifyComplete();
+    }
+
+    /**
+     * {@link User} maps no id, so saving to MongoDB always inserts and never replaces a stored user; every
+     * implementation rejects a user whose username or email is taken, even when it is the very same user
+     */
+    @Test
+    void ShouldRejectTheUserWhenItsUsernameOrEmailIsAlreadyTaken(){
+        repository().save(UserBuilder.build("username","password","email@email.com")).block();
+
+        StepVerifier.create(repository().save(UserBuilder.build("username","password","other@email.com")))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+        StepVerifier.create(repository().save(UserBuilder.build("other","password","email@email.com")))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+        StepVerifier.create(repository().save(UserBuilder.build("username","changed","email@email.com")))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+        StepVerifier.create(repository().count())
+                .expectNext(1L)
+                .verifyComplete();
+    }
+}
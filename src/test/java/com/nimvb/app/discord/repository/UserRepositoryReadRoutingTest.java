@@ -0,0 +1,104 @@
+package com.nimvb.app.discord.repository;
+
+import com.mongodb.ReadPreference;
+import com.nimvb.app.discord.configuration.MongoConfiguration;
+import com.nimvb.app.discord.domain.UserCredentials;
+import com.nimvb.app.discord.util.UserBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The embedded fixture starts a replica set of a single member, so the secondary reads are answered by the primary
+ * it falls back to; what is verified is the routing of every read, its fallback and its metrics
+ */
+@ExtendWith(SpringExtension.class)
+@DataMongoTest
+@Import({ValidationAutoConfiguration.class, MongoConfiguration.class, UserRepositoryReadRoutingTest.MetricsConfiguration.class})
+@TestPropertySource(properties = {
+        "spring.mongodb.embedded.version=3.5.5",
+        "spring.mongodb.embedded.storage.repl-set-name=rs0",
+        "spring.data.mongodb.read-routing.credentials.read-preference=secondaryPreferred",
+        "spring.data.mongodb.read-routing.credentials.max-staleness=90s"
+})
+@DirtiesContext
+class UserRepositoryReadRoutingTest {
+
+    @TestConfiguration
+    static class MetricsConfiguration {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    ReactiveMongoTemplate template;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    MongoReadRouting readRouting;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @AfterEach
+    void destroy() {
+        template.dropCollection("users").block();
+    }
+
+    @Test
+    void ShouldRouteEveryReadByItsConfiguredReadPreference() {
+        Assertions.assertThat(readRouting.readPreference(ReadRoute.CREDENTIALS))
+                .isEqualTo(ReadPreference.secondaryPreferred(90, TimeUnit.SECONDS));
+        Assertions.assertThat(readRouting.operations(ReadRoute.CREDENTIALS)).isNotSameAs(readRouting.primary());
+    }
+
+    @Test
+    void ShouldReadTheCredentialsThroughTheirRouteAndRecordTheLatencyOfIt() {
+        template.save(UserBuilder.build("username", "password", "email@email.com")).block();
+
+        StepVerifier.create(userRepository.findCredentials("username"))
+                .expectNext(new UserCredentials("username", "password", null, false, false))
+                .verifyComplete();
+        StepVerifier.create(userRepository.findCredentials("other"))
+                .expectNextCount(0)
+                .verifyComplete();
+
+        Assertions.assertThat(meterRegistry.get("mongodb.reads")
+                        .tag("route", "credentials")
+                        .tag("read.preference", "secondaryPreferred")
+                        .timer()
+                        .count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void ShouldReadTheLatestCredentialsFromThePrimaryWithoutTheRoute() {
+        template.save(UserBuilder.build("username", "password", "email@email.com")).block();
+        final long routed = meterRegistry.get("mongodb.reads").tag("route", "credentials").timer().count();
+
+        StepVerifier.create(userRepository.findLatestCredentials("username"))
+                .expectNext(new UserCredentials("username", "password", null, false, false))
+                .verifyComplete();
+        Assertions.assertThat(meterRegistry.get("mongodb.reads").tag("route", "credentials").timer().count()).isEqualTo(routed);
+    }
+}
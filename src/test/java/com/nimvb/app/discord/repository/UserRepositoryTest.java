@@ -3,6 +3,8 @@ package com.nimvb.app.discord.repository;
 import com.nimvb.app.discord.configuration.MongoConfiguration;
 import com.nimvb.app.discord.domain.User;
 import com.nimvb.app.discord.util.UserBuilder;
+import org.assertj.core.api.Assertions;
+import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,12 +14,14 @@ import org.springframework.boot.autoconfigure.validation.ValidationAutoConfigura
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 import org.springframework.data.mongodb.core.mapping.event.ValidatingMongoEventListener;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
-import reactor.core.publisher.Mono;
-import reactor.test.StepVerifier;
+import reactor.core.publisher.Flux;
 
 @ExtendWith(SpringExtension.class)
 @DataMongoTest
@@ -27,7 +31,7 @@ import reactor.test.StepVerifier;
         "spring.data.mongodb.auto-index-creation=true"
 })
 @DirtiesContext
-class UserRepositoryTest {
+class UserRepositoryTest extends UserRepositoryContract {
 
     @Autowired
     ReactiveMongoTemplate template;
@@ -38,6 +42,9 @@ class UserRepositoryTest {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    MongoMappingContext mappingContext;
+
     @BeforeEach
     public void init() {
         template
@@ -48,8 +55,10 @@ class UserRepositoryTest {
                                 .createCollection("users")
                                 .thenReturn("users"))
                 .blockFirst();
-
-
+        // the collection is dropped after each test, so its indexes are gone too
+        Flux.fromIterable(new MongoPersistentEntityIndexResolver(mappingContext).resolveIndexFor(User.class))
+                .flatMap(index -> template.indexOps(User.class).ensureIndex(index))
+                .blockLast();
     }
 
     @AfterEach
@@ -57,58 +66,30 @@ class UserRepositoryTest {
         template.dropCollection("users").block();
     }
 
-    @Test
-    void ShouldReturnTheUserWhenTheUsernameIsProvided(){
-        User user = UserBuilder.build("username","password","email@email.com");
-        template.save(user).block();
-
-
-        final Mono<User> target = userRepository.findByUsername("username");
-        final Mono<User> nothing = userRepository.findByUsername("other");
-        StepVerifier.create(target)
-                .expectNextCount(1)
-                .expectComplete()
-                .verify();
-
-        StepVerifier.create(target)
-                .expectNext(user)
-                .expectComplete()
-                .verify();
-
-        StepVerifier.create(nothing)
-                .expectNextCount(0)
-                .expectComplete()
-                .verify();
-
-
-
+    @Override
+    UserRepository repository() {
+        return userRepository;
     }
 
     @Test
-    void ShouldReturnTheUserWhenTheEmailIsProvided(){
-        User user = UserBuilder.build("username","password","email@email.com");
-        template.save(user).block();
-
-
-        final Mono<User> target = userRepository.findByEmail("email@email.com");
-        final Mono<User> nothing = userRepository.findByEmail("other");
-        StepVerifier.create(target)
-                .expectNextCount(1)
-                .expectComplete()
-                .verify();
-
-        StepVerifier.create(target)
-                .expectNext(user)
-                .expectComplete()
-                .verify();
-
-        StepVerifier.create(nothing)
-                .expectNextCount(0)
-                .expectComplete()
-                .verify();
-
-
-
+    void ShouldAnswerTheCredentialsFromTheIndexWithoutExaminingAnyDocumentWhenTheCredentialsAreRequested(){
+        template.save(UserBuilder.build("username","password","email@email.com")).block();
+        template.save(UserBuilder.build("other","password","other@email.com")).block();
+
+        final Query query = UserRepositoryCustomImpl.credentialsQuery("username");
+        final Document explain = template.executeCommand(new Document("explain", new Document("find", "users")
+                        .append("filter", query.getQueryObject())
+                        .append("projection", query.getFieldsObject()))
+                .append("verbosity", "executionStats"))
+                .block();
+
+        Assertions.assertThat(explain).isNotNull();
+        final Document executionStats = explain.get("executionStats", Document.class);
+        Assertions.assertThat(executionStats.get("nReturned", Number.class).intValue()).isEqualTo(1);
+        Assertions.assertThat(executionStats.get("totalDocsExamined", Number.class).intValue()).isZero();
+        Assertions.assertThat(explain.get("queryPlanner", Document.class).toJson())
+                .contains(User.CREDENTIALS_INDEX)
+                .doesNotContain("FETCH");
     }
 
-}
\ No newline at end of file
+}
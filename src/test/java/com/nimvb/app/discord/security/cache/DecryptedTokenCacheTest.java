@@ -0,0 +1,86 @@
+package com.nimvb.app.discord.security.cache;
+
+import com.nimvb.app.discord.security.util.Jwe;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+class DecryptedTokenCacheTest {
+
+    private static final Instant NOW = Instant.parse("2022-02-01T10:00:00Z");
+
+    Jwe.KeyRing keyRing;
+
+    DecryptedTokenCache cache;
+
+    @BeforeEach
+    void init() throws Exception {
+        keyRing = Jwe.KeyRing.of(Jwe.Algorithm.AES128HS256("current", "secret"));
+        cache = new DecryptedTokenCache(10, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void ShouldReturnTheEntryWhenTheTokenIsCached() {
+        final DecryptedTokenCache.Entry entry = entry(NOW.plusSeconds(60));
+        cache.put("token", keyRing, entry);
+        Assertions.assertThat(cache.get("token", keyRing)).isSameAs(entry);
+        Assertions.assertThat(cache.get("another-token", keyRing)).isNull();
+    }
+
+    @Test
+    void ShouldReturnNullWhenTheCachedTokenIsExpired() {
+        cache.put("token", keyRing, entry(NOW.minusSeconds(1)));
+        Assertions.assertThat(cache.get("token", keyRing)).isNull();
+    }
+
+    @Test
+    void ShouldReturnNullWhenTheTokenIsInvalidated() {
+        cache.put("token", keyRing, entry(NOW.plusSeconds(60)));
+        cache.invalidate("token");
+        Assertions.assertThat(cache.get("token", keyRing)).isNull();
+    }
+
+    @Test
+    void ShouldDropAllEntriesWhenTheKeyRingChanges() throws Exception {
+        cache.put("token", keyRing, entry(NOW.plusSeconds(60)));
+        Assertions.assertThat(cache.get("token", keyRing)).isNotNull();
+        final Jwe.KeyRing rotated = Jwe.KeyRing.of(Jwe.Algorithm.AES128HS256("next", "secret"));
+        Assertions.assertThat(cache.get("token", rotated)).isNull();
+        Assertions.assertThat(cache.get("token", keyRing)).isNull();
+    }
+
+    @Test
+    void ShouldMissAnEntryPutWithTheOutgoingKeyRingAfterTheRotation() throws Exception {
+        final Jwe.KeyRing rotated = Jwe.KeyRing.of(Jwe.Algorithm.AES128HS256("next", "secret"));
+        Assertions.assertThat(cache.get("token", rotated)).isNull();
+        // a request which decrypted the token with the outgoing key ring finishes after the rotation
+        cache.put("token", keyRing, entry(NOW.plusSeconds(60)));
+        Assertions.assertThat(cache.get("token", rotated)).isNull();
+
+        final DecryptedTokenCache.Entry entry = entry(NOW.plusSeconds(60));
+        cache.put("other-token", rotated, entry);
+        cache.put("late-token", keyRing, entry(NOW.plusSeconds(60)));
+        Assertions.assertThat(cache.get("other-token", rotated)).isSameAs(entry);
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenNullArgumentsAreGiven() {
+        Assertions.assertThatThrownBy(() -> new DecryptedTokenCache(10, null)).isInstanceOf(NullPointerException.class);
+        Assertions.assertThatThrownBy(() -> cache.get(null, keyRing)).isInstanceOf(NullPointerException.class);
+        Assertions.assertThatThrownBy(() -> cache.get("token", null)).isInstanceOf(NullPointerException.class);
+        Assertions.assertThatThrownBy(() -> cache.put("token", keyRing, null)).isInstanceOf(NullPointerException.class);
+    }
+
+    private static DecryptedTokenCache.Entry entry(Instant expiresAt) {
+        return new DecryptedTokenCache.Entry("subject", List.of(new SimpleGrantedAuthority("user")), expiresAt);
+    }
+}
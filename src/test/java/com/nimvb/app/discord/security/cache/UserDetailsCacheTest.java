@@ -0,0 +1,123 @@
+package com.nimvb.app.discord.security.cache;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+
+@ExtendWith(SpringExtension.class)
+class UserDetailsCacheTest {
+
+    private final UserDetailsCache cache = new UserDetailsCache(100, Duration.ofMinutes(1));
+
+    private static UserDetails user(String username) {
+        return User.withUsername(username).password("password").authorities(Collections.emptyList()).build();
+    }
+
+    @Test
+    void ShouldLoadTheUserOnlyOnceWhenItIsRequestedRepeatedly() {
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Mono<UserDetails>> loader = username -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return user(username);
+        });
+
+        StepVerifier.create(cache.get("username", loader)).expectNext(user("username")).verifyComplete();
+        StepVerifier.create(cache.get("username", loader)).expectNext(user("username")).verifyComplete();
+
+        Assertions.assertThat(loads).hasValue(1);
+        Assertions.assertThat(cache.getNativeCache().stats().hitCount()).isEqualTo(1);
+        Assertions.assertThat(cache.getNativeCache().stats().loadSuccessCount()).isEqualTo(1);
+    }
+
+    @Test
+    void ShouldShareASingleLoadWhenTheUserIsRequestedConcurrently() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<UserDetails> lookup = Sinks.one();
+        Function<String, Mono<UserDetails>> loader = username -> {
+            loads.incrementAndGet();
+            return lookup.asMono();
+        };
+
+        Mono<UserDetails> first = cache.get("username", loader);
+        Mono<UserDetails> second = cache.get("username", loader);
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> lookup.tryEmitValue(user("username")))
+                .assertNext(both -> Assertions.assertThat(both.getT1()).isEqualTo(both.getT2()))
+                .verifyComplete();
+
+        Assertions.assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void ShouldNotCacheTheUserWhenItIsNotFoundOrFailsToLoad() {
+        AtomicInteger loads = new AtomicInteger();
+
+        StepVerifier.create(cache.get("username", username -> {
+            loads.incrementAndGet();
+            return Mono.empty();
+        })).verifyComplete();
+        StepVerifier.create(cache.get("username", username -> {
+            loads.incrementAndGet();
+            return Mono.error(new IllegalStateException());
+        })).expectError(IllegalStateException.class).verify();
+        StepVerifier.create(cache.get("username", username -> {
+            loads.incrementAndGet();
+            return Mono.just(user(username));
+        })).expectNextCount(1).verifyComplete();
+
+        Assertions.assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void ShouldLoadTheUserAgainWhenItIsInvalidated() {
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Mono<UserDetails>> loader = username -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return user(username);
+        });
+
+        cache.get("username", loader).block();
+        cache.invalidate("username");
+        cache.get("username", loader).block();
+
+        Assertions.assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void ShouldLoadEveryUserAgainWhenAllAreInvalidated() {
+        AtomicInteger loads = new AtomicInteger();
+        Function<String, Mono<UserDetails>> loader = username -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return user(username);
+        });
+
+        cache.get("first", loader).block();
+        cache.get("second", loader).block();
+        cache.invalidateAll();
+        cache.get("first", loader).block();
+        cache.get("second", loader).block();
+
+        Assertions.assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void ShouldChangeHowLongTheUsersAreKeptWhenItIsSet() {
+        cache.setExpireAfterWrite(Duration.ofSeconds(5));
+        Assertions.assertThat(cache.getExpireAfterWrite()).isEqualTo(Duration.ofSeconds(5));
+
+        cache.setExpireAfterWrite(Duration.ofMinutes(1));
+        Assertions.assertThat(cache.getExpireAfterWrite()).isEqualTo(Duration.ofMinutes(1));
+    }
+}
@@ -0,0 +1,51 @@
+package com.nimvb.app.discord.security.converter;
+
+import com.nimvb.app.discord.security.resource.RefreshTokenAuthenticationToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+
+@ExtendWith(SpringExtension.class)
+class ServerGrantTypeAuthenticationConverterTest {
+
+    private final ServerGrantTypeAuthenticationConverter converter =
+            new ServerGrantTypeAuthenticationConverter(new ServerUsernamePasswordAuthenticationConverter());
+
+    private static MockServerWebExchange exchange(String form) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/").contentType(MediaType.APPLICATION_FORM_URLENCODED).body(form));
+    }
+
+    @Test
+    void ShouldReturnEmptyMonoWhenANULLExchangeIsPassed() {
+        StepVerifier.create(converter.convert(null)).expectNextCount(0).verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnMonoWithUsernamePasswordTokenWhenNoGrantTypeIsPassed() {
+        Mono<Authentication> token = converter.convert(exchange("username=username&password=password"));
+
+        StepVerifier.create(token).expectNext(new UsernamePasswordAuthenticationToken("username", "password")).verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnMonoWithRefreshTokenWhenTheRefreshTokenGrantIsPassed() {
+        Mono<Authentication> token = converter.convert(exchange("grant_type=refresh_token&refresh_token=token"));
+
+        StepVerifier.create(token).expectNext(new RefreshTokenAuthenticationToken("token")).verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnEmptyMonoWhenTheRefreshTokenGrantIsPassedWithoutAToken() {
+        Mono<Authentication> token = converter.convert(exchange("grant_type=refresh_token"));
+
+        StepVerifier.create(token).expectNextCount(0).verifyComplete();
+    }
+}
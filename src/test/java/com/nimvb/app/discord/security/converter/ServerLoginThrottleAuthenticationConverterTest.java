@@ -0,0 +1,73 @@
+package com.nimvb.app.discord.security.converter;
+
+import com.nimvb.app.discord.security.exception.LoginThrottledException;
+import com.nimvb.app.discord.security.service.LoginThrottle;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.time.Clock;
+import java.time.Duration;
+
+
+@ExtendWith(SpringExtension.class)
+class ServerLoginThrottleAuthenticationConverterTest {
+
+    private final LoginThrottle.Policy policy =
+            new LoginThrottle.Policy(1, Duration.ofMinutes(1), Duration.ofSeconds(10), Duration.ofSeconds(10), 1000);
+    private final LoginThrottle throttle = new LoginThrottle(policy, policy, Clock.systemUTC());
+    private final ServerLoginThrottleAuthenticationConverter converter =
+            new ServerLoginThrottleAuthenticationConverter(new ServerUsernamePasswordAuthenticationConverter(), throttle);
+
+    private static MockServerWebExchange exchange(String form, String address) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/")
+                .remoteAddress(new InetSocketAddress(address, 4000))
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(form));
+    }
+
+    @Test
+    void ShouldReturnEmptyMonoWhenANULLExchangeIsPassed() {
+        StepVerifier.create(converter.convert(null)).expectNextCount(0).verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnMonoWithTheTokenAndKeepTheUsernameWhenTheLoginIsNotThrottled() {
+        MockServerWebExchange exchange = exchange("username=username&password=password", "127.0.0.1");
+
+        StepVerifier.create(converter.convert(exchange))
+                .expectNext(new UsernamePasswordAuthenticationToken("username", "password"))
+                .verifyComplete();
+        Assertions.assertThat(exchange.<String>getAttribute(ServerLoginThrottleAuthenticationConverter.USERNAME_ATTRIBUTE)).isEqualTo("username");
+        Assertions.assertThat(ServerLoginThrottleAuthenticationConverter.clientAddress(exchange)).isEqualTo("127.0.0.1");
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenTheUsernameIsThrottled() {
+        throttle.recordFailure("username", null);
+
+        StepVerifier.create(converter.convert(exchange("username=username&password=password", "127.0.0.1")))
+                .expectErrorSatisfies(throwable -> {
+                    Assertions.assertThat(throwable).isInstanceOf(LoginThrottledException.class);
+                    Assertions.assertThat(throwable.getStackTrace()).isEmpty();
+                })
+                .verify();
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenTheClientAddressIsThrottled() {
+        throttle.recordFailure(null, "10.0.0.1");
+
+        StepVerifier.create(converter.convert(exchange("username=anotheruser&password=password", "10.0.0.1")))
+                .expectErrorSatisfies(throwable -> Assertions.assertThat(((LoginThrottledException) throwable).getRetryAfter())
+                        .isPositive())
+                .verify();
+    }
+}
@@ -1,8 +1,12 @@
 package com.nimvb.app.discord.security.entrypoint;
 
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
+import com.nimvb.app.discord.security.exception.LoginThrottledException;
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
@@ -12,6 +16,8 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+
 @ExtendWith(SpringExtension.class)
 class UsernamePasswordTokenServerAuthenticationEntryPointTest {
 
@@ -43,4 +49,61 @@ class UsernamePasswordTokenServerAuthenticationEntryPointTest {
         Assertions.assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
     }
 
-}
\ No newline at end of file
+    @Test
+    void ShouldReturnServiceUnavailableResponseWithRetryAfterWhenPasswordHashingIsSaturated() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .get(RELATIVE_URL)
+                .build());
+        UsernamePasswordTokenServerAuthenticationEntryPoint entryPoint =
+                new UsernamePasswordTokenServerAuthenticationEntryPoint();
+        Mono<Void> commence = entryPoint.commence(exchange,
+                new PasswordHashingUnavailableException("password hashing is saturated", Duration.ofSeconds(2)));
+        StepVerifier.create(commence).verifyComplete();
+        MockServerHttpResponse response = exchange.getResponse();
+        Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        Assertions.assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+
+        MockServerWebExchange shortRetry = MockServerWebExchange.from(MockServerHttpRequest.get(RELATIVE_URL).build());
+        StepVerifier.create(entryPoint.commence(shortRetry,
+                new PasswordHashingUnavailableException("password hashing is saturated", Duration.ofMillis(200)))).verifyComplete();
+        Assertions.assertThat(shortRetry.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    @Test
+    void ShouldReturnTooManyRequestsResponseWithRetryAfterWhenTheLoginIsThrottled() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .get(RELATIVE_URL)
+                .build());
+        UsernamePasswordTokenServerAuthenticationEntryPoint entryPoint =
+                new UsernamePasswordTokenServerAuthenticationEntryPoint();
+        Mono<Void> commence = entryPoint.commence(exchange,
+                new LoginThrottledException("too many failed logins", Duration.ofMillis(30_500)));
+        StepVerifier.create(commence).verifyComplete();
+        MockServerHttpResponse response = exchange.getResponse();
+        Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        Assertions.assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("31");
+    }
+
+    @Test
+    void ShouldTellTheTokenIsInvalidOnlyWhenATokenIsRejected() {
+        UsernamePasswordTokenServerAuthenticationEntryPoint entryPoint =
+                new UsernamePasswordTokenServerAuthenticationEntryPoint();
+        MockServerWebExchange token = MockServerWebExchange.from(MockServerHttpRequest
+                .get(RELATIVE_URL)
+                .build());
+        StepVerifier.create(entryPoint.commence(token,
+                new AuthenticationFailedException(AuthenticationFailedException.Reason.EXPIRED_TOKEN, "invalid token"))).verifyComplete();
+        Assertions.assertThat(token.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        Assertions.assertThat(token.getResponse().getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE))
+                .isEqualTo("Bearer error=\"invalid_token\"");
+
+        MockServerWebExchange credentials = MockServerWebExchange.from(MockServerHttpRequest
+                .get(RELATIVE_URL)
+                .build());
+        StepVerifier.create(entryPoint.commence(credentials,
+                new AuthenticationFailedException(AuthenticationFailedException.Reason.ACCOUNT_LOCKED, "invalid username or password"))).verifyComplete();
+        Assertions.assertThat(credentials.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        Assertions.assertThat(credentials.getResponse().getHeaders().containsKey(HttpHeaders.WWW_AUTHENTICATE)).isFalse();
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.nimvb.app.discord.security.filter;
+
+import com.nimvb.app.discord.security.service.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+
+@ExtendWith(SpringExtension.class)
+class ConcurrencyLimitWebFilterTest {
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("chain", 1, 1, 10, 1.5, 0.2, new SimpleMeterRegistry());
+    private final ConcurrencyLimitWebFilter  filter  = new ConcurrencyLimitWebFilter(exchange -> limiter);
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/logout").build());
+    }
+
+    @Test
+    void ShouldReturnServiceUnavailableWhenTheLimitIsReached() {
+        final Sinks.Empty<Void> pending = Sinks.empty();
+        StepVerifier.create(filter.filter(exchange(), exchange -> pending.asMono()))
+                .then(() -> {
+                    final MockServerWebExchange rejected = exchange();
+                    StepVerifier.create(filter.filter(rejected, exchange -> Mono.empty())).verifyComplete();
+                    Assertions.assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    Assertions.assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+                    pending.tryEmitEmpty();
+                })
+                .verifyComplete();
+
+        Assertions.assertThat(limiter.getInFlight()).isZero();
+        StepVerifier.create(filter.filter(exchange(), exchange -> Mono.empty())).verifyComplete();
+    }
+
+    @Test
+    void ShouldGiveTheSlotBackWhenTheRequestIsCancelledOrDropped() {
+        StepVerifier.create(filter.filter(exchange(), exchange -> Mono.never())).thenCancel().verify();
+        Assertions.assertThat(limiter.getInFlight()).isZero();
+
+        StepVerifier.create(filter.filter(exchange(), exchange -> Mono.fromRunnable(() ->
+                        exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE))))
+                .verifyComplete();
+        Assertions.assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void ShouldLetTheRequestThroughWithoutASlotWhenItsChainHasNoLimiter() {
+        final ConcurrencyLimitWebFilter unlimited = new ConcurrencyLimitWebFilter(exchange -> null);
+        final Sinks.Empty<Void> pending = Sinks.empty();
+        StepVerifier.create(filter.filter(exchange(), exchange -> pending.asMono()))
+                .then(() -> {
+                    final MockServerWebExchange passed = exchange();
+                    StepVerifier.create(unlimited.filter(passed, exchange -> Mono.empty())).verifyComplete();
+                    Assertions.assertThat(passed.getResponse().getStatusCode()).isNull();
+                    Assertions.assertThat(limiter.getInFlight()).isEqualTo(1);
+                    pending.tryEmitEmpty();
+                })
+                .verifyComplete();
+    }
+}
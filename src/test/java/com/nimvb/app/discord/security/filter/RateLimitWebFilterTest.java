@@ -0,0 +1,89 @@
+package com.nimvb.app.discord.security.filter;
+
+import com.nimvb.app.discord.security.matcher.RouteTable;
+import com.nimvb.app.discord.security.resource.BearerTokenAuthenticationToken;
+import com.nimvb.app.discord.security.service.RateLimiter;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@ExtendWith(SpringExtension.class)
+class RateLimitWebFilterTest {
+
+    private final Clock              clock    = Clock.fixed(Instant.parse("2022-01-01T00:00:00Z"), ZoneOffset.UTC);
+    private final RateLimitWebFilter filter   = new RateLimitWebFilter(new RateLimiter(RouteTable.<RateLimiter.Limit>builder()
+            .add(HttpMethod.POST, "/api/v1/authenticate*", new RateLimiter.Limit("authentication", 1, Duration.ofSeconds(10)))
+            .build(), 1000, clock));
+    private final AtomicInteger      passed   = new AtomicInteger();
+    private final WebFilterChain     chain    = exchange -> Mono.fromRunnable(passed::incrementAndGet);
+
+    private static MockServerWebExchange exchange(String address) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/authenticate")
+                .remoteAddress(new InetSocketAddress(address, 8080))
+                .build());
+    }
+
+    @Test
+    void ShouldPassTheRequestsOfTheRoutesWhichAreNotLimited() {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/logout").build());
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        Assertions.assertThat(passed).hasValue(2);
+        Assertions.assertThat(exchange.getResponse().getHeaders().containsKey(RateLimitWebFilter.LIMIT)).isFalse();
+    }
+
+    @Test
+    void ShouldReturnTooManyRequestsWithTheStateOfTheBucketWhenItIsEmpty() {
+        final MockServerWebExchange allowed = exchange("127.0.0.1");
+        StepVerifier.create(filter.filter(allowed, chain)).verifyComplete();
+        Assertions.assertThat(allowed.getResponse().getHeaders().getFirst(RateLimitWebFilter.LIMIT)).isEqualTo("1");
+        Assertions.assertThat(allowed.getResponse().getHeaders().getFirst(RateLimitWebFilter.REMAINING)).isEqualTo("0");
+        Assertions.assertThat(allowed.getResponse().getHeaders().getFirst(RateLimitWebFilter.RESET_AFTER)).isEqualTo("10.000");
+        Assertions.assertThat(allowed.getResponse().getHeaders().getFirst(RateLimitWebFilter.RESET)).isEqualTo("1640995210.000");
+        Assertions.assertThat(allowed.getResponse().getHeaders().getFirst(RateLimitWebFilter.BUCKET)).isEqualTo("authentication");
+
+        final MockServerWebExchange rejected = exchange("127.0.0.1");
+        StepVerifier.create(filter.filter(rejected, chain)).verifyComplete();
+        Assertions.assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        Assertions.assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("10");
+
+        StepVerifier.create(filter.filter(exchange("127.0.0.2"), chain)).verifyComplete();
+        Assertions.assertThat(passed).hasValue(2);
+    }
+
+    @Test
+    void ShouldCountTheRequestsOfAnAuthenticatedUserByTheUserWhenItCarriesABearerToken() {
+        final BearerTokenAuthenticationToken user = new BearerTokenAuthenticationToken("token", "username", Collections.emptyList());
+
+        StepVerifier.create(filter.filter(exchange("127.0.0.1"), chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(user)))
+                .verifyComplete();
+        StepVerifier.create(filter.filter(exchange("127.0.0.2"), chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(user)))
+                .verifyComplete();
+        StepVerifier.create(filter.filter(exchange("127.0.0.1"), chain)).verifyComplete();
+
+        Assertions.assertThat(passed).hasValue(2);
+    }
+}
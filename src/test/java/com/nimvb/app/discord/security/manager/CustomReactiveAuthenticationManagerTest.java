@@ -1,8 +1,11 @@
 package com.nimvb.app.discord.security.manager;
 
 import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
 import com.nimvb.app.discord.security.provider.ReactiveAuthenticationProvider;
 import com.nimvb.app.discord.util.UserBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -24,6 +27,7 @@ import reactor.test.StepVerifier;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 @ExtendWith(SpringExtension.class)
 class CustomReactiveAuthenticationManagerTest {
@@ -48,13 +52,9 @@ class CustomReactiveAuthenticationManagerTest {
 
     @BeforeEach
     void init(){
-        Mockito.when(usernamePasswordProvider.supports(ArgumentMatchers.isNull())).thenAnswer(invocation -> Mono.just(false));
-        Mockito.when(usernamePasswordProvider.supports(ArgumentMatchers.isNotNull())).thenAnswer(invocation -> {
+        Mockito.when(usernamePasswordProvider.isSupported(ArgumentMatchers.any())).thenAnswer(invocation -> {
             final Class<?> argument = invocation.getArgument(0);
-            if(UsernamePasswordAuthenticationToken.class.isAssignableFrom(argument)){
-                return Mono.just(true);
-            }
-            return Mono.just(false);
+            return argument != null && UsernamePasswordAuthenticationToken.class.isAssignableFrom(argument);
         });
         Mockito.when(usernamePasswordProvider.authenticate(ArgumentMatchers.isNotNull())).thenAnswer(invocation -> {
             final Authentication argument = invocation.getArgument(0);
@@ -78,13 +78,9 @@ class CustomReactiveAuthenticationManagerTest {
                     .onErrorResume(throwable -> Mono.error(new BadCredentialsException("invalid token")));
         });
 
-        Mockito.when(testingProvider.supports(ArgumentMatchers.isNull())).thenAnswer(invocation -> Mono.just(false));
-        Mockito.when(testingProvider.supports(ArgumentMatchers.isNotNull())).thenAnswer(invocation -> {
+        Mockito.when(testingProvider.isSupported(ArgumentMatchers.any())).thenAnswer(invocation -> {
             final Class<?> argument = invocation.getArgument(0);
-            if(TestingAuthenticationToken.class.isAssignableFrom(argument)){
-                return Mono.just(true);
-            }
-            return Mono.just(false);
+            return argument != null && TestingAuthenticationToken.class.isAssignableFrom(argument);
         });
         Mockito.when(testingProvider.authenticate(ArgumentMatchers.isNotNull())).thenAnswer(invocation -> {
             final Authentication argument = invocation.getArgument(0);
@@ -193,4 +189,85 @@ class CustomReactiveAuthenticationManagerTest {
         StepVerifier.create(authenticate).expectNext(new TestingAuthenticationToken("username","password",Collections.emptyList())).verifyComplete();
     }
 
-}
\ No newline at end of file
+    @Test
+    void ShouldResolveTheProviderOfATokenTypeOnlyOnceWhenTheTypeIsAuthenticatedRepeatedly(){
+        final ReactiveAuthenticationManager build = CustomReactiveAuthenticationManager.builder()
+                .add(testingProvider)
+                .add(usernamePasswordProvider)
+                .build();
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(build.authenticate(new UsernamePasswordAuthenticationToken("username","password"))).expectNextCount(1).verifyComplete();
+        }
+        Mockito.verify(usernamePasswordProvider, Mockito.times(1)).isSupported(UsernamePasswordAuthenticationToken.class);
+        Mockito.verify(usernamePasswordProvider, Mockito.never()).supports(ArgumentMatchers.any());
+    }
+
+    @Test
+    void ShouldDispatchToTheFirstAddedProviderWhenMoreThanOneProviderSupportsTheTokenType(){
+        Mockito.when(testingProvider.isSupported(ArgumentMatchers.any())).thenReturn(true);
+        final ReactiveAuthenticationManager build = CustomReactiveAuthenticationManager.builder()
+                .add(testingProvider)
+                .add(usernamePasswordProvider)
+                .build();
+        StepVerifier.create(build.authenticate(new UsernamePasswordAuthenticationToken("username","password")))
+                .expectErrorMessage("invalid credentials")
+                .verify();
+        Mockito.verify(usernamePasswordProvider, Mockito.never()).authenticate(ArgumentMatchers.any());
+    }
+
+    @Test
+    void ShouldAuthenticateOffTheSubscribingThreadOnlyWhenTheProviderBlocks(){
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        Mockito.when(testingProvider.authenticate(ArgumentMatchers.isNotNull())).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread());
+            return Mono.just(invocation.getArgument(0));
+        });
+        final ReactiveAuthenticationManager build = CustomReactiveAuthenticationManager.builder()
+                .add(testingProvider)
+                .build();
+
+        StepVerifier.create(build.authenticate(new TestingAuthenticationToken("username","password"))).expectNextCount(1).verifyComplete();
+        Assertions.assertThat(thread.get()).isEqualTo(Thread.currentThread());
+
+        Mockito.when(testingProvider.isBlocking()).thenReturn(true);
+        final ReactiveAuthenticationManager blocking = CustomReactiveAuthenticationManager.builder()
+                .add(testingProvider)
+                .build();
+        StepVerifier.create(blocking.authenticate(new TestingAuthenticationToken("username","password"))).expectNextCount(1).verifyComplete();
+        Assertions.assertThat(thread.get()).isNotEqualTo(Thread.currentThread());
+        Assertions.assertThat(thread.get().getName()).startsWith("boundedElastic");
+    }
+
+    @Test
+    void ShouldKeepTheReasonOfTheProviderAndCountTheFailureByItWhenTheTokenIsRejected(){
+        final AuthenticationFailedException revoked =
+                new AuthenticationFailedException(AuthenticationFailedException.Reason.REVOKED_TOKEN, "invalid token");
+        Mockito.when(testingProvider.authenticate(ArgumentMatchers.isNotNull())).thenReturn(Mono.error(revoked));
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final ReactiveAuthenticationManager build = CustomReactiveAuthenticationManager.builder()
+                .add(testingProvider)
+                .add(usernamePasswordProvider)
+                .meterRegistry(meterRegistry)
+                .build();
+
+        StepVerifier.create(build.authenticate(new TestingAuthenticationToken("username","password")))
+                .expectErrorSatisfies(throwable -> Assertions.assertThat(throwable).isSameAs(revoked))
+                .verify();
+        StepVerifier.create(build.authenticate(new UsernamePasswordAuthenticationToken("u","p")))
+                .expectErrorSatisfies(throwable -> {
+                    Assertions.assertThat(throwable).isInstanceOf(AuthenticationFailedException.class);
+                    Assertions.assertThat(((AuthenticationFailedException) throwable).getReason())
+                            .isEqualTo(AuthenticationFailedException.Reason.INVALID_CREDENTIALS);
+                    Assertions.assertThat(throwable.getStackTrace()).isEmpty();
+                })
+                .verify();
+
+        Assertions.assertThat(meterRegistry.get("security.authentication.failures").tag("reason", "revoked_token").counter().count())
+                .isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("security.authentication.failures").tag("reason", "invalid_credentials").counter().count())
+                .isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("security.authentication.failures").tag("reason", "expired_token").counter().count())
+                .isZero();
+    }
+
+}
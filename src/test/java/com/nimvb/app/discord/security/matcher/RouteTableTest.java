@@ -0,0 +1,87 @@
+package com.nimvb.app.discord.security.matcher;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+
+@ExtendWith(SpringExtension.class)
+class RouteTableTest {
+
+    private final RouteTable<String> routes = RouteTable.<String>builder()
+            .add(HttpMethod.POST, "/api/users/**", "users")
+            .add("/api/users/me", "me")
+            .add(HttpMethod.GET, "/api/token*", "token")
+            .add(HttpMethod.GET, "/api/token", "exact-token")
+            .add("/docs/**", "docs")
+            .build();
+
+    @Test
+    void ShouldThrowExceptionWhenTheWildcardIsNotTheLastSegment() {
+        Assertions.assertThatThrownBy(() -> RouteTable.<String>builder().add("/api/**/users", "users"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ShouldMatchTheRemainingSegmentsWhenThePatternEndsWithTheWildcard() {
+        Assertions.assertThat(routes.resolve(HttpMethod.POST, "/api/users")).isEqualTo("users");
+        Assertions.assertThat(routes.resolve(HttpMethod.POST, "/api/users/")).isEqualTo("users");
+        Assertions.assertThat(routes.resolve(HttpMethod.POST, "/api/users/a/b")).isEqualTo("users");
+        Assertions.assertThat(routes.resolve(HttpMethod.DELETE, "/docs/a/b")).isEqualTo("docs");
+        Assertions.assertThat(routes.resolve(HttpMethod.GET, "/api/users/a")).isNull();
+        Assertions.assertThat(routes.resolve(HttpMethod.POST, "/api/userslist")).isNull();
+    }
+
+    @Test
+    void ShouldPreferTheLiteralSegmentsWhenSeveralPatternsMatch() {
+        Assertions.assertThat(routes.resolve(HttpMethod.POST, "/api/users/me")).isEqualTo("me");
+        Assertions.assertThat(routes.resolve(HttpMethod.POST, "/api/users/me/other")).isEqualTo("users");
+        Assertions.assertThat(routes.resolve(HttpMethod.GET, "/api/token")).isEqualTo("exact-token");
+        Assertions.assertThat(routes.resolve(HttpMethod.GET, "/api/tokens")).isEqualTo("token");
+        Assertions.assertThat(routes.resolve(HttpMethod.GET, "/api/tokens/other")).isNull();
+    }
+
+    @Test
+    void ShouldMatchTheDecodedSegmentsWhenThePathIsEncoded() {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .method(HttpMethod.POST, URI.create("/api/%75sers;v=1/me"))
+                .build());
+
+        Assertions.assertThat(exchange.getRequest().getPath().value()).isEqualTo("/api/%75sers;v=1/me");
+        Assertions.assertThat(routes.resolve(exchange)).isEqualTo("me");
+    }
+
+    @Test
+    void ShouldResolveTheRouteOnceWhenTheExchangeIsMatchedRepeatedly() {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/unknown").build());
+
+        StepVerifier.create(routes.matcher(route -> route == null)
+                        .matches(exchange)
+                        .map(matchResult -> matchResult.isMatch()))
+                .expectNext(true)
+                .verifyComplete();
+        final Map<String, Object> resolved = routeAttributes(exchange);
+        Assertions.assertThat(resolved).hasSize(1);
+        StepVerifier.create(routes.matcher(route -> route != null)
+                        .matches(exchange)
+                        .map(matchResult -> matchResult.isMatch()))
+                .expectNext(false)
+                .verifyComplete();
+        Assertions.assertThat(routeAttributes(exchange)).isEqualTo(resolved);
+    }
+
+    private static Map<String, Object> routeAttributes(MockServerWebExchange exchange) {
+        return exchange.getAttributes().entrySet().stream()
+                .filter(attribute -> attribute.getKey().startsWith(RouteTable.class.getName()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+}
@@ -0,0 +1,106 @@
+package com.nimvb.app.discord.security.matcher;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.web.server.util.matcher.NegatedServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.OrServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.PathPatternParserServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+
+@ExtendWith(SpringExtension.class)
+class SecurityRoutesTest {
+
+    private static final List<MockServerHttpRequest> REQUESTS = List.of(
+            MockServerHttpRequest.post("/api/v1/users/").build(),
+            MockServerHttpRequest.post("/api/v1/users").build(),
+            MockServerHttpRequest.options("/api/v1/users/availability").build(),
+            MockServerHttpRequest.get("/api/v1/users/availability").build(),
+            MockServerHttpRequest.get("/api/v1/users/availability/").build(),
+            MockServerHttpRequest.get("/api/v1/users/other").build(),
+            MockServerHttpRequest.get("/v3/api-docs").build(),
+            MockServerHttpRequest.get("/v3/api-docs/swagger-config").build(),
+            MockServerHttpRequest.get("/swagger-ui.html").build(),
+            MockServerHttpRequest.get("/swagger-ui/index.html").build(),
+            MockServerHttpRequest.get("/webjars/swagger-ui/index.css").build(),
+            MockServerHttpRequest.post("/api/v1/authenticate").contentType(MediaType.APPLICATION_FORM_URLENCODED).build(),
+            MockServerHttpRequest.post("/api/v1/authenticate").contentType(MediaType.APPLICATION_JSON).build(),
+            MockServerHttpRequest.post("/api/v1/authenticated").build(),
+            MockServerHttpRequest.get("/api/v1/authenticate").build(),
+            MockServerHttpRequest.post("/api/v1/logout").build(),
+            MockServerHttpRequest.post("/api/v1/admin/users/import").build(),
+            MockServerHttpRequest.get("/").build());
+
+    private static void assertSameMatches(ServerWebExchangeMatcher expected, ServerWebExchangeMatcher actual) {
+        for (MockServerHttpRequest request : REQUESTS) {
+            final Boolean matched = expected.matches(MockServerWebExchange.from(request))
+                    .map(ServerWebExchangeMatcher.MatchResult::isMatch)
+                    .block();
+            StepVerifier.create(actual.matches(MockServerWebExchange.from(request)).map(ServerWebExchangeMatcher.MatchResult::isMatch))
+                    .as(request.getMethod() + " " + request.getPath())
+                    .expectNext(matched)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void ShouldMatchTheSameRequestsAsThePathPatternsOfThePublicChain() {
+        assertSameMatches(new OrServerWebExchangeMatcher(
+                        new PathPatternParserServerWebExchangeMatcher("/api/v1/users/**", HttpMethod.POST),
+                        new PathPatternParserServerWebExchangeMatcher("/api/v1/users/**", HttpMethod.OPTIONS),
+                        new PathPatternParserServerWebExchangeMatcher("/api/v1/users/availability", HttpMethod.GET),
+                        new PathPatternParserServerWebExchangeMatcher("/v3/api-docs/**"),
+                        new PathPatternParserServerWebExchangeMatcher("/swagger-ui/**"),
+                        new PathPatternParserServerWebExchangeMatcher("/swagger-ui.html"),
+                        new PathPatternParserServerWebExchangeMatcher("/webjars/swagger-ui/**")),
+                SecurityRoutes.publicResources());
+    }
+
+    @Test
+    void ShouldMatchTheSameRequestsAsThePathPatternOfTheBearerTokenFilter() {
+        assertSameMatches(new NegatedServerWebExchangeMatcher(new PathPatternParserServerWebExchangeMatcher("/api/v1/authenticate**", HttpMethod.POST)),
+                SecurityRoutes.bearerTokenRequired());
+    }
+
+    @Test
+    void ShouldTellTheRegistrationsAndTheImportApartFromTheOtherRequests() {
+        for (MockServerHttpRequest request : REQUESTS) {
+            final MockServerWebExchange exchange = MockServerWebExchange.from(request);
+            final String path = request.getPath().value();
+            Assertions.assertThat(SecurityRoutes.isRegistration(exchange))
+                    .as(request.getMethod() + " " + path)
+                    .isEqualTo(request.getMethod() == HttpMethod.POST && path.startsWith("/api/v1/users"));
+            Assertions.assertThat(SecurityRoutes.isImport(exchange))
+                    .as(request.getMethod() + " " + path)
+                    .isEqualTo(path.equals("/api/v1/admin/users/import"));
+        }
+    }
+
+    @Test
+    void ShouldMatchOnlyTheLoginsPostedAsAForm() {
+        StepVerifier.create(SecurityRoutes.login()
+                        .matches(MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/authenticate").contentType(MediaType.APPLICATION_FORM_URLENCODED).build()))
+                        .map(ServerWebExchangeMatcher.MatchResult::isMatch))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(SecurityRoutes.login()
+                        .matches(MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/authenticate").contentType(MediaType.APPLICATION_JSON).build()))
+                        .map(ServerWebExchangeMatcher.MatchResult::isMatch))
+                .expectNext(false)
+                .verifyComplete();
+        StepVerifier.create(SecurityRoutes.login()
+                        .matches(MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/authenticated").contentType(MediaType.APPLICATION_FORM_URLENCODED).build()))
+                        .map(ServerWebExchangeMatcher.MatchResult::isMatch))
+                .expectNext(false)
+                .verifyComplete();
+    }
+}
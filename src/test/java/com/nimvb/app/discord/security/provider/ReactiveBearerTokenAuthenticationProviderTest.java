@@ -1,19 +1,27 @@
 package com.nimvb.app.discord.security.provider;
 
 import com.nimbusds.jose.JOSEException;
+import com.nimvb.app.discord.repository.RevokedTokenRepository;
+import com.nimvb.app.discord.security.cache.DecryptedTokenCache;
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
 import com.nimvb.app.discord.security.resource.BearerTokenAuthenticationToken;
-import com.nimvb.app.discord.security.service.SecretProvider;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.service.TokenRevocationService;
 import com.nimvb.app.discord.security.util.Jwe;
+import com.nimvb.app.discord.security.util.Jws;
+import com.nimvb.app.discord.security.util.TokenType;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
-import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import reactor.core.publisher.Mono;
@@ -21,6 +29,8 @@ import reactor.test.StepVerifier;
 
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.Date;
@@ -33,19 +43,43 @@ import java.util.stream.Stream;
 class ReactiveBearerTokenAuthenticationProviderTest {
 
 
-    @MockBean
-    SecretProvider secretProvider;
+    private static final String SECRET = "secret";
+
+    Jwe.Algorithm algorithm;
+
+    Jwe.Algorithm retiredAlgorithm;
+
+    KeyRingProvider keyRingProvider;
+
+    Jws.Algorithm signingAlgorithm;
+
+    SigningKeyRingProvider signingKeyRingProvider;
+
+    DecryptedTokenCache decryptedTokenCache;
 
 
     @BeforeEach
-    void init(){
-        Mockito.when(secretProvider.secret()).thenReturn("secret");
+    void init() throws NoSuchAlgorithmException, InvalidKeySpecException, JOSEException {
+        algorithm = Jwe.Algorithm.AES128HS256("current", SECRET);
+        retiredAlgorithm = Jwe.Algorithm.AES128HS256("retired", SECRET + "retired");
+        final Jwe.KeyRing keyRing = Jwe.KeyRing.of(algorithm, List.of(retiredAlgorithm));
+        keyRingProvider = () -> keyRing;
+        signingAlgorithm = Jws.Algorithm.HS256("current", SECRET);
+        final Jws.KeyRing signingKeyRing = Jws.KeyRing.of(signingAlgorithm);
+        signingKeyRingProvider = () -> signingKeyRing;
+        decryptedTokenCache = new DecryptedTokenCache(100, Clock.systemUTC());
     }
 
     @Test
-    void ShouldThrownExceptionWhenInvalidSecretProviderIsProvided(){
+    void ShouldThrownExceptionWhenInvalidAlgorithmIsProvided(){
         Assertions.assertThatThrownBy(() -> {
-            new ReactiveBearerTokenAuthenticationProvider(null);
+            new ReactiveBearerTokenAuthenticationProvider(null, signingKeyRingProvider, decryptedTokenCache);
+        }).isInstanceOf(NullPointerException.class);
+        Assertions.assertThatThrownBy(() -> {
+            new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, null);
+        }).isInstanceOf(NullPointerException.class);
+        Assertions.assertThatThrownBy(() -> {
+            new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, null, decryptedTokenCache);
         }).isInstanceOf(NullPointerException.class);
     }
 
@@ -53,7 +87,7 @@ class ReactiveBearerTokenAuthenticationProviderTest {
 
     @Test
     void ShouldReturnFalseWhenNULLTypeIsGiven(){
-        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(secretProvider);
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
         final Mono<Boolean> supports = provider.supports(null);
         StepVerifier.create(supports).expectNext(false).verifyComplete();
     }
@@ -61,14 +95,14 @@ class ReactiveBearerTokenAuthenticationProviderTest {
 
     @Test
     void ShouldReturnFalseWhenInvalidTypeIsGiven(){
-        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(secretProvider);
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
         final Mono<Boolean> supports = provider.supports(UsernamePasswordAuthenticationToken.class);
         StepVerifier.create(supports).expectNext(false).verifyComplete();
     }
 
     @Test
     void ShouldReturnTrueWhenValidTypeIsGiven(){
-        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(secretProvider);
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
         final Mono<Boolean> supports = provider.supports(BearerTokenAuthenticationToken.class);
         StepVerifier.create(supports).expectNext(true).verifyComplete();
     }
@@ -76,7 +110,7 @@ class ReactiveBearerTokenAuthenticationProviderTest {
 
     @Test
     void ShouldReturnMonoWithErrorWhenNULLArgumentIsGiven(){
-        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(secretProvider);
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
         final Mono<Authentication> authenticate = provider.authenticate(null);
         StepVerifier.create(authenticate).expectError(AuthenticationException.class).verify();
         StepVerifier.create(authenticate).expectError(BadCredentialsException.class).verify();
@@ -85,7 +119,7 @@ class ReactiveBearerTokenAuthenticationProviderTest {
 
     @Test
     void ShouldReturnMonoThatProvidesAnErrorWhenInvalidTokenTypeIsGiven(){
-        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(secretProvider);
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
         final Mono<Authentication> authenticate = provider.authenticate(new UsernamePasswordAuthenticationToken("username","password"));
         StepVerifier.create(authenticate).expectError(AuthenticationException.class).verify();
         StepVerifier.create(authenticate).expectError(BadCredentialsException.class).verify();
@@ -95,7 +129,7 @@ class ReactiveBearerTokenAuthenticationProviderTest {
 
     @Test
     void ShouldReturnMonoThatProvidesAuthenticatedTokenWhenAValidTokenIsProvided() throws NoSuchAlgorithmException, InvalidKeySpecException, JOSEException {
-        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(secretProvider);
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
         final Instant now = Instant.now();
         final String jwe = Jwe
                 .create()
@@ -103,7 +137,7 @@ class ReactiveBearerTokenAuthenticationProviderTest {
                 .withIssuer("issuer")
                 .withIssuedAt(Date.from(now))
                 .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
-                .encrypt(Jwe.Algorithm.AES128HS256(secretProvider.secret()));
+                .encrypt(algorithm);
         final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jwe));
         StepVerifier.create(authenticate).expectNextCount(1).verifyComplete();
         StepVerifier.create(authenticate).assertNext(token -> {
@@ -116,7 +150,7 @@ class ReactiveBearerTokenAuthenticationProviderTest {
 
     @Test
     void ShouldReturnMonoThatProvidesAuthenticatedTokenWhenAValidTokenWithExtraRolesClaimIsProvided() throws NoSuchAlgorithmException, InvalidKeySpecException, JOSEException {
-        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(secretProvider);
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
         final Instant now = Instant.now();
         final String jwe = Jwe
                 .create()
@@ -125,7 +159,7 @@ class ReactiveBearerTokenAuthenticationProviderTest {
                 .withClaim("roles", List.of("user","admin"))
                 .withIssuedAt(Date.from(now))
                 .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
-                .encrypt(Jwe.Algorithm.AES128HS256(secretProvider.secret()));
+                .encrypt(algorithm);
         final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jwe));
         StepVerifier.create(authenticate).expectNextCount(1).verifyComplete();
         StepVerifier.create(authenticate).assertNext(token -> {
@@ -139,7 +173,7 @@ class ReactiveBearerTokenAuthenticationProviderTest {
 
     @Test
     void ShouldReturnMonoWithErrorWhenAnExpiredValidTokenIsProvided() throws NoSuchAlgorithmException, InvalidKeySpecException, JOSEException {
-        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(secretProvider);
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
         final Instant now = Instant.now().minusSeconds(60);
         final String jwe = Jwe
                 .create()
@@ -147,16 +181,20 @@ class ReactiveBearerTokenAuthenticationProviderTest {
                 .withIssuer("issuer")
                 .withIssuedAt(Date.from(now))
                 .withExpiredAt(Date.from(now.plusSeconds(30)))
-                .encrypt(Jwe.Algorithm.AES128HS256(secretProvider.secret()));
+                .encrypt(algorithm);
         final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jwe));
         StepVerifier.create(authenticate).expectError(AuthenticationException.class).verify();
         StepVerifier.create(authenticate).expectError(BadCredentialsException.class).verify();
         StepVerifier.create(authenticate).expectErrorMessage("invalid token").verify();
+        StepVerifier.create(authenticate)
+                .expectErrorSatisfies(throwable -> Assertions.assertThat(throwable)
+                        .hasFieldOrPropertyWithValue("reason", AuthenticationFailedException.Reason.EXPIRED_TOKEN))
+                .verify();
     }
 
     @Test
     void ShouldReturnMonoWithErrorWhenAnValidTokenWithInvalidKeyIsProvided() throws NoSuchAlgorithmException, InvalidKeySpecException, JOSEException {
-        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(secretProvider);
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
         final Instant now = Instant.now();
         final String jwe = Jwe
                 .create()
@@ -164,11 +202,164 @@ class ReactiveBearerTokenAuthenticationProviderTest {
                 .withIssuer("issuer")
                 .withIssuedAt(Date.from(now))
                 .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
-                .encrypt(Jwe.Algorithm.AES128HS256(secretProvider.secret() + secretProvider.secret()));
+                .encrypt(Jwe.Algorithm.AES128HS256("current", SECRET + SECRET));
         final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jwe));
         StepVerifier.create(authenticate).expectError(AuthenticationException.class).verify();
         StepVerifier.create(authenticate).expectError(BadCredentialsException.class).verify();
         StepVerifier.create(authenticate).expectErrorMessage("invalid token").verify();
     }
 
-}
\ No newline at end of file
+    @Test
+    void ShouldReturnMonoThatProvidesAuthenticatedTokenWhenAValidTokenEncryptedWithARetiredKeyIsProvided() throws JOSEException {
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
+        final Instant now = Instant.now();
+        final String jwe = Jwe
+                .create()
+                .withSubject("subject")
+                .withIssuer("issuer")
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
+                .encrypt(retiredAlgorithm);
+        final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jwe));
+        StepVerifier.create(authenticate).expectNextCount(1).verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenATokenWithAnUnknownKeyIdIsProvided() throws NoSuchAlgorithmException, InvalidKeySpecException, JOSEException {
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
+        final Instant now = Instant.now();
+        final String jwe = Jwe
+                .create()
+                .withSubject("subject")
+                .withIssuer("issuer")
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
+                .encrypt(Jwe.Algorithm.AES128HS256("unknown", SECRET));
+        final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jwe));
+        StepVerifier.create(authenticate).expectError(BadCredentialsException.class).verify();
+        StepVerifier.create(authenticate).expectErrorMessage("invalid token").verify();
+    }
+
+    @Test
+    void ShouldReturnMonoThatProvidesAuthenticatedTokenWhenAValidSignedTokenIsProvided() throws JOSEException {
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
+        final Instant now = Instant.now();
+        final String jws = Jwe
+                .create()
+                .withSubject("subject")
+                .withIssuer("issuer")
+                .withClaim("roles", List.of("user"))
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
+                .sign(signingAlgorithm);
+        final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jws));
+        StepVerifier.create(authenticate).assertNext(token -> {
+            Assertions.assertThat(token.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("user");
+        }).verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenASignedTokenWithAnInvalidSignatureIsProvided() throws Exception {
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
+        final Instant now = Instant.now();
+        final String jws = Jwe
+                .create()
+                .withSubject("subject")
+                .withIssuer("issuer")
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
+                .sign(Jws.Algorithm.HS256("current", SECRET + SECRET));
+        final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jws));
+        StepVerifier.create(authenticate).expectErrorMessage("invalid token").verify();
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenARefreshTokenIsProvided() throws JOSEException {
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
+        final Instant now = Instant.now();
+        final String jwe = Jwe
+                .create()
+                .withSubject("subject")
+                .withIssuer("issuer")
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
+                .withClaim(TokenType.CLAIM, TokenType.REFRESH)
+                .encrypt(algorithm);
+        final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jwe));
+        StepVerifier.create(authenticate).expectErrorMessage("invalid token").verify();
+        StepVerifier.create(authenticate)
+                .expectErrorSatisfies(throwable -> Assertions.assertThat(throwable)
+                        .hasFieldOrPropertyWithValue("reason", AuthenticationFailedException.Reason.INVALID_TOKEN))
+                .verify();
+    }
+
+    @Test
+    void ShouldDecryptTheTokenOnlyOnceWhenTheSameTokenIsProvidedRepeatedly() throws JOSEException {
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
+        final Instant now = Instant.now();
+        final String jwe = Jwe
+                .create()
+                .withSubject("subject")
+                .withIssuer("issuer")
+                .withClaim("roles", List.of("user"))
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
+                .encrypt(algorithm);
+        final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jwe));
+        StepVerifier.create(authenticate).expectNextCount(1).verifyComplete();
+        StepVerifier.create(authenticate).assertNext(token -> {
+            Assertions.assertThat(token.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("user");
+        }).verifyComplete();
+        Assertions.assertThat(decryptedTokenCache.getNativeCache().stats().missCount()).isEqualTo(1);
+        Assertions.assertThat(decryptedTokenCache.getNativeCache().stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenACachedTokenKeyIsRemovedFromTheKeyRing() throws JOSEException {
+        final Jwe.KeyRing[] keyRing = {keyRingProvider.keyRing()};
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(() -> keyRing[0], signingKeyRingProvider, decryptedTokenCache);
+        final Instant now = Instant.now();
+        final String jwe = Jwe
+                .create()
+                .withSubject("subject")
+                .withIssuer("issuer")
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
+                .encrypt(retiredAlgorithm);
+        final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken(jwe));
+        StepVerifier.create(authenticate).expectNextCount(1).verifyComplete();
+        keyRing[0] = Jwe.KeyRing.of(algorithm);
+        StepVerifier.create(authenticate).expectErrorMessage("invalid token").verify();
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenARevokedTokenIsProvided() throws JOSEException {
+        final RevokedTokenRepository revokedTokenRepository = Mockito.mock(RevokedTokenRepository.class);
+        Mockito.when(revokedTokenRepository.existsById(ArgumentMatchers.anyString()))
+                .thenAnswer(invocation -> Mono.just("revoked".equals(invocation.getArgument(0))));
+        ReactiveBearerTokenAuthenticationProvider provider = new ReactiveBearerTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider, decryptedTokenCache);
+        provider.setTokenRevocationService(new TokenRevocationService(revokedTokenRepository, decryptedTokenCache, Clock.systemUTC(),
+                100, 0.01, Duration.ZERO, Duration.ofHours(1)));
+        final Instant now = Instant.now();
+        final Jwe.Builder builder = Jwe
+                .create()
+                .withSubject("subject")
+                .withExpiredAt(Date.from(now.plusSeconds(60 * 5)))
+                .withClaim(TokenType.FAMILY_CLAIM, "family");
+
+        StepVerifier.create(provider.authenticate(new BearerTokenAuthenticationToken(builder.withTokenId("revoked").encrypt(algorithm))))
+                .expectErrorSatisfies(throwable -> Assertions.assertThat(throwable)
+                        .isInstanceOf(BadCredentialsException.class)
+                        .hasFieldOrPropertyWithValue("reason", AuthenticationFailedException.Reason.REVOKED_TOKEN))
+                .verify();
+        StepVerifier.create(provider.authenticate(new BearerTokenAuthenticationToken(builder.withTokenId("valid").encrypt(algorithm))))
+                .assertNext(token -> {
+                    BearerTokenAuthenticationToken authenticated = (BearerTokenAuthenticationToken) token;
+                    Assertions.assertThat(authenticated.getTokenId()).isEqualTo("valid");
+                    Assertions.assertThat(authenticated.getFamily()).isEqualTo("family");
+                    Assertions.assertThat(authenticated.getUsername()).isEqualTo("subject");
+                })
+                .verifyComplete();
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.nimvb.app.discord.security.provider;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimvb.app.discord.repository.RefreshTokenFamilyRepository;
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
+import com.nimvb.app.discord.security.resource.BearerTokenAuthenticationToken;
+import com.nimvb.app.discord.security.resource.RefreshTokenAuthenticationToken;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.util.Jwe;
+import com.nimvb.app.discord.security.util.Jws;
+import com.nimvb.app.discord.security.util.TokenType;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+
+@ExtendWith(SpringExtension.class)
+class ReactiveRefreshTokenAuthenticationProviderTest {
+
+    private static final String SECRET = "secret";
+
+    @MockBean
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    @MockBean
+    ReactiveUserDetailsService userDetailsService;
+
+    @MockBean
+    PasswordEncoder passwordEncoder;
+
+    Jwe.Algorithm algorithm;
+
+    Jws.Algorithm signingAlgorithm;
+
+    KeyRingProvider keyRingProvider;
+
+    SigningKeyRingProvider signingKeyRingProvider;
+
+    Clock clock;
+
+    ReactiveRefreshTokenAuthenticationProvider provider;
+
+    @BeforeEach
+    void init() throws Exception {
+        algorithm = Jwe.Algorithm.AES128HS256("current", SECRET);
+        signingAlgorithm = Jws.Algorithm.HS256("current", SECRET);
+        final Jwe.KeyRing keyRing = Jwe.KeyRing.of(algorithm);
+        final Jws.KeyRing signingKeyRing = Jws.KeyRing.of(signingAlgorithm);
+        keyRingProvider = () -> keyRing;
+        signingKeyRingProvider = () -> signingKeyRing;
+        clock = Clock.fixed(Instant.parse("2021-12-20T11:33:20Z"), ZoneOffset.UTC);
+        provider = new ReactiveRefreshTokenAuthenticationProvider(keyRingProvider, signingKeyRingProvider,
+                refreshTokenFamilyRepository, userDetailsService, clock);
+        Mockito.when(userDetailsService.findByUsername("username"))
+                .thenReturn(Mono.just(User.withUsername("username").password("password").authorities("user").build()));
+    }
+
+    private Jwe.Builder refreshToken(String tokenType, Instant expiresAt) {
+        return Jwe
+                .create()
+                .withSubject("username")
+                .withIssuer("users")
+                .withExpiredAt(Date.from(expiresAt))
+                .withClaim("jti", "first")
+                .withClaim(TokenType.FAMILY_CLAIM, "family")
+                .withClaim(TokenType.CLAIM, tokenType);
+    }
+
+    @Test
+    void ShouldReturnTrueOnlyWhenTheRefreshTokenTypeIsGiven() {
+        StepVerifier.create(provider.supports(RefreshTokenAuthenticationToken.class)).expectNext(true).verifyComplete();
+        StepVerifier.create(provider.supports(BearerTokenAuthenticationToken.class)).expectNext(false).verifyComplete();
+        StepVerifier.create(provider.supports(null)).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnMonoThatProvidesRotatedTokenWhenAValidRefreshTokenIsProvided() throws JOSEException {
+        Mockito.when(refreshTokenFamilyRepository.rotate(ArgumentMatchers.eq("family"), ArgumentMatchers.eq("first"), ArgumentMatchers.anyString(), ArgumentMatchers.any(Instant.class)))
+                .thenReturn(Mono.just(true));
+        final String token = refreshToken(TokenType.REFRESH, Instant.now(clock).plusSeconds(60)).encrypt(algorithm);
+
+        StepVerifier.create(provider.authenticate(new RefreshTokenAuthenticationToken(token))).assertNext(authentication -> {
+            final RefreshTokenAuthenticationToken rotated = (RefreshTokenAuthenticationToken) authentication;
+            Assertions.assertThat(rotated.isAuthenticated()).isTrue();
+            Assertions.assertThat(rotated.getName()).isEqualTo("username");
+            Assertions.assertThat(rotated.getFamily()).isEqualTo("family");
+            Assertions.assertThat(rotated.getTokenId()).isNotEqualTo("first");
+            Assertions.assertThat(rotated.getExpiresAt()).isEqualTo(Instant.now(clock).plusSeconds(60));
+            Assertions.assertThat(rotated.getAuthorities()).containsExactly(new SimpleGrantedAuthority("user"));
+        }).verifyComplete();
+        Mockito.verifyNoInteractions(passwordEncoder);
+    }
+
+    @Test
+    void ShouldReturnMonoThatProvidesRotatedTokenWhenASignedRefreshTokenIsProvided() throws JOSEException {
+        Mockito.when(refreshTokenFamilyRepository.rotate(ArgumentMatchers.eq("family"), ArgumentMatchers.eq("first"), ArgumentMatchers.anyString(), ArgumentMatchers.any(Instant.class)))
+                .thenReturn(Mono.just(true));
+        final String token = refreshToken(TokenType.REFRESH, Instant.now(clock).plusSeconds(60)).sign(signingAlgorithm);
+
+        StepVerifier.create(provider.authenticate(new RefreshTokenAuthenticationToken(token))).expectNextCount(1).verifyComplete();
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenAnAlreadyRotatedRefreshTokenIsReused() throws JOSEException {
+        Mockito.when(refreshTokenFamilyRepository.rotate(ArgumentMatchers.eq("family"), ArgumentMatchers.eq("first"), ArgumentMatchers.anyString(), ArgumentMatchers.any(Instant.class)))
+                .thenReturn(Mono.just(false));
+        final String token = refreshToken(TokenType.REFRESH, Instant.now(clock).plusSeconds(60)).encrypt(algorithm);
+
+        StepVerifier.create(provider.authenticate(new RefreshTokenAuthenticationToken(token))).expectErrorMessage("invalid refresh token").verify();
+        StepVerifier.create(provider.authenticate(new RefreshTokenAuthenticationToken(token)))
+                .expectErrorSatisfies(throwable -> Assertions.assertThat(throwable)
+                        .hasFieldOrPropertyWithValue("reason", AuthenticationFailedException.Reason.REUSED_REFRESH_TOKEN))
+                .verify();
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWithoutRotatingWhenTheAccountOfTheUserIsLockedOrDisabled() throws JOSEException {
+        Mockito.when(userDetailsService.findByUsername("username"))
+                .thenReturn(Mono.just(User.withUsername("username").password("password").authorities("user").accountLocked(true).build()));
+        final String token = refreshToken(TokenType.REFRESH, Instant.now(clock).plusSeconds(60)).encrypt(algorithm);
+        StepVerifier.create(provider.authenticate(new RefreshTokenAuthenticationToken(token)))
+                .expectErrorSatisfies(throwable -> Assertions.assertThat(throwable)
+                        .hasMessage("invalid refresh token")
+                        .hasFieldOrPropertyWithValue("reason", AuthenticationFailedException.Reason.ACCOUNT_LOCKED))
+                .verify();
+
+        Mockito.when(userDetailsService.findByUsername("username"))
+                .thenReturn(Mono.just(User.withUsername("username").password("password").authorities("user").disabled(true).build()));
+        StepVerifier.create(provider.authenticate(new RefreshTokenAuthenticationToken(token)))
+                .expectErrorSatisfies(throwable -> Assertions.assertThat(throwable)
+                        .hasMessage("invalid refresh token")
+                        .hasFieldOrPropertyWithValue("reason", AuthenticationFailedException.Reason.ACCOUNT_DISABLED))
+                .verify();
+        Mockito.verifyNoInteractions(refreshTokenFamilyRepository);
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenAnAccessTokenIsProvided() throws JOSEException {
+        final String token = refreshToken(null, Instant.now(clock).plusSeconds(60)).encrypt(algorithm);
+
+        StepVerifier.create(provider.authenticate(new RefreshTokenAuthenticationToken(token))).expectErrorMessage("invalid refresh token").verify();
+        Mockito.verifyNoInteractions(refreshTokenFamilyRepository);
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenAnExpiredRefreshTokenIsProvided() throws JOSEException {
+        final String token = refreshToken(TokenType.REFRESH, Instant.now(clock).minusSeconds(1)).encrypt(algorithm);
+
+        StepVerifier.create(provider.authenticate(new RefreshTokenAuthenticationToken(token))).expectErrorMessage("invalid refresh token").verify();
+        Mockito.verifyNoInteractions(refreshTokenFamilyRepository);
+    }
+
+    @Test
+    void ShouldReturnMonoWithErrorWhenInvalidTokenTypeIsGiven() {
+        final Mono<Authentication> authenticate = provider.authenticate(new BearerTokenAuthenticationToken("token"));
+        StepVerifier.create(authenticate).expectErrorMessage("invalid refresh token").verify();
+    }
+}
@@ -2,7 +2,10 @@ package com.nimvb.app.discord.security.provider;
 
 import com.nimvb.app.discord.configuration.TestEncodingConfiguration;
 import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.security.exception.AuthenticationFailedException;
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
 import com.nimvb.app.discord.security.resource.BearerTokenAuthenticationToken;
+import com.nimvb.app.discord.security.service.PasswordHashingExecutor;
 import com.nimvb.app.discord.util.UserBuilder;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,16 +19,23 @@ import org.springframework.context.annotation.Import;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @ExtendWith(SpringExtension.class)
 @Import(TestEncodingConfiguration.class)
@@ -61,7 +71,7 @@ class ReactiveUsernamePasswordAuthenticationProviderTest {
     @Test
     void ShouldReturnMonoWithErrorWhenTheRequiredConstructorArgumentsIsNULL() {
         Assertions.assertThatThrownBy(() -> {
-            new ReactiveUsernamePasswordAuthenticationProvider(null, encoder);
+            new ReactiveUsernamePasswordAuthenticationProvider(null, PasswordHashingExecutor.inline(encoder));
         }).isInstanceOf(NullPointerException.class);
 
         Assertions.assertThatThrownBy(() -> {
@@ -76,13 +86,13 @@ class ReactiveUsernamePasswordAuthenticationProviderTest {
     @Test
     void ShouldReturnMonoWithErrorWhenTheGivenValuesForPreAuthenticationCheckerOrPostAuthenticationCheckerAreNULL() {
         Assertions.assertThatThrownBy(() -> {
-            ReactiveUsernamePasswordAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, encoder);
+            ReactiveUsernamePasswordAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
             provider.setPreAuthenticationChecker(null);
         }).isInstanceOf(NullPointerException.class);
 
 
         Assertions.assertThatThrownBy(() -> {
-            ReactiveUsernamePasswordAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, encoder);
+            ReactiveUsernamePasswordAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
             provider.setPostAuthenticationChecker(null);
         }).isInstanceOf(NullPointerException.class);
 
@@ -91,7 +101,7 @@ class ReactiveUsernamePasswordAuthenticationProviderTest {
 
     @Test
     void ShouldReturnFalseWhenNULLTypeIsGiven() {
-        ReactiveAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, encoder);
+        ReactiveAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
         final Mono<Boolean>            supports = provider.supports(null);
         StepVerifier.create(supports).expectNext(false).verifyComplete();
     }
@@ -99,14 +109,14 @@ class ReactiveUsernamePasswordAuthenticationProviderTest {
 
     @Test
     void ShouldReturnFalseWhenInvalidTypeIsGiven() {
-        ReactiveAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, encoder);
+        ReactiveAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
         final Mono<Boolean>            supports = provider.supports(BearerTokenAuthenticationToken.class);
         StepVerifier.create(supports).expectNext(false).verifyComplete();
     }
 
     @Test
     void ShouldReturnTrueWhenValidTypeIsGiven() {
-        ReactiveAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, encoder);
+        ReactiveAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
         final Mono<Boolean>            supports = provider.supports(UsernamePasswordAuthenticationToken.class);
         StepVerifier.create(supports).expectNext(true).verifyComplete();
     }
@@ -114,7 +124,7 @@ class ReactiveUsernamePasswordAuthenticationProviderTest {
 
     @Test
     void ShouldReturnMonoWithErrorWhenNULLIsPassedAsTheAuthenticationToken() {
-        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, encoder);
+        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
         Mono<Authentication>           authenticate = provider.authenticate(null);
         StepVerifier.create(authenticate)
                 .expectErrorMessage("invalid username or password")
@@ -127,7 +137,7 @@ class ReactiveUsernamePasswordAuthenticationProviderTest {
 
     @Test
     void ShouldReturnMonoWithErrorWhenInvalidAuthenticationTokenIsPassedAsAnArgument() {
-        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, encoder);
+        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
         Mono<Authentication>           authenticate = provider.authenticate(new BearerTokenAuthenticationToken("TOKEN"));
         StepVerifier.create(authenticate)
                 .expectErrorMessage("invalid username or password")
@@ -141,7 +151,7 @@ class ReactiveUsernamePasswordAuthenticationProviderTest {
 
     @Test
     void ShouldReturnMonoWithErrorWhenValidAuthenticationTokenWithBadUsernameIsPassedAsAnArgument() {
-        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, encoder);
+        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
         Mono<Authentication>           authenticate = provider.authenticate(new UsernamePasswordAuthenticationToken("user", "pass"));
         StepVerifier.create(authenticate)
                 .expectErrorMessage("invalid username or password")
@@ -155,7 +165,7 @@ class ReactiveUsernamePasswordAuthenticationProviderTest {
 
     @Test
     void ShouldReturnMonoWithErrorWhenValidAuthenticationTokenWithBadPasswordIsPassedAsAnArgument() {
-        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, encoder);
+        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
         Mono<Authentication>           authenticate = provider.authenticate(new UsernamePasswordAuthenticationToken("username", "pass"));
         StepVerifier.create(authenticate)
                 .expectErrorMessage("invalid username or password")
@@ -169,7 +179,7 @@ class ReactiveUsernamePasswordAuthenticationProviderTest {
 
     @Test
     void ShouldReturnMonoWithValidAuthenticationTokenWhenValidAuthenticationTokenIsPassedAsAnArgument() {
-        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, encoder);
+        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
         Mono<Authentication>           authenticate = provider.authenticate(new UsernamePasswordAuthenticationToken("username", "password"));
         StepVerifier.create(authenticate)
                 .expectNextCount(1)
@@ -182,4 +192,120 @@ class ReactiveUsernamePasswordAuthenticationProviderTest {
     }
 
 
-}
\ No newline at end of file
+    @Test
+    void ShouldReturnMonoWithErrorWhenTheAccountOfTheUserIsLockedOrDisabled() {
+        Mockito.when(userDetailsService.findByUsername("locked"))
+                .thenReturn(Mono.just(org.springframework.security.core.userdetails.User
+                        .withUsername("locked")
+                        .password(USERS.get(0).getPassword())
+                        .authorities(Collections.emptyList())
+                        .accountLocked(true)
+                        .build()));
+        Mockito.when(userDetailsService.findByUsername("disabled"))
+                .thenReturn(Mono.just(org.springframework.security.core.userdetails.User
+                        .withUsername("disabled")
+                        .password(USERS.get(0).getPassword())
+                        .authorities(Collections.emptyList())
+                        .disabled(true)
+                        .build()));
+        ReactiveAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
+        StepVerifier.create(provider.authenticate(new UsernamePasswordAuthenticationToken("locked", "password")))
+                .expectErrorSatisfies(throwable -> Assertions.assertThat(throwable)
+                        .isInstanceOf(BadCredentialsException.class)
+                        .hasMessage("invalid username or password")
+                        .hasFieldOrPropertyWithValue("reason", AuthenticationFailedException.Reason.ACCOUNT_LOCKED))
+                .verify();
+        StepVerifier.create(provider.authenticate(new UsernamePasswordAuthenticationToken("disabled", "password")))
+                .expectErrorSatisfies(throwable -> Assertions.assertThat(throwable)
+                        .isInstanceOf(BadCredentialsException.class)
+                        .hasMessage("invalid username or password")
+                        .hasFieldOrPropertyWithValue("reason", AuthenticationFailedException.Reason.ACCOUNT_DISABLED))
+                .verify();
+    }
+
+
+    @Test
+    void ShouldReturnMonoWithServiceUnavailableErrorWhenThePasswordHashingExecutorIsSaturated() {
+        final PasswordHashingExecutor saturated = Mockito.mock(PasswordHashingExecutor.class);
+        Mockito.when(saturated.matches(ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Mono.error(new PasswordHashingUnavailableException("password hashing is saturated", Duration.ofSeconds(1))));
+        ReactiveAuthenticationProvider provider     = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, saturated);
+        Mono<Authentication>           authenticate = provider.authenticate(new UsernamePasswordAuthenticationToken("username", "password"));
+        StepVerifier.create(authenticate)
+                .expectError(PasswordHashingUnavailableException.class)
+                .verify();
+    }
+
+
+    @Test
+    void ShouldPersistANewHashWhenTheHashOfTheAuthenticatedUserIsOutdated() {
+        final PasswordEncoder upgradingEncoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(4), "noop", NoOpPasswordEncoder.getInstance()));
+        final UserDetails outdated = org.springframework.security.core.userdetails.User.withUsername("outdated").password("{noop}password").authorities(Collections.emptyList()).build();
+        Mockito.when(userDetailsService.findByUsername("outdated")).thenReturn(Mono.just(outdated));
+        final ReactiveUserDetailsPasswordService passwordService = Mockito.mock(ReactiveUserDetailsPasswordService.class);
+        Mockito.when(passwordService.updatePassword(ArgumentMatchers.any(), ArgumentMatchers.anyString()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        ReactiveUsernamePasswordAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(upgradingEncoder));
+        provider.setUserDetailsPasswordService(passwordService);
+
+        StepVerifier.create(provider.authenticate(new UsernamePasswordAuthenticationToken("outdated", "password")))
+                .expectNextCount(1)
+                .verifyComplete();
+        Mockito.verify(passwordService).updatePassword(ArgumentMatchers.eq(outdated),
+                ArgumentMatchers.argThat(hash -> hash.startsWith("{bcrypt}") && upgradingEncoder.matches("password", hash)));
+    }
+
+    @Test
+    void ShouldNotPersistANewHashWhenTheLoginOfAnOutdatedHashIsRejected() {
+        final PasswordEncoder upgradingEncoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(4), "noop", NoOpPasswordEncoder.getInstance()));
+        Mockito.when(userDetailsService.findByUsername("locked"))
+                .thenReturn(Mono.just(org.springframework.security.core.userdetails.User.withUsername("locked").password("{noop}password")
+                        .authorities(Collections.emptyList()).accountLocked(true).build()));
+        final ReactiveUserDetailsPasswordService passwordService = Mockito.mock(ReactiveUserDetailsPasswordService.class);
+        ReactiveUsernamePasswordAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(upgradingEncoder));
+        provider.setUserDetailsPasswordService(passwordService);
+
+        StepVerifier.create(provider.authenticate(new UsernamePasswordAuthenticationToken("locked", "password")))
+                .expectError(AuthenticationFailedException.class)
+                .verify();
+        Mockito.verifyNoInteractions(passwordService);
+    }
+
+    @Test
+    void ShouldStartASingleUpgradeWhenTheSameOutdatedUserLogsInConcurrently() {
+        final PasswordEncoder upgradingEncoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(4), "noop", NoOpPasswordEncoder.getInstance()));
+        final UserDetails outdated = org.springframework.security.core.userdetails.User.withUsername("outdated").password("{noop}password").authorities(Collections.emptyList()).build();
+        Mockito.when(userDetailsService.findByUsername("outdated")).thenReturn(Mono.just(outdated));
+        final Sinks.One<UserDetails> updating = Sinks.one();
+        final ReactiveUserDetailsPasswordService passwordService = Mockito.mock(ReactiveUserDetailsPasswordService.class);
+        Mockito.when(passwordService.updatePassword(ArgumentMatchers.any(), ArgumentMatchers.anyString())).thenReturn(updating.asMono());
+        ReactiveUsernamePasswordAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(upgradingEncoder));
+        provider.setUserDetailsPasswordService(passwordService);
+
+        StepVerifier.create(provider.authenticate(new UsernamePasswordAuthenticationToken("outdated", "password"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(provider.authenticate(new UsernamePasswordAuthenticationToken("outdated", "password"))).expectNextCount(1).verifyComplete();
+        Mockito.verify(passwordService, Mockito.times(1)).updatePassword(ArgumentMatchers.any(), ArgumentMatchers.anyString());
+
+        // once the upgrade is over, a login which still reads the outdated hash upgrades it again
+        updating.tryEmitValue(outdated);
+        StepVerifier.create(provider.authenticate(new UsernamePasswordAuthenticationToken("outdated", "password"))).expectNextCount(1).verifyComplete();
+        Mockito.verify(passwordService, Mockito.times(2)).updatePassword(ArgumentMatchers.any(), ArgumentMatchers.anyString());
+    }
+
+    @Test
+    void ShouldNotPersistANewHashWhenTheHashOfTheAuthenticatedUserIsCurrent() {
+        final ReactiveUserDetailsPasswordService passwordService = Mockito.mock(ReactiveUserDetailsPasswordService.class);
+        ReactiveUsernamePasswordAuthenticationProvider provider = new ReactiveUsernamePasswordAuthenticationProvider(userDetailsService, PasswordHashingExecutor.inline(encoder));
+        provider.setUserDetailsPasswordService(passwordService);
+
+        StepVerifier.create(provider.authenticate(new UsernamePasswordAuthenticationToken("username", "password")))
+                .expectNextCount(1)
+                .verifyComplete();
+        Mockito.verifyNoInteractions(passwordService);
+    }
+
+
+}
@@ -0,0 +1,89 @@
+package com.nimvb.app.discord.security.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+
+
+@ExtendWith(SpringExtension.class)
+class AdaptiveConcurrencyLimiterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private static void fill(AdaptiveConcurrencyLimiter limiter, int requests) {
+        for (int i = 0; i < requests; i++) {
+            Assertions.assertThat(limiter.tryAcquire()).isTrue();
+        }
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheLimitsAreInvalid() {
+        Assertions.assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter("chain", 10, 20, 100, 1.5, 0.2, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> new AdaptiveConcurrencyLimiter("chain", 10, 1, 100, 0.5, 0.2, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ShouldRejectTheRequestsWhenTheLimitIsReached() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("chain", 2, 1, 10, 1.5, 0.2, meterRegistry);
+
+        fill(limiter, 2);
+        Assertions.assertThat(limiter.tryAcquire()).isFalse();
+        limiter.onIgnore();
+        Assertions.assertThat(limiter.tryAcquire()).isTrue();
+
+        Assertions.assertThat(meterRegistry.get("security.concurrency.rejected").tag("chain", "chain").counter().count()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("security.concurrency.in.flight").tag("chain", "chain").gauge().value()).isEqualTo(2);
+        Assertions.assertThat(meterRegistry.get("security.concurrency.limit").tag("chain", "chain").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void ShouldGrowTheLimitWhenItIsUsedAndTheLatencyIsSteady() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("chain", 10, 1, 100, 1.5, 0.2, meterRegistry);
+
+        for (int round = 0; round < 20; round++) {
+            final int inFlight = limiter.getLimit();
+            fill(limiter, inFlight);
+            for (int i = 0; i < inFlight; i++) {
+                limiter.onSuccess(Duration.ofMillis(10).toNanos());
+            }
+        }
+
+        Assertions.assertThat(limiter.getLimit()).isGreaterThan(10);
+        Assertions.assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void ShouldShrinkTheLimitWhenTheLatencyRises() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("chain", 50, 4, 100, 1.5, 0.2, meterRegistry);
+        fill(limiter, 50);
+        for (int i = 0; i < 10; i++) {
+            limiter.onSuccess(Duration.ofMillis(10).toNanos());
+            Assertions.assertThat(limiter.tryAcquire()).isTrue();
+        }
+
+        for (int i = 0; i < 50; i++) {
+            limiter.onSuccess(Duration.ofSeconds(1).toNanos());
+            limiter.tryAcquire();
+        }
+
+        Assertions.assertThat(limiter.getLimit()).isLessThan(50).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    void ShouldShrinkTheLimitWhenARequestIsDropped() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("chain", 10, 4, 100, 1.5, 0.2, meterRegistry);
+
+        limiter.tryAcquire();
+        limiter.onDropped();
+
+        Assertions.assertThat(limiter.getLimit()).isEqualTo(9);
+        Assertions.assertThat(limiter.getInFlight()).isZero();
+    }
+}
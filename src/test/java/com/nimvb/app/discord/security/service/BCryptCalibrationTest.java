@@ -0,0 +1,44 @@
+package com.nimvb.app.discord.security.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.function.IntFunction;
+
+@ExtendWith(SpringExtension.class)
+class BCryptCalibrationTest {
+
+    /**
+     * 1ms at the minimum strength, doubling with every strength like bcrypt does
+     */
+    private static final IntFunction<Duration> DOUBLING = strength -> Duration.ofMillis(1L << (strength - BCryptCalibration.MIN_STRENGTH));
+
+    @Test
+    void ShouldPickTheStrengthWhichHitsTheTargetExactly() {
+        Assertions.assertThat(BCryptCalibration.strength(Duration.ofMillis(64), DOUBLING)).isEqualTo(10);
+    }
+
+    @Test
+    void ShouldPickTheCloserStrengthWhenTheTargetIsBetweenTwoStrengths() {
+        Assertions.assertThat(BCryptCalibration.strength(Duration.ofMillis(70), DOUBLING)).isEqualTo(10);
+        Assertions.assertThat(BCryptCalibration.strength(Duration.ofMillis(120), DOUBLING)).isEqualTo(11);
+    }
+
+    @Test
+    void ShouldPickTheMinimumStrengthWhenTheTargetIsBelowIt() {
+        Assertions.assertThat(BCryptCalibration.strength(Duration.ZERO, DOUBLING)).isEqualTo(BCryptCalibration.MIN_STRENGTH);
+    }
+
+    @Test
+    void ShouldPickTheMaximumStrengthWhenTheTargetIsNeverReached() {
+        Assertions.assertThat(BCryptCalibration.strength(Duration.ofDays(365), strength -> Duration.ofMillis(1))).isEqualTo(BCryptCalibration.MAX_STRENGTH);
+    }
+
+    @Test
+    void ShouldMeasureTheRunningHardwareWhenATargetIsGiven() {
+        Assertions.assertThat(BCryptCalibration.strength(Duration.ofMillis(1))).isBetween(BCryptCalibration.MIN_STRENGTH, 8);
+    }
+}
@@ -0,0 +1,70 @@
+package com.nimvb.app.discord.security.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Map;
+
+@ExtendWith(SpringExtension.class)
+class FileSecretProviderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void ShouldReadTheSecretsFromTheFile() throws IOException {
+        final Path file = directory.resolve("secrets.properties");
+        Files.writeString(file, "key-id=2022-02\nsecret=current\ndecryption-secrets.2022-01=retired\n");
+
+        final SecretProvider provider = new FileSecretProvider(file);
+        Assertions.assertThat(provider.keyId()).isEqualTo("2022-02");
+        Assertions.assertThat(provider.secret()).isEqualTo("current");
+        Assertions.assertThat(provider.decryptionSecrets()).isEqualTo(Map.of("2022-01", "retired"));
+    }
+
+    @Test
+    void ShouldUseTheDefaultKeyIdWhenTheFileDoesNotDefineIt() throws IOException {
+        final Path file = directory.resolve("secrets.properties");
+        Files.writeString(file, "secret=current\n");
+
+        final SecretProvider provider = new FileSecretProvider(file);
+        Assertions.assertThat(provider.keyId()).isEqualTo(SecretProvider.DEFAULT_KEY_ID);
+        Assertions.assertThat(provider.decryptionSecrets()).isEmpty();
+    }
+
+    @Test
+    void ShouldPickUpTheChangesOfTheFile() throws IOException {
+        final Path file = directory.resolve("secrets.properties");
+        Files.writeString(file, "key-id=2022-01\nsecret=first\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minusSeconds(60)));
+
+        final SecretProvider provider = new FileSecretProvider(file);
+        Assertions.assertThat(provider.secret()).isEqualTo("first");
+
+        Files.writeString(file, "key-id=2022-02\nsecret=second\ndecryption-secrets.2022-01=first\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        Assertions.assertThat(provider.keyId()).isEqualTo("2022-02");
+        Assertions.assertThat(provider.secret()).isEqualTo("second");
+        Assertions.assertThat(provider.decryptionSecrets()).isEqualTo(Map.of("2022-01", "first"));
+    }
+
+    @Test
+    void ShouldThrownAnExceptionWhenTheFileIsMissingOrHasNoSecret() throws IOException {
+        Assertions.assertThatThrownBy(() -> new FileSecretProvider(directory.resolve("missing")).secret())
+                .isInstanceOf(UncheckedIOException.class);
+
+        final Path file = directory.resolve("secrets.properties");
+        Files.writeString(file, "key-id=2022-01\n");
+        Assertions.assertThatThrownBy(() -> new FileSecretProvider(file).secret())
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,129 @@
+package com.nimvb.app.discord.security.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+@ExtendWith(SpringExtension.class)
+class LoginThrottleTest {
+
+    private final AtomicLong now   = new AtomicLong(1_000_000);
+    private final Clock      clock = Mockito.mock(Clock.class);
+
+    private final LoginThrottle.Policy usernamePolicy =
+            new LoginThrottle.Policy(3, Duration.ofMinutes(1), Duration.ofSeconds(10), Duration.ofSeconds(35), 1000);
+    private final LoginThrottle.Policy addressPolicy =
+            new LoginThrottle.Policy(10, Duration.ofMinutes(1), Duration.ofSeconds(10), Duration.ofSeconds(35), 1000);
+
+    @BeforeEach
+    void init() {
+        Mockito.when(clock.millis()).thenAnswer(invocation -> now.get());
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenThePolicyIsInvalid() {
+        Assertions.assertThatThrownBy(() -> new LoginThrottle.Policy(0, Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofSeconds(1), 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> new LoginThrottle.Policy(1, Duration.ofMinutes(1), Duration.ofSeconds(2), Duration.ofSeconds(1), 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> new LoginThrottle(null, addressPolicy, clock))
+                .isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    void ShouldBlockTheUsernameOnlyWhenItReachedTheMaximumFailures() {
+        LoginThrottle throttle = new LoginThrottle(usernamePolicy, addressPolicy, clock);
+
+        throttle.recordFailure("username", "127.0.0.1");
+        throttle.recordFailure("username", "127.0.0.1");
+        Assertions.assertThat(throttle.retryAfter("username", "127.0.0.1")).isZero();
+
+        throttle.recordFailure("username", "127.0.0.1");
+        Assertions.assertThat(throttle.retryAfter("username", "127.0.0.1")).isEqualTo(Duration.ofSeconds(10));
+        Assertions.assertThat(throttle.retryAfter("username", "10.0.0.1")).isEqualTo(Duration.ofSeconds(10));
+        Assertions.assertThat(throttle.retryAfter("anotheruser", "127.0.0.1")).isZero();
+        Assertions.assertThat(throttle.retryAfter(null, null)).isZero();
+    }
+
+    @Test
+    void ShouldDoubleTheBackoffUpToTheMaximumWhenTheKeyIsBlockedAgain() {
+        LoginThrottle throttle = new LoginThrottle(usernamePolicy, addressPolicy, clock);
+
+        long[] expected = {10_000, 20_000, 35_000, 35_000};
+        for (long backoff : expected) {
+            for (int i = 0; i < 3; i++) {
+                throttle.recordFailure("username", null);
+            }
+            Assertions.assertThat(throttle.retryAfter("username", null)).isEqualTo(Duration.ofMillis(backoff));
+            now.addAndGet(backoff);
+            Assertions.assertThat(throttle.retryAfter("username", null)).isZero();
+        }
+    }
+
+    @Test
+    void ShouldForgetTheFailuresWhenTheyAreOutsideOfTheSlidingWindow() {
+        LoginThrottle throttle = new LoginThrottle(usernamePolicy, addressPolicy, clock);
+
+        throttle.recordFailure("username", null);
+        throttle.recordFailure("username", null);
+        now.addAndGet(Duration.ofSeconds(90).toMillis());
+        throttle.recordFailure("username", null);
+        Assertions.assertThat(throttle.retryAfter("username", null)).isZero();
+
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+        throttle.recordFailure("username", null);
+        throttle.recordFailure("username", null);
+        Assertions.assertThat(throttle.retryAfter("username", null)).isZero();
+    }
+
+    @Test
+    void ShouldCountTheFailuresOfThePreviousWindowWhenItStillOverlaps() {
+        LoginThrottle throttle = new LoginThrottle(usernamePolicy, addressPolicy, clock);
+
+        throttle.recordFailure("username", null);
+        throttle.recordFailure("username", null);
+        now.addAndGet(Duration.ofSeconds(65).toMillis());
+        throttle.recordFailure("username", null);
+        Assertions.assertThat(throttle.retryAfter("username", null)).isZero();
+        throttle.recordFailure("username", null);
+
+        Assertions.assertThat(throttle.retryAfter("username", null)).isEqualTo(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void ShouldClearTheUsernameButNotTheAddressWhenTheLoginSucceeded() {
+        LoginThrottle throttle = new LoginThrottle(usernamePolicy, addressPolicy, clock);
+
+        for (int i = 0; i < 9; i++) {
+            throttle.recordFailure(i < 2 ? "username" : "user" + i, "127.0.0.1");
+        }
+        throttle.recordSuccess("username");
+        throttle.recordFailure("username", "127.0.0.1");
+
+        Assertions.assertThat(throttle.retryAfter("username", null)).isZero();
+        Assertions.assertThat(throttle.retryAfter(null, "127.0.0.1")).isEqualTo(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void ShouldKeepTheNumberOfTrackedKeysBoundedWhenManyDistinctKeysFail() {
+        LoginThrottle.Policy policy = new LoginThrottle.Policy(1, Duration.ofMinutes(1), Duration.ofSeconds(10), Duration.ofSeconds(10), 64);
+        LoginThrottle throttle = new LoginThrottle(policy, policy, clock);
+
+        throttle.recordFailure("victim", null);
+        Assertions.assertThat(throttle.retryAfter("victim", null)).isEqualTo(Duration.ofSeconds(10));
+        for (int i = 0; i < 10_000; i++) {
+            throttle.recordFailure("username" + i, null);
+        }
+
+        Assertions.assertThat(throttle.retryAfter("victim", null)).isZero();
+        Assertions.assertThat(throttle.retryAfter("username9999", null)).isEqualTo(Duration.ofSeconds(10));
+    }
+}
@@ -0,0 +1,94 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimvb.app.discord.security.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(SpringExtension.class)
+class PasswordHashingExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PasswordHashingExecutor executor;
+
+    /**
+     * An encoder which blocks until the test releases it, so the executor can be saturated deterministically
+     */
+    private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            await();
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            await();
+            return rawPassword.toString().equals(encodedPassword);
+        }
+
+        private void await() {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    @AfterEach
+    void destroy() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenNULLEncoderIsProvided() {
+        Assertions.assertThatThrownBy(() -> PasswordHashingExecutor.inline(null)).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    void ShouldHashWithTheEncoderWhenItIsNotSaturated() {
+        executor = new PasswordHashingExecutor(NoOpPasswordEncoder.getInstance(), 1, 1, Duration.ofSeconds(1), meterRegistry);
+        StepVerifier.create(executor.encode("password")).expectNext("password").verifyComplete();
+        StepVerifier.create(executor.matches("password", "password")).expectNext(true).verifyComplete();
+        StepVerifier.create(executor.matches("password", "other")).expectNext(false).verifyComplete();
+        Assertions.assertThat(meterRegistry.get("password.hashing.time").tag("operation", "matches").timer().count()).isEqualTo(2);
+        Assertions.assertThat(meterRegistry.get("password.hashing.wait").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void ShouldRejectImmediatelyWhenTheThreadsAndTheQueueAreBusy() {
+        executor = new PasswordHashingExecutor(blockingEncoder, 1, 1, Duration.ofSeconds(3), meterRegistry);
+        final Disposable running = executor.encode("running").subscribe();
+        final Disposable waiting = executor.encode("waiting").subscribe();
+        Assertions.assertThat(executor.queueDepth()).isEqualTo(1);
+
+        StepVerifier.create(executor.encode("rejected"))
+                .expectErrorSatisfies(throwable -> {
+                    Assertions.assertThat(throwable).isInstanceOf(PasswordHashingUnavailableException.class);
+                    Assertions.assertThat(((PasswordHashingUnavailableException) throwable).getRetryAfter()).isEqualTo(Duration.ofSeconds(3));
+                })
+                .verify(Duration.ofSeconds(1));
+        Assertions.assertThat(meterRegistry.get("password.hashing.rejected").counter().count()).isEqualTo(1);
+
+        running.dispose();
+        waiting.dispose();
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoCon
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Map;
+
 @ExtendWith(SpringExtension.class)
 class PropertySourceSecretProviderTest {
 
@@ -40,4 +42,34 @@ class PropertySourceSecretProviderTest {
                 });
     }
 
+    @Test
+    void ShouldReturnTheKeyIdAndTheDecryptionSecretsWhenTheCorrespondentExternalPropertiesAreDefined() {
+        new <SecretProvider>ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(PropertyPlaceholderAutoConfiguration.class))
+                .withPropertyValues(
+                        "spring.security.jwe.secret=current",
+                        "spring.security.jwe.key-id=2022-02",
+                        "spring.security.jwe.decryption-secrets.2022-01=retired")
+                .withBean(null, SecretProvider.class, PropertySourceSecretProvider::new, bd -> {
+                })
+                .run(context -> {
+                    final SecretProvider secretProvider = context.getBean(SecretProvider.class);
+                    Assertions.assertThat(secretProvider.keyId()).isEqualTo("2022-02");
+                    Assertions.assertThat(secretProvider.decryptionSecrets()).isEqualTo(Map.of("2022-01", "retired"));
+                });
+    }
+
+    @Test
+    void ShouldReturnTheDefaultKeyIdAndNoDecryptionSecretsWhenThereIsNoExternalPropertyDefined() {
+        new <SecretProvider>ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(PropertyPlaceholderAutoConfiguration.class))
+                .withBean(null, SecretProvider.class, PropertySourceSecretProvider::new, bd -> {
+                })
+                .run(context -> {
+                    final SecretProvider secretProvider = context.getBean(SecretProvider.class);
+                    Assertions.assertThat(secretProvider.keyId()).isEqualTo(SecretProvider.DEFAULT_KEY_ID);
+                    Assertions.assertThat(secretProvider.decryptionSecrets()).isEmpty();
+                });
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimvb.app.discord.security.matcher.RouteTable;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+@ExtendWith(SpringExtension.class)
+class RateLimiterTest {
+
+    private final AtomicLong        now   = new AtomicLong(1_000_000);
+    private final Clock             clock = Mockito.mock(Clock.class);
+    private final RateLimiter.Limit limit = new RateLimiter.Limit("registration", 3, Duration.ofSeconds(30));
+    private       RateLimiter       rateLimiter;
+
+    @BeforeEach
+    void init() {
+        Mockito.when(clock.millis()).thenAnswer(invocation -> now.get());
+        rateLimiter = new RateLimiter(RouteTable.<RateLimiter.Limit>builder().add(HttpMethod.POST, "/api/v1/users/**", limit).build(), 1000, clock);
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheLimitIsInvalid() {
+        Assertions.assertThatThrownBy(() -> new RateLimiter.Limit("bucket", 0, Duration.ofMinutes(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> new RateLimiter(RouteTable.<RateLimiter.Limit>builder().build(), 0, clock))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ShouldResolveTheLimitOfTheRouteOfTheRequest() {
+        Assertions.assertThat(rateLimiter.limitOf(MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/users/").build()))).isSameAs(limit);
+        Assertions.assertThat(rateLimiter.limitOf(MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/users/").build()))).isNull();
+    }
+
+    @Test
+    void ShouldRejectTheRequestsWhenTheBucketIsEmpty() {
+        Assertions.assertThat(rateLimiter.acquire(limit, "client").getRemaining()).isEqualTo(2);
+        Assertions.assertThat(rateLimiter.acquire(limit, "client").getRemaining()).isEqualTo(1);
+        final RateLimiter.Decision last = rateLimiter.acquire(limit, "client");
+        Assertions.assertThat(last.isAllowed()).isTrue();
+        Assertions.assertThat(last.getRemaining()).isZero();
+        Assertions.assertThat(last.getResetAfter()).isEqualTo(Duration.ofSeconds(30));
+        Assertions.assertThat(last.getResetAt()).isEqualTo(Instant.ofEpochMilli(now.get()).plusSeconds(30));
+
+        final RateLimiter.Decision rejected = rateLimiter.acquire(limit, "client");
+        Assertions.assertThat(rejected.isAllowed()).isFalse();
+        Assertions.assertThat(rejected.getRetryAfter()).isEqualTo(Duration.ofSeconds(10));
+        Assertions.assertThat(rateLimiter.acquire(limit, "other").isAllowed()).isTrue();
+    }
+
+    @Test
+    void ShouldRefillTheBucketOverTheTime() {
+        rateLimiter.acquire(limit, "client");
+        rateLimiter.acquire(limit, "client");
+        rateLimiter.acquire(limit, "client");
+
+        now.addAndGet(Duration.ofSeconds(10).toMillis());
+        final RateLimiter.Decision refilled = rateLimiter.acquire(limit, "client");
+        Assertions.assertThat(refilled.isAllowed()).isTrue();
+        Assertions.assertThat(refilled.getRemaining()).isZero();
+        Assertions.assertThat(rateLimiter.acquire(limit, "client").isAllowed()).isFalse();
+
+        now.addAndGet(Duration.ofSeconds(30).toMillis());
+        Assertions.assertThat(rateLimiter.acquire(limit, "client").getRemaining()).isEqualTo(2);
+    }
+
+    @Test
+    void ShouldForgetTheFullestBucketsWhenThereAreMoreClientsThanKept() {
+        final RateLimiter bounded = new RateLimiter(RouteTable.<RateLimiter.Limit>builder().build(), 1, clock);
+        final RateLimiter.Limit single = new RateLimiter.Limit("single", 1, Duration.ofSeconds(30));
+
+        Assertions.assertThat(bounded.acquire(single, "client").isAllowed()).isTrue();
+        Assertions.assertThat(bounded.acquire(single, "client").isAllowed()).isFalse();
+        now.incrementAndGet();
+        for (int i = 0; i < 1000; i++) {
+            bounded.acquire(single, "other-" + i);
+        }
+
+        Assertions.assertThat(bounded.acquire(single, "client").isAllowed()).isTrue();
+    }
+
+    @Test
+    void ShouldKeepTheEmptiestBucketWhenTheStripesAreSweptInBatches() {
+        final RateLimiter bounded = new RateLimiter(RouteTable.<RateLimiter.Limit>builder().build(), 256, clock);
+
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThat(bounded.acquire(limit, "client").isAllowed()).isTrue();
+        }
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertThat(bounded.acquire(limit, "other-" + i).isAllowed()).isTrue();
+        }
+
+        Assertions.assertThat(bounded.acquire(limit, "client").isAllowed()).isFalse();
+    }
+}
@@ -1,18 +1,25 @@
 package com.nimvb.app.discord.security.service;
 
 import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.domain.UserCredentials;
+import com.nimvb.app.discord.event.UserChangedEvent;
+import com.nimvb.app.discord.security.cache.UserDetailsCache;
 import com.nimvb.app.discord.exception.UserNotFoundException;
 import com.nimvb.app.discord.service.UserService;
 import com.nimvb.app.discord.util.UserBuilder;
+import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -20,6 +27,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 
@@ -44,13 +52,16 @@ class ReactiveCustomUserDetailsServiceTest {
     @BeforeEach
     void init() {
 
-        Mockito.when(userService.find(ArgumentMatchers.anyString())).thenAnswer(invocation -> {
+        final Answer<Mono<UserCredentials>> credentials = invocation -> {
             final String username = invocation.getArgument(0);
             return Flux.fromIterable(USERS)
                     .filter(user -> user.getUsername().equals(username))
                     .next()
+                    .map(user -> new UserCredentials(user.getUsername(), user.getPassword(), user.getRoles(), user.isDisabled(), user.isLocked()))
                     .switchIfEmpty(Mono.error(new UserNotFoundException(username)));
-        });
+        };
+        Mockito.when(userService.findCredentials(ArgumentMatchers.anyString())).thenAnswer(credentials);
+        Mockito.when(userService.findLatestCredentials(ArgumentMatchers.anyString())).thenAnswer(credentials);
 
         userDetailsService = new ReactiveCustomUserDetailsService(userService);
     }
@@ -75,9 +86,96 @@ class ReactiveCustomUserDetailsServiceTest {
     }
 
 
+    @Test
+    void ShouldCarryTheRolesAndTheAccountStatusWhenTheCredentialsAreFound() {
+        Mockito.when(userService.findCredentials("locked"))
+                .thenReturn(Mono.just(new UserCredentials("locked", "password", "USER ADMIN", true, true)));
+        StepVerifier.create(userDetailsService.findByUsername("locked"))
+                .assertNext(userDetails -> {
+                    Assertions.assertThat(userDetails.getAuthorities())
+                            .extracting(GrantedAuthority::getAuthority)
+                            .containsExactlyInAnyOrder("USER", "ADMIN");
+                    Assertions.assertThat(userDetails.isEnabled()).isFalse();
+                    Assertions.assertThat(userDetails.isAccountNonLocked()).isFalse();
+                })
+                .verifyComplete();
+    }
+
     @Test
     void ShouldReturnEmptyMonoWhenInvalidUsernameIsProvided() {
         final Mono<UserDetails> userDetails = userDetailsService.findByUsername("fakeusername");
         StepVerifier.create(userDetails).expectNextCount(0).verifyComplete();
     }
-}
\ No newline at end of file
+    @Test
+    void ShouldReturnUserDetailsWithTheNewPasswordWhenThePasswordIsUpdated() {
+        Mockito.when(userService.updatePassword("username", "rehashed")).thenReturn(Mono.empty());
+        final UserDetails current = org.springframework.security.core.userdetails.User
+                .withUsername("username")
+                .password("password")
+                .authorities(Collections.emptyList())
+                .build();
+        final Mono<UserDetails> updated = ((ReactiveUserDetailsPasswordService) userDetailsService).updatePassword(current, "rehashed");
+        StepVerifier.create(updated.map(UserDetails::getPassword)).expectNext("rehashed").verifyComplete();
+        Mockito.verify(userService).updatePassword("username", "rehashed");
+    }
+
+    @Test
+    void ShouldLookTheUserUpOnlyOnceUntilItIsChangedWhenTheDetailsAreCached() {
+        final ReactiveCustomUserDetailsService cachedUserDetailsService =
+                new ReactiveCustomUserDetailsService(userService, new UserDetailsCache(100, Duration.ofMinutes(1)));
+
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username")).expectNextCount(1).verifyComplete();
+        Mockito.verify(userService, Mockito.times(1)).findCredentials("username");
+
+        cachedUserDetailsService.onUserChanged(new UserChangedEvent(this, "username"));
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username")).expectNextCount(1).verifyComplete();
+        Mockito.verify(userService, Mockito.times(1)).findCredentials("username");
+        Mockito.verify(userService, Mockito.times(1)).findLatestCredentials("username");
+    }
+
+    @Test
+    void ShouldCacheTheLatestCredentialsWhenTheUserIsLoadedAgainAfterItIsChanged() {
+        final ReactiveCustomUserDetailsService cachedUserDetailsService =
+                new ReactiveCustomUserDetailsService(userService, new UserDetailsCache(100, Duration.ofMinutes(1)));
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username")).expectNextCount(1).verifyComplete();
+
+        // a lagging replica still serves the replaced password
+        Mockito.when(userService.findLatestCredentials("username"))
+                .thenReturn(Mono.just(new UserCredentials("username", "changed", null, false, false)));
+        cachedUserDetailsService.onUserChanged(new UserChangedEvent(this, "username"));
+
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username").map(UserDetails::getPassword))
+                .expectNext("changed")
+                .verifyComplete();
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username").map(UserDetails::getPassword))
+                .expectNext("changed")
+                .verifyComplete();
+    }
+
+    @Test
+    void ShouldLookTheUserUpAgainWhenEveryUserIsChanged() {
+        final ReactiveCustomUserDetailsService cachedUserDetailsService =
+                new ReactiveCustomUserDetailsService(userService, new UserDetailsCache(100, Duration.ofMinutes(1)));
+
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username")).expectNextCount(1).verifyComplete();
+        cachedUserDetailsService.onUserChanged(UserChangedEvent.everyUser(this));
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username")).expectNextCount(1).verifyComplete();
+        Mockito.verify(userService, Mockito.times(1)).findCredentials("username");
+        Mockito.verify(userService, Mockito.times(1)).findLatestCredentials("username");
+    }
+
+    @Test
+    void ShouldKeepTheCachedPasswordWhenTheCredentialsOfAFoundUserAreErased() {
+        final ReactiveCustomUserDetailsService cachedUserDetailsService =
+                new ReactiveCustomUserDetailsService(userService, new UserDetailsCache(100, Duration.ofMinutes(1)));
+
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username"))
+                .assertNext(userDetails -> ((org.springframework.security.core.userdetails.User) userDetails).eraseCredentials())
+                .verifyComplete();
+        StepVerifier.create(cachedUserDetailsService.findByUsername("username").map(UserDetails::getPassword))
+                .expectNext("password")
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,132 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimvb.app.discord.security.util.Jwe;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+@ExtendWith(SpringExtension.class)
+class ReloadingKeyRingProviderTest {
+
+    private final AtomicReference<String> keyId   = new AtomicReference<>("2022-01");
+    private final AtomicReference<String> secret  = new AtomicReference<>("secret-2022-01");
+    private final Map<String, String>     retired = new HashMap<>();
+
+    private final SecretProvider secretProvider = new SecretProvider() {
+        @Override
+        public String secret() {
+            return secret.get();
+        }
+
+        @Override
+        public String keyId() {
+            return keyId.get();
+        }
+
+        @Override
+        public Map<String, String> decryptionSecrets() {
+            return Map.copyOf(retired);
+        }
+    };
+
+    private ReloadingKeyRingProvider provider;
+
+    @BeforeEach
+    void init() {
+        provider = new ReloadingKeyRingProvider(secretProvider, Duration.ZERO);
+    }
+
+    @AfterEach
+    void destroy() {
+        provider.destroy();
+    }
+
+    @Test
+    void ShouldThrownAnExceptionWhenNULLArgumentsAreProvided() {
+        Assertions.assertThatThrownBy(() -> new ReloadingKeyRingProvider(null, Duration.ZERO)).isInstanceOf(NullPointerException.class);
+        Assertions.assertThatThrownBy(() -> new ReloadingKeyRingProvider(secretProvider, null)).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    void ShouldStampTheKeyIdOfTheActiveSecret() {
+        Assertions.assertThat(provider.keyRing().active().getKeyId()).isEqualTo("2022-01");
+    }
+
+    @Test
+    void ShouldDeriveTheKeysForTheGivenEncryptionMethod() {
+        final ReloadingKeyRingProvider gcm = new ReloadingKeyRingProvider(secretProvider, Duration.ZERO, EncryptionMethod.A128GCM);
+        try {
+            Assertions.assertThat(provider.keyRing().active().getEncryptionMethod()).isEqualTo(EncryptionMethod.A128CBC_HS256);
+            Assertions.assertThat(gcm.keyRing().active().getEncryptionMethod()).isEqualTo(EncryptionMethod.A128GCM);
+        } finally {
+            gcm.destroy();
+        }
+    }
+
+    @Test
+    void ShouldKeepTheSameKeyRingWhenTheSecretsHaveNotChanged() {
+        final Jwe.KeyRing keyRing = provider.keyRing();
+        provider.reload();
+        Assertions.assertThat(provider.keyRing()).isSameAs(keyRing);
+    }
+
+    @Test
+    void ShouldRotateTheActiveKeyAndKeepDecryptingWithTheRetiredOne() {
+        final Jwe.Algorithm previous = provider.keyRing().active();
+
+        retired.put("2022-01", "secret-2022-01");
+        keyId.set("2022-02");
+        secret.set("secret-2022-02");
+        provider.reload();
+
+        final Jwe.KeyRing keyRing = provider.keyRing();
+        Assertions.assertThat(keyRing.active().getKeyId()).isEqualTo("2022-02");
+        Assertions.assertThat(keyRing.find("2022-01")).isSameAs(previous);
+        Assertions.assertThat(keyRing.find("2022-02")).isSameAs(keyRing.active());
+        Assertions.assertThat(keyRing.find(null)).isSameAs(keyRing.active());
+    }
+
+    @Test
+    void ShouldDropTheKeysWhichAreNotProvidedAnymore() {
+        retired.put("2021-12", "secret-2021-12");
+        provider.reload();
+        Assertions.assertThat(provider.keyRing().find("2021-12")).isNotNull();
+
+        retired.clear();
+        provider.reload();
+        Assertions.assertThat(provider.keyRing().find("2021-12")).isNull();
+    }
+
+    @Test
+    void ShouldKeepThePreviousKeyRingWhenReloadingFails() {
+        final Jwe.KeyRing keyRing = provider.keyRing();
+        secret.set("");
+        provider.reload();
+        Assertions.assertThat(provider.keyRing()).isSameAs(keyRing);
+    }
+
+    @Test
+    void ShouldReloadInTheBackground() throws InterruptedException {
+        final ReloadingKeyRingProvider reloading = new ReloadingKeyRingProvider(secretProvider, Duration.ofMillis(50));
+        try {
+            keyId.set("2022-02");
+            secret.set("secret-2022-02");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!"2022-02".equals(reloading.keyRing().active().getKeyId()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertThat(reloading.keyRing().active().getKeyId()).isEqualTo("2022-02");
+        } finally {
+            reloading.destroy();
+        }
+    }
+}
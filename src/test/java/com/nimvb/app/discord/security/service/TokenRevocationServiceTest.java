@@ -0,0 +1,155 @@
+package com.nimvb.app.discord.security.service;
+
+import com.nimvb.app.discord.domain.RevokedToken;
+import com.nimvb.app.discord.repository.RevokedTokenRepository;
+import com.nimvb.app.discord.security.cache.DecryptedTokenCache;
+import com.nimvb.app.discord.security.util.Jwe;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+
+@ExtendWith(SpringExtension.class)
+class TokenRevocationServiceTest {
+
+    private final Instant               now        = Instant.parse("2022-01-01T00:00:00Z");
+    private final Clock                 clock      = Clock.fixed(now, ZoneOffset.UTC);
+    private final List<RevokedToken>    collection = new ArrayList<>();
+    private       RevokedTokenRepository repository;
+    private       DecryptedTokenCache    decryptedTokenCache;
+    private       TokenRevocationService service;
+
+    @BeforeEach
+    void init() {
+        repository = Mockito.mock(RevokedTokenRepository.class);
+        Mockito.when(repository.save(ArgumentMatchers.any(RevokedToken.class))).thenAnswer(invocation -> {
+            collection.add(invocation.getArgument(0));
+            return Mono.just(invocation.getArgument(0));
+        });
+        Mockito.when(repository.existsById(ArgumentMatchers.anyString())).thenAnswer(invocation ->
+                Mono.just(collection.stream().anyMatch(token -> token.getId().equals(invocation.getArgument(0)))));
+        Mockito.when(repository.count()).thenAnswer(invocation -> Mono.just((long) collection.size()));
+        Mockito.when(repository.findAll()).thenAnswer(invocation -> Flux.fromIterable(new ArrayList<>(collection)));
+        Mockito.when(repository.findByRevokedAtGreaterThanEqual(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            Instant since = invocation.getArgument(0);
+            return Flux.fromIterable(new ArrayList<>(collection)).filter(token -> !token.getRevokedAt().isBefore(since));
+        });
+        decryptedTokenCache = new DecryptedTokenCache(100, clock);
+        service = new TokenRevocationService(repository, decryptedTokenCache, clock, 100, 0.01, Duration.ZERO, Duration.ofHours(1));
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheFilterSizingIsInvalid() {
+        Assertions.assertThatThrownBy(() -> new TokenRevocationService(repository, decryptedTokenCache, clock, 0, 0.01, Duration.ZERO, Duration.ofHours(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ShouldLookUpEveryTokenWhenTheFilterIsNotBuiltYet() {
+        StepVerifier.create(service.isRevoked("token")).expectNext(false).verifyComplete();
+        Mockito.verify(repository).existsById("token");
+    }
+
+    @Test
+    void ShouldNotLookUpTheTokensWhichAreNotInTheFilter() {
+        StepVerifier.create(service.synchronize()).verifyComplete();
+
+        StepVerifier.create(service.isRevoked("token")).expectNext(false).verifyComplete();
+        StepVerifier.create(service.isRevoked(null)).expectNext(false).verifyComplete();
+        Mockito.verify(repository, Mockito.never()).existsById(ArgumentMatchers.anyString());
+    }
+
+    @Test
+    void ShouldRejectATokenRevokedWhileTheFilterIsBuiltAgain() {
+        final Sinks.Empty<Void> reading = Sinks.empty();
+        Mockito.when(repository.findAll()).thenAnswer(invocation ->
+                reading.asMono().thenMany(Flux.fromIterable(new ArrayList<>(collection))));
+
+        StepVerifier.create(service.synchronize())
+                .then(() -> {
+                    StepVerifier.create(service.revoke("token", "id", "username", now.plusSeconds(60))).verifyComplete();
+                    reading.tryEmitEmpty();
+                })
+                .verifyComplete();
+
+        // the revocation was saved after the tokens were read, only the replay puts it into the new filter
+        StepVerifier.create(service.isRevoked("id")).expectNext(true).verifyComplete();
+        Mockito.verify(repository).existsById("id");
+    }
+
+    @Test
+    void ShouldRejectARevokedTokenAtOnceAndDropItFromTheCacheWhenItIsRevokedOnThisNode() throws Exception {
+        StepVerifier.create(service.synchronize()).verifyComplete();
+        Jwe.KeyRing keyRing = Jwe.KeyRing.of(Jwe.Algorithm.AES128HS256(SecretProvider.DEFAULT_SECRET));
+        decryptedTokenCache.put("token", keyRing, new DecryptedTokenCache.Entry("username",
+                List.of(new SimpleGrantedAuthority("user")), now.plusSeconds(60), "jti", null));
+
+        StepVerifier.create(service.revoke("token", "jti", "username", now.plusSeconds(60))).verifyComplete();
+
+        StepVerifier.create(service.isRevoked("jti")).expectNext(true).verifyComplete();
+        Assertions.assertThat(decryptedTokenCache.get("token", keyRing)).isNull();
+        Assertions.assertThat(collection).containsExactly(new RevokedToken("jti", "username", now, now.plusSeconds(60)));
+    }
+
+    @Test
+    void ShouldRejectATokenRevokedOnAnotherNodeAfterTheNextSynchronization() {
+        StepVerifier.create(service.synchronize()).verifyComplete();
+        collection.add(new RevokedToken("jti", "username", now, now.plusSeconds(60)));
+        StepVerifier.create(service.isRevoked("jti")).expectNext(false).verifyComplete();
+
+        StepVerifier.create(service.synchronize()).verifyComplete();
+
+        StepVerifier.create(service.isRevoked("jti")).expectNext(true).verifyComplete();
+        Mockito.verify(repository).findByRevokedAtGreaterThanEqual(now.minusSeconds(5));
+        Mockito.verify(repository, Mockito.times(1)).findAll();
+    }
+
+    @Test
+    void ShouldDropTheExpiredTokensFromTheFilterWhenItIsBuiltAgain() {
+        Clock[] current = {clock};
+        TokenRevocationService service = new TokenRevocationService(repository, decryptedTokenCache, new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return current[0].instant();
+            }
+        }, 100, 0.01, Duration.ZERO, Duration.ofHours(1));
+        collection.add(new RevokedToken("jti", "username", now, now.plusSeconds(60)));
+        StepVerifier.create(service.synchronize()).verifyComplete();
+        StepVerifier.create(service.isRevoked("jti")).expectNext(true).verifyComplete();
+
+        collection.clear();
+        current[0] = Clock.offset(clock, Duration.ofHours(1));
+        StepVerifier.create(service.synchronize()).verifyComplete();
+
+        Mockito.clearInvocations(repository);
+        StepVerifier.create(service.isRevoked("jti")).expectNext(false).verifyComplete();
+        Mockito.verify(repository, Mockito.never()).existsById(ArgumentMatchers.anyString());
+    }
+}
@@ -0,0 +1,54 @@
+package com.nimvb.app.discord.security.util;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+
+@ExtendWith(SpringExtension.class)
+class BloomFilterTest {
+
+    @Test
+    void ShouldThrowExceptionWhenTheSizingIsInvalid() {
+        Assertions.assertThatThrownBy(() -> new BloomFilter(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> new BloomFilter(100, 0)).isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> new BloomFilter(100, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ShouldContainEveryValueWhichWasPut() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("token-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertThat(filter.mightContain("token-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    void ShouldKeepTheFalsePositiveRateNearTheSizedRateWhenItIsFilledToTheExpectedInsertions() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("token-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        Assertions.assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void ShouldCountOnlyTheValuesWhichWereNotPutBefore() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+
+        Assertions.assertThat(filter.put("token")).isTrue();
+        Assertions.assertThat(filter.put("token")).isFalse();
+        Assertions.assertThat(filter.size()).isEqualTo(1);
+        Assertions.assertThat(filter.mightContain("other")).isFalse();
+    }
+}
@@ -0,0 +1,230 @@
+package com.nimvb.app.discord.security.util;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+@ExtendWith(SpringExtension.class)
+class JweTest {
+
+    private static final String SECRET = "secret";
+
+    Jwe.Algorithm algorithm;
+
+    Jwe.DecryptionManager decryptionManager;
+
+    Instant now;
+
+    @BeforeEach
+    void init() throws Exception {
+        algorithm = Jwe.Algorithm.AES128HS256("current", SECRET);
+        decryptionManager = Jwe.require(algorithm).build();
+        now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    @Test
+    void ShouldDecodeTheSameClaimsAsDecryptWhenATokenIssuedByTheApplicationIsGiven() throws Exception {
+        final String token = Jwe.create()
+                .withSubject("üser")
+                .withIssuer("users")
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plusSeconds(3600)))
+                .withClaim("roles", List.of("user", "admin"))
+                .encrypt(algorithm);
+        final Jwe.Claims claims = decryptionManager.decode(token);
+        final JWTClaimsSet claimsSet = decryptionManager.decrypt(token);
+        Assertions.assertThat(claims.getSubject()).isEqualTo("üser").isEqualTo(claimsSet.getSubject());
+        Assertions.assertThat(claims.getIssuer()).isEqualTo("users");
+        Assertions.assertThat(claims.getIssuedAt()).isEqualTo(now);
+        Assertions.assertThat(claims.getExpiresAt()).isEqualTo(now.plusSeconds(3600)).isEqualTo(claimsSet.getExpirationTime().toInstant());
+        Assertions.assertThat(claims.getRoles()).containsExactly("user", "admin");
+    }
+
+    @Test
+    void ShouldDecodeEmptyRolesWhenTheTokenHasNoRolesClaim() throws Exception {
+        final String token = Jwe.create()
+                .withSubject("user")
+                .withExpiredAt(Date.from(now))
+                .withClaim("enabled", true)
+                .withClaim("scopes", List.of("read", 1))
+                .encrypt(algorithm);
+        final Jwe.Claims claims = decryptionManager.decode(token);
+        Assertions.assertThat(claims.getSubject()).isEqualTo("user");
+        Assertions.assertThat(claims.getIssuer()).isNull();
+        Assertions.assertThat(claims.getIssuedAt()).isNull();
+        Assertions.assertThat(claims.getRoles()).isEmpty();
+    }
+
+    @Test
+    void ShouldDecodeTheRefreshTokenClaimsWhenTheyArePresent() throws Exception {
+        final String token = Jwe.create()
+                .withSubject("user")
+                .withExpiredAt(Date.from(now))
+                .withClaim("jti", "token")
+                .withClaim(TokenType.FAMILY_CLAIM, "family")
+                .withClaim(TokenType.CLAIM, TokenType.REFRESH)
+                .encrypt(algorithm);
+        final Jwe.Claims claims = decryptionManager.decode(token);
+        final Jwe.Claims decrypted = Jwe.Claims.of(decryptionManager.decrypt(token));
+        Assertions.assertThat(claims.getTokenId()).isEqualTo("token").isEqualTo(decrypted.getTokenId());
+        Assertions.assertThat(claims.getFamily()).isEqualTo("family").isEqualTo(decrypted.getFamily());
+        Assertions.assertThat(claims.getTokenType()).isEqualTo(TokenType.REFRESH).isEqualTo(decrypted.getTokenType());
+    }
+
+    @Test
+    void ShouldFallBackToDecryptWhenTheClaimsAreNotFlat() throws Exception {
+        final String token = Jwe.create()
+                .withSubject("us\"er")
+                .withExpiredAt(Date.from(now))
+                .withClaim("profile", Map.of("name", "user"))
+                .withClaim("roles", List.of("user"))
+                .encrypt(algorithm);
+        final Jwe.Claims claims = decryptionManager.decode(token);
+        Assertions.assertThat(claims.getSubject()).isEqualTo("us\"er");
+        Assertions.assertThat(claims.getExpiresAt()).isEqualTo(now);
+        Assertions.assertThat(claims.getRoles()).containsExactly("user");
+    }
+
+    @Test
+    void ShouldFallBackToDecryptWhenTheHeaderIsNotTheOneOfTheKey() throws Exception {
+        final byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1")
+                .generateSecret(new PBEKeySpec(SECRET.toCharArray(), SECRET.getBytes(StandardCharsets.UTF_8), 10, 256))
+                .getEncoded();
+        final JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.DIR, EncryptionMethod.A128CBC_HS256)
+                .keyID("current")
+                .contentType("JWT")
+                .build();
+        final JWEObject jweObject = new JWEObject(header, new Payload(new JWTClaimsSet.Builder().subject("user").build().toJSONObject()));
+        jweObject.encrypt(new DirectEncrypter(key));
+        final Jwe.Claims claims = decryptionManager.decode(jweObject.serialize());
+        Assertions.assertThat(claims.getSubject()).isEqualTo("user");
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheAuthenticationTagIsTampered() throws Exception {
+        final String token = Jwe.create().withSubject("user").withExpiredAt(Date.from(now)).encrypt(algorithm);
+        final String[] parts = token.split("\\.");
+        final byte[] tag = Base64URL.from(parts[4]).decode();
+        tag[0] ^= 1;
+        final String tampered = String.join(".", parts[0], parts[1], parts[2], parts[3], Base64URL.encode(tag).toString());
+        Assertions.assertThatThrownBy(() -> decryptionManager.decode(tampered)).isInstanceOf(JOSEException.class);
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheTokenIsEncryptedWithAnotherKey() throws Exception {
+        final String token = Jwe.create()
+                .withSubject("user")
+                .withExpiredAt(Date.from(now))
+                .encrypt(Jwe.Algorithm.AES128HS256("current", SECRET + SECRET));
+        Assertions.assertThatThrownBy(() -> decryptionManager.decode(token)).isInstanceOf(JOSEException.class);
+        Assertions.assertThatThrownBy(() -> decryptionManager.decode(token.substring(1))).isInstanceOf(Exception.class);
+        Assertions.assertThatThrownBy(() -> decryptionManager.decode("not.a.token")).isInstanceOf(Exception.class);
+    }
+
+    @Test
+    void ShouldOnlyDecodeTokensOfTheAcceptedEncryptionMethodsWhenTheyAreEncryptedWithTheSameSecret() throws Exception {
+        final List<EncryptionMethod> methods = List.of(EncryptionMethod.A128CBC_HS256, EncryptionMethod.A128GCM, EncryptionMethod.A256GCM);
+        for (EncryptionMethod issuerMethod : methods) {
+            final String token = Jwe.create()
+                    .withSubject("user")
+                    .withExpiredAt(Date.from(now))
+                    .withClaim("roles", List.of("user"))
+                    .encrypt(Jwe.Algorithm.of("current", SECRET, issuerMethod));
+            Assertions.assertThat(JWEObject.parse(token).getHeader().getEncryptionMethod()).isEqualTo(issuerMethod);
+            for (EncryptionMethod validatorMethod : methods) {
+                final Jwe.DecryptionManager manager = Jwe.require(Jwe.Algorithm.of("current", SECRET, validatorMethod)).build();
+                if (validatorMethod.equals(issuerMethod)) {
+                    Assertions.assertThat(manager.decode(token).getRoles()).containsExactly("user");
+                    Assertions.assertThat(manager.decrypt(token).getSubject()).isEqualTo("user");
+                } else {
+                    Assertions.assertThatThrownBy(() -> manager.decode(token)).isInstanceOf(JOSEException.class);
+                    Assertions.assertThatThrownBy(() -> manager.decrypt(token)).isInstanceOf(JOSEException.class);
+                    final Jwe.DecryptionManager migrating = Jwe.require(Jwe.Algorithm.of("current", SECRET, validatorMethod, List.of(issuerMethod))).build();
+                    Assertions.assertThat(migrating.decode(token).getRoles()).containsExactly("user");
+                    Assertions.assertThat(migrating.decrypt(token).getSubject()).isEqualTo("user");
+                }
+            }
+        }
+    }
+
+    @Test
+    void ShouldNotDecryptAGcmTokenWithTheKeyOfAnotherEncryptionMethod() throws Exception {
+        final byte[] cbcKey = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1")
+                .generateSecret(new PBEKeySpec(SECRET.toCharArray(), SECRET.getBytes(StandardCharsets.UTF_8), 10, 256))
+                .getEncoded();
+        final String token = Jwe.create().withSubject("user").withExpiredAt(Date.from(now)).encrypt(Jwe.Algorithm.A128GCM("current", SECRET));
+        final JWEObject first = JWEObject.parse(token);
+        Assertions.assertThatThrownBy(() -> first.decrypt(new DirectDecrypter(Arrays.copyOf(cbcKey, 16)))).isInstanceOf(JOSEException.class);
+        final JWEObject second = JWEObject.parse(token);
+        Assertions.assertThatThrownBy(() -> second.decrypt(new DirectDecrypter(Arrays.copyOfRange(cbcKey, 16, 32)))).isInstanceOf(JOSEException.class);
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheAuthenticationTagOfAGcmTokenIsTampered() throws Exception {
+        final Jwe.Algorithm gcm   = Jwe.Algorithm.A256GCM("current", SECRET);
+        final String        token = Jwe.create().withSubject("user").withExpiredAt(Date.from(now)).encrypt(gcm);
+        final String[] parts = token.split("\\.");
+        final byte[] tag = Base64URL.from(parts[4]).decode();
+        tag[0] ^= 1;
+        final String tampered = String.join(".", parts[0], parts[1], parts[2], parts[3], Base64URL.encode(tag).toString());
+        Assertions.assertThatThrownBy(() -> Jwe.require(gcm).build().decode(tampered)).isInstanceOf(JOSEException.class);
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheEncryptionMethodIsNotSupported() {
+        Assertions.assertThatThrownBy(() -> Jwe.Algorithm.of("current", SECRET, EncryptionMethod.A192GCM))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ShouldAllocateLessWhenDecodingThanWhenDecrypting() throws Exception {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final String token = Jwe.create()
+                .withSubject("user")
+                .withIssuer("users")
+                .withIssuedAt(Date.from(now))
+                .withExpiredAt(Date.from(now.plusSeconds(3600)))
+                .withClaim("roles", List.of("user"))
+                .encrypt(algorithm);
+        final int iterations = 2_000;
+        for (int i = 0; i < iterations; i++) {
+            decryptionManager.decode(token);
+            decryptionManager.decrypt(token);
+        }
+        final long thread = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < iterations; i++) {
+            decryptionManager.decode(token);
+        }
+        final long decode = (threads.getThreadAllocatedBytes(thread) - start) / iterations;
+        start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < iterations; i++) {
+            decryptionManager.decrypt(token);
+        }
+        final long decrypt = (threads.getThreadAllocatedBytes(thread) - start) / iterations;
+        Assertions.assertThat(decode).isLessThan(decrypt / 2);
+    }
+}
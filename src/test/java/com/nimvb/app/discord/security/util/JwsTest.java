@@ -0,0 +1,69 @@
+package com.nimvb.app.discord.security.util;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+class JwsTest {
+
+    private static final String SECRET = "secret";
+
+    @Test
+    void ShouldVerifyATokenSignedWithHS256() throws Exception {
+        final Jws.Algorithm algorithm = Jws.Algorithm.HS256("current", SECRET);
+        final String        token     = builder().sign(algorithm);
+        final Jwe.Claims    claims    = Jws.require(Jws.KeyRing.of(algorithm)).build().decode(token);
+        Assertions.assertThat(token.split("\\.")).hasSize(3);
+        Assertions.assertThat(claims.getSubject()).isEqualTo("user");
+        Assertions.assertThat(claims.getRoles()).containsExactly("user");
+    }
+
+    @Test
+    void ShouldVerifyATokenSignedWithEd25519WithThePublicKeyOnly() throws Exception {
+        final OctetKeyPair  key     = new OctetKeyPairGenerator(Curve.Ed25519).keyID("current").generate();
+        final String        token   = builder().sign(Jws.Algorithm.Ed25519(key));
+        final Jws.Algorithm verifier = Jws.Algorithm.Ed25519(key.toPublicJWK());
+        Assertions.assertThat(Jws.require(Jws.KeyRing.of(verifier)).build().verify(token).getSubject()).isEqualTo("user");
+        Assertions.assertThatThrownBy(() -> builder().sign(verifier)).isInstanceOf(JOSEException.class);
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheSignatureDoesNotMatch() throws Exception {
+        final String token = builder().sign(Jws.Algorithm.HS256("current", SECRET + SECRET));
+        final Jws.VerificationManager manager = Jws.require(Jws.KeyRing.of(Jws.Algorithm.HS256("current", SECRET))).build();
+        Assertions.assertThatThrownBy(() -> manager.verify(token)).isInstanceOf(JOSEException.class);
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheAlgorithmIsNotTheOneOfTheKey() throws Exception {
+        final OctetKeyPair key   = new OctetKeyPairGenerator(Curve.Ed25519).keyID("current").generate();
+        final String       token = builder().sign(Jws.Algorithm.HS256("current", SECRET));
+        final Jws.VerificationManager manager = Jws.require(Jws.KeyRing.of(Jws.Algorithm.Ed25519(key))).build();
+        Assertions.assertThatThrownBy(() -> manager.verify(token)).isInstanceOf(JOSEException.class);
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheKeyIdIsUnknown() throws Exception {
+        final String token = builder().sign(Jws.Algorithm.HS256("unknown", SECRET));
+        final Jws.VerificationManager manager = Jws.require(Jws.KeyRing.of(Jws.Algorithm.HS256("current", SECRET))).build();
+        Assertions.assertThatThrownBy(() -> manager.verify(token)).isInstanceOf(JOSEException.class);
+    }
+
+    private static Jwe.Builder builder() {
+        return Jwe.create()
+                .withSubject("user")
+                .withIssuer("users")
+                .withExpiredAt(Date.from(Instant.now().plusSeconds(60)))
+                .withClaim("roles", List.of("user"));
+    }
+}
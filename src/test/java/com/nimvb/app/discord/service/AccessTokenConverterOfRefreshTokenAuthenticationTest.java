@@ -0,0 +1,67 @@
+package com.nimvb.app.discord.service;
+
+import com.nimvb.app.discord.configuration.TestClockConfiguration;
+import com.nimvb.app.discord.configuration.TestJweConfiguration;
+import com.nimvb.app.discord.model.AccessToken;
+import com.nimvb.app.discord.security.resource.RefreshTokenAuthenticationToken;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.util.Jwe;
+import com.nimvb.app.discord.security.util.TokenType;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {AccessTokenConverterOfRefreshTokenAuthentication.class, AccessTokenIssuer.class, TestClockConfiguration.class, TestJweConfiguration.class})
+class AccessTokenConverterOfRefreshTokenAuthenticationTest {
+
+    @Autowired
+    KeyRingProvider keyRingProvider;
+
+    @Autowired
+    Clock clock;
+
+    @Autowired
+    AccessTokenConverterOfRefreshTokenAuthentication converter;
+
+    @Test
+    void ShouldThrownAnExceptionWhenNULLTokenIsProvided() {
+        Assertions.assertThatThrownBy(() -> {
+            converter.convert(null);
+        }).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    void ShouldIssueTheRefreshTokenWithTheRotatedTokenIdWhenAnAuthenticatedTokenIsProvided() {
+        final Instant expiresAt = Instant.now(clock).plus(24, ChronoUnit.HOURS);
+        final RefreshTokenAuthenticationToken token = new RefreshTokenAuthenticationToken("token", "username", "family", "second", expiresAt,
+                List.of(new SimpleGrantedAuthority("user")));
+        final Mono<AccessToken> accessTokenMono = converter.convert(token);
+
+        StepVerifier.create(accessTokenMono).assertNext(accessToken -> {
+            Assertions.assertThatCode(() -> {
+                final Jwe.DecryptionManager decryptionManager = Jwe.require(keyRingProvider.keyRing()).build();
+                final Jwe.Claims accessTokenClaims = decryptionManager.decode(accessToken.getAccessToken());
+                final Jwe.Claims refreshTokenClaims = decryptionManager.decode(accessToken.getRefreshToken());
+                Assertions.assertThat(accessTokenClaims.getSubject()).isEqualTo("username");
+                Assertions.assertThat(accessTokenClaims.getRoles()).containsExactly("user");
+                Assertions.assertThat(accessTokenClaims.getTokenType()).isNull();
+                Assertions.assertThat(refreshTokenClaims.getTokenType()).isEqualTo(TokenType.REFRESH);
+                Assertions.assertThat(refreshTokenClaims.getFamily()).isEqualTo("family");
+                Assertions.assertThat(refreshTokenClaims.getTokenId()).isEqualTo("second");
+                Assertions.assertThat(refreshTokenClaims.getExpiresAt()).isEqualTo(expiresAt);
+            }).doesNotThrowAnyException();
+        }).verifyComplete();
+    }
+}
@@ -2,13 +2,22 @@ package com.nimvb.app.discord.service;
 
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimvb.app.discord.configuration.TestClockConfiguration;
+import com.nimvb.app.discord.configuration.TestJweConfiguration;
+import com.nimvb.app.discord.domain.RefreshTokenFamily;
 import com.nimvb.app.discord.model.AccessToken;
-import com.nimvb.app.discord.security.service.SecretProvider;
+import com.nimvb.app.discord.repository.RefreshTokenFamilyRepository;
+import com.nimvb.app.discord.security.service.KeyRingProvider;
+import com.nimvb.app.discord.security.service.SigningKeyRingProvider;
+import com.nimvb.app.discord.security.service.TokenFormats;
 import com.nimvb.app.discord.security.util.Jwe;
+import com.nimvb.app.discord.security.util.Jws;
+import com.nimvb.app.discord.security.util.TokenFormat;
+import com.nimvb.app.discord.security.util.TokenType;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -26,11 +35,14 @@ import java.util.Date;
 import java.util.concurrent.atomic.AtomicReference;
 
 @ExtendWith(SpringExtension.class)
-@ContextConfiguration(classes = {AccessTokenConverterOfUsernamePasswordAuthentication.class,TestClockConfiguration.class})
+@ContextConfiguration(classes = {AccessTokenConverterOfUsernamePasswordAuthentication.class, AccessTokenIssuer.class, TestClockConfiguration.class, TestJweConfiguration.class})
 class AccessTokenConverterOfUsernamePasswordAuthenticationTest {
 
-    @MockBean
-    SecretProvider secretProvider;
+    @Autowired
+    KeyRingProvider keyRingProvider;
+
+    @Autowired
+    SigningKeyRingProvider signingKeyRingProvider;
 
     @Autowired
     Clock clock;
@@ -38,10 +50,13 @@ class AccessTokenConverterOfUsernamePasswordAuthenticationTest {
     @Autowired
     AccessTokenConverterOfUsernamePasswordAuthentication converter;
 
-    @BeforeEach
-    void init(){
+    @MockBean
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
 
-        Mockito.when(secretProvider.secret()).thenReturn(SecretProvider.DEFAULT_SECRET);
+    @BeforeEach
+    void init() {
+        Mockito.when(refreshTokenFamilyRepository.save(ArgumentMatchers.any(RefreshTokenFamily.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
     }
 
     @Test
@@ -67,8 +82,8 @@ class AccessTokenConverterOfUsernamePasswordAuthenticationTest {
                 boolean accessTokenCheck = false;
                 boolean refreshTokenCheck = false;
                 Assertions.assertThatCode(() -> {
-                    accessTokenClaimsReference.set(Jwe.require(Jwe.Algorithm.AES128HS256(secretProvider.secret())).build().decrypt(accessToken.getAccessToken()));
-                    refreshTokenClaimsReference.set(Jwe.require(Jwe.Algorithm.AES128HS256(secretProvider.secret())).build().decrypt(accessToken.getRefreshToken()));
+                    accessTokenClaimsReference.set(Jwe.require(keyRingProvider.keyRing()).build().decrypt(accessToken.getAccessToken()));
+                    refreshTokenClaimsReference.set(Jwe.require(keyRingProvider.keyRing()).build().decrypt(accessToken.getRefreshToken()));
                 }).doesNotThrowAnyException();
                 if (accessTokenClaimsReference.get() != null) {
                     final JWTClaimsSet accessTokenClaims = accessTokenClaimsReference.get();
@@ -91,4 +106,38 @@ class AccessTokenConverterOfUsernamePasswordAuthenticationTest {
 
     }
 
+    @Test
+    void ShouldReturnMonoWithSignedAccessTokenWhenTheAccessTokenFormatIsJws() {
+        final AccessTokenConverterOfUsernamePasswordAuthentication signingConverter = new AccessTokenConverterOfUsernamePasswordAuthentication(
+                new AccessTokenIssuer(keyRingProvider, signingKeyRingProvider, new TokenFormats(TokenFormat.JWS, TokenFormat.JWE), clock),
+                refreshTokenFamilyRepository,
+                clock);
+        final UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken("username", "password", Collections.emptyList());
+        StepVerifier.create(signingConverter.convert(token)).assertNext(accessToken -> {
+            Assertions.assertThat(accessToken.getAccessToken().split("\\.")).hasSize(3);
+            Assertions.assertThat(accessToken.getRefreshToken().split("\\.")).hasSize(5);
+            Assertions.assertThatCode(() -> {
+                final JWTClaimsSet claims = Jws.require(signingKeyRingProvider.signingKeyRing()).build().verify(accessToken.getAccessToken());
+                Assertions.assertThat(claims.getSubject()).isEqualTo("username");
+                Assertions.assertThat(claims.getExpirationTime()).isEqualTo(Date.from(Instant.now(clock).plus(1, ChronoUnit.HOURS)));
+            }).doesNotThrowAnyException();
+        }).verifyComplete();
+    }
+
+    @Test
+    void ShouldStartANewRefreshTokenFamilyWhenValidTokenIsProvided() {
+        final UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken("username", "password", Collections.emptyList());
+        StepVerifier.create(converter.convert(token)).assertNext(accessToken -> {
+            Assertions.assertThatCode(() -> {
+                final Jwe.Claims claims = Jwe.require(keyRingProvider.keyRing()).build().decode(accessToken.getRefreshToken());
+                Assertions.assertThat(claims.getTokenType()).isEqualTo(TokenType.REFRESH);
+                Mockito.verify(refreshTokenFamilyRepository).save(new RefreshTokenFamily(claims.getFamily(),
+                        "username",
+                        claims.getTokenId(),
+                        false,
+                        Instant.now(clock).plus(24, ChronoUnit.HOURS)));
+            }).doesNotThrowAnyException();
+        }).verifyComplete();
+    }
+
 }
\ No newline at end of file
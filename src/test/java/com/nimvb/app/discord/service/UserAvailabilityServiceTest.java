@@ -0,0 +1,149 @@
+package com.nimvb.app.discord.service;
+
+import com.nimvb.app.discord.event.UserCreatedEvent;
+import com.nimvb.app.discord.repository.InMemoryUserRepository;
+import com.nimvb.app.discord.repository.UserRepository;
+import com.nimvb.app.discord.util.UserBuilder;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.AdditionalAnswers;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@ExtendWith(SpringExtension.class)
+@DataMongoTest
+@TestPropertySource(properties = {
+        "spring.mongodb.embedded.version=3.5.5"
+})
+@DirtiesContext
+class UserAvailabilityServiceTest {
+
+    @Autowired
+    ReactiveMongoTemplate template;
+
+    @Autowired
+    UserRepository userRepository;
+
+    UserRepository repository;
+
+    UserAvailabilityService service;
+
+    @BeforeEach
+    void init() {
+        template.save(UserBuilder.build("username", "password", "email@email.com")).block();
+        repository = Mockito.mock(UserRepository.class, AdditionalAnswers.delegatesTo(userRepository));
+        service = new UserAvailabilityService(template, repository, Clock.systemUTC(), 100, 0.01, Duration.ZERO);
+    }
+
+    @AfterEach
+    void destroy() {
+        service.destroy();
+        template.dropCollection("users").block();
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheFilterSizingIsInvalid() {
+        Assertions.assertThatThrownBy(() -> new UserAvailabilityService(template, repository, Clock.systemUTC(), 100, 1, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ShouldLookUpEveryValueWhenTheFilterIsNotBuiltYet() {
+        StepVerifier.create(service.isUsernameAvailable("other")).expectNext(true).verifyComplete();
+        StepVerifier.create(service.isEmailAvailable("email@email.com")).expectNext(false).verifyComplete();
+        Mockito.verify(repository).findByUsername("other");
+        Mockito.verify(repository).findByEmail("email@email.com");
+    }
+
+    @Test
+    void ShouldAnswerTheFreeValuesWithoutALookUpWhenTheFilterIsBuilt() {
+        StepVerifier.create(service.synchronize()).verifyComplete();
+
+        StepVerifier.create(service.isUsernameAvailable("other")).expectNext(true).verifyComplete();
+        StepVerifier.create(service.isEmailAvailable("other@email.com")).expectNext(true).verifyComplete();
+        Mockito.verify(repository, Mockito.never()).findByUsername(ArgumentMatchers.anyString());
+        Mockito.verify(repository, Mockito.never()).findByEmail(ArgumentMatchers.anyString());
+
+        StepVerifier.create(service.isUsernameAvailable("username")).expectNext(false).verifyComplete();
+        StepVerifier.create(service.isEmailAvailable("email@email.com")).expectNext(false).verifyComplete();
+        // the username is not taken as an email
+        StepVerifier.create(service.isEmailAvailable("username")).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    void ShouldTakeTheUserAtOnceWhenItIsCreatedOnThisNode() {
+        StepVerifier.create(service.synchronize()).verifyComplete();
+        template.save(UserBuilder.build("created", "password", "created@email.com")).block();
+
+        service.onUserCreated(new UserCreatedEvent(this, "created", "created@email.com"));
+
+        StepVerifier.create(service.isUsernameAvailable("created")).expectNext(false).verifyComplete();
+        StepVerifier.create(service.isEmailAvailable("created@email.com")).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    void ShouldTakeTheUserAfterTheNextSynchronizationWhenItIsCreatedOnAnotherNode() {
+        StepVerifier.create(service.synchronize()).verifyComplete();
+        template.save(UserBuilder.build("remote", "password", "remote@email.com")).block();
+        StepVerifier.create(service.isUsernameAvailable("remote")).expectNext(true).verifyComplete();
+
+        StepVerifier.create(service.synchronize()).verifyComplete();
+
+        StepVerifier.create(service.isUsernameAvailable("remote")).expectNext(false).verifyComplete();
+        StepVerifier.create(service.isEmailAvailable("remote@email.com")).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    void ShouldBuildTheFilterFromTheRepositoryWhenTheUsersAreKeptInMemory() {
+        final InMemoryUserRepository inMemory = new InMemoryUserRepository(16, null);
+        inMemory.save(UserBuilder.build("memory", "password", "memory@email.com")).block();
+        final UserRepository spied = Mockito.mock(UserRepository.class, AdditionalAnswers.delegatesTo(inMemory));
+        final UserAvailabilityService inMemoryService = new UserAvailabilityService(spied, Clock.systemUTC(), 100, 0.01, Duration.ZERO);
+
+        StepVerifier.create(inMemoryService.synchronize()).verifyComplete();
+
+        StepVerifier.create(inMemoryService.isUsernameAvailable("memory")).expectNext(false).verifyComplete();
+        StepVerifier.create(inMemoryService.isEmailAvailable("memory@email.com")).expectNext(false).verifyComplete();
+        // the user of the users collection is not kept in memory
+        StepVerifier.create(inMemoryService.isUsernameAvailable("username")).expectNext(true).verifyComplete();
+        inMemoryService.destroy();
+    }
+
+    @Test
+    void ShouldTakeTheUserCreatedWhileTheFilterIsBuiltAgain() {
+        final Sinks.Empty<Void> reading = Sinks.empty();
+        final UserRepository slow = Mockito.mock(UserRepository.class);
+        Mockito.when(slow.count()).thenReturn(Mono.just(0L));
+        Mockito.when(slow.findAll()).thenReturn(reading.asMono().thenMany(Flux.empty()));
+        Mockito.when(slow.findByUsername(ArgumentMatchers.anyString())).thenReturn(Mono.empty());
+        final UserAvailabilityService rebuilding = new UserAvailabilityService(slow, Clock.systemUTC(), 100, 0.01, Duration.ZERO);
+
+        StepVerifier.create(rebuilding.synchronize())
+                .then(() -> {
+                    rebuilding.onUserCreated(new UserCreatedEvent(this, "created", "created@email.com"));
+                    reading.tryEmitEmpty();
+                })
+                .verifyComplete();
+
+        // the mocked repository does not have it, but the filter does, so it is looked up
+        StepVerifier.create(rebuilding.isUsernameAvailable("created")).expectNext(true).verifyComplete();
+        Mockito.verify(slow).findByUsername("created");
+        rebuilding.destroy();
+    }
+}
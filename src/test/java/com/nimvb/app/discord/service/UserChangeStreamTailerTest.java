@@ -0,0 +1,139 @@
+package com.nimvb.app.discord.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.event.UserChangedEvent;
+import com.nimvb.app.discord.security.cache.UserDetailsCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+
+@ExtendWith(SpringExtension.class)
+class UserChangeStreamTailerTest {
+
+    private final Instant                 now              = Instant.parse("2022-01-01T00:00:00Z");
+    private final Clock                   clock            = Clock.fixed(now, ZoneOffset.UTC);
+    private final List<UserChangedEvent>  published        = new ArrayList<>();
+    private final UserDetailsCache        userDetailsCache = new UserDetailsCache(100, Duration.ofMinutes(1));
+    private final MeterRegistry           meterRegistry    = new SimpleMeterRegistry();
+    private       ReactiveMongoTemplate   template;
+    private       UserChangeStreamTailer  tailer;
+
+    @BeforeEach
+    void init() {
+        template = Mockito.mock(ReactiveMongoTemplate.class);
+        Mockito.when(template.getCollectionName(User.class)).thenReturn("users");
+        Mockito.when(template.executeCommand(ArgumentMatchers.any(Document.class)))
+                .thenReturn(Mono.just(new Document("ismaster", true).append("setName", "rs0")));
+        Mockito.when(template.findOne(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(Document.class), ArgumentMatchers.eq(UserChangeStreamTailer.OFFSETS)))
+                .thenReturn(Mono.empty());
+        Mockito.when(template.upsert(ArgumentMatchers.any(Query.class), ArgumentMatchers.any(UpdateDefinition.class), ArgumentMatchers.eq(UserChangeStreamTailer.OFFSETS)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        Mockito.when(template.remove(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(UserChangeStreamTailer.OFFSETS)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+        final ApplicationEventPublisher eventPublisher = event -> published.add((UserChangedEvent) event);
+        tailer = new UserChangeStreamTailer(template, eventPublisher, userDetailsCache, clock, meterRegistry,
+                16, Duration.ZERO, Duration.ofSeconds(10), Duration.ofSeconds(5));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ChangeStreamEvent<Document> event(OperationType operation, Document body, String position) {
+        final ChangeStreamEvent<Document> event = Mockito.mock(ChangeStreamEvent.class);
+        Mockito.when(event.getOperationType()).thenReturn(operation);
+        Mockito.when(event.getBody()).thenReturn(body);
+        Mockito.when(event.getTimestamp()).thenReturn(now.minusSeconds(1));
+        Mockito.when(event.getResumeToken()).thenReturn(new BsonDocument("_data", new BsonString(position)));
+        return event;
+    }
+
+    private void changes(Flux<ChangeStreamEvent<Document>> changes) {
+        Mockito.when(template.changeStream(ArgumentMatchers.eq("users"), ArgumentMatchers.any(ChangeStreamOptions.class), ArgumentMatchers.eq(Document.class)))
+                .thenReturn(changes);
+    }
+
+    @Test
+    void ShouldThrowExceptionWhenTheBufferSizeIsInvalid() {
+        Assertions.assertThatThrownBy(() -> new UserChangeStreamTailer(template, event -> {}, userDetailsCache, clock, meterRegistry,
+                        0, Duration.ZERO, Duration.ofSeconds(10), Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ShouldKeepTheUsersForTheFallbackPeriodWhenTheChangesCanNotBeFollowed() {
+        Mockito.when(template.executeCommand(ArgumentMatchers.any(Document.class))).thenReturn(Mono.just(new Document("ismaster", true)));
+
+        StepVerifier.create(tailer.tail()).expectError(IllegalStateException.class).verify();
+
+        Assertions.assertThat(userDetailsCache.getExpireAfterWrite()).isEqualTo(Duration.ofSeconds(5));
+        Assertions.assertThat(meterRegistry.get("users.change.stream.available").gauge().value()).isEqualTo(0);
+        Assertions.assertThat(published).isEmpty();
+    }
+
+    @Test
+    void ShouldDropTheChangedUsersAndRestoreTheCachePeriodWhenTheChangesAreFollowed() {
+        changes(Flux.just(
+                        event(OperationType.UPDATE, new Document("username", "username"), "1"),
+                        event(OperationType.DELETE, null, "2"))
+                .concatWith(Flux.never()));
+
+        StepVerifier.create(tailer.tail()).expectNextCount(2).thenCancel().verify();
+
+        Assertions.assertThat(published).extracting(UserChangedEvent::getUsername).containsExactly(null, "username", null);
+        Assertions.assertThat(userDetailsCache.getExpireAfterWrite()).isEqualTo(Duration.ofMinutes(1));
+        Assertions.assertThat(meterRegistry.get("users.change.stream.available").gauge().value()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("users.change.stream.events").tag("operation", "update").counter().count()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("users.change.stream.lag").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void ShouldSaveThePositionOnlyWhenItMoved() {
+        changes(Flux.just(event(OperationType.REPLACE, new Document("username", "username"), "1")));
+
+        StepVerifier.create(tailer.tail()).expectNextCount(1).expectError(IllegalStateException.class).verify();
+        StepVerifier.create(tailer.checkpoint()).verifyComplete();
+        StepVerifier.create(tailer.checkpoint()).verifyComplete();
+
+        Mockito.verify(template, Mockito.times(1))
+                .upsert(ArgumentMatchers.any(Query.class), ArgumentMatchers.any(UpdateDefinition.class), ArgumentMatchers.eq(UserChangeStreamTailer.OFFSETS));
+    }
+
+    @Test
+    void ShouldForgetTheSavedPositionWhenItIsNoLongerInTheOplog() {
+        Mockito.when(template.findOne(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(Document.class), ArgumentMatchers.eq(UserChangeStreamTailer.OFFSETS)))
+                .thenReturn(Mono.just(new Document("_id", "users").append("position", new Document("_data", "1"))));
+        changes(Flux.error(new MongoException(286, "ChangeStreamHistoryLost")));
+
+        StepVerifier.create(tailer.tail()).expectError(MongoException.class).verify();
+
+        Mockito.verify(template).remove(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(UserChangeStreamTailer.OFFSETS));
+    }
+}
@@ -0,0 +1,114 @@
+package com.nimvb.app.discord.service;
+
+import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.event.UserCreatedEvent;
+import com.nimvb.app.discord.model.UserImportResult;
+import com.nimvb.app.discord.security.service.PasswordHashingExecutor;
+import com.nimvb.app.discord.util.UserBuilder;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+@DataMongoTest
+@Import({ValidationAutoConfiguration.class})
+@TestPropertySource(properties = {
+        "spring.mongodb.embedded.version=3.5.5"
+})
+@DirtiesContext
+@RecordApplicationEvents
+class UserImportServiceTest {
+
+    @Autowired
+    ReactiveMongoTemplate template;
+
+    @Autowired
+    MongoMappingContext mappingContext;
+
+    @Autowired
+    LocalValidatorFactoryBean validator;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    ApplicationEvents events;
+
+    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+
+    UserImportService userImportService;
+
+    @BeforeEach
+    void init() {
+        // the unique indexes are what reject the duplicates
+        Flux.fromIterable(new MongoPersistentEntityIndexResolver(mappingContext).resolveIndexFor(User.class))
+                .flatMap(index -> template.indexOps(User.class).ensureIndex(index))
+                .blockLast();
+        userImportService = new UserImportService(template, PasswordHashingExecutor.inline(encoder), validator,
+                Jackson2ObjectMapperBuilder.json().build(), eventPublisher, 2, 2);
+    }
+
+    @AfterEach
+    void destroy() {
+        template.dropCollection("users").block();
+    }
+
+    @Test
+    void ShouldReportTheResultOfEveryLineInOrderWhenUsersAreImported() {
+        template.save(UserBuilder.build("existing", "password", "existing@email.com")).block();
+
+        final Flux<String> lines = Flux.just(
+                "{\"username\":\"first\",\"password\":\"password\",\"email\":\"first@email.com\"}",
+                "",
+                "{\"username\":\"existing\",\"password\":\"password\",\"email\":\"other@email.com\"}",
+                "{\"username\":",
+                "{\"username\":\"second\",\"password\":\"pass\",\"email\":\"second@email.com\"}",
+                "{\"username\":\"third\",\"password\":\"password\",\"email\":\"third@email.com\"}",
+                "{\"username\":\"third\",\"password\":\"password\",\"email\":\"another@email.com\"}");
+
+        StepVerifier.create(userImportService.importUsers(lines).map(result -> result.getLine() + ":" + result.getStatus()))
+                .expectNext("1:CREATED", "3:DUPLICATE", "4:INVALID", "5:INVALID", "6:CREATED", "7:DUPLICATE")
+                .verifyComplete();
+
+        final List<User> users = template.findAll(User.class).collectList().block();
+        Assertions.assertThat(users).extracting(User::getUsername).containsExactlyInAnyOrder("existing", "first", "third");
+        Assertions.assertThat(users.stream().filter(user -> user.getUsername().equals("first")).collect(Collectors.toList()))
+                .allSatisfy(user -> Assertions.assertThat(encoder.matches("password", user.getPassword())).isTrue());
+        Assertions.assertThat(events.stream(UserCreatedEvent.class).map(UserCreatedEvent::getUsername))
+                .containsExactly("first", "third");
+    }
+
+    @Test
+    void ShouldExplainTheViolationsWhenALineIsInvalid() {
+        StepVerifier.create(userImportService.importUsers(Flux.just("{\"username\":\"user\",\"password\":\"pass\",\"email\":\"email@email.com\"}")))
+                .assertNext(result -> {
+                    Assertions.assertThat(result.getStatus()).isEqualTo(UserImportResult.Status.INVALID);
+                    Assertions.assertThat(result.getUsername()).isEqualTo("user");
+                    Assertions.assertThat(result.getMessage()).isEqualTo("password length should be greater than 6");
+                })
+                .verifyComplete();
+    }
+}
@@ -4,6 +4,7 @@ import com.nimvb.app.discord.configuration.MongoConfiguration;
 import com.nimvb.app.discord.configuration.TestEncodingConfiguration;
 import com.nimvb.app.discord.configuration.TestUserServiceConfiguration;
 import com.nimvb.app.discord.domain.User;
+import com.nimvb.app.discord.event.UserChangedEvent;
 import com.nimvb.app.discord.exception.UserNotFoundException;
 import com.nimvb.app.discord.exception.UsernameIsAlreadyExistsException;
 import com.nimvb.app.discord.repository.UserRepository;
@@ -17,6 +18,8 @@ import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -29,6 +32,7 @@ import reactor.test.StepVerifier;
         "spring.data.mongodb.auto-index-creation=true"
 })
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@RecordApplicationEvents
 class UserServiceTest {
 
     @Autowired
@@ -36,6 +40,9 @@ class UserServiceTest {
 
     @Autowired
     UserService userService;
+
+    @Autowired
+    ApplicationEvents events;
     
     private User sampleUser(){
         return User
@@ -111,4 +118,15 @@ class UserServiceTest {
     }
 
 
-}
\ No newline at end of file
+    @Test
+    void ShouldPersistTheNewPasswordHashWhenAnExistingUsernameIsProvided(){
+        StepVerifier.create(repository.save(sampleUser())).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(userService.updatePassword("username", "rehashed")).verifyComplete();
+        StepVerifier.create(userService.find("username").map(User::getPassword)).expectNext("rehashed").verifyComplete();
+        StepVerifier.create(userService.updatePassword("fake", "rehashed")).expectError(UserNotFoundException.class).verify();
+        Assertions.assertThat(events.stream(UserChangedEvent.class).map(UserChangedEvent::getUsername)).containsExactly("username");
+    }
+
+
+}